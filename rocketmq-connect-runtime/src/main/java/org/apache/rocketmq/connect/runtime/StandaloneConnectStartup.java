@@ -40,6 +40,7 @@ import org.apache.rocketmq.connect.runtime.service.ConfigManagementService;
 import org.apache.rocketmq.connect.runtime.service.PositionManagementService;
 import org.apache.rocketmq.connect.runtime.service.StagingMode;
 import org.apache.rocketmq.connect.runtime.utils.FileAndPropertyUtil;
+import org.apache.rocketmq.connect.runtime.utils.FilePathConfigUtil;
 import org.apache.rocketmq.connect.runtime.utils.Plugin;
 import org.apache.rocketmq.connect.runtime.utils.ServerUtil;
 import org.apache.rocketmq.connect.runtime.utils.ServiceProviderUtil;
@@ -126,7 +127,7 @@ public class StandaloneConnectStartup {
                     }
                 }
             }
-            Plugin plugin = new Plugin(pluginPaths);
+            Plugin plugin = new Plugin(pluginPaths, FilePathConfigUtil.getPluginIndexPath(connectConfig.getStorePathRootDir()));
             plugin.initPlugin();
 
             ClusterManagementService clusterManagementService = ServiceProviderUtil.getClusterManagementServices(StagingMode.STANDALONE);
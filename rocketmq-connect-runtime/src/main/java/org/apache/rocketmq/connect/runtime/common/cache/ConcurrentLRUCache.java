@@ -0,0 +1,146 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.apache.rocketmq.connect.runtime.common.cache;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A bounded cache that many threads can read without locking, evicting approximately the least recently used entries.
+ *
+ * <p>A read only marks the entry with its access time, at most once per millisecond. Once the cache grows beyond its
+ * maximum size, the thread that holds the eviction lock removes the eighth of the entries least recently used, other
+ * threads go on without waiting, so the cache may briefly hold a few more entries than its maximum size.
+ */
+public class ConcurrentLRUCache<K, V> implements Cache<K, V> {
+
+    private static final long ACCESS_TIME_GRANULARITY_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final int maxSize;
+
+    private final ConcurrentHashMap<K, Node<V>> cache;
+
+    private final ReentrantLock evictionLock = new ReentrantLock();
+
+    private final LongAdder hitCount = new LongAdder();
+
+    private final LongAdder missCount = new LongAdder();
+
+    public ConcurrentLRUCache(final int maxSize) {
+        this.maxSize = Math.max(1, maxSize);
+        this.cache = new ConcurrentHashMap<>(Math.min(this.maxSize, 1024));
+    }
+
+    @Override
+    public V get(K key) {
+        Node<V> node = cache.get(key);
+        if (node == null) {
+            missCount.increment();
+            return null;
+        }
+        hitCount.increment();
+        long now = System.nanoTime();
+        if (now - node.accessTime > ACCESS_TIME_GRANULARITY_NANOS) {
+            node.accessTime = now;
+        }
+        return node.value;
+    }
+
+    @Override
+    public void put(K key, V value) {
+        cache.put(key, new Node<>(value, System.nanoTime()));
+        if (cache.size() > maxSize) {
+            evict();
+        }
+    }
+
+    @Override
+    public boolean remove(K key) {
+        return cache.remove(key) != null;
+    }
+
+    @Override
+    public long size() {
+        return cache.size();
+    }
+
+    public long getHitCount() {
+        return hitCount.sum();
+    }
+
+    public long getMissCount() {
+        return missCount.sum();
+    }
+
+    /**
+     * Remove the least recently used entries, at least down to the maximum size.
+     */
+    private void evict() {
+        if (!evictionLock.tryLock()) {
+            return;
+        }
+        try {
+            int size = cache.size();
+            if (size <= maxSize) {
+                return;
+            }
+            // nanoTime may be negative, access times are compared by their difference to now
+            long now = System.nanoTime();
+            long[] ages = new long[size];
+            int count = 0;
+            for (Node<V> node : cache.values()) {
+                if (count == ages.length) {
+                    break;
+                }
+                ages[count++] = now - node.accessTime;
+            }
+            int toEvict = Math.min(count, size - maxSize + Math.max(1, maxSize / 8));
+            if (toEvict <= 0) {
+                return;
+            }
+            Arrays.sort(ages, 0, count);
+            long minAge = ages[count - toEvict];
+            Iterator<Map.Entry<K, Node<V>>> iterator = cache.entrySet().iterator();
+            while (iterator.hasNext() && toEvict > 0) {
+                if (now - iterator.next().getValue().accessTime >= minAge) {
+                    iterator.remove();
+                    toEvict--;
+                }
+            }
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    private static class Node<V> {
+
+        private final V value;
+
+        private volatile long accessTime;
+
+        private Node(V value, long accessTime) {
+            this.value = value;
+            this.accessTime = accessTime;
+        }
+    }
+}
@@ -109,6 +109,16 @@ public class ConnectConfig {
      */
     private int positionPersistInterval = 20 * 1000;
 
+    /**
+     * Standalone source task position flush interval, position updates in between are persisted together.
+     */
+    private int positionFlushInterval = 1000;
+
+    /**
+     * Number of position updates that triggers a standalone position flush before the flush interval ends.
+     */
+    private int positionFlushDirtyThreshold = 10000;
+
     /**
      * Sink task offset persistence interval.
      */
@@ -137,6 +147,36 @@ public class ConnectConfig {
 
     private String adminExtGroup = "connector-admin-group";
 
+    /**
+     * How tasks are run, "cached" runs every task on a platform thread, "virtual" runs every task on a virtual thread
+     * where the JVM supports them.
+     */
+    private String taskExecutorType = "cached";
+
+    /**
+     * Whether the tasks of a worker share RocketMQ client instances instead of creating their own.
+     */
+    private boolean sharedClientEnable = false;
+
+    /**
+     * How long the connectors and tasks of a worker that left the cluster wait before they move to other workers, so
+     * that a restarting worker does not cause two rebalances. Zero moves them at once.
+     */
+    private int rebalanceDelay = 0;
+
+    /**
+     * How long in milliseconds a deleted connector is remembered before it is compacted away. It should exceed the
+     * longest time a worker may be offline, otherwise that worker brings the connector back when it comes online.
+     */
+    private long configTombstoneRetention = 7 * 24 * 3600 * 1000L;
+
+    /**
+     * Whether the config and position messages synchronized between workers are written in the binary format instead
+     * of the JSON format. Workers of earlier versions only read JSON, so enable it once all workers of the cluster
+     * read both formats.
+     */
+    private boolean binarySyncFormatEnable = false;
+
     public String getWorkerId() {
         return workerId;
     }
@@ -241,6 +281,22 @@ public class ConnectConfig {
         this.positionPersistInterval = positionPersistInterval;
     }
 
+    public int getPositionFlushInterval() {
+        return positionFlushInterval;
+    }
+
+    public void setPositionFlushInterval(int positionFlushInterval) {
+        this.positionFlushInterval = positionFlushInterval;
+    }
+
+    public int getPositionFlushDirtyThreshold() {
+        return positionFlushDirtyThreshold;
+    }
+
+    public void setPositionFlushDirtyThreshold(int positionFlushDirtyThreshold) {
+        this.positionFlushDirtyThreshold = positionFlushDirtyThreshold;
+    }
+
     public int getOffsetPersistInterval() {
         return offsetPersistInterval;
     }
@@ -361,6 +417,46 @@ public class ConnectConfig {
         this.adminExtGroup = adminExtGroup;
     }
 
+    public String getTaskExecutorType() {
+        return taskExecutorType;
+    }
+
+    public void setTaskExecutorType(String taskExecutorType) {
+        this.taskExecutorType = taskExecutorType;
+    }
+
+    public boolean isSharedClientEnable() {
+        return sharedClientEnable;
+    }
+
+    public void setSharedClientEnable(boolean sharedClientEnable) {
+        this.sharedClientEnable = sharedClientEnable;
+    }
+
+    public int getRebalanceDelay() {
+        return rebalanceDelay;
+    }
+
+    public void setRebalanceDelay(int rebalanceDelay) {
+        this.rebalanceDelay = rebalanceDelay;
+    }
+
+    public long getConfigTombstoneRetention() {
+        return configTombstoneRetention;
+    }
+
+    public void setConfigTombstoneRetention(long configTombstoneRetention) {
+        this.configTombstoneRetention = configTombstoneRetention;
+    }
+
+    public boolean isBinarySyncFormatEnable() {
+        return binarySyncFormatEnable;
+    }
+
+    public void setBinarySyncFormatEnable(boolean binarySyncFormatEnable) {
+        this.binarySyncFormatEnable = binarySyncFormatEnable;
+    }
+
     public String getConnectHome() {
         return connectHome;
     }
@@ -390,6 +486,8 @@ public class ConnectConfig {
             ", offsetStoreTopic='" + offsetStoreTopic + '\'' +
             ", httpPort=" + httpPort +
             ", positionPersistInterval=" + positionPersistInterval +
+            ", positionFlushInterval=" + positionFlushInterval +
+            ", positionFlushDirtyThreshold=" + positionFlushDirtyThreshold +
             ", offsetPersistInterval=" + offsetPersistInterval +
             ", configPersistInterval=" + configPersistInterval +
             ", pluginPaths='" + pluginPaths + '\'' +
@@ -401,6 +499,11 @@ public class ConnectConfig {
             ", autoCreateGroupEnable=" + autoCreateGroupEnable +
             ", clusterName='" + clusterName + '\'' +
             ", adminExtGroup='" + adminExtGroup + '\'' +
+            ", taskExecutorType='" + taskExecutorType + '\'' +
+            ", sharedClientEnable=" + sharedClientEnable +
+            ", rebalanceDelay=" + rebalanceDelay +
+            ", configTombstoneRetention=" + configTombstoneRetention +
+            ", binarySyncFormatEnable=" + binarySyncFormatEnable +
             '}';
     }
 }
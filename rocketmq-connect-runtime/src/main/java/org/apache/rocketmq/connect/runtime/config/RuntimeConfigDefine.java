@@ -46,6 +46,11 @@ public class RuntimeConfigDefine {
 
     public static final String MAX_TASK = "max-task";
 
+    /**
+     * The relative load of one task of a connector, used to balance workers by load instead of task count.
+     */
+    public static final String TASK_LOAD_WEIGHT = "task-load-weight";
+
     public static final String CONNECTOR_ID = "connector-id";
 
     /**
@@ -0,0 +1,39 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.apache.rocketmq.connect.runtime.connectorwrapper;
+
+import io.openmessaging.connector.api.data.ConnectRecord;
+
+import java.util.List;
+
+/**
+ * A transform of a batch of records at once.
+ *
+ * <p>A {@link io.openmessaging.connector.api.component.Transform} that also implements this interface is called once
+ * per batch by the {@link TransformChain}, other transforms are called record by record.
+ */
+public interface BatchTransform<R extends ConnectRecord> {
+
+    /**
+     * Transform the records of a batch.
+     *
+     * @param records the records to transform, must not be modified
+     * @return the transformed records, in order, a record may be filtered out or transformed into several
+     */
+    List<R> doTransforms(List<R> records);
+}
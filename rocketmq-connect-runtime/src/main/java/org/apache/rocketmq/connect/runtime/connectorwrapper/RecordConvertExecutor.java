@@ -0,0 +1,105 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.apache.rocketmq.connect.runtime.connectorwrapper;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.function.IntFunction;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Converts the records of a batch, on a fork join pool of the task when the batch is large enough to be worth it, or
+ * else on the calling thread.
+ *
+ * <p>The conversion of each record must not depend on the others, its failures are handled per record by the
+ * {@link org.apache.rocketmq.connect.runtime.errors.RetryWithToleranceOperator}.
+ */
+public class RecordConvertExecutor implements AutoCloseable {
+
+    /**
+     * Records of a batch per thread below which the batch is converted on the calling thread.
+     */
+    private static final int MIN_RECORDS_PER_THREAD = 8;
+
+    private final int parallelism;
+
+    private final ForkJoinPool pool;
+
+    /**
+     * @param name        the prefix of the names of the pool threads
+     * @param parallelism the number of threads, 1 or less to convert on the calling thread only
+     */
+    public RecordConvertExecutor(String name, int parallelism) {
+        this.parallelism = parallelism;
+        if (parallelism <= 1) {
+            this.pool = null;
+            return;
+        }
+        // the pool threads load classes as the task thread does
+        final ClassLoader contextClassLoader = Thread.currentThread().getContextClassLoader();
+        this.pool = new ForkJoinPool(parallelism, forkJoinPool -> {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(forkJoinPool);
+            thread.setName(name + "-" + thread.getPoolIndex());
+            thread.setContextClassLoader(contextClassLoader);
+            return thread;
+        }, null, false);
+    }
+
+    /**
+     * Convert the records at the indexes 0 until count.
+     *
+     * @return the converted records, in order, null where the converter returned null
+     */
+    public <R> List<R> convert(int count, IntFunction<R> converter) throws InterruptedException {
+        if (pool == null || count < parallelism * MIN_RECORDS_PER_THREAD) {
+            List<R> converted = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                converted.add(converter.apply(i));
+            }
+            return converted;
+        }
+        try {
+            // a parallel stream started from a pool thread runs its tasks on that pool
+            return pool.submit(() -> IntStream.range(0, count).parallel().mapToObj(converter).collect(Collectors.toList())).get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            // a task failing on another thread rethrows a copy of the exception, caused by the original one
+            while (null != cause.getCause() && cause.getClass() == cause.getCause().getClass()) {
+                cause = cause.getCause();
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IllegalStateException(cause);
+        }
+    }
+
+    @Override
+    public void close() {
+        if (pool != null) {
+            pool.shutdown();
+        }
+    }
+}
@@ -0,0 +1,158 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.apache.rocketmq.connect.runtime.connectorwrapper;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A bounded ring buffer handing records from one producer thread to one consumer thread.
+ *
+ * <p>The records are passed by reference, neither side takes a lock. Each side owns its own index and only reads the
+ * index of the other, a side finding the buffer full or empty parks until the other side moves and unparks it, or
+ * until its timeout elapses. Parking does not pin the carrier thread of a virtual thread.
+ *
+ * <p>{@link #offer} must only be called by one thread at a time, and so must {@link #drainTo}.
+ */
+public class RecordRingBuffer<E> {
+
+    private final Object[] buffer;
+
+    private final int mask;
+
+    /**
+     * Index of the next element to take, only moved by the consumer.
+     */
+    private final AtomicLong head = new AtomicLong();
+
+    /**
+     * Index of the next element to put, only moved by the producer.
+     */
+    private final AtomicLong tail = new AtomicLong();
+
+    private volatile Thread waitingProducer;
+
+    private volatile Thread waitingConsumer;
+
+    /**
+     * @param capacity the maximum number of elements buffered, rounded up to a power of two
+     */
+    public RecordRingBuffer(int capacity) {
+        int size = 1;
+        while (size < capacity) {
+            size <<= 1;
+        }
+        this.buffer = new Object[size];
+        this.mask = size - 1;
+    }
+
+    /**
+     * Put an element, waiting for room if the buffer is full.
+     *
+     * @return false if the buffer stayed full until the timeout elapsed.
+     * @throws InterruptedException if interrupted while waiting.
+     */
+    public boolean offer(E element, long timeout, TimeUnit unit) throws InterruptedException {
+        long index = tail.get();
+        if (index - head.get() == buffer.length) {
+            long deadline = System.nanoTime() + unit.toNanos(timeout);
+            waitingProducer = Thread.currentThread();
+            try {
+                // the consumer moves the head before it reads the waiting producer, so checking again after
+                // publishing this thread cannot miss a wakeup
+                while (index - head.get() == buffer.length) {
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) {
+                        return false;
+                    }
+                    LockSupport.parkNanos(this, remaining);
+                    if (Thread.interrupted()) {
+                        throw new InterruptedException();
+                    }
+                }
+            } finally {
+                waitingProducer = null;
+            }
+        }
+        buffer[(int) index & mask] = element;
+        tail.set(index + 1);
+        Thread consumer = waitingConsumer;
+        if (null != consumer) {
+            LockSupport.unpark(consumer);
+        }
+        return true;
+    }
+
+    /**
+     * Take the elements buffered, waiting for one if the buffer is empty.
+     *
+     * @param elements receives the elements taken, in the order they were put.
+     * @param maxElements the maximum number of elements to take.
+     * @return the number of elements taken, 0 if the buffer stayed empty until the timeout elapsed.
+     * @throws InterruptedException if interrupted while waiting.
+     */
+    @SuppressWarnings("unchecked")
+    public int drainTo(List<? super E> elements, int maxElements, long timeout, TimeUnit unit) throws InterruptedException {
+        long index = head.get();
+        long available = tail.get() - index;
+        if (available == 0) {
+            long deadline = System.nanoTime() + unit.toNanos(timeout);
+            waitingConsumer = Thread.currentThread();
+            try {
+                while ((available = tail.get() - index) == 0) {
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) {
+                        return 0;
+                    }
+                    LockSupport.parkNanos(this, remaining);
+                    if (Thread.interrupted()) {
+                        throw new InterruptedException();
+                    }
+                }
+            } finally {
+                waitingConsumer = null;
+            }
+        }
+        int count = (int) Math.min(available, maxElements);
+        for (int i = 0; i < count; i++) {
+            int slot = (int) (index + i) & mask;
+            elements.add((E) buffer[slot]);
+            // let the element be collected once it is taken
+            buffer[slot] = null;
+        }
+        head.set(index + count);
+        Thread producer = waitingProducer;
+        if (null != producer) {
+            LockSupport.unpark(producer);
+        }
+        return count;
+    }
+
+    /**
+     * @return the number of elements buffered, may be stale as soon as it is returned.
+     */
+    public int size() {
+        return (int) (tail.get() - head.get());
+    }
+
+    public int capacity() {
+        return buffer.length;
+    }
+}
@@ -0,0 +1,452 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.apache.rocketmq.connect.runtime.connectorwrapper;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.rocketmq.client.consumer.DefaultMQPullConsumer;
+import org.apache.rocketmq.client.consumer.PullCallback;
+import org.apache.rocketmq.client.consumer.PullResult;
+import org.apache.rocketmq.client.consumer.PullStatus;
+import org.apache.rocketmq.client.exception.MQClientException;
+import org.apache.rocketmq.common.message.MessageQueue;
+import org.apache.rocketmq.connect.runtime.common.LoggerName;
+import org.apache.rocketmq.remoting.exception.RemotingException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Pulls messages for a {@link WorkerSinkTask} asynchronously.
+ *
+ * <p>Every assigned queue has at most one pull in flight. A queue keeps pulling from the callback while its prefetch
+ * buffer has room, so broker round trips of all queues overlap with the conversion and put of the messages already
+ * pulled. Results of every queue are handed to the task thread through one queue in the order they arrive.
+ *
+ * <p>Pulls are long polling: the broker holds a pull of an idle queue until messages arrive or the suspend time is up,
+ * so new messages are delivered right away without polling idle queues over and over. Backoff after errors, or after
+ * empty pulls the broker did not hold, is tracked per queue and never delays the other queues.
+ *
+ * <p>A paused queue is not pulled, and results pulled before it was paused are held until it is resumed.
+ */
+public class SinkMessagePuller {
+
+    private static final Logger log = LoggerFactory.getLogger(LoggerName.ROCKETMQ_RUNTIME);
+
+    private static final String SUB_EXPRESSION = "*";
+
+    private static final int NOT_IN_FLIGHT = -1;
+
+    /**
+     * An empty pull returning faster than this was not held by the broker, the queue backs off before it is pulled again.
+     */
+    private static final long SUSPENDED_PULL_MIN_RT_MS = 100;
+
+    private static final long PULL_NO_MSG_MIN_BACKOFF_MS = 100;
+    private static final long PULL_NO_MSG_MAX_BACKOFF_MS = 1000 * 3;
+
+    private static final long PULL_MSG_ERROR_MIN_BACKOFF_MS = 100;
+    private static final long PULL_MSG_ERROR_MAX_BACKOFF_MS = 1000 * 10;
+
+    private final DefaultMQPullConsumer consumer;
+
+    /**
+     * Max messages pulled by one request.
+     */
+    private final int pullBatchSize;
+
+    /**
+     * Max messages of one queue that were pulled but not yet taken by the task thread.
+     */
+    private final int maxPrefetchMessages;
+
+    private final ConcurrentHashMap<MessageQueue, QueuePullState> queuePullStates = new ConcurrentHashMap<>(256);
+
+    private final LinkedBlockingQueue<QueuePullResult> pullResults = new LinkedBlockingQueue<>();
+
+    /**
+     * Results held while their queues were paused, taken before {@link #pullResults} as they were pulled earlier.
+     */
+    private final ConcurrentLinkedQueue<QueuePullResult> resumedResults = new ConcurrentLinkedQueue<>();
+
+    private volatile boolean stopped = false;
+
+    public SinkMessagePuller(DefaultMQPullConsumer consumer, int pullBatchSize, int maxPrefetchMessages) {
+        this.consumer = consumer;
+        this.pullBatchSize = pullBatchSize;
+        this.maxPrefetchMessages = Math.max(maxPrefetchMessages, pullBatchSize);
+    }
+
+    /**
+     * Start pulling the given queue from the given offset, replacing any state of the queue.
+     *
+     * @param messageQueue the queue assigned to the task.
+     * @param offset the offset to pull from.
+     */
+    public void addQueue(MessageQueue messageQueue, long offset) {
+        queuePullStates.put(messageQueue, new QueuePullState(messageQueue, offset));
+    }
+
+    /**
+     * Stop pulling the given queue, results still in flight or buffered are discarded.
+     *
+     * @param messageQueue the queue no longer assigned to the task.
+     */
+    public void removeQueue(MessageQueue messageQueue) {
+        queuePullStates.remove(messageQueue);
+    }
+
+    /**
+     * Pull the given queue from a new offset, results still in flight or buffered are discarded.
+     *
+     * @param messageQueue the queue to reset.
+     * @param offset the offset to pull from.
+     */
+    public void resetOffset(MessageQueue messageQueue, long offset) {
+        QueuePullState pullState = queuePullStates.get(messageQueue);
+        if (null == pullState) {
+            return;
+        }
+        synchronized (pullState) {
+            pullState.epoch++;
+            pullState.nextPullOffset = offset;
+            pullState.bufferedMessages.set(0);
+            pullState.heldResults.clear();
+            pullState.nextPullTimestamp = 0;
+            pullState.backoffMs = 0;
+            pullState.consecutiveErrors = 0;
+        }
+    }
+
+    /**
+     * Stop pulling the given queue until it is resumed, results already pulled are held until then.
+     *
+     * @param messageQueue the queue to pause.
+     */
+    public void pause(MessageQueue messageQueue) {
+        QueuePullState pullState = queuePullStates.get(messageQueue);
+        if (null == pullState) {
+            return;
+        }
+        synchronized (pullState) {
+            pullState.paused = true;
+        }
+    }
+
+    /**
+     * Pause the queue of the given result, which was taken by {@link #poll(long)} but is handed out again after the
+     * queue is resumed.
+     *
+     * @param result a result of a queue paused after it was taken.
+     */
+    public void hold(QueuePullResult result) {
+        QueuePullState pullState = result.pullState;
+        synchronized (pullState) {
+            if (!isCurrent(pullState, result.epoch)) {
+                return;
+            }
+            pullState.paused = true;
+            if (null != result.pullResult && PullStatus.FOUND == result.pullResult.getPullStatus()) {
+                pullState.bufferedMessages.addAndGet(result.pullResult.getMsgFoundList().size());
+            }
+            pullState.heldResults.add(result);
+        }
+    }
+
+    /**
+     * Pull the given queue again, the results held while it was paused are taken by the next {@link #poll(long)}.
+     *
+     * @param messageQueue the queue to resume.
+     */
+    public void resume(MessageQueue messageQueue) {
+        QueuePullState pullState = queuePullStates.get(messageQueue);
+        if (null == pullState) {
+            return;
+        }
+        synchronized (pullState) {
+            if (!pullState.paused) {
+                return;
+            }
+            pullState.paused = false;
+            resumedResults.addAll(pullState.heldResults);
+            pullState.heldResults.clear();
+        }
+    }
+
+    /**
+     * Issue an asynchronous pull for the given queue, unless it is paused, a pull is already in flight, its prefetch
+     * buffer is full or it backs off.
+     *
+     * @param messageQueue the queue to pull.
+     * @return time left until the queue may be pulled if it backs off, otherwise 0.
+     */
+    public long pull(MessageQueue messageQueue) {
+        QueuePullState pullState = queuePullStates.get(messageQueue);
+        if (stopped || null == pullState) {
+            return 0;
+        }
+        final int epoch;
+        final long offset;
+        synchronized (pullState) {
+            if (pullState.paused || pullState.inFlightEpoch == pullState.epoch
+                || pullState.bufferedMessages.get() >= maxPrefetchMessages) {
+                return 0;
+            }
+            long backoffMs = pullState.nextPullTimestamp - System.currentTimeMillis();
+            if (backoffMs > 0) {
+                return backoffMs;
+            }
+            pullState.inFlightEpoch = pullState.epoch;
+            epoch = pullState.epoch;
+            offset = pullState.nextPullOffset;
+        }
+        doPull(pullState, epoch, offset);
+        return 0;
+    }
+
+    /**
+     * Wait up to the given time for pull results, then take all results that are available. Results of paused queues
+     * are held instead.
+     *
+     * @param timeoutMillis max time to wait for the first result.
+     * @return results of any queue, empty if none arrived in time.
+     * @throws InterruptedException if interrupted while waiting.
+     */
+    public List<QueuePullResult> poll(long timeoutMillis) throws InterruptedException {
+        List<QueuePullResult> results = new ArrayList<>();
+        List<QueuePullResult> available = new ArrayList<>();
+        QueuePullResult resumed;
+        while (null != (resumed = resumedResults.poll())) {
+            available.add(resumed);
+        }
+        if (available.isEmpty()) {
+            QueuePullResult first = pullResults.poll(timeoutMillis, TimeUnit.MILLISECONDS);
+            if (null == first) {
+                return results;
+            }
+            available.add(first);
+        }
+        pullResults.drainTo(available);
+        for (QueuePullResult result : available) {
+            QueuePullState pullState = result.pullState;
+            synchronized (pullState) {
+                if (!isCurrent(pullState, result.epoch)) {
+                    continue;
+                }
+                if (pullState.paused) {
+                    pullState.heldResults.add(result);
+                    continue;
+                }
+                if (null != result.pullResult && PullStatus.FOUND == result.pullResult.getPullStatus()) {
+                    pullState.bufferedMessages.addAndGet(-result.pullResult.getMsgFoundList().size());
+                }
+            }
+            results.add(result);
+        }
+        return results;
+    }
+
+    public void shutdown() {
+        stopped = true;
+        queuePullStates.clear();
+        pullResults.clear();
+        resumedResults.clear();
+    }
+
+    private void doPull(final QueuePullState pullState, final int epoch, final long offset) {
+        final long beginPullTimestamp = System.currentTimeMillis();
+        try {
+            consumer.pullBlockIfNotFound(pullState.messageQueue, SUB_EXPRESSION, offset, pullBatchSize, new PullCallback() {
+                @Override
+                public void onSuccess(PullResult pullResult) {
+                    onPullSuccess(pullState, epoch, offset, beginPullTimestamp, pullResult);
+                }
+
+                @Override
+                public void onException(Throwable e) {
+                    onPullException(pullState, epoch, offset, beginPullTimestamp, e);
+                }
+            });
+        } catch (MQClientException | RemotingException e) {
+            onPullException(pullState, epoch, offset, beginPullTimestamp, e);
+        } catch (InterruptedException e) {
+            onPullException(pullState, epoch, offset, beginPullTimestamp, e);
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void onPullSuccess(QueuePullState pullState, int epoch, long offset, long beginPullTimestamp,
+        PullResult pullResult) {
+        long pullRT = System.currentTimeMillis() - beginPullTimestamp;
+        boolean pullNext = false;
+        long nextOffset;
+        synchronized (pullState) {
+            if (!isCurrent(pullState, epoch)) {
+                clearInFlight(pullState, epoch);
+                return;
+            }
+            pullState.consecutiveErrors = 0;
+            if (PullStatus.FOUND == pullResult.getPullStatus()) {
+                pullState.nextPullOffset = pullResult.getNextBeginOffset();
+                pullState.backoffMs = 0;
+                int buffered = pullState.bufferedMessages.addAndGet(pullResult.getMsgFoundList().size());
+                pullResults.add(new QueuePullResult(pullState, epoch, offset, pullRT, pullResult, null));
+                pullNext = !stopped && !pullState.paused && buffered < maxPrefetchMessages;
+            } else if (PullStatus.NO_NEW_MSG == pullResult.getPullStatus()) {
+                if (pullRT < SUSPENDED_PULL_MIN_RT_MS) {
+                    pullState.backoffMs = Math.min(PULL_NO_MSG_MAX_BACKOFF_MS, Math.max(PULL_NO_MSG_MIN_BACKOFF_MS, pullState.backoffMs * 2));
+                    pullState.nextPullTimestamp = System.currentTimeMillis() + pullState.backoffMs;
+                } else {
+                    pullState.backoffMs = 0;
+                    pullNext = !stopped && !pullState.paused;
+                }
+            } else {
+                // the task resets the offset of the queue, which pulls it again
+                pullResults.add(new QueuePullResult(pullState, epoch, offset, pullRT, pullResult, null));
+            }
+            if (!pullNext) {
+                pullState.inFlightEpoch = NOT_IN_FLIGHT;
+            }
+            nextOffset = pullState.nextPullOffset;
+        }
+        if (pullNext) {
+            doPull(pullState, epoch, nextOffset);
+        }
+    }
+
+    private void onPullException(QueuePullState pullState, int epoch, long offset, long beginPullTimestamp,
+        Throwable e) {
+        synchronized (pullState) {
+            if (isCurrent(pullState, epoch)) {
+                pullState.consecutiveErrors++;
+                long backoffMs = PULL_MSG_ERROR_MIN_BACKOFF_MS << Math.min(pullState.consecutiveErrors - 1, 10);
+                pullState.nextPullTimestamp = System.currentTimeMillis() + Math.min(PULL_MSG_ERROR_MAX_BACKOFF_MS, backoffMs);
+                pullResults.add(new QueuePullResult(pullState, epoch, offset, System.currentTimeMillis() - beginPullTimestamp, null, e));
+            } else {
+                log.debug("Discard pull exception of a reset or removed queue {}", pullState.messageQueue, e);
+            }
+            clearInFlight(pullState, epoch);
+        }
+    }
+
+    private void clearInFlight(QueuePullState pullState, int epoch) {
+        if (pullState.inFlightEpoch == epoch) {
+            pullState.inFlightEpoch = NOT_IN_FLIGHT;
+        }
+    }
+
+    private boolean isCurrent(QueuePullState pullState, int epoch) {
+        return pullState.epoch == epoch && queuePullStates.get(pullState.messageQueue) == pullState;
+    }
+
+    /**
+     * Pull progress of one queue, guarded by the instance itself.
+     */
+    private static class QueuePullState {
+
+        private final MessageQueue messageQueue;
+
+        private final AtomicInteger bufferedMessages = new AtomicInteger(0);
+
+        /**
+         * Results taken while the queue was paused, in the order they were pulled.
+         */
+        private final List<QueuePullResult> heldResults = new ArrayList<>();
+
+        /**
+         * Increased on every reset so that results pulled from an old offset can be recognized.
+         */
+        private int epoch;
+
+        /**
+         * The epoch of the pull in flight, a reset queue may pull again while a suspended pull of the old epoch is
+         * still held by the broker.
+         */
+        private int inFlightEpoch = NOT_IN_FLIGHT;
+
+        private long nextPullOffset;
+
+        /**
+         * The queue is not pulled before this time while it backs off.
+         */
+        private long nextPullTimestamp;
+
+        private long backoffMs;
+
+        private int consecutiveErrors;
+
+        private boolean paused;
+
+        private QueuePullState(MessageQueue messageQueue, long nextPullOffset) {
+            this.messageQueue = messageQueue;
+            this.nextPullOffset = nextPullOffset;
+        }
+    }
+
+    /**
+     * The outcome of one pull request, either a {@link PullResult} or the exception the request failed with.
+     */
+    public static class QueuePullResult {
+
+        private final QueuePullState pullState;
+
+        private final int epoch;
+
+        private final long pullOffset;
+
+        private final long pullRT;
+
+        private final PullResult pullResult;
+
+        private final Throwable throwable;
+
+        private QueuePullResult(QueuePullState pullState, int epoch, long pullOffset, long pullRT,
+            PullResult pullResult, Throwable throwable) {
+            this.pullState = pullState;
+            this.epoch = epoch;
+            this.pullOffset = pullOffset;
+            this.pullRT = pullRT;
+            this.pullResult = pullResult;
+            this.throwable = throwable;
+        }
+
+        public MessageQueue getMessageQueue() {
+            return pullState.messageQueue;
+        }
+
+        public long getPullOffset() {
+            return pullOffset;
+        }
+
+        public long getPullRT() {
+            return pullRT;
+        }
+
+        public PullResult getPullResult() {
+            return pullResult;
+        }
+
+        public Throwable getThrowable() {
+            return throwable;
+        }
+    }
+}
@@ -0,0 +1,160 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.apache.rocketmq.connect.runtime.connectorwrapper;
+
+import io.openmessaging.connector.api.component.task.sink.SinkTask;
+import io.openmessaging.connector.api.data.ConnectRecord;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.apache.rocketmq.common.message.MessageQueue;
+
+/**
+ * Accumulates the records of pulled messages until there are enough records, or they waited long enough, for one
+ * {@link SinkTask#put(List)}.
+ *
+ * <p>The next offset of every queue is kept with the records, so that a queue's offset only advances after the
+ * records pulled before it were put. In adaptive mode the batch size is halved when a put takes longer than the
+ * target latency, and grows again while full batches are put well within it.
+ *
+ * <p>Records are kept per queue, so the records of a queue the task no longer owns after a rebalance can be dropped
+ * with {@link #remove(MessageQueue)}, which may be called from the rebalance thread.
+ */
+public class SinkRecordAccumulator {
+
+    private final int minBatchSize;
+
+    private final int maxBatchSize;
+
+    private final long lingerMs;
+
+    private final boolean adaptive;
+
+    private final long targetPutLatencyMs;
+
+    private int batchSize;
+
+    private Map<MessageQueue, List<ConnectRecord>> records = new LinkedHashMap<>();
+
+    private int recordCount;
+
+    private Map<MessageQueue, Long> nextOffsets = new HashMap<>();
+
+    private long firstAppendTimestamp;
+
+    public SinkRecordAccumulator(int minBatchSize, int maxBatchSize, long lingerMs, boolean adaptive,
+        long targetPutLatencyMs) {
+        this.maxBatchSize = Math.max(1, maxBatchSize);
+        this.minBatchSize = Math.max(1, Math.min(minBatchSize, this.maxBatchSize));
+        this.lingerMs = Math.max(0, lingerMs);
+        this.adaptive = adaptive;
+        this.targetPutLatencyMs = targetPutLatencyMs;
+        this.batchSize = adaptive ? this.minBatchSize : this.maxBatchSize;
+    }
+
+    /**
+     * Append the records converted from the messages of one pull.
+     *
+     * @param messageQueue the queue the messages were pulled from.
+     * @param connectRecords the records left after conversion and transforms, may be empty.
+     * @param nextOffset the offset to commit for the queue once the records were put.
+     */
+    public synchronized void append(MessageQueue messageQueue, List<ConnectRecord> connectRecords, long nextOffset) {
+        if (isEmpty()) {
+            firstAppendTimestamp = System.currentTimeMillis();
+        }
+        records.computeIfAbsent(messageQueue, key -> new ArrayList<>()).addAll(connectRecords);
+        recordCount += connectRecords.size();
+        nextOffsets.put(messageQueue, nextOffset);
+    }
+
+    /**
+     * Drop the records and the next offset of a queue, they are pulled again by the task that owns the queue now.
+     *
+     * @param messageQueue the queue that was revoked from the task.
+     */
+    public synchronized void remove(MessageQueue messageQueue) {
+        List<ConnectRecord> removed = records.remove(messageQueue);
+        if (null != removed) {
+            recordCount -= removed.size();
+        }
+        nextOffsets.remove(messageQueue);
+    }
+
+    public synchronized boolean isEmpty() {
+        return nextOffsets.isEmpty();
+    }
+
+    public synchronized boolean isReady() {
+        return !isEmpty() && (recordCount >= batchSize || remainingLingerMs() == 0);
+    }
+
+    /**
+     * @return time left until the accumulated records should be put regardless of their number.
+     */
+    public synchronized long remainingLingerMs() {
+        if (isEmpty()) {
+            return lingerMs;
+        }
+        return Math.max(0, firstAppendTimestamp + lingerMs - System.currentTimeMillis());
+    }
+
+    public synchronized List<ConnectRecord> getRecords() {
+        List<ConnectRecord> connectRecords = new ArrayList<>(recordCount);
+        for (List<ConnectRecord> queueRecords : records.values()) {
+            connectRecords.addAll(queueRecords);
+        }
+        return connectRecords;
+    }
+
+    public synchronized Map<MessageQueue, Long> getNextOffsets() {
+        return nextOffsets;
+    }
+
+    /**
+     * Hand the accumulated records over, the accumulator starts a new batch.
+     */
+    public synchronized void clear() {
+        records = new LinkedHashMap<>();
+        recordCount = 0;
+        nextOffsets = new HashMap<>();
+    }
+
+    /**
+     * Adjust the batch size to the latency of the last put, only in adaptive mode.
+     *
+     * @param putRecords the number of records of the put.
+     * @param putLatencyMs how long the put took.
+     */
+    public synchronized void onPutCompleted(int putRecords, long putLatencyMs) {
+        if (!adaptive) {
+            return;
+        }
+        if (putLatencyMs > targetPutLatencyMs) {
+            batchSize = Math.max(minBatchSize, batchSize / 2);
+        } else if (putRecords >= batchSize && putLatencyMs < targetPutLatencyMs / 2) {
+            batchSize = Math.min(maxBatchSize, batchSize + Math.max(1, batchSize / 4));
+        }
+    }
+
+    public synchronized int getBatchSize() {
+        return batchSize;
+    }
+}
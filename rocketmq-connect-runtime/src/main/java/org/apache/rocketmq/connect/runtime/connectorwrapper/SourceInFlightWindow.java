@@ -0,0 +1,141 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.apache.rocketmq.connect.runtime.connectorwrapper;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Limits the records and bytes a {@link WorkerSourceTask} has sent but not yet seen acknowledged.
+ *
+ * <p>The task thread acquires room before every send and the send callback releases it, so the task stops polling
+ * its source while the broker falls behind. A send is always admitted while nothing is in flight, so a batch larger
+ * than the window cannot block the task forever. Waiting uses a lock rather than a monitor, so a task on a virtual
+ * thread does not pin its carrier thread while blocked.
+ */
+public class SourceInFlightWindow {
+
+    private final int maxRecords;
+
+    private final long maxBytes;
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private final Condition released = lock.newCondition();
+
+    private int inFlightRecords;
+
+    private long inFlightBytes;
+
+    public SourceInFlightWindow(int maxRecords, long maxBytes) {
+        this.maxRecords = maxRecords;
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Wait until the window has room for the given records.
+     *
+     * @param records the number of records to send.
+     * @param bytes the bytes of the records to send.
+     * @return how long the caller waited for room, in milliseconds.
+     * @throws InterruptedException if interrupted while waiting.
+     */
+    public long acquire(int records, long bytes) throws InterruptedException {
+        long beginTimestamp = System.currentTimeMillis();
+        lock.lockInterruptibly();
+        try {
+            while (inFlightRecords > 0 && (inFlightRecords + records > maxRecords || inFlightBytes + bytes > maxBytes)) {
+                released.await();
+            }
+            inFlightRecords += records;
+            inFlightBytes += bytes;
+        } finally {
+            lock.unlock();
+        }
+        return System.currentTimeMillis() - beginTimestamp;
+    }
+
+    /**
+     * Give back the room of records that were acknowledged or failed.
+     *
+     * @param records the number of records sent.
+     * @param bytes the bytes of the records sent.
+     */
+    public void release(int records, long bytes) {
+        lock.lock();
+        try {
+            inFlightRecords -= records;
+            inFlightBytes -= bytes;
+            released.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Wait until every record sent was acknowledged or failed, used before the producer is shut down.
+     *
+     * @param timeout the max time to wait.
+     * @param unit the unit of the timeout.
+     * @return whether nothing is in flight anymore.
+     * @throws InterruptedException if interrupted while waiting.
+     */
+    public boolean awaitEmpty(long timeout, TimeUnit unit) throws InterruptedException {
+        long remainingNanos = unit.toNanos(timeout);
+        lock.lockInterruptibly();
+        try {
+            while (inFlightRecords > 0) {
+                if (remainingNanos <= 0) {
+                    return false;
+                }
+                remainingNanos = released.awaitNanos(remainingNanos);
+            }
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getInFlightRecords() {
+        lock.lock();
+        try {
+            return inFlightRecords;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getInFlightBytes() {
+        lock.lock();
+        try {
+            return inFlightBytes;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public boolean isFull() {
+        lock.lock();
+        try {
+            return inFlightRecords >= maxRecords || inFlightBytes >= maxBytes;
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,233 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.apache.rocketmq.connect.runtime.connectorwrapper;
+
+import io.openmessaging.connector.api.data.ConnectRecord;
+import io.openmessaging.connector.api.data.RecordPosition;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.apache.rocketmq.common.MixAll;
+import org.apache.rocketmq.common.message.Message;
+import org.apache.rocketmq.common.message.MessageConst;
+
+/**
+ * Groups the messages of a {@link WorkerSourceTask} by topic into batches that are sent with one request.
+ *
+ * <p>A batch is ready once it holds the max number of messages, once another message would exceed its max bytes, or
+ * once its first message waited for the linger time. Only the last record of every partition is kept with a batch,
+ * since its position covers the positions of all earlier records of the partition. A message the producer cannot send
+ * in a batch, one with a delay level, of a retry topic or not waiting for the store, is put in a batch of its own.
+ *
+ * <p>The task thread appends and drains while a linger thread drains the batches that waited long enough, so the
+ * methods are synchronized.
+ */
+public class SourceMessageAccumulator {
+
+    /**
+     * Bytes a message takes in a batch besides its body and properties.
+     */
+    private static final int MESSAGE_OVERHEAD_BYTES = 22;
+
+    /**
+     * Bytes of the unique id property the producer sets on every message of a batch, a 32 characters hex string.
+     */
+    private static final int UNIQ_KEY_BYTES = MessageConst.PROPERTY_UNIQ_CLIENT_MESSAGE_ID_KEYIDX.length() + 32 + 2;
+
+    private final int maxBatchMessages;
+
+    private final int maxBatchBytes;
+
+    private final long lingerMs;
+
+    private final Map<String, SourceMessageBatch> openBatches = new LinkedHashMap<>();
+
+    private final List<SourceMessageBatch> readyBatches = new ArrayList<>();
+
+    private long nextSequence = 0;
+
+    public SourceMessageAccumulator(int maxBatchMessages, int maxBatchBytes, long lingerMs) {
+        this.maxBatchMessages = Math.max(1, maxBatchMessages);
+        this.maxBatchBytes = maxBatchBytes;
+        this.lingerMs = Math.max(0, lingerMs);
+    }
+
+    /**
+     * Append a message to the open batch of its topic.
+     *
+     * @param message the message converted from the record.
+     * @param connectRecord the record whose position is committed once the message was sent.
+     */
+    public synchronized void append(Message message, ConnectRecord connectRecord) {
+        int messageBytes = estimateSize(message);
+        SourceMessageBatch batch = openBatches.get(message.getTopic());
+        if (!isBatchable(message)) {
+            // the messages of the topic appended before are sent first
+            if (null != batch) {
+                readyBatches.add(openBatches.remove(message.getTopic()));
+            }
+            SourceMessageBatch single = new SourceMessageBatch(nextSequence++, message.getTopic());
+            single.add(message, connectRecord, messageBytes);
+            readyBatches.add(single);
+            return;
+        }
+        if (null != batch && batch.bytes + messageBytes > maxBatchBytes) {
+            readyBatches.add(openBatches.remove(message.getTopic()));
+            batch = null;
+        }
+        if (null == batch) {
+            batch = new SourceMessageBatch(nextSequence++, message.getTopic());
+            openBatches.put(message.getTopic(), batch);
+        }
+        batch.add(message, connectRecord, messageBytes);
+        if (batch.messages.size() >= maxBatchMessages) {
+            readyBatches.add(openBatches.remove(message.getTopic()));
+        }
+    }
+
+    /**
+     * Take the batches that reached their max messages or bytes.
+     *
+     * @return the full batches in the order they filled up.
+     */
+    public synchronized List<SourceMessageBatch> drainFull() {
+        if (readyBatches.isEmpty()) {
+            return readyBatches;
+        }
+        List<SourceMessageBatch> batches = new ArrayList<>(readyBatches);
+        readyBatches.clear();
+        return batches;
+    }
+
+    /**
+     * Take the full batches and the batches that waited for the linger time.
+     *
+     * @param force whether to take all open batches, regardless of their linger time.
+     * @return the batches ready to be sent.
+     */
+    public synchronized List<SourceMessageBatch> drainReady(boolean force) {
+        long now = System.currentTimeMillis();
+        Iterator<SourceMessageBatch> iterator = openBatches.values().iterator();
+        while (iterator.hasNext()) {
+            SourceMessageBatch batch = iterator.next();
+            if (force || now - batch.createTimestamp >= lingerMs) {
+                readyBatches.add(batch);
+                iterator.remove();
+            }
+        }
+        return drainFull();
+    }
+
+    /**
+     * @return time left until the oldest open batch waited for the linger time, the linger time if there is none.
+     */
+    public synchronized long remainingLingerMs() {
+        long remainingMs = lingerMs;
+        long now = System.currentTimeMillis();
+        for (SourceMessageBatch batch : openBatches.values()) {
+            remainingMs = Math.min(remainingMs, Math.max(0, batch.createTimestamp + lingerMs - now));
+        }
+        return remainingMs;
+    }
+
+    /**
+     * @return whether the message can be sent in a batch, see {@link org.apache.rocketmq.common.message.MessageBatch#generateFromList}.
+     */
+    static boolean isBatchable(Message message) {
+        return message.getDelayTimeLevel() <= 0
+            && !message.getTopic().startsWith(MixAll.RETRY_GROUP_TOPIC_PREFIX)
+            && message.isWaitStoreMsgOK();
+    }
+
+    private static int estimateSize(Message message) {
+        int size = MESSAGE_OVERHEAD_BYTES;
+        if (null == message.getProperty(MessageConst.PROPERTY_UNIQ_CLIENT_MESSAGE_ID_KEYIDX)) {
+            size += UNIQ_KEY_BYTES;
+        }
+        if (null != message.getBody()) {
+            size += message.getBody().length;
+        }
+        if (null != message.getProperties()) {
+            for (Map.Entry<String, String> entry : message.getProperties().entrySet()) {
+                size += entry.getKey().length() + (null == entry.getValue() ? 0 : entry.getValue().length()) + 2;
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Messages of one topic sent with one request.
+     */
+    public static class SourceMessageBatch {
+
+        /**
+         * Increases with every batch of the task, a position is only committed by the latest batch of its partition.
+         */
+        private final long sequence;
+
+        private final String topic;
+
+        private final long createTimestamp = System.currentTimeMillis();
+
+        private final List<Message> messages = new ArrayList<>();
+
+        private final Map<Map<String, ?>, ConnectRecord> lastRecords = new LinkedHashMap<>();
+
+        private int bytes;
+
+        private SourceMessageBatch(long sequence, String topic) {
+            this.sequence = sequence;
+            this.topic = topic;
+        }
+
+        private void add(Message message, ConnectRecord connectRecord, int messageBytes) {
+            messages.add(message);
+            bytes += messageBytes;
+            RecordPosition position = connectRecord.getPosition();
+            if (null != position && null != position.getPartition() && null != position.getPartition().getPartition()
+                && null != position.getOffset()) {
+                lastRecords.put(position.getPartition().getPartition(), connectRecord);
+            }
+        }
+
+        public long getSequence() {
+            return sequence;
+        }
+
+        public String getTopic() {
+            return topic;
+        }
+
+        public List<Message> getMessages() {
+            return messages;
+        }
+
+        /**
+         * @return the last record of every partition in the batch, keyed by the partition.
+         */
+        public Map<Map<String, ?>, ConnectRecord> getLastRecords() {
+            return lastRecords;
+        }
+
+        public int getBytes() {
+            return bytes;
+        }
+    }
+}
@@ -25,6 +25,7 @@ import io.openmessaging.connector.api.data.ConnectRecord;
 import io.openmessaging.internal.DefaultKeyValue;
 import org.apache.commons.collections.CollectionUtils;
 import org.apache.commons.lang3.StringUtils;
+import org.apache.rocketmq.common.message.MessageExt;
 import org.apache.rocketmq.connect.runtime.common.LoggerName;
 import org.apache.rocketmq.connect.runtime.config.RuntimeConfigDefine;
 import org.apache.rocketmq.connect.runtime.errors.ErrorReporter;
@@ -35,15 +36,27 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Set;
+import java.util.function.Function;
 
+/**
+ * The transforms of a task, applied to batches of records.
+ *
+ * <p>Each transform is assembled once into a stage of the chain. A stage calls its transform directly, the failure of
+ * a record, or of a whole batch for a {@link BatchTransform}, is handed to the {@link RetryWithToleranceOperator},
+ * which retries, reports and tolerates it as configured, so the records that transform fine are not wrapped one by
+ * one.
+ */
 public class TransformChain<R extends ConnectRecord> implements AutoCloseable {
 
     private static final Logger log = LoggerFactory.getLogger(LoggerName.ROCKETMQ_RUNTIME);
 
     private final List<Transform> transformList;
 
+    private final List<TransformStage> stages;
+
     private final KeyValue config;
 
     private final Plugin plugin;
@@ -59,6 +72,10 @@ public class TransformChain<R extends ConnectRecord> implements AutoCloseable {
         this.plugin = plugin;
         transformList = new ArrayList<>(8);
         init();
+        stages = new ArrayList<>(transformList.size());
+        for (Transform transform : transformList) {
+            stages.add(new TransformStage(transform));
+        }
     }
 
     /**
@@ -100,25 +117,33 @@ public class TransformChain<R extends ConnectRecord> implements AutoCloseable {
         });
     }
 
-    public R doTransforms(R connectRecord) {
-        if (transformList.size() == 0) {
-            return connectRecord;
-        }
-        for (final Transform<R> transform : transformList) {
-            final R currentRecord = connectRecord;
-            if (this.retryWithToleranceOperator == null) {
-                connectRecord = transform.doTransform(currentRecord);
-            } else {
-                connectRecord = this.retryWithToleranceOperator.execute(
-                    () -> transform.doTransform(currentRecord), ErrorReporter.Stage.TRANSFORMATION, transform.getClass()
-                );
-            }
+    /**
+     * Transform a batch of records.
+     *
+     * @param connectRecords the records to transform
+     * @return the transformed records, in order, without the records filtered out
+     */
+    public List<R> doTransforms(List<R> connectRecords) {
+        return doTransforms(connectRecords, null);
+    }
 
-            if (connectRecord == null) {
+    /**
+     * Transform a batch of records consumed in a sink.
+     *
+     * @param connectRecords          the records to transform
+     * @param consumedMessageResolver finds the message a record was converted from, to report a record whose
+     *                                transform failed, or null
+     * @return the transformed records, in order, without the records filtered out
+     */
+    public List<R> doTransforms(List<R> connectRecords, Function<R, MessageExt> consumedMessageResolver) {
+        List<R> transformed = connectRecords;
+        for (TransformStage stage : stages) {
+            if (transformed.isEmpty()) {
                 break;
             }
+            transformed = stage.apply(transformed, consumedMessageResolver);
         }
-        return connectRecord;
+        return transformed;
     }
 
     private Transform getTransform(String transformClass) throws Exception {
@@ -152,4 +177,70 @@ public class TransformChain<R extends ConnectRecord> implements AutoCloseable {
             transform.stop();
         }
     }
+
+    /**
+     * A transform of the chain, called per batch if it is a {@link BatchTransform}, or per record.
+     */
+    private class TransformStage {
+
+        private final Transform<R> transform;
+
+        private final BatchTransform<R> batchTransform;
+
+        @SuppressWarnings("unchecked")
+        private TransformStage(Transform<R> transform) {
+            this.transform = transform;
+            this.batchTransform = transform instanceof BatchTransform ? (BatchTransform<R>) transform : null;
+        }
+
+        private List<R> apply(List<R> records, Function<R, MessageExt> consumedMessageResolver) {
+            if (batchTransform != null) {
+                return applyBatch(records, consumedMessageResolver);
+            }
+            List<R> transformed = new ArrayList<>(records.size());
+            for (R record : records) {
+                R result;
+                try {
+                    result = transform.doTransform(record);
+                } catch (RuntimeException e) {
+                    if (retryWithToleranceOperator == null) {
+                        throw e;
+                    }
+                    MessageExt consumedMessage = consumedMessageResolver == null ? null : consumedMessageResolver.apply(record);
+                    // the failure is handled as is, the transform only runs again if the failure is retriable
+                    result = retryWithToleranceOperator.executeFailed(
+                        () -> transform.doTransform(record), e, ErrorReporter.Stage.TRANSFORMATION, transform.getClass(), consumedMessage, record
+                    );
+                }
+                if (result != null) {
+                    transformed.add(result);
+                }
+            }
+            return transformed;
+        }
+
+        /**
+         * A failed batch is handled as one failure, the batch only runs again if the failure is retriable and is
+         * dropped as a whole if the failure is tolerated.
+         */
+        private List<R> applyBatch(List<R> records, Function<R, MessageExt> consumedMessageResolver) {
+            try {
+                return batchTransform.doTransforms(records);
+            } catch (RuntimeException e) {
+                if (retryWithToleranceOperator == null) {
+                    throw e;
+                }
+                R record = records.size() == 1 ? records.get(0) : null;
+                MessageExt consumedMessage = record == null || consumedMessageResolver == null ? null : consumedMessageResolver.apply(record);
+                List<R> transformed = retryWithToleranceOperator.executeFailed(
+                    () -> batchTransform.doTransforms(records), e, ErrorReporter.Stage.TRANSFORMATION, transform.getClass(), consumedMessage, record
+                );
+                if (transformed == null) {
+                    log.warn("Batch transform {} failed, {} records are dropped", transform.getClass().getName(), records.size());
+                    return Collections.emptyList();
+                }
+                return transformed;
+            }
+        }
+    }
 }
@@ -26,7 +26,9 @@ import io.openmessaging.connector.api.component.task.sink.SinkTask;
 import io.openmessaging.connector.api.component.task.source.SourceTask;
 import io.openmessaging.connector.api.data.ConnectRecord;
 
+import java.lang.reflect.Method;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -38,6 +40,7 @@ import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicReference;
@@ -105,6 +108,11 @@ public class Worker {
      */
     private final ExecutorService taskExecutor;
 
+    /**
+     * Creates the RocketMQ clients of the tasks.
+     */
+    private final WorkerClientManager clientManager;
+
     /**
      * Position management for source tasks.
      */
@@ -121,8 +129,14 @@ public class Worker {
 
     private static final int MAX_START_TIMEOUT_MILLS = 1000*60;
 
+    private static final String TASK_EXECUTOR_VIRTUAL = "virtual";
+
     private static final long MAX_STOP_TIMEOUT_MILLS = 20000;
 
+    private static final long PENDING_CHECK_INTERVAL_MILLS = 100;
+
+    private static final long MAX_IDLE_INTERVAL_MILLS = 1000 * 10;
+
     /**
      * Atomic state variable
      */
@@ -139,7 +153,8 @@ public class Worker {
                   ConfigManagementService configManagementService,
                   Plugin plugin, AbstractConnectController connectController) {
         this.connectConfig = connectConfig;
-        this.taskExecutor = Executors.newCachedThreadPool(new DefaultThreadFactory("task-Worker-Executor-"));
+        this.taskExecutor = newTaskExecutor(connectConfig);
+        this.clientManager = new WorkerClientManager(connectConfig);
         this.positionManagementService = positionManagementService;
         this.taskPositionCommitService = new TaskPositionCommitService(
             this,
@@ -241,23 +256,16 @@ public class Worker {
         synchronized (latestTaskConfigs) {
             this.latestTaskConfigs = taskConfigs;
         }
+        stateMachineService.wakeup();
     }
 
-    private boolean isConfigInSet(ConnectKeyValue keyValue, Set<Runnable> set) {
-        for (Runnable runnable : set) {
-            ConnectKeyValue taskConfig = null;
-            if (runnable instanceof WorkerSourceTask) {
-                taskConfig = ((WorkerSourceTask) runnable).getTaskConfig();
-            } else if (runnable instanceof WorkerSinkTask) {
-                taskConfig = ((WorkerSinkTask) runnable).getTaskConfig();
-            } else if (runnable instanceof WorkerDirectTask) {
-                taskConfig = ((WorkerDirectTask) runnable).getTaskConfig();
-            }
-            if (keyValue.equals(taskConfig)) {
-                return true;
-            }
+    /**
+     * Add the configs of the given tasks to an index, so that finding the task of a config does not scan all tasks.
+     */
+    private void indexTaskConfigs(Set<ConnectKeyValue> index, Collection<Runnable> tasks) {
+        for (Runnable runnable : tasks) {
+            index.add(((WorkerTask) runnable).getTaskConfig());
         }
-        return false;
     }
 
     /**
@@ -333,30 +341,22 @@ public class Worker {
             taskConfigs.putAll(latestTaskConfigs);
         }
 
+        Set<ConnectKeyValue> latestConfigs = new HashSet<>();
+        for (List<ConnectKeyValue> keyValues : taskConfigs.values()) {
+            latestConfigs.addAll(keyValues);
+        }
+
         boolean needCommitPosition = false;
         //  STEP 1: check running tasks and put to error status
         for (Runnable runnable : runningTasks) {
             WorkerTask workerTask = (WorkerTask) runnable;
-            String connectorName = workerTask.getConnectorName();
-            ConnectKeyValue taskConfig = workerTask.getTaskConfig();
-            List<ConnectKeyValue> keyValues = taskConfigs.get(connectorName);
             WorkerTaskState state = ((WorkerTask) runnable).getState();
 
             if (WorkerTaskState.ERROR == state) {
                 errorTasks.add(runnable);
                 runningTasks.remove(runnable);
             } else if (WorkerTaskState.RUNNING == state) {
-                boolean needStop = true;
-                if (null != keyValues && keyValues.size() > 0) {
-                    for (ConnectKeyValue keyValue : keyValues) {
-                        if (keyValue.equals(taskConfig)) {
-                            needStop = false;
-                            break;
-                        }
-                    }
-                }
-
-                if (needStop) {
+                if (!latestConfigs.contains(workerTask.getTaskConfig())) {
                     try {
                         workerTask.stop();
                     } catch (Exception e) {
@@ -379,14 +379,14 @@ public class Worker {
         }
 
         // get new Tasks
+        Set<ConnectKeyValue> activeConfigs = new HashSet<>();
+        indexTaskConfigs(activeConfigs, runningTasks);
+        indexTaskConfigs(activeConfigs, pendingTasks.keySet());
+        indexTaskConfigs(activeConfigs, errorTasks);
         Map<String, List<ConnectKeyValue>> newTasks = new HashMap<>();
         for (String connectorName : taskConfigs.keySet()) {
             for (ConnectKeyValue keyValue : taskConfigs.get(connectorName)) {
-                boolean isNewTask = true;
-                if (isConfigInSet(keyValue, runningTasks) || isConfigInSet(keyValue, pendingTasks.keySet()) || isConfigInSet(keyValue, errorTasks)) {
-                    isNewTask = false;
-                }
-                if (isNewTask) {
+                if (!activeConfigs.contains(keyValue)) {
                     if (!newTasks.containsKey(connectorName)) {
                         newTasks.put(connectorName, new ArrayList<>());
                     }
@@ -405,6 +405,8 @@ public class Worker {
                     createDirectTask(connectorName, keyValue);
                     continue;
                 }
+                // a producer the task has not taken over yet, released if the task cannot be submitted
+                DefaultMQProducer producer = null;
                 try {
                     String taskClass = keyValue.getString(RuntimeConfigDefine.TASK_CLASS);
                     ClassLoader loader = plugin.getPluginClassLoader(taskClass);
@@ -433,7 +435,7 @@ public class Worker {
                     }
                     if (task instanceof SourceTask) {
 
-                        DefaultMQProducer producer = ConnectUtil.initDefaultMQProducer(connectConfig);
+                        producer = clientManager.createProducer();
                         TransformChain<ConnectRecord> transformChain = new TransformChain<>(keyValue, plugin);
                         // create retry operator
                         RetryWithToleranceOperator retryWithToleranceOperator = ReporterManagerUtil.createRetryWithToleranceOperator(keyValue);
@@ -442,13 +444,11 @@ public class Worker {
                         WorkerSourceTask workerSourceTask = new WorkerSourceTask(connectorName,
                             (SourceTask) task, keyValue, positionManagementService, recordConverter, producer, workerState, connectStatsManager, connectStatsService, transformChain, retryWithToleranceOperator);
                         Plugin.compareAndSwapLoaders(currentThreadLoader);
-
-                        Future future = taskExecutor.submit(workerSourceTask);
-                        taskToFutureMap.put(workerSourceTask, future);
-                        this.pendingTasks.put(workerSourceTask, System.currentTimeMillis());
+                        submitTask(workerSourceTask);
+                        producer = null;
                     } else if (task instanceof SinkTask) {
                         log.info("sink task config keyValue is {}", keyValue.getProperties());
-                        DefaultMQPullConsumer consumer = ConnectUtil.initDefaultMQPullConsumer(connectConfig, connectorName, keyValue, ++taskId);
+                        DefaultMQPullConsumer consumer = clientManager.createConsumer(connectorName, keyValue, ++taskId);
                         Set<String> consumerGroupSet = ConnectUtil.fetchAllConsumerGroupList(connectConfig);
                         if (!consumerGroupSet.contains(consumer.getConsumerGroup())) {
                             ConnectUtil.createSubGroup(connectConfig, consumer.getConsumerGroup());
@@ -457,19 +457,20 @@ public class Worker {
 
                         // create retry operator
                         RetryWithToleranceOperator retryWithToleranceOperator = ReporterManagerUtil.createRetryWithToleranceOperator(keyValue);
-                        retryWithToleranceOperator.reporters(ReporterManagerUtil.sinkTaskReporters(connectorName, keyValue, connectConfig));
+                        retryWithToleranceOperator.reporters(ReporterManagerUtil.sinkTaskReporters(connectorName, keyValue, connectConfig, connectStatsManager.getMetricsRegistry()));
 
 
                         WorkerSinkTask workerSinkTask = new WorkerSinkTask(connectorName,
                             (SinkTask) task, keyValue, recordConverter, consumer, workerState, connectStatsManager, connectStatsService, transformChain,
                                 retryWithToleranceOperator, ReporterManagerUtil.createWorkerErrorRecordReporter(keyValue, retryWithToleranceOperator, recordConverter));
                         Plugin.compareAndSwapLoaders(currentThreadLoader);
-                        Future future = taskExecutor.submit(workerSinkTask);
-                        taskToFutureMap.put(workerSinkTask, future);
-                        this.pendingTasks.put(workerSinkTask, System.currentTimeMillis());
+                        submitTask(workerSinkTask);
                     }
                 } catch (Exception e) {
                     log.error("start worker task exception. config {}" + JSON.toJSONString(keyValue), e);
+                    if (null != producer) {
+                        producer.shutdown();
+                    }
                 }
             }
         }
@@ -553,6 +554,7 @@ public class Worker {
             } finally {
                 future.cancel(true);
                 workerTask.cleanup();
+                releaseClients(runnable);
                 taskToFutureMap.remove(runnable);
                 errorTasks.remove(runnable);
                 cleanedErrorTasks.add(runnable);
@@ -586,6 +588,7 @@ public class Worker {
                 e.printStackTrace();
             } finally {
                 future.cancel(true);
+                releaseClients(runnable);
                 taskToFutureMap.remove(runnable);
                 stoppedTasks.remove(runnable);
                 cleanedStoppedTasks.add(runnable);
@@ -593,6 +596,32 @@ public class Worker {
         }
     }
 
+    private void releaseClients(Runnable runnable) {
+        if (runnable instanceof WorkerSourceTask) {
+            // a task cancelled before it ran has not shut its producer down
+            ((WorkerSourceTask) runnable).shutdownProducer();
+        }
+        if (runnable instanceof WorkerSinkTask) {
+            clientManager.releaseConsumer(((WorkerSinkTask) runnable).getConsumer());
+        }
+    }
+
+    /**
+     * Create the executor the tasks run on, tasks run on virtual threads if configured and supported by the JVM.
+     */
+    private static ExecutorService newTaskExecutor(ConnectConfig connectConfig) {
+        if (TASK_EXECUTOR_VIRTUAL.equalsIgnoreCase(connectConfig.getTaskExecutorType())) {
+            try {
+                Method method = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+                log.info("Worker tasks run on virtual threads");
+                return (ExecutorService) method.invoke(null);
+            } catch (ReflectiveOperationException e) {
+                log.warn("Virtual threads are not supported by this JVM, worker tasks run on platform threads");
+            }
+        }
+        return Executors.newCachedThreadPool(new DefaultThreadFactory("task-Worker-Executor-"));
+    }
+
     private void createDirectTask(String connectorName, ConnectKeyValue keyValue) throws Exception {
         String sourceTaskClass = keyValue.getString(RuntimeConfigDefine.SOURCE_TASK_CLASS);
         Task sourceTask = getTask(sourceTaskClass);
@@ -600,12 +629,47 @@ public class Worker {
         String sinkTaskClass = keyValue.getString(RuntimeConfigDefine.SINK_TASK_CLASS);
         Task sinkTask = getTask(sinkTaskClass);
 
+        TransformChain<ConnectRecord> transformChain = new TransformChain<>(keyValue, plugin);
+        // create retry operator
+        RetryWithToleranceOperator retryWithToleranceOperator = ReporterManagerUtil.createRetryWithToleranceOperator(keyValue);
+        retryWithToleranceOperator.reporters(ReporterManagerUtil.sourceTaskReporters(connectorName, keyValue));
+
         WorkerDirectTask workerDirectTask = new WorkerDirectTask(connectorName,
-            (SourceTask) sourceTask, (SinkTask) sinkTask, keyValue, positionManagementService, workerState);
+            (SourceTask) sourceTask, (SinkTask) sinkTask, keyValue, positionManagementService, workerState, connectStatsManager,
+            transformChain, retryWithToleranceOperator);
+        submitTask(workerDirectTask);
+    }
+
+    /**
+     * Run a task and wake up the state machine once its Future is done, so that stopped and failed tasks are cleaned up
+     * at once.
+     */
+    private void submitTask(Runnable workerTask) {
+        FutureTask<Void> future = new FutureTask<Void>(workerTask, null) {
+            @Override
+            protected void done() {
+                stateMachineService.wakeup();
+            }
+        };
+        taskToFutureMap.put(workerTask, future);
+        this.pendingTasks.put(workerTask, System.currentTimeMillis());
+        taskExecutor.execute(future);
+    }
 
-        Future future = taskExecutor.submit(workerDirectTask);
-        taskToFutureMap.put(workerDirectTask, future);
-        this.pendingTasks.put(workerDirectTask, System.currentTimeMillis());
+    /**
+     * How long the state machine waits for the next event. Tasks do not signal that they started running and timeouts
+     * are not signalled at all, so the state machine checks back early while tasks are starting or stopping.
+     */
+    private long nextMaintainInterval() {
+        if (!pendingTasks.isEmpty()) {
+            return PENDING_CHECK_INTERVAL_MILLS;
+        }
+        long interval = MAX_IDLE_INTERVAL_MILLS;
+        long currentTimeMillis = System.currentTimeMillis();
+        for (Long stopTimestamp : stoppingTasks.values()) {
+            interval = Math.min(interval, stopTimestamp + MAX_STOP_TIMEOUT_MILLS - currentTimeMillis);
+        }
+        return Math.max(interval, PENDING_CHECK_INTERVAL_MILLS);
     }
 
     private Task getTask(String taskClass) throws Exception {
@@ -634,7 +698,7 @@ public class Worker {
             log.info(this.getServiceName() + " service started");
 
             while (!this.isStopped()) {
-                this.waitForRunning(1000);
+                this.waitForRunning(Worker.this.nextMaintainInterval());
                 try {
                     Worker.this.maintainConnectorState();
                     Worker.this.maintainTaskState();
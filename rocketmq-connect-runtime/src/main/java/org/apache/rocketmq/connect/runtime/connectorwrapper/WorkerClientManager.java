@@ -0,0 +1,161 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.apache.rocketmq.connect.runtime.connectorwrapper;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import org.apache.rocketmq.client.consumer.DefaultMQPullConsumer;
+import org.apache.rocketmq.client.exception.MQClientException;
+import org.apache.rocketmq.client.producer.DefaultMQProducer;
+import org.apache.rocketmq.connect.runtime.common.ConnectKeyValue;
+import org.apache.rocketmq.connect.runtime.config.ConnectConfig;
+import org.apache.rocketmq.connect.runtime.utils.ConnectUtil;
+import org.apache.rocketmq.remoting.RPCHook;
+
+/**
+ * Creates the RocketMQ clients of the tasks of a {@link Worker}.
+ *
+ * <p>With shared clients enabled, all source tasks of the worker send through one producer, and sink task consumers
+ * of different groups get the same instance name, so that RocketMQ runs them on one client instance with one set of
+ * connections and threads. Consumers of one group, the tasks of one connector, still need client instances of their
+ * own, so a worker runs as many client instances as its largest connector has tasks on it, not one per task.
+ */
+public class WorkerClientManager {
+
+    private final ConnectConfig connectConfig;
+
+    /**
+     * The producer shared by the source tasks, replaced once all of its tasks shut it down.
+     */
+    private SharedMQProducer sharedProducer;
+
+    /**
+     * The consumer groups running on every shared client instance, indexed by the instance.
+     */
+    private final List<Set<String>> instanceConsumerGroups = new ArrayList<>();
+
+    public WorkerClientManager(ConnectConfig connectConfig) {
+        this.connectConfig = connectConfig;
+    }
+
+    /**
+     * Create the producer of a source task, the task starts and shuts it down.
+     *
+     * @return a producer of the task, or a reference to the shared producer.
+     */
+    public synchronized DefaultMQProducer createProducer() {
+        if (!connectConfig.isSharedClientEnable()) {
+            return ConnectUtil.initDefaultMQProducer(connectConfig);
+        }
+        if (null == sharedProducer || sharedProducer.released) {
+            sharedProducer = ConnectUtil.initDefaultMQProducer(connectConfig, SharedMQProducer::new);
+            sharedProducer.setInstanceName(sharedInstanceName(0));
+        }
+        sharedProducer.references++;
+        return sharedProducer;
+    }
+
+    /**
+     * Create the consumer of a sink task, the task starts and shuts it down.
+     *
+     * @param connectorName the connector of the task.
+     * @param keyValue the config of the task.
+     * @param taskId the number of the task, tells apart the instances of unshared consumers.
+     * @return a consumer of the task.
+     */
+    public synchronized DefaultMQPullConsumer createConsumer(String connectorName, ConnectKeyValue keyValue,
+        int taskId) {
+        DefaultMQPullConsumer consumer = ConnectUtil.initDefaultMQPullConsumer(connectConfig, connectorName, keyValue, taskId);
+        if (!connectConfig.isSharedClientEnable()) {
+            return consumer;
+        }
+        int instance = 0;
+        while (instance < instanceConsumerGroups.size()
+            && instanceConsumerGroups.get(instance).contains(consumer.getConsumerGroup())) {
+            instance++;
+        }
+        if (instance == instanceConsumerGroups.size()) {
+            instanceConsumerGroups.add(new HashSet<>());
+        }
+        instanceConsumerGroups.get(instance).add(consumer.getConsumerGroup());
+        consumer.setInstanceName(sharedInstanceName(instance));
+        return consumer;
+    }
+
+    /**
+     * Give the client instance of a consumer back to its group once the consumer was shut down.
+     *
+     * @param consumer the consumer of a sink task that was cleaned up.
+     */
+    public synchronized void releaseConsumer(DefaultMQPullConsumer consumer) {
+        if (!connectConfig.isSharedClientEnable()) {
+            return;
+        }
+        for (int instance = 0; instance < instanceConsumerGroups.size(); instance++) {
+            if (sharedInstanceName(instance).equals(consumer.getInstanceName())) {
+                instanceConsumerGroups.get(instance).remove(consumer.getConsumerGroup());
+                return;
+            }
+        }
+    }
+
+    private String sharedInstanceName(int instance) {
+        return connectConfig.getWorkerId() + "-shared-" + instance;
+    }
+
+    /**
+     * A producer used by several source tasks. It is started by the first task and shut down by the last one.
+     */
+    private class SharedMQProducer extends DefaultMQProducer {
+
+        private int references;
+
+        private boolean started;
+
+        private boolean released;
+
+        private SharedMQProducer(RPCHook rpcHook) {
+            super(rpcHook);
+        }
+
+        @Override
+        public void start() throws MQClientException {
+            synchronized (WorkerClientManager.this) {
+                if (!started) {
+                    super.start();
+                    started = true;
+                }
+            }
+        }
+
+        @Override
+        public void shutdown() {
+            synchronized (WorkerClientManager.this) {
+                if (--references > 0) {
+                    return;
+                }
+                released = true;
+                if (started) {
+                    super.shutdown();
+                }
+            }
+        }
+    }
+}
@@ -26,31 +26,64 @@ import io.openmessaging.connector.api.component.task.source.SourceTaskContext;
 import io.openmessaging.connector.api.data.ConnectRecord;
 import io.openmessaging.connector.api.data.RecordOffset;
 import io.openmessaging.connector.api.data.RecordPartition;
+import io.openmessaging.connector.api.data.RecordPosition;
+import io.openmessaging.connector.api.errors.RetriableException;
 import io.openmessaging.connector.api.storage.OffsetStorageReader;
 import java.util.ArrayList;
-import java.util.Collection;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicReference;
+import org.apache.commons.collections.CollectionUtils;
 import org.apache.commons.collections.MapUtils;
 import org.apache.rocketmq.connect.runtime.common.ConnectKeyValue;
 import org.apache.rocketmq.connect.runtime.common.LoggerName;
 import org.apache.rocketmq.connect.runtime.config.RuntimeConfigDefine;
+import org.apache.rocketmq.connect.runtime.errors.RetryWithToleranceOperator;
 import org.apache.rocketmq.connect.runtime.service.PositionManagementService;
+import org.apache.rocketmq.connect.runtime.stats.ConnectStatsManager;
+import org.apache.rocketmq.connect.runtime.stats.TaskMetrics;
 import org.apache.rocketmq.connect.runtime.store.PositionStorageReaderImpl;
 import org.apache.rocketmq.connect.runtime.store.PositionStorageWriter;
+import org.apache.rocketmq.connect.runtime.utils.SampledLogger;
+import org.apache.rocketmq.connect.runtime.utils.ServiceThread;
+import org.apache.rocketmq.connect.runtime.utils.Utils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
  * A wrapper of {@link SinkTask} and {@link SourceTask} for runtime.
+ *
+ * <p>The task thread polls the source and hands the transformed records to a sink thread through a
+ * {@link RecordRingBuffer}, so the source polls while the sink puts. The source waits while the buffer is full. The
+ * positions of the records are committed once the sink has put them.
  */
 public class WorkerDirectTask implements WorkerTask {
 
     private static final Logger log = LoggerFactory.getLogger(LoggerName.ROCKETMQ_RUNTIME);
 
+    /**
+     * Max records polled but not yet put, the source stops polling while the limit is reached.
+     */
+    public static final String DIRECT_BUFFER_CAPACITY_CONFIG = "direct.buffer.capacity";
+
+    private static final int DEFAULT_DIRECT_BUFFER_CAPACITY = 4096;
+
+    /**
+     * Max records put to the sink at once.
+     */
+    public static final String DIRECT_PUT_BATCH_MAX_RECORDS_CONFIG = "direct.put.batch.max.records";
+
+    private static final int DEFAULT_DIRECT_PUT_BATCH_MAX_RECORDS = 500;
+
+    /**
+     * How long either side waits on the buffer before checking whether the task is stopping.
+     */
+    private static final long WAIT_INTERVAL_MILLS = 100;
+
     /**
      * Connector name of current task.
      */
@@ -84,12 +117,43 @@ public class WorkerDirectTask implements WorkerTask {
 
     private final AtomicReference<WorkerState> workerState;
 
+    private final TransformChain<ConnectRecord> transformChain;
+
+    private final RetryWithToleranceOperator retryWithToleranceOperator;
+
+    private final ConnectStatsManager connectStatsManager;
+
+    /**
+     * Metrics of this task, looked up when the task starts.
+     */
+    private TaskMetrics taskMetrics;
+
+    private final RecordRingBuffer<ConnectRecord> ringBuffer;
+
+    private final int putBatchMaxRecords;
+
+    private SinkPutService sinkPutService;
+
+    /**
+     * Partitions that had a put fail. Their positions are not committed any more, so that the source task polls the
+     * failed records again once the task restarts. Only used by the sink thread.
+     */
+    private final Set<RecordPartition> failedPartitions = new HashSet<>();
+
+    /**
+     * Logs failed puts at a bounded rate, their numbers are in the stats.
+     */
+    private final SampledLogger putFailureLog = new SampledLogger(log);
+
     public WorkerDirectTask(String connectorName,
         SourceTask sourceTask,
         SinkTask sinkTask,
         ConnectKeyValue taskConfig,
         PositionManagementService positionManagementService,
-        AtomicReference<WorkerState> workerState) {
+        AtomicReference<WorkerState> workerState,
+        ConnectStatsManager connectStatsManager,
+        TransformChain<ConnectRecord> transformChain,
+        RetryWithToleranceOperator retryWithToleranceOperator) {
         this.connectorName = connectorName;
         this.sourceTask = sourceTask;
         this.sinkTask = sinkTask;
@@ -99,60 +163,161 @@ public class WorkerDirectTask implements WorkerTask {
         this.positionStorageWriter = new PositionStorageWriter(connectorName, positionManagementService);
         this.state = new AtomicReference<>(WorkerTaskState.NEW);
         this.workerState = workerState;
+        this.connectStatsManager = connectStatsManager;
+        this.transformChain = transformChain;
+        this.retryWithToleranceOperator = retryWithToleranceOperator;
+        this.transformChain.retryWithToleranceOperator(retryWithToleranceOperator);
+        this.ringBuffer = new RecordRingBuffer<>(taskConfig.getInt(DIRECT_BUFFER_CAPACITY_CONFIG, DEFAULT_DIRECT_BUFFER_CAPACITY));
+        this.putBatchMaxRecords = Math.max(1, taskConfig.getInt(DIRECT_PUT_BATCH_MAX_RECORDS_CONFIG, DEFAULT_DIRECT_PUT_BATCH_MAX_RECORDS));
     }
 
     /**
-     * Start a source task, and send data entry to MQ cyclically.
+     * Start a source task and a sink task, and hand the polled records to the sink cyclically.
      */
     @Override
     public void run() {
         try {
+            taskMetrics = connectStatsManager.newTaskMetrics(taskConfig.getString(RuntimeConfigDefine.TASK_ID), Worker.TaskType.DIRECT);
             starkSinkTask();
             startSourceTask();
+            sinkPutService = new SinkPutService();
+            sinkPutService.start();
             log.info("Direct task start, config:{}", JSON.toJSONString(taskConfig));
-            while (WorkerState.STARTED == workerState.get() && WorkerTaskState.RUNNING == state.get()) {
+            while (isRunning()) {
                 try {
-                    Collection<ConnectRecord> toSendEntries = sourceTask.poll();
+                    List<ConnectRecord> toSendEntries = poll();
                     if (null != toSendEntries && toSendEntries.size() > 0) {
-                        sendRecord(toSendEntries);
+                        handOver(toSendEntries);
                     }
+                } catch (RetriableException e) {
+                    taskMetrics.incSourceRecordPollFailNums();
+                    log.error("Direct task RetriableException exception", e);
                 } catch (Exception e) {
+                    taskMetrics.incSourceRecordPollFailNums();
                     log.error("Direct task runtime exception", e);
                     state.set(WorkerTaskState.ERROR);
+                } finally {
+                    taskMetrics.incSourceRecordPollTimes();
                 }
             }
             stopSourceTask();
+            // the sink puts the records handed over before it stops
+            sinkPutService.shutdown();
             stopSinkTask();
             state.compareAndSet(WorkerTaskState.STOPPING, WorkerTaskState.STOPPED);
             log.info("Direct task stop, config:{}", JSON.toJSONString(taskConfig));
         } catch (Exception e) {
             log.error("Run task failed.", e);
             state.set(WorkerTaskState.ERROR);
+        } finally {
+            if (null != sinkPutService && !sinkPutService.isStopped()) {
+                sinkPutService.shutdown();
+            }
+            if (null != taskMetrics) {
+                taskMetrics.close();
+            }
         }
     }
 
-    private void sendRecord(Collection<ConnectRecord> sourceDataEntries) {
-        List<ConnectRecord> sinkDataEntries = new ArrayList<>(sourceDataEntries.size());
+    private boolean isRunning() {
+        return WorkerState.STARTED == workerState.get() && WorkerTaskState.RUNNING == state.get();
+    }
+
+    private List<ConnectRecord> poll() throws InterruptedException {
+        List<ConnectRecord> connectRecordList = sourceTask.poll();
+        if (CollectionUtils.isEmpty(connectRecordList)) {
+            return null;
+        }
+        taskMetrics.incSourceRecordPollNums(connectRecordList.size());
+        long beginTransformNanos = System.nanoTime();
+        List<ConnectRecord> transformed = this.transformChain.doTransforms(connectRecordList);
+        taskMetrics.incSourceRecordTransformRT(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - beginTransformNanos));
+        return transformed;
+    }
+
+    /**
+     * Hand the records to the sink thread, waiting while the buffer is full.
+     */
+    private void handOver(List<ConnectRecord> records) throws InterruptedException {
+        long beginTimestamp = System.currentTimeMillis();
+        for (int i = 0; i < records.size(); i++) {
+            while (!ringBuffer.offer(records.get(i), WAIT_INTERVAL_MILLS, TimeUnit.MILLISECONDS)) {
+                if (!isRunning()) {
+                    // their positions are not committed, they are polled again once the task restarts
+                    log.warn("Direct task stopping, {} polled records are not put", records.size() - i);
+                    return;
+                }
+            }
+        }
+        long blockedMs = System.currentTimeMillis() - beginTimestamp;
+        if (blockedMs > 0) {
+            taskMetrics.incSourceRecordWriteBlockRT(blockedMs);
+        }
+    }
+
+    /**
+     * Put records to the sink, then commit their positions.
+     *
+     * <p>The records of a failed put are not put again while the task runs. A later position of their partitions
+     * would skip them, so the positions of those partitions are held until the task restarts and polls them again.
+     */
+    private void put(List<ConnectRecord> records) {
         Map<RecordPartition, RecordOffset> map = new HashMap<>();
-        for (ConnectRecord sourceDataEntry : sourceDataEntries) {
-            sinkDataEntries.add(sourceDataEntry);
-            RecordPartition recordPartition = sourceDataEntry.getPosition().getPartition();
-            RecordOffset recordOffset = sourceDataEntry.getPosition().getOffset();
-            if (null != recordPartition && null != recordOffset) {
-                map.put(recordPartition, recordOffset);
+        for (ConnectRecord record : records) {
+            RecordPosition recordPosition = record.getPosition();
+            if (null != recordPosition && null != recordPosition.getPartition() && null != recordPosition.getOffset()) {
+                map.put(recordPosition.getPartition(), recordPosition.getOffset());
             }
         }
+        long beginPutTimestamp = System.currentTimeMillis();
         try {
-            sinkTask.put(sinkDataEntries);
-            try {
-                if (!MapUtils.isEmpty(map)) {
-                    map.forEach(positionStorageWriter::putPosition);
-                }
-            } catch (Exception e) {
-                log.error("Source task save position info failed.", e);
+            sinkTask.put(records);
+        } catch (Exception e) {
+            taskMetrics.incSinkRecordPutFailNums();
+            taskMetrics.incSourceRecordWriteFailNums(records.size());
+            failedPartitions.addAll(map.keySet());
+            putFailureLog.error("Direct task put {} records failed, positions of their {} partitions are held until "
+                + "the task restarts and polls them again", records.size(), map.size(), e);
+            return;
+        }
+        map.keySet().removeAll(failedPartitions);
+        taskMetrics.incSinkRecordPutRT(System.currentTimeMillis() - beginPutTimestamp);
+        taskMetrics.incSourceRecordWriteNums(records.size());
+        try {
+            if (!MapUtils.isEmpty(map)) {
+                map.forEach(positionStorageWriter::putPosition);
             }
         } catch (Exception e) {
-            log.error("Send message error, error info: {}.", e);
+            log.error("Source task save position info failed.", e);
+        }
+    }
+
+    /**
+     * Takes the records off the buffer and puts them to the sink, until the task stops and the buffer is empty.
+     */
+    private class SinkPutService extends ServiceThread {
+
+        @Override
+        public void run() {
+            log.info("{} service started", getServiceName());
+            while (!isStopped() || ringBuffer.size() > 0) {
+                // the sink may keep the list it is given, every batch gets a new one
+                List<ConnectRecord> records = new ArrayList<>(Math.min(putBatchMaxRecords, ringBuffer.capacity()));
+                try {
+                    if (ringBuffer.drainTo(records, putBatchMaxRecords, WAIT_INTERVAL_MILLS, TimeUnit.MILLISECONDS) > 0) {
+                        put(records);
+                    }
+                } catch (InterruptedException e) {
+                    log.warn("{} interrupted, {} records are not put", getServiceName(), ringBuffer.size());
+                    break;
+                }
+            }
+            log.info("{} service end", getServiceName());
+        }
+
+        @Override
+        public String getServiceName() {
+            return "DirectTaskSinkThread-" + taskConfig.getString(RuntimeConfigDefine.TASK_ID);
         }
     }
 
@@ -253,6 +418,8 @@ public class WorkerDirectTask implements WorkerTask {
     @Override
     public void stop() {
         state.compareAndSet(WorkerTaskState.RUNNING, WorkerTaskState.STOPPING);
+        Utils.closeQuietly(retryWithToleranceOperator, "retry operator");
+        Utils.closeQuietly(transformChain, "transform chain");
     }
 
     @Override
@@ -31,7 +31,6 @@ import io.openmessaging.internal.DefaultKeyValue;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -49,7 +48,6 @@ import org.apache.rocketmq.client.consumer.MessageQueueListener;
 import org.apache.rocketmq.client.consumer.PullResult;
 import org.apache.rocketmq.client.consumer.PullStatus;
 import org.apache.rocketmq.client.consumer.store.ReadOffsetType;
-import org.apache.rocketmq.client.exception.MQBrokerException;
 import org.apache.rocketmq.client.exception.MQClientException;
 import org.apache.rocketmq.common.message.MessageExt;
 import org.apache.rocketmq.common.message.MessageQueue;
@@ -63,8 +61,9 @@ import org.apache.rocketmq.connect.runtime.errors.RetryWithToleranceOperator;
 import org.apache.rocketmq.connect.runtime.errors.WorkerErrorRecordReporter;
 import org.apache.rocketmq.connect.runtime.stats.ConnectStatsManager;
 import org.apache.rocketmq.connect.runtime.stats.ConnectStatsService;
+import org.apache.rocketmq.connect.runtime.stats.TaskMetrics;
 import org.apache.rocketmq.connect.runtime.utils.ConnectUtil;
-import org.apache.rocketmq.remoting.exception.RemotingException;
+import org.apache.rocketmq.connect.runtime.utils.SampledLogger;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -127,25 +126,65 @@ public class WorkerSinkTask implements WorkerTask {
 
     private static final Integer TIMEOUT = 3 * 1000;
 
-    private static final Integer MAX_MESSAGE_NUM = 32;
+    private static final int DEFAULT_PULL_BATCH_SIZE = 32;
 
     private static final String COMMA = ",";
     private static final String SEMICOLON = ";";
 
     public static final String OFFSET_COMMIT_TIMEOUT_MS_CONFIG = "offset.flush.timeout.ms";
 
-    private long nextCommitTime = 0;
+    /**
+     * Max messages of one queue that are pulled ahead of the sink task.
+     */
+    public static final String PULL_PREFETCH_MAX_MESSAGES_CONFIG = "pull.prefetch.max.messages";
 
-    private Set<RecordPartition> recordPartitions = new CopyOnWriteArraySet<>();
+    private static final int DEFAULT_PULL_PREFETCH_MAX_MESSAGES = 256;
+
+    private static final long PULL_RESULT_WAIT_MS = 1000;
+
+    /**
+     * Max messages pulled from a queue by one request.
+     */
+    public static final String PULL_BATCH_SIZE_CONFIG = "pull.batch.size";
+
+    /**
+     * Records accumulated before they are put to the sink task, the max batch size in adaptive mode.
+     */
+    public static final String PUT_BATCH_SIZE_CONFIG = "put.batch.size";
+
+    /**
+     * Min batch size in adaptive mode.
+     */
+    public static final String PUT_BATCH_MIN_SIZE_CONFIG = "put.batch.min.size";
+
+    /**
+     * Max time the first accumulated record waits for the batch to fill up, 0 puts the records of every pull at once.
+     */
+    public static final String PUT_BATCH_LINGER_MS_CONFIG = "put.batch.linger.ms";
 
-    private long pullMsgErrorCount = 0;
+    /**
+     * Whether to adjust the batch size to the observed put latency.
+     */
+    public static final String PUT_BATCH_ADAPTIVE_ENABLE_CONFIG = "put.batch.adaptive.enable";
 
-    private long pullNotFountMsgCount = 0;
+    /**
+     * The put latency the adaptive mode aims at.
+     */
+    public static final String PUT_BATCH_TARGET_LATENCY_MS_CONFIG = "put.batch.target.latency.ms";
 
-    private static final long PULL_MSG_ERROR_BACKOFF_MS = 1000 * 10;
-    private static final long PULL_NO_MSG_BACKOFF_MS = 1000 * 3;
+    private static final long DEFAULT_PUT_BATCH_TARGET_LATENCY_MS = 1000;
 
-    private static final long PULL_MSG_ERROR_THRESHOLD = 16;
+    /**
+     * Threads converting the messages of a pull, 1 to convert them on the task thread. The record converter must be
+     * thread safe when it is more.
+     */
+    public static final String CONVERT_PARALLELISM_CONFIG = "convert.parallelism";
+
+    private long nextCommitTime = 0;
+
+    private Set<RecordPartition> recordPartitions = new CopyOnWriteArraySet<>();
+
+    private static final long NO_ASSIGNED_QUEUE_WAIT_MS = 1000 * 10;
 
     private final AtomicReference<WorkerState> workerState;
 
@@ -153,12 +192,46 @@ public class WorkerSinkTask implements WorkerTask {
 
     private final ConnectStatsService connectStatsService;
 
+    /**
+     * Metrics of this task, looked up when the task starts.
+     */
+    private TaskMetrics taskMetrics;
+
+    /**
+     * Converts the messages of a pull, created when the task starts.
+     */
+    private RecordConvertExecutor recordConvertExecutor;
+
     private final CountDownLatch stopPullMsgLatch;
 
     private WorkerSinkTaskContext sinkTaskContext;
 
     private final TransformChain<ConnectRecord> transformChain;
 
+    private final SinkMessagePuller messagePuller;
+
+    private final SinkRecordAccumulator recordAccumulator;
+
+    /**
+     * The store timestamp of the last message accumulated of every queue, to measure the lag of the queue once the
+     * records were put.
+     */
+    private final Map<MessageQueue, Long> accumulatedStoreTimestamps = new ConcurrentHashMap<>();
+
+    /**
+     * Log per pull or per record problems at a bounded rate, one sampler per kind of problem so that one cannot hide
+     * another, their numbers are in the stats.
+     */
+    private final SampledLogger pausedQueueLog = new SampledLogger(log);
+
+    private final SampledLogger pullFailureLog = new SampledLogger(log);
+
+    private final SampledLogger noMatchedMessageLog = new SampledLogger(log);
+
+    private final SampledLogger unknownPullStatusLog = new SampledLogger(log);
+
+    private final SampledLogger unownedQueueLog = new SampledLogger(log);
+
     private WorkerErrorRecordReporter errorRecordReporter;
     private RetryWithToleranceOperator retryWithToleranceOperator;
 
@@ -207,6 +280,16 @@ public class WorkerSinkTask implements WorkerTask {
         this.errorRecordReporter = errorRecordReporter;
         this.retryWithToleranceOperator = retryWithToleranceOperator;
         this.transformChain.retryWithToleranceOperator(retryWithToleranceOperator);
+        int pullBatchSize = taskConfig.getInt(PULL_BATCH_SIZE_CONFIG, DEFAULT_PULL_BATCH_SIZE);
+        this.messagePuller = new SinkMessagePuller(consumer, pullBatchSize,
+            taskConfig.getInt(PULL_PREFETCH_MAX_MESSAGES_CONFIG, DEFAULT_PULL_PREFETCH_MAX_MESSAGES));
+        int putBatchSize = taskConfig.getInt(PUT_BATCH_SIZE_CONFIG, pullBatchSize);
+        this.recordAccumulator = new SinkRecordAccumulator(
+            taskConfig.getInt(PUT_BATCH_MIN_SIZE_CONFIG, Math.min(pullBatchSize, putBatchSize)),
+            putBatchSize,
+            taskConfig.getLong(PUT_BATCH_LINGER_MS_CONFIG, 0),
+            Boolean.parseBoolean(taskConfig.getString(PUT_BATCH_ADAPTIVE_ENABLE_CONFIG, "false")),
+            taskConfig.getLong(PUT_BATCH_TARGET_LATENCY_MS_CONFIG, DEFAULT_PUT_BATCH_TARGET_LATENCY_MS));
     }
 
     /**
@@ -215,6 +298,9 @@ public class WorkerSinkTask implements WorkerTask {
     @Override
     public void run() {
         try {
+            taskMetrics = connectStatsManager.newTaskMetrics(taskConfig.getString(RuntimeConfigDefine.TASK_ID), Worker.TaskType.SINK);
+            recordConvertExecutor = new RecordConvertExecutor("SinkTaskConvertThread-" + taskConfig.getString(RuntimeConfigDefine.TASK_ID),
+                taskConfig.getInt(CONVERT_PARALLELISM_CONFIG, 1));
             registTopics();
             consumer.start();
             log.info("Sink task consumer start. taskConfig {}", JSON.toJSONString(taskConfig));
@@ -233,25 +319,26 @@ public class WorkerSinkTask implements WorkerTask {
                     setQueueOffset();
                     pullMessageFromQueues();
                 } catch (RetriableException e) {
-                    connectStatsManager.incSinkRecordPutTotalFailNums();
-                    connectStatsManager.incSinkRecordPutFailNums(taskConfig.getString(RuntimeConfigDefine.TASK_ID));
+                    taskMetrics.incSinkRecordPutFailNums();
                     log.error("Sink task RetriableException exception", e);
                 } catch (InterruptedException e) {
-                    connectStatsManager.incSinkRecordPutTotalFailNums();
-                    connectStatsManager.incSinkRecordPutFailNums(taskConfig.getString(RuntimeConfigDefine.TASK_ID));
+                    taskMetrics.incSinkRecordPutFailNums();
                     log.error("Sink task InterruptedException exception", e);
                     throw e;
                 } catch (Throwable e) {
                     state.set(WorkerTaskState.ERROR);
                     log.error(" sink task {},pull message MQClientException, Error {} ", this, e.getMessage(), e);
-                    connectStatsManager.incSinkRecordPutTotalFailNums();
-                    connectStatsManager.incSinkRecordPutFailNums(taskConfig.getString(RuntimeConfigDefine.TASK_ID));
+                    taskMetrics.incSinkRecordPutFailNums();
                 } finally {
                     // record sink read times
-                    connectStatsManager.incSinkRecordReadTotalTimes();
+                    taskMetrics.incSinkRecordReadTimes();
                 }
             }
 
+            if (WorkerTaskState.STOPPING == state.get()) {
+                flushRecords();
+                preCommit(true);
+            }
             sinkTask.stop();
             state.compareAndSet(WorkerTaskState.STOPPING, WorkerTaskState.STOPPED);
             log.info("Sink task stop, config:{}", JSON.toJSONString(taskConfig));
@@ -260,6 +347,13 @@ public class WorkerSinkTask implements WorkerTask {
             log.error("Run task failed.", e);
             state.set(WorkerTaskState.ERROR);
         } finally {
+            if (null != taskMetrics) {
+                taskMetrics.close();
+            }
+            if (null != recordConvertExecutor) {
+                recordConvertExecutor.close();
+            }
+            messagePuller.shutdown();
             if (consumer != null) {
                 consumer.shutdown();
                 log.info("Sink task consumer shutdown. config:{}", JSON.toJSONString(taskConfig));
@@ -272,13 +366,16 @@ public class WorkerSinkTask implements WorkerTask {
         if (org.apache.commons.collections4.MapUtils.isEmpty(messageQueueOffsetMap)) {
             return;
         }
+        // records pulled before the reset must not advance the offsets afterwards
+        flushRecords();
         for (Map.Entry<MessageQueue, Long> entry : messageQueueOffsetMap.entrySet()) {
             if (messageQueuesOffsetMap.containsKey(entry.getKey())) {
                 this.messageQueuesOffsetMap.put(entry.getKey(), entry.getValue());
+                this.messagePuller.resetOffset(entry.getKey(), entry.getValue());
                 try {
                     consumer.updateConsumeOffset(entry.getKey(), entry.getValue());
                 } catch (MQClientException e) {
-                    log.warn("updateConsumeOffset MQClientException, messageQueue {}, offset {}", JSON.toJSONString(entry.getKey()), entry.getValue(), e);
+                    log.warn("updateConsumeOffset MQClientException, messageQueue {}, offset {}", entry.getKey(), entry.getValue(), e);
                 }
             }
         }
@@ -296,11 +393,18 @@ public class WorkerSinkTask implements WorkerTask {
                 public void messageQueueChanged(String topic, Set<MessageQueue> mqAll, Set<MessageQueue> mqDivided) {
                     log.info("messageQueueChanged, old messageQueuesOffsetMap {}", JSON.toJSONString(messageQueuesOffsetMap));
                     WorkerSinkTask.this.preCommit(true);
-                    messageQueuesOffsetMap.forEach((key, value) -> {
-                        if (key.getTopic().equals(topic)) {
-                            messageQueuesOffsetMap.remove(key, value);
-                        }
-                    });
+                    // under the lock the task thread appends records with, so no record of a revoked queue is appended
+                    synchronized (recordAccumulator) {
+                        messageQueuesOffsetMap.forEach((key, value) -> {
+                            if (key.getTopic().equals(topic)) {
+                                messageQueuesOffsetMap.remove(key, value);
+                                messagePuller.removeQueue(key);
+                                // the records not put yet are pulled again by the task the queue is assigned to now
+                                recordAccumulator.remove(key);
+                                accumulatedStoreTimestamps.remove(key);
+                            }
+                        });
+                    }
 
                     Set<RecordPartition> waitRemoveQueueMetaDatas = new HashSet<>();
                     recordPartitions.forEach(key -> {
@@ -310,7 +414,9 @@ public class WorkerSinkTask implements WorkerTask {
                     });
                     recordPartitions.removeAll(waitRemoveQueueMetaDatas);
                     for (MessageQueue messageQueue : mqDivided) {
-                        messageQueuesOffsetMap.put(messageQueue, consumeFromOffset(messageQueue, taskConfig));
+                        long offset = consumeFromOffset(messageQueue, taskConfig);
+                        messageQueuesOffsetMap.put(messageQueue, offset);
+                        messagePuller.addQueue(messageQueue, offset);
                         RecordPartition recordPartition = ConnectUtil.convertToRecordPartition(messageQueue);
                         recordPartitions.add(recordPartition);
                     }
@@ -364,127 +470,85 @@ public class WorkerSinkTask implements WorkerTask {
     }
 
     private void pullMessageFromQueues() throws InterruptedException {
-        long startTimeStamp = System.currentTimeMillis();
-        log.info("START pullMessageFromQueues, time started : {}", startTimeStamp);
         if (org.apache.commons.collections4.MapUtils.isEmpty(messageQueuesOffsetMap)) {
-            log.info("messageQueuesOffsetMap is null, : {}", startTimeStamp);
-            stopPullMsgLatch.await(PULL_MSG_ERROR_BACKOFF_MS, TimeUnit.MILLISECONDS);
+            log.info("No message queue is assigned to sink task {}", taskConfig.getString(RuntimeConfigDefine.TASK_ID));
+            stopPullMsgLatch.await(NO_ASSIGNED_QUEUE_WAIT_MS, TimeUnit.MILLISECONDS);
+            return;
         }
-        for (Map.Entry<MessageQueue, Long> entry : messageQueuesOffsetMap.entrySet()) {
-            if (messageQueuesStateMap.containsKey(entry.getKey())) {
-                log.warn("sink task message queue state is not running, sink task id {}, queue info {}, queue state {}", taskConfig.getString(RuntimeConfigDefine.TASK_ID), JSON.toJSONString(entry.getKey()), JSON.toJSONString(messageQueuesStateMap.get(entry.getKey())));
+        long waitMs = recordAccumulator.isEmpty() ? PULL_RESULT_WAIT_MS : Math.min(PULL_RESULT_WAIT_MS, recordAccumulator.remainingLingerMs());
+        for (MessageQueue messageQueue : messageQueuesOffsetMap.keySet()) {
+            if (messageQueuesStateMap.containsKey(messageQueue)) {
+                pausedQueueLog.warn("sink task message queue state is not running, sink task id {}, queue info {}, queue state {}", taskConfig.getString(RuntimeConfigDefine.TASK_ID), messageQueue, messageQueuesStateMap.get(messageQueue));
+                messagePuller.pause(messageQueue);
                 continue;
             }
-            log.info("START pullBlockIfNotFound, time started : {}", System.currentTimeMillis());
-
+            messagePuller.resume(messageQueue);
+            long backoffMs = messagePuller.pull(messageQueue);
+            if (backoffMs > 0) {
+                waitMs = Math.min(waitMs, backoffMs);
+            }
+        }
+        for (SinkMessagePuller.QueuePullResult queuePullResult : messagePuller.poll(waitMs)) {
             if (WorkerTaskState.RUNNING != state.get()) {
                 log.warn("sink task state is not running, sink task id {}, state {}", taskConfig.getString(RuntimeConfigDefine.TASK_ID), state.get().name());
-                break;
-            }
-            PullResult pullResult = null;
-            final long beginPullMsgTimestamp = System.currentTimeMillis();
-            try {
-                shouldStopPullMsg();
-                pullResult = consumer.pull(entry.getKey(), "*", entry.getValue(), MAX_MESSAGE_NUM);
-                pullMsgErrorCount = 0;
-            } catch (MQClientException e) {
-                pullMsgErrorCount++;
-                log.error(" sink task message queue {}, offset {}, taskconfig {},pull message MQClientException, Error {}, taskState {}", JSON.toJSONString(entry.getKey()), JSON.toJSONString(entry.getValue()), JSON.toJSONString(taskConfig), e.getMessage(), this.state.get(), e);
-                connectStatsManager.incSinkRecordReadTotalFailNums();
-                connectStatsManager.incSinkRecordReadFailNums(taskConfig.getString(RuntimeConfigDefine.TASK_ID));
-                long errorPullRT = System.currentTimeMillis() - beginPullMsgTimestamp;
-                connectStatsManager.incSinkRecordReadTotalFailRT(errorPullRT);
-                connectStatsManager.incSinkRecordReadFailRT(taskConfig.getString(RuntimeConfigDefine.TASK_ID), errorPullRT);
-            } catch (RemotingException e) {
-                pullMsgErrorCount++;
-                log.error(" sink task message queue {}, offset {}, taskconfig {},pull message RemotingException, Error {}, taskState {}", JSON.toJSONString(entry.getKey()), JSON.toJSONString(entry.getValue()), JSON.toJSONString(taskConfig), e.getMessage(), this.state.get(), e);
-                connectStatsManager.incSinkRecordReadTotalFailNums();
-                connectStatsManager.incSinkRecordReadFailNums(taskConfig.getString(RuntimeConfigDefine.TASK_ID));
-                long errorPullRT = System.currentTimeMillis() - beginPullMsgTimestamp;
-                connectStatsManager.incSinkRecordReadTotalFailRT(errorPullRT);
-                connectStatsManager.incSinkRecordReadFailRT(taskConfig.getString(RuntimeConfigDefine.TASK_ID), errorPullRT);
-            } catch (MQBrokerException e) {
-                pullMsgErrorCount++;
-                log.error(" sink task message queue {}, offset {}, taskconfig {},pull message MQBrokerException, Error {}, taskState {}", JSON.toJSONString(entry.getKey()), JSON.toJSONString(entry.getValue()), JSON.toJSONString(taskConfig), e.getMessage(), this.state.get(), e);
-                connectStatsManager.incSinkRecordReadTotalFailNums();
-                connectStatsManager.incSinkRecordReadFailNums(taskConfig.getString(RuntimeConfigDefine.TASK_ID));
-                long errorPullRT = System.currentTimeMillis() - beginPullMsgTimestamp;
-                connectStatsManager.incSinkRecordReadTotalFailRT(errorPullRT);
-                connectStatsManager.incSinkRecordReadFailRT(taskConfig.getString(RuntimeConfigDefine.TASK_ID), errorPullRT);
-            } catch (InterruptedException e) {
-                pullMsgErrorCount++;
-                log.error(" sink task message queue {}, offset {}, taskconfig {},pull message InterruptedException, Error {}, taskState {}", JSON.toJSONString(entry.getKey()), JSON.toJSONString(entry.getValue()), JSON.toJSONString(taskConfig), e.getMessage(), this.state.get(), e);
-                connectStatsManager.incSinkRecordReadTotalFailNums();
-                connectStatsManager.incSinkRecordReadFailNums(taskConfig.getString(RuntimeConfigDefine.TASK_ID));
-                long errorPullRT = System.currentTimeMillis() - beginPullMsgTimestamp;
-                connectStatsManager.incSinkRecordReadTotalFailRT(errorPullRT);
-                connectStatsManager.incSinkRecordReadFailRT(taskConfig.getString(RuntimeConfigDefine.TASK_ID), errorPullRT);
-                throw e;
-            } catch (Throwable e) {
-                pullMsgErrorCount++;
-                log.error(" sink task message queue {}, offset {}, taskconfig {},pull message Throwable, Error {}, taskState {}", JSON.toJSONString(entry.getKey()), JSON.toJSONString(entry.getValue()), JSON.toJSONString(taskConfig), e.getMessage(), e);
-                connectStatsManager.incSinkRecordReadTotalFailNums();
-                connectStatsManager.incSinkRecordReadFailNums(taskConfig.getString(RuntimeConfigDefine.TASK_ID));
-                long errorPullRT = System.currentTimeMillis() - beginPullMsgTimestamp;
-                connectStatsManager.incSinkRecordReadTotalFailRT(errorPullRT);
-                connectStatsManager.incSinkRecordReadFailRT(taskConfig.getString(RuntimeConfigDefine.TASK_ID), errorPullRT);
-                throw e;
-            }
-            long currentTime = System.currentTimeMillis();
-
-            List<MessageExt> messages = null;
-            log.info("INSIDE pullMessageFromQueues, time elapsed : {}", currentTime - startTimeStamp);
-            if (null != pullResult && pullResult.getPullStatus().equals(PullStatus.FOUND)) {
-                pullNotFountMsgCount = 0;
-                this.incPullTPS(entry.getKey().getTopic(), pullResult.getMsgFoundList().size());
-                messages = pullResult.getMsgFoundList();
-                connectStatsManager.incSinkRecordReadTotalNums(messages.size());
-                connectStatsManager.incSinkRecordReadNums(taskConfig.getString(RuntimeConfigDefine.TASK_ID), messages.size());
-                long pullRT = System.currentTimeMillis() - beginPullMsgTimestamp;
-                connectStatsManager.incSinkRecordReadTotalRT(pullRT);
-                connectStatsManager.incSinkRecordReadRT(taskConfig.getString(RuntimeConfigDefine.TASK_ID), pullRT);
-                receiveMessages(messages);
-                if (messageQueuesOffsetMap.containsKey(entry.getKey())) {
-                    messageQueuesOffsetMap.put(entry.getKey(), pullResult.getNextBeginOffset());
-                } else {
-                    log.warn("The consumer may have load balancing, and the current task does not process the message queue,messageQueuesOffsetMap {}, messageQueue {}", JSON.toJSONString(messageQueuesOffsetMap), JSON.toJSONString(entry.getKey()));
-                }
-                try {
-                    consumer.updateConsumeOffset(entry.getKey(), pullResult.getNextBeginOffset());
-                } catch (MQClientException e) {
-                    log.warn("updateConsumeOffset MQClientException, pullResult {}", pullResult, e);
-                }
-            } else if (null != pullResult && pullResult.getPullStatus().equals(PullStatus.OFFSET_ILLEGAL)) {
-                log.warn("offset illegal, reset offset, message queue {}, pull offset {}, nextBeginOffset {}", JSON.toJSONString(entry.getKey()), entry.getValue(), pullResult.getNextBeginOffset());
-                this.sinkTaskContext.resetOffset(ConnectUtil.convertToRecordPartition(entry.getKey()), ConnectUtil.convertToRecordOffset(pullResult.getNextBeginOffset()));
-            } else if (null != pullResult && pullResult.getPullStatus().equals(PullStatus.NO_NEW_MSG)) {
-                pullNotFountMsgCount++;
-                log.info("no new message, pullResult {}, message queue {}, pull offset {}", JSON.toJSONString(pullResult), JSON.toJSONString(entry.getKey()), entry.getValue());
-            } else if (null != pullResult && pullResult.getPullStatus().equals(PullStatus.NO_MATCHED_MSG)) {
-                log.info("no matched msg, pullResult {}, message queue {}, pull offset {}", JSON.toJSONString(pullResult), JSON.toJSONString(entry.getKey()), entry.getValue());
-                this.sinkTaskContext.resetOffset(ConnectUtil.convertToRecordPartition(entry.getKey()), ConnectUtil.convertToRecordOffset(pullResult.getNextBeginOffset()));
-            } else {
-                pullNotFountMsgCount++;
-                log.info("unknow pull msg state, pullResult {}, message queue {}, pull offset {}", JSON.toJSONString(pullResult), JSON.toJSONString(entry.getKey()), entry.getValue());
+                return;
             }
-
-            AtomicLong atomicLong = connectStatsService.singleSinkTaskTimesTotal(taskConfig.getString(RuntimeConfigDefine.TASK_ID));
-            if (null != atomicLong) {
-                atomicLong.addAndGet(org.apache.commons.collections4.CollectionUtils.isEmpty(messages) ? 0 : messages.size());
+            handlePullResult(queuePullResult);
+            if (recordAccumulator.isReady()) {
+                flushRecords();
             }
         }
+        if (recordAccumulator.isReady()) {
+            flushRecords();
+        }
     }
 
-    private void shouldStopPullMsg() throws InterruptedException {
-        if (pullMsgErrorCount == PULL_MSG_ERROR_THRESHOLD) {
-            log.error("Accumulative error {} times, stop pull msg for {} ms", pullMsgErrorCount, PULL_MSG_ERROR_BACKOFF_MS);
-            stopPullMsgLatch.await(PULL_MSG_ERROR_BACKOFF_MS, TimeUnit.MILLISECONDS);
-            pullMsgErrorCount = 0;
+    private void handlePullResult(SinkMessagePuller.QueuePullResult queuePullResult) throws InterruptedException {
+        MessageQueue messageQueue = queuePullResult.getMessageQueue();
+        PullResult pullResult = queuePullResult.getPullResult();
+        if (null != queuePullResult.getThrowable()) {
+            Throwable e = queuePullResult.getThrowable();
+            pullFailureLog.error("sink task {}, message queue {}, offset {}, pull message {}, Error {}, taskState {}", taskConfig.getString(RuntimeConfigDefine.TASK_ID), messageQueue, queuePullResult.getPullOffset(), e.getClass().getSimpleName(), e.getMessage(), this.state.get(), e);
+            taskMetrics.incSinkRecordReadFailNums(queuePullResult.getPullRT());
+            return;
+        }
+        if (!messageQueuesOffsetMap.containsKey(messageQueue)) {
+            unownedQueueLog.warn("The consumer may have load balancing, and the current task does not process the message queue {}", messageQueue);
+            return;
+        }
+        if (messageQueuesStateMap.containsKey(messageQueue)) {
+            // paused after the result was taken, it is handled again once the queue is resumed
+            messagePuller.hold(queuePullResult);
+            return;
+        }
+        taskMetrics.incSinkRecordPullStatusNums(pullResult.getPullStatus().name());
+        List<MessageExt> messages = null;
+        if (pullResult.getPullStatus().equals(PullStatus.FOUND)) {
+            this.incPullTPS(messageQueue.getTopic(), pullResult.getMsgFoundList().size());
+            messages = pullResult.getMsgFoundList();
+            taskMetrics.incSinkRecordReadNums(messages.size(), queuePullResult.getPullRT());
+            List<ConnectRecord> records = receiveMessages(messages);
+            synchronized (recordAccumulator) {
+                if (!messageQueuesOffsetMap.containsKey(messageQueue)) {
+                    unownedQueueLog.warn("The consumer may have load balancing, and the current task does not process the message queue {}", messageQueue);
+                    return;
+                }
+                accumulatedStoreTimestamps.put(messageQueue, messages.get(messages.size() - 1).getStoreTimestamp());
+                recordAccumulator.append(messageQueue, records, pullResult.getNextBeginOffset());
+            }
+        } else if (pullResult.getPullStatus().equals(PullStatus.OFFSET_ILLEGAL)) {
+            log.warn("offset illegal, reset offset, message queue {}, pull offset {}, nextBeginOffset {}", messageQueue, queuePullResult.getPullOffset(), pullResult.getNextBeginOffset());
+            this.sinkTaskContext.resetOffset(ConnectUtil.convertToRecordPartition(messageQueue), ConnectUtil.convertToRecordOffset(pullResult.getNextBeginOffset()));
+        } else if (pullResult.getPullStatus().equals(PullStatus.NO_MATCHED_MSG)) {
+            noMatchedMessageLog.info("no matched msg, pullResult {}, message queue {}, pull offset {}", pullResult, messageQueue, queuePullResult.getPullOffset());
+            this.sinkTaskContext.resetOffset(ConnectUtil.convertToRecordPartition(messageQueue), ConnectUtil.convertToRecordOffset(pullResult.getNextBeginOffset()));
+        } else {
+            unknownPullStatusLog.info("unknow pull msg state, pullResult {}, message queue {}, pull offset {}", pullResult, messageQueue, queuePullResult.getPullOffset());
         }
-        if (pullNotFountMsgCount >= PULL_MSG_ERROR_THRESHOLD) {
-            log.error("pull not found msg {} times, stop pull msg for {} ms", pullNotFountMsgCount, PULL_NO_MSG_BACKOFF_MS);
-            stopPullMsgLatch.await(PULL_NO_MSG_BACKOFF_MS, TimeUnit.MILLISECONDS);
-            pullNotFountMsgCount = 0;
+
+        AtomicLong atomicLong = connectStatsService.singleSinkTaskTimesTotal(taskConfig.getString(RuntimeConfigDefine.TASK_ID));
+        if (null != atomicLong) {
+            atomicLong.addAndGet(org.apache.commons.collections4.CollectionUtils.isEmpty(messages) ? 0 : messages.size());
         }
     }
 
@@ -508,21 +572,10 @@ public class WorkerSinkTask implements WorkerTask {
         }
     }
 
-    private void removePauseQueueMessage(MessageQueue messageQueue, List<MessageExt> messages) {
-        if (null != messageQueuesStateMap.get(messageQueue)) {
-            final Iterator<MessageExt> iterator = messages.iterator();
-            while (iterator.hasNext()) {
-                final MessageExt message = iterator.next();
-                String msgId = message.getMsgId();
-                log.info("BrokerName {}, topicName {}, queueId {} is pause, Discard the message {}", messageQueue.getBrokerName(), messageQueue.getTopic(), message.getQueueId(), msgId);
-                iterator.remove();
-            }
-        }
-    }
-
     @Override
     public void stop() {
         state.compareAndSet(WorkerTaskState.RUNNING, WorkerTaskState.STOPPING);
+        stopPullMsgLatch.countDown();
         try {
             transformChain.close();
         } catch (Exception exception) {
@@ -544,39 +597,110 @@ public class WorkerSinkTask implements WorkerTask {
      * receive message from MQ.
      *
      * @param messages
+     * @return the records left after conversion and transforms.
      */
-    private void receiveMessages(List<MessageExt> messages) {
-        List<ConnectRecord> sinkDataEntries = new ArrayList<>(32);
-        for (MessageExt message : messages) {
-            this.retryWithToleranceOperator.consumerRecord(message);
-            ConnectRecord sinkDataEntry = this.retryWithToleranceOperator.execute(()->convertToSinkDataEntry(message), ErrorReporter.Stage.CONVERTER, WorkerSinkTask.class);
-            if (sinkDataEntry != null && !this.retryWithToleranceOperator.failed())
-            sinkDataEntries.add(sinkDataEntry);
-            String msgId = message.getMsgId();
-            log.info("Received one message success : msgId {}", msgId);
-        }
-        List<ConnectRecord> connectRecordList = new ArrayList<>(32);
-        for (ConnectRecord connectRecord : sinkDataEntries) {
-            ConnectRecord connectRecord1 = this.transformChain.doTransforms(connectRecord);
-            if (null != connectRecord1) {
-                connectRecordList.add(connectRecord1);
+    private List<ConnectRecord> receiveMessages(List<MessageExt> messages) throws InterruptedException {
+        long beginConvertNanos = System.nanoTime();
+        final Class<?> converterClass = recordConverter == null ? WorkerSinkTask.class : recordConverter.getClass();
+        List<ConnectRecord> converted = recordConvertExecutor.convert(messages.size(), i -> {
+            MessageExt message = messages.get(i);
+            return this.retryWithToleranceOperator.execute(() -> convertToSinkDataEntry(message), ErrorReporter.Stage.CONVERTER, converterClass, message);
+        });
+        List<ConnectRecord> sinkDataEntries = new ArrayList<>(converted.size());
+        for (ConnectRecord sinkDataEntry : converted) {
+            if (sinkDataEntry != null) {
+                sinkDataEntries.add(sinkDataEntry);
             }
         }
-        if (CollectionUtils.isEmpty(connectRecordList)) {
-            log.info("after transforms connectRecordList is null");
+        long beginTransformNanos = System.nanoTime();
+        taskMetrics.incSinkRecordConvertRT(TimeUnit.NANOSECONDS.toMicros(beginTransformNanos - beginConvertNanos));
+        taskMetrics.updateSchemaCacheNums(recordConverter);
+        List<ConnectRecord> connectRecordList = this.transformChain.doTransforms(sinkDataEntries, record -> consumedMessage(messages, record));
+        taskMetrics.incSinkRecordTransformRT(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - beginTransformNanos));
+        return connectRecordList;
+    }
+
+    /**
+     * Put the accumulated records to the sink task, then advance the offsets of the queues they were pulled from.
+     */
+    private void flushRecords() {
+        if (recordAccumulator.isEmpty()) {
             return;
         }
-        try {
-            sinkTask.put(connectRecordList);
-            return;
-        } catch (RetriableException e) {
-            log.error("task {} put sink recode RetriableException", this, e.getMessage(), e);
-            throw e;
-        } catch (Throwable t) {
-            log.error("task {} put sink recode Throwable", this, t.getMessage(), t);
-            throw t;
+        List<ConnectRecord> connectRecordList;
+        Map<MessageQueue, Long> nextOffsets;
+        synchronized (recordAccumulator) {
+            connectRecordList = recordAccumulator.getRecords();
+            nextOffsets = recordAccumulator.getNextOffsets();
+            recordAccumulator.clear();
+        }
+        if (CollectionUtils.isEmpty(connectRecordList)) {
+            log.debug("after transforms connectRecordList is null");
+        } else {
+            long beginPutTimestamp = System.currentTimeMillis();
+            try {
+                sinkTask.put(connectRecordList);
+            } catch (RetriableException e) {
+                log.error("task {} put sink recode RetriableException", this, e.getMessage(), e);
+                rewindPuller(nextOffsets.keySet());
+                throw e;
+            } catch (Throwable t) {
+                log.error("task {} put sink recode Throwable", this, t.getMessage(), t);
+                rewindPuller(nextOffsets.keySet());
+                throw t;
+            }
+            long putRT = System.currentTimeMillis() - beginPutTimestamp;
+            taskMetrics.incSinkRecordPutRT(putRT);
+            recordAccumulator.onPutCompleted(connectRecordList.size(), putRT);
+        }
+        long now = System.currentTimeMillis();
+        for (Map.Entry<MessageQueue, Long> entry : nextOffsets.entrySet()) {
+            Long storeTimestamp = accumulatedStoreTimestamps.remove(entry.getKey());
+            if (null != storeTimestamp) {
+                taskMetrics.updateSinkQueueLag(entry.getKey(), now - storeTimestamp);
+            }
+            if (!messageQueuesOffsetMap.containsKey(entry.getKey())) {
+                unownedQueueLog.warn("The consumer may have load balancing, and the current task does not process the message queue {}", entry.getKey());
+                continue;
+            }
+            messageQueuesOffsetMap.put(entry.getKey(), entry.getValue());
+            try {
+                consumer.updateConsumeOffset(entry.getKey(), entry.getValue());
+            } catch (MQClientException e) {
+                log.warn("updateConsumeOffset MQClientException, messageQueue {}, offset {}", entry.getKey(), entry.getValue(), e);
+            }
+        }
+    }
+
+    /**
+     * Pull the given queues again from their committed offsets, the records that failed to put were pulled after them.
+     */
+    private void rewindPuller(Set<MessageQueue> messageQueues) {
+        for (MessageQueue messageQueue : messageQueues) {
+            Long offset = messageQueuesOffsetMap.get(messageQueue);
+            if (null != offset) {
+                messagePuller.resetOffset(messageQueue, offset);
+            }
         }
+    }
 
+    /**
+     * @return the message of a pull a record was converted from, found by its offset, or null
+     */
+    private static MessageExt consumedMessage(List<MessageExt> messages, ConnectRecord record) {
+        if (null == record.getPosition()) {
+            return null;
+        }
+        Long offset = ConnectUtil.convertToOffset(record.getPosition().getOffset());
+        if (null == offset) {
+            return null;
+        }
+        for (MessageExt message : messages) {
+            if (message.getQueueOffset() == offset) {
+                return message;
+            }
+        }
+        return null;
     }
 
     private ConnectRecord convertToSinkDataEntry(MessageExt message) {
@@ -598,8 +722,7 @@ public class WorkerSinkTask implements WorkerTask {
             RecordOffset recordOffset = ConnectUtil.convertToRecordOffset(message.getQueueOffset());
 
             // convert
-            SchemaAndValue schemaAndValue = retryWithToleranceOperator.execute(() -> recordConverter.toConnectData(message.getTopic(), message.getBody()),
-                    ErrorReporter.Stage.CONVERTER, recordConverter.getClass());
+            SchemaAndValue schemaAndValue = recordConverter.toConnectData(message.getTopic(), message.getBody());
             sinkDataEntry = new ConnectRecord(recordPartition, recordOffset, timestamp, schemaAndValue.schema(), schemaAndValue.value());
         }
         // add extension
@@ -669,6 +792,10 @@ public class WorkerSinkTask implements WorkerTask {
         return recordPartitions;
     }
 
+    DefaultMQPullConsumer getConsumer() {
+        return consumer;
+    }
+
     /**
      * Reset the consumer offset for the given queue.
      *
@@ -38,6 +38,8 @@ import org.apache.rocketmq.client.producer.DefaultMQProducer;
 import org.apache.rocketmq.client.producer.SendCallback;
 import org.apache.rocketmq.common.message.Message;
 import org.apache.rocketmq.common.message.MessageAccessor;
+import org.apache.rocketmq.common.message.MessageBatch;
+import org.apache.rocketmq.common.message.MessageClientIDSetter;
 import org.apache.rocketmq.common.message.MessageConst;
 import org.apache.rocketmq.connect.runtime.common.ConnectKeyValue;
 import org.apache.rocketmq.connect.runtime.common.LoggerName;
@@ -47,21 +49,27 @@ import org.apache.rocketmq.connect.runtime.errors.RetryWithToleranceOperator;
 import org.apache.rocketmq.connect.runtime.service.PositionManagementService;
 import org.apache.rocketmq.connect.runtime.stats.ConnectStatsManager;
 import org.apache.rocketmq.connect.runtime.stats.ConnectStatsService;
+import org.apache.rocketmq.connect.runtime.stats.TaskMetrics;
 import org.apache.rocketmq.connect.runtime.store.PositionStorageReaderImpl;
 import org.apache.rocketmq.connect.runtime.store.PositionStorageWriter;
+import org.apache.rocketmq.connect.runtime.utils.SampledLogger;
+import org.apache.rocketmq.connect.runtime.utils.ServiceThread;
 import org.apache.rocketmq.connect.runtime.utils.Utils;
 import org.apache.rocketmq.remoting.exception.RemotingException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
 
 import static org.apache.rocketmq.connect.runtime.connectorwrapper.WorkerSinkTask.TOPIC;
 
@@ -72,6 +80,53 @@ public class WorkerSourceTask implements WorkerTask {
 
     private static final Logger log = LoggerFactory.getLogger(LoggerName.ROCKETMQ_RUNTIME);
 
+    /**
+     * Max messages of one topic sent with one request, 1 sends every message on its own.
+     */
+    public static final String SEND_BATCH_MAX_MESSAGES_CONFIG = "send.batch.max.messages";
+
+    private static final int DEFAULT_SEND_BATCH_MAX_MESSAGES = 1;
+
+    /**
+     * Max bytes of the messages sent with one request.
+     */
+    public static final String SEND_BATCH_MAX_BYTES_CONFIG = "send.batch.max.bytes";
+
+    /**
+     * Leaves headroom below the max message size of the producer, the size of a batch is only estimated.
+     */
+    private static final int DEFAULT_SEND_BATCH_MAX_BYTES = RuntimeConfigDefine.MAX_MESSAGE_SIZE / 8 * 7;
+
+    /**
+     * How long a batch waits for more messages polled later, 0 sends the batches at the end of every poll.
+     */
+    public static final String SEND_BATCH_LINGER_MS_CONFIG = "send.batch.linger.ms";
+
+    /**
+     * Max time a stopping task waits for the acknowledgements of the messages it sent before the producer is shut down.
+     */
+    private static final long IN_FLIGHT_DRAIN_TIMEOUT_MS = 5000;
+
+    /**
+     * Max records sent but not yet acknowledged, the task stops polling while the limit is reached.
+     */
+    public static final String SEND_INFLIGHT_MAX_RECORDS_CONFIG = "send.inflight.max.records";
+
+    private static final int DEFAULT_SEND_INFLIGHT_MAX_RECORDS = 10000;
+
+    /**
+     * Max bytes sent but not yet acknowledged, the task stops polling while the limit is reached.
+     */
+    public static final String SEND_INFLIGHT_MAX_BYTES_CONFIG = "send.inflight.max.bytes";
+
+    private static final long DEFAULT_SEND_INFLIGHT_MAX_BYTES = 64L * 1024 * 1024;
+
+    /**
+     * Threads converting the records of a poll, 1 to convert them on the task thread. The record converter must be
+     * thread safe when it is more.
+     */
+    public static final String CONVERT_PARALLELISM_CONFIG = "convert.parallelism";
+
     /**
      * Connector name of current task.
      */
@@ -107,6 +162,8 @@ public class WorkerSourceTask implements WorkerTask {
      */
     private DefaultMQProducer producer;
 
+    private final AtomicBoolean producerShutdown = new AtomicBoolean(false);
+
     /**
      * A converter to parse source data entry to byte[].
      */
@@ -118,11 +175,48 @@ public class WorkerSourceTask implements WorkerTask {
 
     private ConnectStatsService connectStatsService;
 
+    /**
+     * Metrics of this task, looked up when the task starts.
+     */
+    private TaskMetrics taskMetrics;
+
     private List<ConnectRecord> toSendRecord;
 
     private TransformChain<ConnectRecord> transformChain;
 
     private RetryWithToleranceOperator retryWithToleranceOperator;
+
+    private final SourceMessageAccumulator messageAccumulator;
+
+    private final SourceInFlightWindow inFlightWindow;
+
+    /**
+     * Keeps the task thread and the linger thread from sending batches at the same time, so batches are sent in the
+     * order they were drained.
+     */
+    private final ReentrantLock sendLock = new ReentrantLock();
+
+    private final long sendBatchLingerMs;
+
+    private LingerService lingerService;
+
+    private RecordConvertExecutor recordConvertExecutor;
+
+    /**
+     * Log per record problems at a bounded rate, one sampler per kind of problem so that one cannot hide another,
+     * their numbers are in the stats.
+     */
+    private final SampledLogger pollFailureLog = new SampledLogger(log);
+
+    private final SampledLogger oversizedRecordLog = new SampledLogger(log);
+
+    private final SampledLogger sendFailureLog = new SampledLogger(log);
+
+    /**
+     * The sequence of the latest sent batch that committed the position of a partition.
+     */
+    private final ConcurrentHashMap<Map<String, ?>, Long> committedBatchSequences = new ConcurrentHashMap<>();
+
     /**
      * The property of message in WHITE_KEY_SET don't need add a connect prefix
      */
@@ -158,6 +252,14 @@ public class WorkerSourceTask implements WorkerTask {
         this.transformChain = transformChain;
         this.retryWithToleranceOperator = retryWithToleranceOperator;
         this.transformChain.retryWithToleranceOperator(this.retryWithToleranceOperator);
+        this.sendBatchLingerMs = taskConfig.getLong(SEND_BATCH_LINGER_MS_CONFIG, 0);
+        this.messageAccumulator = new SourceMessageAccumulator(
+            taskConfig.getInt(SEND_BATCH_MAX_MESSAGES_CONFIG, DEFAULT_SEND_BATCH_MAX_MESSAGES),
+            taskConfig.getInt(SEND_BATCH_MAX_BYTES_CONFIG, DEFAULT_SEND_BATCH_MAX_BYTES),
+            sendBatchLingerMs);
+        this.inFlightWindow = new SourceInFlightWindow(
+            taskConfig.getInt(SEND_INFLIGHT_MAX_RECORDS_CONFIG, DEFAULT_SEND_INFLIGHT_MAX_RECORDS),
+            taskConfig.getLong(SEND_INFLIGHT_MAX_BYTES_CONFIG, DEFAULT_SEND_INFLIGHT_MAX_BYTES));
     }
 
     /**
@@ -166,6 +268,9 @@ public class WorkerSourceTask implements WorkerTask {
     @Override
     public void run() {
         try {
+            taskMetrics = connectStatsManager.newTaskMetrics(taskConfig.getString(RuntimeConfigDefine.TASK_ID), Worker.TaskType.SOURCE);
+            recordConvertExecutor = new RecordConvertExecutor("SourceTaskConvertThread-" + taskConfig.getString(RuntimeConfigDefine.TASK_ID),
+                taskConfig.getInt(CONVERT_PARALLELISM_CONFIG, 1));
             producer.start();
             log.info("Source task producer start.");
             state.compareAndSet(WorkerTaskState.NEW, WorkerTaskState.PENDING);
@@ -199,27 +304,30 @@ public class WorkerSourceTask implements WorkerTask {
             sourceTask.start(taskConfig);
             state.compareAndSet(WorkerTaskState.PENDING, WorkerTaskState.RUNNING);
             log.info("Source task start, config:{}", JSON.toJSONString(taskConfig));
+            if (sendBatchLingerMs > 0) {
+                // a poll may block for longer than the linger time, the batches that waited long enough are sent meanwhile
+                lingerService = new LingerService();
+                lingerService.start();
+            }
             while (WorkerState.STARTED == workerState.get() && WorkerTaskState.RUNNING == state.get()) {
                 if (CollectionUtils.isEmpty(toSendRecord)) {
                     try {
                         toSendRecord = poll();
                         if (null != toSendRecord && toSendRecord.size() > 0) {
-                            connectStatsManager.incSourceRecordPollTotalNums(toSendRecord.size());
-                            connectStatsManager.incSourceRecordPollNums(taskConfig.getString(RuntimeConfigDefine.TASK_ID), toSendRecord.size());
+                            taskMetrics.incSourceRecordPollNums(toSendRecord.size());
                             sendRecord();
                         }
+                        sendReadyBatches(false);
                     } catch (RetriableException e) {
-                        connectStatsManager.incSourceRecordPollTotalFailNums();
-                        connectStatsManager.incSourceRecordPollFailNums(taskConfig.getString(RuntimeConfigDefine.TASK_ID));
+                        taskMetrics.incSourceRecordPollFailNums();
                         log.error("Source task RetriableException exception", e);
                     } catch (Exception e) {
-                        connectStatsManager.incSourceRecordPollTotalFailNums();
-                        connectStatsManager.incSourceRecordPollFailNums(taskConfig.getString(RuntimeConfigDefine.TASK_ID));
+                        taskMetrics.incSourceRecordPollFailNums();
                         log.error("Source task Exception exception", e);
                         state.set(WorkerTaskState.ERROR);
                     } finally {
                         // record source poll times
-                        connectStatsManager.incSourceRecordPollTotalTimes();
+                        taskMetrics.incSourceRecordPollTimes();
                     }
                 }
                 AtomicLong atomicLong = connectStatsService.singleSourceTaskTimesTotal(taskConfig.getString(RuntimeConfigDefine.TASK_ID));
@@ -227,6 +335,10 @@ public class WorkerSourceTask implements WorkerTask {
                     atomicLong.addAndGet(toSendRecord == null ? 0 : toSendRecord.size());
                 }
             }
+            if (null != lingerService) {
+                lingerService.shutdown();
+            }
+            sendReadyBatches(true);
             sourceTask.stop();
             state.compareAndSet(WorkerTaskState.STOPPING, WorkerTaskState.STOPPED);
             log.info("Source task stop, config:{}", JSON.toJSONString(taskConfig));
@@ -234,10 +346,28 @@ public class WorkerSourceTask implements WorkerTask {
             log.error("Run task failed., task config: " + JSON.toJSONString(taskConfig), e);
             state.set(WorkerTaskState.ERROR);
         } finally {
-            if (producer != null) {
-                producer.shutdown();
-                log.info("Source task producer shutdown. task config {}", JSON.toJSONString(taskConfig));
+            if (null != lingerService) {
+                lingerService.shutdown();
+            }
+            awaitInFlightSends();
+            if (null != taskMetrics) {
+                taskMetrics.close();
             }
+            if (null != recordConvertExecutor) {
+                recordConvertExecutor.close();
+            }
+            shutdownProducer();
+        }
+    }
+
+    /**
+     * Shut the producer of the task down once, whether the task ran or was cancelled before it ran, so a reference
+     * to a shared producer is released exactly once.
+     */
+    public void shutdownProducer() {
+        if (producer != null && producerShutdown.compareAndSet(false, true)) {
+            producer.shutdown();
+            log.info("Source task producer shutdown. task config {}", JSON.toJSONString(taskConfig));
         }
     }
 
@@ -248,19 +378,12 @@ public class WorkerSourceTask implements WorkerTask {
             if (CollectionUtils.isEmpty(connectRecordList)) {
                 return null;
             }
-            List<ConnectRecord> connectRecordList1 = new ArrayList<>(32);
-            for (ConnectRecord connectRecord : connectRecordList) {
-
-                retryWithToleranceOperator.sourceRecord(connectRecord);
-
-                ConnectRecord connectRecord1 = this.transformChain.doTransforms(connectRecord);
-                if (null != connectRecord1 && !retryWithToleranceOperator.failed()) {
-                    connectRecordList1.add(connectRecord1);
-                }
-            }
+            long beginTransformNanos = System.nanoTime();
+            List<ConnectRecord> connectRecordList1 = this.transformChain.doTransforms(connectRecordList);
+            taskMetrics.incSourceRecordTransformRT(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - beginTransformNanos));
             return connectRecordList1;
         } catch (RetriableException e) {
-            log.error("Source task RetriableException exception, taskconfig {}", JSON.toJSONString(taskConfig), e);
+            pollFailureLog.error("Source task RetriableException exception, task {}", taskConfig.getString(RuntimeConfigDefine.TASK_ID), e);
             return null;
         }
     }
@@ -287,116 +410,267 @@ public class WorkerSourceTask implements WorkerTask {
     /**
      * Send list of sourceDataEntries to MQ.
      */
-    private void sendRecord() throws InterruptedException, RemotingException, MQClientException {
-        for (ConnectRecord sourceDataEntry : toSendRecord) {
-            RecordPosition position = sourceDataEntry.getPosition();
-            RecordOffset offset = position.getOffset();
-
-            Message sourceMessage = new Message();
-            String topic = null;
-            topic = taskConfig.getString(RuntimeConfigDefine.CONNECT_TOPICNAME);
-            if (StringUtils.isBlank(topic)) {
-                RecordPosition recordPosition = sourceDataEntry.getPosition();
-                if (null == recordPosition) {
-                    log.error("connect-topicname config is null and recordPosition is null , lack of topic config");
-                    return;
-                }
-                RecordPartition partition = recordPosition.getPartition();
-                if (null == partition) {
-                    log.error("connect-topicname config is null and partition is null , lack of topic config");
-                    return;
-                }
-                Map<String, ?> partitionMap = partition.getPartition();
-                if (null == partitionMap) {
-                    log.error("connect-topicname config is null and partitionMap is null , lack of topic config");
-                    return;
-                }
-                Object o = partitionMap.get(TOPIC);
-                if (null == o) {
-                    log.error("connect-topicname config is null and partitionMap.get is null , lack of topic config");
-                    return;
-                }
-                topic = (String) o;
+    private void sendRecord() throws InterruptedException {
+        List<ConnectRecord> records = toSendRecord;
+        String[] topics = new String[records.size()];
+        int count = 0;
+        while (count < records.size()) {
+            String topic = resolveTopic(records.get(count));
+            if (null == topic) {
+                break;
             }
-            if (StringUtils.isBlank(topic)) {
-                throw new ConnectException("source connect lack of topic config");
+            topics[count++] = topic;
+        }
+        // records are converted in parallel and then sent in their polled order
+        long beginConvertNanos = System.nanoTime();
+        List<byte[]> messageBodies = recordConvertExecutor.convert(count, i -> convertToMessageBody(records.get(i), topics[i]));
+        taskMetrics.incSourceRecordConvertRT(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - beginConvertNanos));
+        taskMetrics.updateSchemaCacheNums(recordConverter);
+        for (int i = 0; i < count; i++) {
+            ConnectRecord sourceDataEntry = records.get(i);
+            byte[] messageBody = messageBodies.get(i);
+            if (null == messageBody) {
+                // conversion failed and the failure is tolerated
+                continue;
             }
-            sourceMessage.setTopic(topic);
-            // converter
-            if (recordConverter == null) {
-                final byte[] messageBody = JSON.toJSONString(sourceDataEntry, SerializerFeature.DisableCircularReferenceDetect,  SerializerFeature.WriteMapNullValue).getBytes();
-                if (messageBody.length > RuntimeConfigDefine.MAX_MESSAGE_SIZE) {
-                    log.error("Send record, message size is greater than {} bytes, sourceDataEntry: {}", RuntimeConfigDefine.MAX_MESSAGE_SIZE, JSON.toJSONString(sourceDataEntry));
-                    continue;
+            if (messageBody.length > RuntimeConfigDefine.MAX_MESSAGE_SIZE) {
+                if (oversizedRecordLog.isErrorEnabled()) {
+                    oversizedRecordLog.error("Send record, message size is greater than {} bytes, sourceDataEntry: {}", RuntimeConfigDefine.MAX_MESSAGE_SIZE, JSON.toJSONString(sourceDataEntry));
                 }
-                sourceMessage.setBody(messageBody);
-            } else {
-                String finalTopic = topic;
-                byte[] messageBody = retryWithToleranceOperator.execute(() -> recordConverter.fromConnectData(finalTopic, sourceDataEntry.getSchema(), sourceDataEntry.getData()),
-                        ErrorReporter.Stage.CONVERTER, recordConverter.getClass());
-                if (messageBody.length > RuntimeConfigDefine.MAX_MESSAGE_SIZE) {
-                    log.error("Send record, message size is greater than {} bytes, sourceDataEntry: {}", RuntimeConfigDefine.MAX_MESSAGE_SIZE, JSON.toJSONString(sourceDataEntry));
-                    continue;
-                }
-                sourceMessage.setBody(messageBody);
+                continue;
             }
+            Message sourceMessage = new Message();
+            sourceMessage.setTopic(topics[i]);
+            sourceMessage.setBody(messageBody);
             // put extend msg property
-            putExtendMsgProperty(sourceDataEntry, sourceMessage, topic);
+            putExtendMsgProperty(sourceDataEntry, sourceMessage, topics[i]);
 
+            sendLock.lockInterruptibly();
             try {
-                producer.send(sourceMessage, new SendCallback() {
-                    @Override
-                    public void onSuccess(org.apache.rocketmq.client.producer.SendResult result) {
-                        log.info("Successful send message to RocketMQ:{}, Topic {}", result.getMsgId(), result.getMessageQueue().getTopic());
-                        connectStatsManager.incSourceRecordWriteTotalNums();
-                        connectStatsManager.incSourceRecordWriteNums(taskConfig.getString(RuntimeConfigDefine.TASK_ID));
-                        RecordPartition partition = position.getPartition();
-                        try {
-                            if (null != partition && null != position) {
-                                Map<String, String> offsetMap = (Map<String, String>) offset.getOffset();
-                                offsetMap.put(RuntimeConfigDefine.UPDATE_TIMESTAMP, String.valueOf(sourceDataEntry.getTimestamp()));
-                                positionStorageWriter.putPosition(partition, offset);
-                            }
-
-                        } catch (Exception e) {
-                            log.error("Source task save position info failed. partition {}, offset {}", JSON.toJSONString(partition), JSON.toJSONString(offset), e);
-                        }
-                    }
-
-                    @Override
-                    public void onException(Throwable throwable) {
-                        log.error("Source task send record failed ,error msg {}. message {}", throwable.getMessage(), JSON.toJSONString(sourceMessage), throwable);
-                        connectStatsManager.incSourceRecordWriteTotalFailNums();
-                        connectStatsManager.incSourceRecordWriteFailNums(taskConfig.getString(RuntimeConfigDefine.TASK_ID));
-                    }
-                });
-            } catch (MQClientException e) {
-                log.error("Send message MQClientException. message: {}, error info: {}.", sourceMessage, e);
-                connectStatsManager.incSourceRecordWriteTotalFailNums();
-                connectStatsManager.incSourceRecordWriteFailNums(taskConfig.getString(RuntimeConfigDefine.TASK_ID));
-            } catch (RemotingException e) {
-                log.error("Send message RemotingException. message: {}, error info: {}.", sourceMessage, e);
-                connectStatsManager.incSourceRecordWriteTotalFailNums();
-                connectStatsManager.incSourceRecordWriteFailNums(taskConfig.getString(RuntimeConfigDefine.TASK_ID));
-            } catch (InterruptedException e) {
-                log.error("Send message InterruptedException. message: {}, error info: {}.", sourceMessage, e);
-                connectStatsManager.incSourceRecordWriteTotalFailNums();
-                connectStatsManager.incSourceRecordWriteFailNums(taskConfig.getString(RuntimeConfigDefine.TASK_ID));
-                throw e;
+                messageAccumulator.append(sourceMessage, sourceDataEntry);
+                sendBatches(messageAccumulator.drainFull());
+            } finally {
+                sendLock.unlock();
             }
         }
         toSendRecord = null;
     }
 
+    /**
+     * @return the topic a record is sent to, or null if it is unknown, then neither this record nor the records polled
+     * after it are sent.
+     */
+    private String resolveTopic(ConnectRecord sourceDataEntry) {
+        String topic = taskConfig.getString(RuntimeConfigDefine.CONNECT_TOPICNAME);
+        if (StringUtils.isBlank(topic)) {
+            RecordPosition recordPosition = sourceDataEntry.getPosition();
+            if (null == recordPosition) {
+                log.error("connect-topicname config is null and recordPosition is null , lack of topic config");
+                return null;
+            }
+            RecordPartition partition = recordPosition.getPartition();
+            if (null == partition) {
+                log.error("connect-topicname config is null and partition is null , lack of topic config");
+                return null;
+            }
+            Map<String, ?> partitionMap = partition.getPartition();
+            if (null == partitionMap) {
+                log.error("connect-topicname config is null and partitionMap is null , lack of topic config");
+                return null;
+            }
+            Object o = partitionMap.get(TOPIC);
+            if (null == o) {
+                log.error("connect-topicname config is null and partitionMap.get is null , lack of topic config");
+                return null;
+            }
+            topic = (String) o;
+        }
+        if (StringUtils.isBlank(topic)) {
+            throw new ConnectException("source connect lack of topic config");
+        }
+        return topic;
+    }
+
+    /**
+     * Called from the convert threads, must not touch the state of the task.
+     *
+     * @return the body of the message, or null if the conversion failed and the failure is tolerated.
+     */
+    private byte[] convertToMessageBody(ConnectRecord sourceDataEntry, String topic) {
+        if (recordConverter == null) {
+            return JSON.toJSONString(sourceDataEntry, SerializerFeature.DisableCircularReferenceDetect,  SerializerFeature.WriteMapNullValue).getBytes();
+        }
+        return retryWithToleranceOperator.execute(() -> recordConverter.fromConnectData(topic, sourceDataEntry.getSchema(), sourceDataEntry.getData()),
+                ErrorReporter.Stage.CONVERTER, recordConverter.getClass(), sourceDataEntry);
+    }
+
+    /**
+     * Wait for the callbacks of the sent messages, so their positions are committed before the producer is shut down.
+     */
+    private void awaitInFlightSends() {
+        try {
+            if (!inFlightWindow.awaitEmpty(IN_FLIGHT_DRAIN_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+                log.warn("Source task {} stops with {} records not acknowledged after {} ms", taskConfig.getString(RuntimeConfigDefine.TASK_ID), inFlightWindow.getInFlightRecords(), IN_FLIGHT_DRAIN_TIMEOUT_MS);
+            }
+        } catch (InterruptedException e) {
+            log.warn("Source task {} interrupted while waiting for {} records to be acknowledged", taskConfig.getString(RuntimeConfigDefine.TASK_ID), inFlightWindow.getInFlightRecords());
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Send the full batches and the batches that waited for the linger time.
+     *
+     * @param force whether to send all open batches, regardless of their linger time.
+     */
+    private void sendReadyBatches(boolean force) throws InterruptedException {
+        sendLock.lockInterruptibly();
+        try {
+            sendBatches(messageAccumulator.drainReady(force));
+        } finally {
+            sendLock.unlock();
+        }
+    }
+
+    private void sendBatches(List<SourceMessageAccumulator.SourceMessageBatch> batches) throws InterruptedException {
+        for (SourceMessageAccumulator.SourceMessageBatch batch : batches) {
+            sendBatch(batch);
+        }
+    }
+
+    /**
+     * Sends the batches that waited for the linger time while the task thread is blocked in a poll.
+     */
+    private class LingerService extends ServiceThread {
+
+        @Override
+        public void run() {
+            log.info("{} service started", getServiceName());
+            while (!isStopped()) {
+                waitForRunning(Math.max(1, messageAccumulator.remainingLingerMs()));
+                try {
+                    sendReadyBatches(false);
+                } catch (InterruptedException e) {
+                    log.warn("{} interrupted", getServiceName());
+                    break;
+                } catch (Exception e) {
+                    log.error("{} send batches failed", getServiceName(), e);
+                }
+            }
+            log.info("{} service end", getServiceName());
+        }
+
+        @Override
+        public String getServiceName() {
+            return "SourceTaskLingerThread-" + taskConfig.getString(RuntimeConfigDefine.TASK_ID);
+        }
+    }
+
+    /**
+     * Send the messages of a batch with one request, the positions of the batch are committed once it was sent.
+     */
+    private void sendBatch(SourceMessageAccumulator.SourceMessageBatch batch) throws InterruptedException {
+        final List<Message> messages = batch.getMessages();
+        final Message sendMessage = messages.size() == 1 ? messages.get(0) : toMessageBatch(messages);
+        final AtomicBoolean released = new AtomicBoolean(false);
+        long blockedMs = inFlightWindow.acquire(messages.size(), batch.getBytes());
+        if (blockedMs > 0) {
+            taskMetrics.incSourceRecordWriteBlockRT(blockedMs);
+        }
+        final long beginSendTimestamp = System.currentTimeMillis();
+        SendCallback sendCallback = new SendCallback() {
+            @Override
+            public void onSuccess(org.apache.rocketmq.client.producer.SendResult result) {
+                releaseInFlight(batch, released);
+                log.debug("Successful send {} messages to RocketMQ:{}, Topic {}", messages.size(), result.getMsgId(), result.getMessageQueue().getTopic());
+                taskMetrics.incSourceRecordWriteNums(messages.size());
+                taskMetrics.incSourceRecordSendAckRT(System.currentTimeMillis() - beginSendTimestamp);
+                commitPositions(batch);
+            }
+
+            @Override
+            public void onException(Throwable throwable) {
+                releaseInFlight(batch, released);
+                sendFailureLog.error("Source task send {} records of topic {} failed ,error msg {}.", messages.size(), batch.getTopic(), throwable.getMessage(), throwable);
+                taskMetrics.incSourceRecordWriteFailNums(messages.size());
+            }
+        };
+        try {
+            producer.send(sendMessage, sendCallback);
+        } catch (MQClientException e) {
+            releaseInFlight(batch, released);
+            sendFailureLog.error("Send message MQClientException. topic: {}, messages: {}, error info: {}.", batch.getTopic(), messages.size(), e);
+            taskMetrics.incSourceRecordWriteFailNums(messages.size());
+        } catch (RemotingException e) {
+            releaseInFlight(batch, released);
+            sendFailureLog.error("Send message RemotingException. topic: {}, messages: {}, error info: {}.", batch.getTopic(), messages.size(), e);
+            taskMetrics.incSourceRecordWriteFailNums(messages.size());
+        } catch (InterruptedException e) {
+            releaseInFlight(batch, released);
+            sendFailureLog.error("Send message InterruptedException. topic: {}, messages: {}, error info: {}.", batch.getTopic(), messages.size(), e);
+            taskMetrics.incSourceRecordWriteFailNums(messages.size());
+            throw e;
+        }
+    }
+
+    /**
+     * Release the in-flight room of a batch once, whether the send failed right away or its callback completed.
+     */
+    private void releaseInFlight(SourceMessageAccumulator.SourceMessageBatch batch, AtomicBoolean released) {
+        if (released.compareAndSet(false, true)) {
+            inFlightWindow.release(batch.getMessages().size(), batch.getBytes());
+        }
+    }
+
+    /**
+     * Encode messages of one topic the way {@link DefaultMQProducer#send(java.util.Collection)} does, so that the batch
+     * can be sent asynchronously.
+     */
+    private MessageBatch toMessageBatch(List<Message> messages) {
+        MessageBatch messageBatch = MessageBatch.generateFromList(messages);
+        for (Message message : messageBatch) {
+            MessageClientIDSetter.setUniqID(message);
+        }
+        messageBatch.setBody(messageBatch.encode());
+        return messageBatch;
+    }
+
+    /**
+     * Commit the position of the last record of every partition in a sent batch, unless a later batch of the
+     * partition was acknowledged first. The lag of the partitions is measured from the timestamps of these records.
+     */
+    private void commitPositions(SourceMessageAccumulator.SourceMessageBatch batch) {
+        long now = System.currentTimeMillis();
+        for (Map.Entry<Map<String, ?>, ConnectRecord> entry : batch.getLastRecords().entrySet()) {
+            ConnectRecord connectRecord = entry.getValue();
+            if (null != connectRecord.getTimestamp()) {
+                taskMetrics.updateSourcePartitionLag(entry.getKey(), now - connectRecord.getTimestamp());
+            }
+            RecordPartition partition = connectRecord.getPosition().getPartition();
+            RecordOffset offset = connectRecord.getPosition().getOffset();
+            committedBatchSequences.compute(entry.getKey(), (key, committedSequence) -> {
+                if (null != committedSequence && committedSequence > batch.getSequence()) {
+                    return committedSequence;
+                }
+                try {
+                    Map<String, String> offsetMap = (Map<String, String>) offset.getOffset();
+                    offsetMap.put(RuntimeConfigDefine.UPDATE_TIMESTAMP, String.valueOf(connectRecord.getTimestamp()));
+                    positionStorageWriter.putPosition(partition, offset);
+                } catch (Exception e) {
+                    log.error("Source task save position info failed. partition {}, offset {}", JSON.toJSONString(partition), JSON.toJSONString(offset), e);
+                }
+                return batch.getSequence();
+            });
+        }
+    }
+
     private void putExtendMsgProperty(ConnectRecord sourceDataEntry, Message sourceMessage, String topic) {
         KeyValue extensionKeyValues = sourceDataEntry.getExtensions();
         if (null == extensionKeyValues) {
-            log.info("extension key value is null.");
             return;
         }
         Set<String> keySet = extensionKeyValues.keySet();
         if (CollectionUtils.isEmpty(keySet)) {
-            log.info("extension keySet null.");
             return;
         }
 
@@ -446,6 +720,9 @@ public class WorkerSourceTask implements WorkerTask {
         obj.put("connectorName", connectorName);
         obj.put("configs", JSON.toJSONString(taskConfig));
         obj.put("state", state.get().toString());
+        obj.put("inFlightRecords", inFlightWindow.getInFlightRecords());
+        obj.put("inFlightBytes", inFlightWindow.getInFlightBytes());
+        obj.put("inFlightFull", inFlightWindow.isFull());
         return obj;
     }
 }
@@ -98,6 +98,7 @@ public abstract class AbstractConnectController implements ConnectController {
         this.clusterManagementService = clusterManagementService;
         this.configManagementService = configManagementService;
         this.positionManagementService = positionManagementService;
+        this.positionManagementService.registerMetrics(connectStatsManager.getMetricsRegistry(), connectConfig.getWorkerId());
         this.worker = new Worker(connectConfig, positionManagementService, configManagementService, plugin, this);
         this.restHandler = new RestHandler(this);
     }
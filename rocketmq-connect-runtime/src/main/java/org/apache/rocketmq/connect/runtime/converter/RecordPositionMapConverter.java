@@ -21,7 +21,10 @@ import com.alibaba.fastjson.JSON;
 import io.openmessaging.connector.api.data.Converter;
 import io.openmessaging.connector.api.data.RecordOffset;
 import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import org.apache.rocketmq.connect.runtime.common.LoggerName;
 import org.apache.rocketmq.connect.runtime.store.ExtendRecordPartition;
@@ -29,28 +32,58 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
- * Byte Map to byte[].
+ * Position map to byte[].
+ *
+ * <p>A map is written as JSON, or if the binary format is enabled as {@code | version (byte) | size (int) |
+ * (partition size (int) | partition | offset size (int) | offset)* |} with partitions and offsets in JSON. Both
+ * formats can be read.
  */
 public class RecordPositionMapConverter implements Converter<Map<ExtendRecordPartition, RecordOffset>> {
 
     private static final Logger log = LoggerFactory.getLogger(LoggerName.ROCKETMQ_RUNTIME);
 
+    private static final byte VERSION = 1;
+
+    private final RecordPartitionConverter recordPartitionConverter = new RecordPartitionConverter();
+
+    private final RecordOffsetConverter recordOffsetConverter = new RecordOffsetConverter();
+
+    private final boolean binaryFormatEnable;
+
+    public RecordPositionMapConverter() {
+        this(false);
+    }
+
+    public RecordPositionMapConverter(boolean binaryFormatEnable) {
+        this.binaryFormatEnable = binaryFormatEnable;
+    }
+
     @Override
     public byte[] objectToByte(Map<ExtendRecordPartition, RecordOffset> map) {
 
+        if (!binaryFormatEnable) {
+            return legacyObjectToByte(map);
+        }
         try {
-            Map<String, String> resultMap = new HashMap<>();
-
+            List<byte[]> entries = new ArrayList<>(map.size() * 2);
+            int size = 1 + 4;
             for (Map.Entry<ExtendRecordPartition, RecordOffset> entry : map.entrySet()) {
-                String jsonKey = JSON.toJSONString(entry.getKey());
-                jsonKey.getBytes("UTF-8");
-                String jsonValue = JSON.toJSONString(entry.getValue());
-                jsonValue.getBytes("UTF-8");
-                resultMap.put(jsonKey, jsonValue);
+                byte[] partition = recordPartitionConverter.objectToByte(entry.getKey());
+                byte[] offset = recordOffsetConverter.objectToByte(entry.getValue());
+                entries.add(partition);
+                entries.add(offset);
+                size += 4 + partition.length + 4 + offset.length;
             }
-            return JSON.toJSONString(resultMap).getBytes("UTF-8");
+            ByteBuffer buffer = ByteBuffer.allocate(size);
+            buffer.put(VERSION);
+            buffer.putInt(map.size());
+            for (byte[] bytes : entries) {
+                buffer.putInt(bytes.length);
+                buffer.put(bytes);
+            }
+            return buffer.array();
         } catch (Exception e) {
-            log.error("ByteMapConverter#objectToByte failed", e);
+            log.error("RecordPositionMapConverter#objectToByte failed", e);
         }
         return new byte[0];
     }
@@ -58,6 +91,45 @@ public class RecordPositionMapConverter implements Converter<Map<ExtendRecordPar
     @Override
     public Map<ExtendRecordPartition, RecordOffset> byteToObject(byte[] bytes) {
 
+        Map<ExtendRecordPartition, RecordOffset> resultMap = new HashMap<>();
+        if (0 == bytes.length) {
+            return resultMap;
+        }
+        if (VERSION != bytes[0]) {
+            return legacyByteToObject(bytes);
+        }
+        try {
+            ByteBuffer buffer = ByteBuffer.wrap(bytes, 1, bytes.length - 1);
+            int size = buffer.getInt();
+            for (int i = 0; i < size; i++) {
+                byte[] partition = new byte[buffer.getInt()];
+                buffer.get(partition);
+                byte[] offset = new byte[buffer.getInt()];
+                buffer.get(offset);
+                resultMap.put(recordPartitionConverter.byteToObject(partition), recordOffsetConverter.byteToObject(offset));
+            }
+        } catch (RuntimeException e) {
+            log.error("RecordPositionMapConverter#byteToObject failed", e);
+        }
+        return resultMap;
+    }
+
+    private byte[] legacyObjectToByte(Map<ExtendRecordPartition, RecordOffset> map) {
+
+        try {
+            Map<String, String> resultMap = new HashMap<>();
+            for (Map.Entry<ExtendRecordPartition, RecordOffset> entry : map.entrySet()) {
+                resultMap.put(JSON.toJSONString(entry.getKey()), JSON.toJSONString(entry.getValue()));
+            }
+            return JSON.toJSONString(resultMap).getBytes("UTF-8");
+        } catch (UnsupportedEncodingException e) {
+            log.error("RecordPositionMapConverter#objectToByte failed", e);
+        }
+        return new byte[0];
+    }
+
+    private Map<ExtendRecordPartition, RecordOffset> legacyByteToObject(byte[] bytes) {
+
         Map<ExtendRecordPartition, RecordOffset> resultMap = new HashMap<>();
         try {
             String rawString = new String(bytes, "UTF-8");
@@ -69,7 +141,7 @@ public class RecordPositionMapConverter implements Converter<Map<ExtendRecordPar
             }
             return resultMap;
         } catch (UnsupportedEncodingException e) {
-            log.error("ByteMapConverter#byteToObject failed", e);
+            log.error("RecordPositionMapConverter#byteToObject failed", e);
         }
         return resultMap;
     }
@@ -19,6 +19,7 @@ package org.apache.rocketmq.connect.runtime.converter.record.json;
 import com.alibaba.fastjson.JSON;
 import com.alibaba.fastjson.JSONArray;
 import com.alibaba.fastjson.JSONObject;
+import com.alibaba.fastjson.serializer.SerializerFeature;
 import com.alibaba.fastjson.util.TypeUtils;
 import io.openmessaging.connector.api.data.Field;
 import io.openmessaging.connector.api.data.FieldType;
@@ -34,15 +35,16 @@ import io.openmessaging.connector.api.data.logical.Timestamp;
 import io.openmessaging.connector.api.errors.ConnectException;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.rocketmq.connect.runtime.common.LoggerName;
-import org.apache.rocketmq.connect.runtime.common.cache.Cache;
-import org.apache.rocketmq.connect.runtime.common.cache.LRUCache;
+import org.apache.rocketmq.connect.runtime.common.cache.ConcurrentLRUCache;
 import org.apache.rocketmq.connect.runtime.serialization.JsonDeserializer;
 import org.apache.rocketmq.connect.runtime.serialization.JsonSerializer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.ByteArrayOutputStream;
 import java.math.BigDecimal;
 import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.EnumMap;
@@ -60,6 +62,17 @@ import java.util.concurrent.ConcurrentHashMap;
 public class JsonConverter implements RecordConverter {
     private static final Logger log = LoggerFactory.getLogger(LoggerName.ROCKETMQ_RUNTIME);
 
+    private static final SerializerFeature[] SERIALIZER_FEATURES = {
+        SerializerFeature.DisableCircularReferenceDetect, SerializerFeature.WriteMapNullValue
+    };
+    private static final byte[] NULL_BYTES = "null".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] ENVELOPE_SCHEMA_PREFIX = ("{\"" + JsonSchema.ENVELOPE_SCHEMA_FIELD_NAME + "\":").getBytes(StandardCharsets.UTF_8);
+    private static final byte[] ENVELOPE_PAYLOAD_PREFIX = (",\"" + JsonSchema.ENVELOPE_PAYLOAD_FIELD_NAME + "\":").getBytes(StandardCharsets.UTF_8);
+    /**
+     * A thread keeps its envelope buffer only while it stays below this size.
+     */
+    private static final int MAX_RETAINED_ENVELOPE_BUFFER_SIZE = 1024 * 1024;
+
 
     private static final Map<FieldType, JsonToConnectTypeConverter> TO_CONNECT_CONVERTERS = new EnumMap<>(FieldType.class);
 
@@ -285,8 +298,24 @@ public class JsonConverter implements RecordConverter {
     private JsonDeserializer deserializer = new JsonDeserializer();
     private JsonSerializer serializer = new JsonSerializer();
     public JsonConverterConfig converterConfig;
-    private Cache<Schema, JSONObject> fromConnectSchemaCache;
-    private Cache<JSONObject, Schema> toConnectSchemaCache;
+    private ConcurrentLRUCache<Schema, JSONObject> fromConnectSchemaCache;
+    /**
+     * Serialized json schemas, written to the envelope as they are.
+     */
+    private ConcurrentLRUCache<Schema, byte[]> fromConnectSchemaBytesCache;
+    /**
+     * Schemas by their json schema, hashed by its {@link SchemaFingerprint}.
+     */
+    private ConcurrentLRUCache<SchemaCacheKey, Schema> toConnectSchemaCache;
+    /**
+     * Schemas by their serialized json schema, hashed by its {@link SchemaFingerprint}, the schema section of a message
+     * is not parsed when found here.
+     */
+    private ConcurrentLRUCache<SchemaCacheKey, Schema> toConnectSchemaBytesCache;
+    /**
+     * The envelope is written to a buffer reused by each thread.
+     */
+    private final ThreadLocal<EnvelopeOutputStream> envelopeOutput = ThreadLocal.withInitial(EnvelopeOutputStream::new);
 
     /**
      * Configure this class.
@@ -296,8 +325,26 @@ public class JsonConverter implements RecordConverter {
     @Override
     public void configure(Map<String, ?> configs) {
         converterConfig = new JsonConverterConfig(configs);
-        fromConnectSchemaCache = new LRUCache<>(converterConfig.cacheSize());
-        toConnectSchemaCache = new LRUCache<>(converterConfig.cacheSize());
+        fromConnectSchemaCache = new ConcurrentLRUCache<>(converterConfig.cacheSize());
+        toConnectSchemaCache = new ConcurrentLRUCache<>(converterConfig.cacheSize());
+        fromConnectSchemaBytesCache = new ConcurrentLRUCache<>(converterConfig.cacheSize());
+        toConnectSchemaBytesCache = new ConcurrentLRUCache<>(converterConfig.cacheSize());
+    }
+
+    /**
+     * @return how many schema lookups found the schema cached, in both directions.
+     */
+    public long getSchemaCacheHitCount() {
+        return fromConnectSchemaCache.getHitCount() + toConnectSchemaCache.getHitCount()
+            + fromConnectSchemaBytesCache.getHitCount() + toConnectSchemaBytesCache.getHitCount();
+    }
+
+    /**
+     * @return how many schema lookups had to convert the schema, in both directions.
+     */
+    public long getSchemaCacheMissCount() {
+        // a miss of a serialized schema goes on with a lookup of the converted schema, counted there
+        return fromConnectSchemaCache.getMissCount() + toConnectSchemaCache.getMissCount();
     }
 
     /**
@@ -313,7 +360,10 @@ public class JsonConverter implements RecordConverter {
         if (schema == null && value == null) {
             return null;
         }
-        Object jsonValue = converterConfig.schemasEnabled() ? convertToJsonWithEnvelope(schema, value) : convertToJsonWithoutEnvelope(schema, value);
+        if (converterConfig.schemasEnabled()) {
+            return writeEnvelope(schema, convertToJson(schema, value));
+        }
+        Object jsonValue = convertToJsonWithoutEnvelope(schema, value);
         try {
             return serializer.serialize(topic, jsonValue);
         } catch (Exception e) {
@@ -334,6 +384,12 @@ public class JsonConverter implements RecordConverter {
         if (value == null) {
             return SchemaAndValue.NULL;
         }
+        if (converterConfig.schemasEnabled()) {
+            JsonEnvelope envelope = JsonEnvelope.scan(value);
+            if (envelope != null) {
+                return readEnvelope(value, envelope);
+            }
+        }
         Object jsonValue;
         try {
             jsonValue = deserializer.deserialize(topic, value);
@@ -352,7 +408,8 @@ public class JsonConverter implements RecordConverter {
             newJsonValue = (JSONObject) jsonValue;
         }
         Object jsonSchema = newJsonValue.get(JsonSchema.ENVELOPE_SCHEMA_FIELD_NAME);
-        Schema schema = asConnectSchema(jsonSchema == null ? null : (JSONObject) jsonSchema);
+        // the fingerprint of the schema is computed once per message
+        Schema schema = jsonSchema == null ? null : asConnectSchema((JSONObject) jsonSchema, SchemaCacheKey.of(jsonSchema));
         return new SchemaAndValue(
                 schema,
                 convertToConnect(schema, newJsonValue.get(JsonSchema.ENVELOPE_PAYLOAD_FIELD_NAME))
@@ -361,17 +418,71 @@ public class JsonConverter implements RecordConverter {
 
 
     /**
-     * convert to json with envelope
-     *
-     * @param schema
-     * @param value
-     * @return
+     * Convert a message found to be an envelope, the schema section is parsed only when its schema is not cached, and
+     * the payload is parsed on its own.
      */
-    private JSONObject convertToJsonWithEnvelope(Schema schema, Object value) {
-        return new JsonSchema.Envelope(
-                asJsonSchema(schema),
-                convertToJson(schema, value)
-        ).toJsonNode();
+    private SchemaAndValue readEnvelope(byte[] value, JsonEnvelope envelope) {
+        Schema schema;
+        Object payload;
+        try {
+            schema = readSchema(value, envelope.getSchemaOffset(), envelope.getSchemaLength());
+            payload = JSON.parse(new String(value, envelope.getPayloadOffset(), envelope.getPayloadLength(), StandardCharsets.UTF_8));
+        } catch (ConnectException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new ConnectException("Converting byte[] to Kafka Connect data failed due to serialization error: ", e);
+        }
+        return new SchemaAndValue(schema, convertToConnect(schema, payload));
+    }
+
+    private Schema readSchema(byte[] value, int offset, int length) {
+        if (length == NULL_BYTES.length && value[offset] == NULL_BYTES[0]) {
+            return null;
+        }
+        SchemaCacheKey cacheKey = SchemaCacheKey.of(value, offset, length);
+        Schema cached = toConnectSchemaBytesCache.get(cacheKey);
+        if (cached != null) {
+            return cached;
+        }
+        Object jsonSchema = JSON.parse(new String(value, offset, length, StandardCharsets.UTF_8));
+        if (jsonSchema == null) {
+            return null;
+        }
+        Schema schema = asConnectSchema((JSONObject) jsonSchema, SchemaCacheKey.of(jsonSchema));
+        toConnectSchemaBytesCache.put(cacheKey.copy(), schema);
+        return schema;
+    }
+
+    /**
+     * Write the envelope of a value with its schema, the serialized schema is cached.
+     */
+    private byte[] writeEnvelope(Schema schema, Object jsonValue) {
+        EnvelopeOutputStream out = envelopeOutput.get();
+        try {
+            out.write(ENVELOPE_SCHEMA_PREFIX);
+            out.write(schemaBytes(schema));
+            out.write(ENVELOPE_PAYLOAD_PREFIX);
+            JSON.writeJSONString(out, jsonValue, SERIALIZER_FEATURES);
+            out.write('}');
+            return out.toByteArray();
+        } catch (Exception e) {
+            throw new ConnectException("Converting Kafka Connect data to byte[] failed due to serialization error: ", e);
+        } finally {
+            out.release();
+        }
+    }
+
+    private byte[] schemaBytes(Schema schema) {
+        if (schema == null) {
+            return NULL_BYTES;
+        }
+        byte[] cached = fromConnectSchemaBytesCache.get(schema);
+        if (cached != null) {
+            return cached;
+        }
+        byte[] bytes = JSON.toJSONString(asJsonSchema(schema), SERIALIZER_FEATURES).getBytes(StandardCharsets.UTF_8);
+        fromConnectSchemaBytesCache.put(schema, bytes);
+        return bytes;
     }
 
     /**
@@ -621,7 +732,11 @@ public class JsonConverter implements RecordConverter {
         if (jsonSchema == null) {
             return null;
         }
-        Schema cached = toConnectSchemaCache.get(jsonSchema);
+        return asConnectSchema(jsonSchema, SchemaCacheKey.of(jsonSchema));
+    }
+
+    private Schema asConnectSchema(JSONObject jsonSchema, SchemaCacheKey cacheKey) {
+        Schema cached = toConnectSchemaCache.get(cacheKey);
         if (cached != null) {
             return cached;
         }
@@ -732,7 +847,7 @@ public class JsonConverter implements RecordConverter {
             builder.defaultValue(convertToConnect(builder.build(), schemaDefaultNode));
         }
         Schema result = builder.build();
-        toConnectSchemaCache.put(jsonSchema, result);
+        toConnectSchemaCache.put(cacheKey, result);
         return result;
     }
 
@@ -797,4 +912,20 @@ public class JsonConverter implements RecordConverter {
         return typeConverter.convert(schema, value);
     }
 
+    /**
+     * A buffer that keeps its array between uses, unless it grew too large.
+     */
+    private static class EnvelopeOutputStream extends ByteArrayOutputStream {
+
+        private EnvelopeOutputStream() {
+            super(256);
+        }
+
+        private void release() {
+            if (buf.length > MAX_RETAINED_ENVELOPE_BUFFER_SIZE) {
+                buf = new byte[256];
+            }
+            reset();
+        }
+    }
 }
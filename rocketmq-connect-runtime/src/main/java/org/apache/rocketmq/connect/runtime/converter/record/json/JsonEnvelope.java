@@ -0,0 +1,202 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.rocketmq.connect.runtime.converter.record.json;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Where the schema and the payload of a serialized envelope are, found by scanning the bytes without parsing them.
+ *
+ * <p>This lets a converter skip the schema section of a message when it already knows the schema, and parse the
+ * payload only.
+ */
+final class JsonEnvelope {
+
+    private static final byte[] SCHEMA_KEY = JsonSchema.ENVELOPE_SCHEMA_FIELD_NAME.getBytes(StandardCharsets.UTF_8);
+
+    private static final byte[] PAYLOAD_KEY = JsonSchema.ENVELOPE_PAYLOAD_FIELD_NAME.getBytes(StandardCharsets.UTF_8);
+
+    private int schemaOffset = -1;
+
+    private int schemaLength;
+
+    private int payloadOffset = -1;
+
+    private int payloadLength;
+
+    private JsonEnvelope() {
+    }
+
+    /**
+     * @return the sections of a serialized envelope, or null if the bytes are not a json object with both a schema and
+     * a payload, then they should be parsed as a whole.
+     */
+    static JsonEnvelope scan(byte[] bytes) {
+        JsonEnvelope envelope = new JsonEnvelope();
+        int pos = skipWhitespace(bytes, 0);
+        if (pos >= bytes.length || bytes[pos] != '{') {
+            return null;
+        }
+        pos = skipWhitespace(bytes, pos + 1);
+        if (pos < bytes.length && bytes[pos] == '}') {
+            return null;
+        }
+        while (pos < bytes.length) {
+            if (bytes[pos] != '"') {
+                return null;
+            }
+            int keyStart = pos + 1;
+            int keyEnd = skipString(bytes, pos);
+            if (keyEnd < 0) {
+                return null;
+            }
+            pos = skipWhitespace(bytes, keyEnd);
+            if (pos >= bytes.length || bytes[pos] != ':') {
+                return null;
+            }
+            int valueStart = skipWhitespace(bytes, pos + 1);
+            int valueEnd = skipValue(bytes, valueStart);
+            if (valueEnd < 0) {
+                return null;
+            }
+            // keys are compared as raw bytes, a key written with escapes is not recognized
+            if (equals(bytes, keyStart, keyEnd - 1, SCHEMA_KEY)) {
+                envelope.schemaOffset = valueStart;
+                envelope.schemaLength = valueEnd - valueStart;
+            } else if (equals(bytes, keyStart, keyEnd - 1, PAYLOAD_KEY)) {
+                envelope.payloadOffset = valueStart;
+                envelope.payloadLength = valueEnd - valueStart;
+            }
+            pos = skipWhitespace(bytes, valueEnd);
+            if (pos >= bytes.length) {
+                return null;
+            }
+            if (bytes[pos] == '}') {
+                if (skipWhitespace(bytes, pos + 1) != bytes.length
+                    || envelope.schemaOffset < 0 || envelope.payloadOffset < 0) {
+                    return null;
+                }
+                return envelope;
+            }
+            if (bytes[pos] != ',') {
+                return null;
+            }
+            pos = skipWhitespace(bytes, pos + 1);
+        }
+        return null;
+    }
+
+    int getSchemaOffset() {
+        return schemaOffset;
+    }
+
+    int getSchemaLength() {
+        return schemaLength;
+    }
+
+    int getPayloadOffset() {
+        return payloadOffset;
+    }
+
+    int getPayloadLength() {
+        return payloadLength;
+    }
+
+    /**
+     * @return the position after the value starting at the given position, -1 if the value is not terminated.
+     */
+    private static int skipValue(byte[] bytes, int pos) {
+        if (pos >= bytes.length) {
+            return -1;
+        }
+        byte first = bytes[pos];
+        if (first == '"') {
+            return skipString(bytes, pos);
+        }
+        if (first != '{' && first != '[') {
+            // a number or a literal ends at the next delimiter
+            while (pos < bytes.length && bytes[pos] != ',' && bytes[pos] != '}' && bytes[pos] != ']'
+                && !isWhitespace(bytes[pos])) {
+                pos++;
+            }
+            return pos;
+        }
+        int depth = 0;
+        while (pos < bytes.length) {
+            byte b = bytes[pos];
+            if (b == '"') {
+                pos = skipString(bytes, pos);
+                if (pos < 0) {
+                    return -1;
+                }
+                continue;
+            }
+            if (b == '{' || b == '[') {
+                depth++;
+            } else if (b == '}' || b == ']') {
+                depth--;
+                if (depth == 0) {
+                    return pos + 1;
+                }
+            }
+            pos++;
+        }
+        return -1;
+    }
+
+    /**
+     * @return the position after the closing quote of the string starting at the given position, -1 if unterminated.
+     */
+    private static int skipString(byte[] bytes, int pos) {
+        pos++;
+        while (pos < bytes.length) {
+            byte b = bytes[pos];
+            if (b == '\\') {
+                pos += 2;
+                continue;
+            }
+            if (b == '"') {
+                return pos + 1;
+            }
+            pos++;
+        }
+        return -1;
+    }
+
+    private static int skipWhitespace(byte[] bytes, int pos) {
+        while (pos < bytes.length && isWhitespace(bytes[pos])) {
+            pos++;
+        }
+        return pos;
+    }
+
+    private static boolean isWhitespace(byte b) {
+        return b == ' ' || b == '\t' || b == '\n' || b == '\r';
+    }
+
+    private static boolean equals(byte[] bytes, int start, int end, byte[] expected) {
+        if (end - start != expected.length) {
+            return false;
+        }
+        for (int i = 0; i < expected.length; i++) {
+            if (bytes[start + i] != expected[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,104 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.rocketmq.connect.runtime.converter.record.json;
+
+import java.util.Arrays;
+
+/**
+ * Key of a cached schema, hashed by the {@link SchemaFingerprint} of the json schema it was converted from and
+ * compared by that json schema, or by its serialized bytes, so that two schemas whose fingerprints collide are never
+ * mistaken for each other.
+ *
+ * <p>The json schema is kept by reference, it must not be changed once the key is cached. A key of serialized bytes
+ * refers to the bytes of the message it was read from, only a {@link #copy()} of it is cached.
+ */
+final class SchemaCacheKey {
+
+    private final long fingerprint;
+
+    private final Object jsonSchema;
+
+    private final byte[] bytes;
+
+    private final int offset;
+
+    private final int length;
+
+    SchemaCacheKey(long fingerprint, Object jsonSchema) {
+        this(fingerprint, jsonSchema, null, 0, 0);
+    }
+
+    private SchemaCacheKey(long fingerprint, Object jsonSchema, byte[] bytes, int offset, int length) {
+        this.fingerprint = fingerprint;
+        this.jsonSchema = jsonSchema;
+        this.bytes = bytes;
+        this.offset = offset;
+        this.length = length;
+    }
+
+    static SchemaCacheKey of(Object jsonSchema) {
+        return new SchemaCacheKey(SchemaFingerprint.of(jsonSchema), jsonSchema);
+    }
+
+    /**
+     * @return the key of a serialized json schema, equal to keys of the same bytes only.
+     */
+    static SchemaCacheKey of(byte[] bytes, int offset, int length) {
+        return new SchemaCacheKey(SchemaFingerprint.of(bytes, offset, length), null, bytes, offset, length);
+    }
+
+    /**
+     * @return a key that does not refer to the bytes of a message, to be cached.
+     */
+    SchemaCacheKey copy() {
+        if (bytes == null) {
+            return this;
+        }
+        return new SchemaCacheKey(fingerprint, null, Arrays.copyOfRange(bytes, offset, offset + length), 0, length);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof SchemaCacheKey)) {
+            return false;
+        }
+        SchemaCacheKey other = (SchemaCacheKey) o;
+        if (fingerprint != other.fingerprint || (bytes == null) != (other.bytes == null)) {
+            return false;
+        }
+        if (bytes == null) {
+            return jsonSchema == null ? other.jsonSchema == null : jsonSchema.equals(other.jsonSchema);
+        }
+        if (length != other.length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (bytes[offset + i] != other.bytes[other.offset + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        return (int) (fingerprint ^ (fingerprint >>> 32));
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.rocketmq.connect.runtime.converter.record.json;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 64 bit fingerprint of a json schema, the hash of cached schemas, see {@link SchemaCacheKey}.
+ *
+ * <p>Equal schemas have equal fingerprints whatever the order of their fields, different schemas collide with a
+ * probability of about 2^-64, so a cached schema found by its fingerprint is nearly always the one looked up.
+ */
+public final class SchemaFingerprint {
+
+    private static final long NULL = 0x9E3779B97F4A7C15L;
+
+    private static final long OBJECT = 0xC2B2AE3D27D4EB4FL;
+
+    private static final long ARRAY = 0x165667B19E3779F9L;
+
+    private static final long STRING = 0x27D4EB2F165667C5L;
+
+    private static final long INTEGER = 0x85EBCA77C2B2AE63L;
+
+    private static final long LONG = 0xD6E8FEB86659FD93L;
+
+    private static final long OTHER = 0xFF51AFD7ED558CCDL;
+
+    private SchemaFingerprint() {
+    }
+
+    public static long of(Object json) {
+        if (json == null) {
+            return NULL;
+        }
+        if (json instanceof Map) {
+            // entries are summed, so the order of the fields does not matter
+            long hash = 0;
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) json).entrySet()) {
+                hash += mix(of(entry.getKey()) * 31 + of(entry.getValue()));
+            }
+            return mix(OBJECT ^ hash ^ ((Map<?, ?>) json).size());
+        }
+        if (json instanceof List) {
+            long hash = ARRAY;
+            for (Object element : (List<?>) json) {
+                hash = mix(hash * 31 + of(element));
+            }
+            return hash;
+        }
+        if (json instanceof CharSequence) {
+            return mix(STRING ^ hashString((CharSequence) json));
+        }
+        if (json instanceof Integer) {
+            return mix(INTEGER ^ (Integer) json);
+        }
+        if (json instanceof Long) {
+            return mix(LONG ^ (Long) json);
+        }
+        return mix(OTHER ^ hashString(json.toString()));
+    }
+
+    /**
+     * Fingerprint of a serialized json schema as it is, the same schema serialized differently has different
+     * fingerprints.
+     */
+    public static long of(byte[] bytes, int offset, int length) {
+        long hash = 0xCBF29CE484222325L;
+        for (int i = offset; i < offset + length; i++) {
+            hash ^= bytes[i] & 0xFF;
+            hash *= 0x100000001B3L;
+        }
+        return mix(hash ^ length);
+    }
+
+    /**
+     * FNV-1a over the chars of a string.
+     */
+    private static long hashString(CharSequence value) {
+        long hash = 0xCBF29CE484222325L;
+        for (int i = 0; i < value.length(); i++) {
+            hash ^= value.charAt(i);
+            hash *= 0x100000001B3L;
+        }
+        return hash;
+    }
+
+    /**
+     * The finalizer of MurmurHash3.
+     */
+    private static long mix(long hash) {
+        hash ^= hash >>> 33;
+        hash *= 0xFF51AFD7ED558CCDL;
+        hash ^= hash >>> 33;
+        hash *= 0xC4CEB9FE1A85EC53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
@@ -36,6 +36,21 @@ public class DeadLetterQueueConfig {
     public static final String DLQ_TOPIC_WRITE_QUEUE_NUMS = DLQ_PREFIX + "write.queue.nums";
     public static final short DLQ_TOPIC_WRITE_QUEUE_NUMS_DEFAULT = 16;
 
+    /**
+     * Records reported wait in a buffer of this size until they are sent to the dead letter queue in batches.
+     */
+    public static final String DLQ_BUFFER_SIZE_CONFIG = DLQ_PREFIX + "buffer.size";
+    public static final int DLQ_BUFFER_SIZE_DEFAULT = 10000;
+
+    public static final String DLQ_BATCH_SIZE_CONFIG = DLQ_PREFIX + "batch.size";
+    public static final int DLQ_BATCH_SIZE_DEFAULT = 32;
+
+    /**
+     * drop or block, see {@link DeadLetterQueueOverflowPolicy}
+     */
+    public static final String DLQ_OVERFLOW_POLICY_CONFIG = DLQ_PREFIX + "overflow.policy";
+    public static final DeadLetterQueueOverflowPolicy DLQ_OVERFLOW_POLICY_DEFAULT = DeadLetterQueueOverflowPolicy.DROP;
+
     public static final String DLQ_CONTEXT_HEADERS_ENABLE_CONFIG = DLQ_PREFIX + "context.headers.enable";
     public static final boolean DLQ_CONTEXT_HEADERS_ENABLE_DEFAULT = false;
 
@@ -108,6 +123,39 @@ public class DeadLetterQueueConfig {
         return config.getInt(DLQ_TOPIC_WRITE_QUEUE_NUMS, DLQ_TOPIC_WRITE_QUEUE_NUMS_DEFAULT);
     }
 
+    /**
+     * get dlq buffer size
+     *
+     * @return
+     */
+    public int dlqBufferSize() {
+        return config.getInt(DLQ_BUFFER_SIZE_CONFIG, DLQ_BUFFER_SIZE_DEFAULT);
+    }
+
+    /**
+     * get dlq batch size
+     *
+     * @return
+     */
+    public int dlqBatchSize() {
+        return config.getInt(DLQ_BATCH_SIZE_CONFIG, DLQ_BATCH_SIZE_DEFAULT);
+    }
+
+    /**
+     * get dlq overflow policy
+     *
+     * @return
+     */
+    public DeadLetterQueueOverflowPolicy dlqOverflowPolicy() {
+        String policy = config.getString(DLQ_OVERFLOW_POLICY_CONFIG);
+        for (DeadLetterQueueOverflowPolicy type : DeadLetterQueueOverflowPolicy.values()) {
+            if (type.name().equalsIgnoreCase(policy)) {
+                return type;
+            }
+        }
+        return DLQ_OVERFLOW_POLICY_DEFAULT;
+    }
+
     /**
      * include error log
      *
@@ -0,0 +1,41 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.rocketmq.connect.runtime.errors;
+
+import java.util.Locale;
+
+/**
+ * What to do with an errant record reported while the buffer of the dead letter queue is full.
+ */
+public enum DeadLetterQueueOverflowPolicy {
+
+    /**
+     * Drop the record, the task goes on at full speed.
+     */
+    DROP,
+
+    /**
+     * Block the task until the record fits in the buffer.
+     */
+    BLOCK;
+
+    public String value() {
+        return name().toLowerCase(Locale.ROOT);
+    }
+
+}
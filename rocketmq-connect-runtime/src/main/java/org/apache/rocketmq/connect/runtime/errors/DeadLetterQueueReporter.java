@@ -17,31 +17,42 @@
 
 package org.apache.rocketmq.connect.runtime.errors;
 
-import com.alibaba.fastjson.JSON;
 import io.openmessaging.connector.api.errors.ConnectException;
+import org.apache.commons.lang3.StringUtils;
 import org.apache.rocketmq.client.exception.MQClientException;
 import org.apache.rocketmq.client.producer.DefaultMQProducer;
-import org.apache.rocketmq.client.producer.SendCallback;
-import org.apache.rocketmq.client.producer.SendResult;
 import org.apache.rocketmq.common.TopicConfig;
 import org.apache.rocketmq.common.message.Message;
 import org.apache.rocketmq.common.message.MessageExt;
 import org.apache.rocketmq.connect.runtime.common.ConnectKeyValue;
 import org.apache.rocketmq.connect.runtime.config.ConnectConfig;
+import org.apache.rocketmq.connect.runtime.config.RuntimeConfigDefine;
+import org.apache.rocketmq.connect.runtime.stats.ConnectStatsManager;
+import org.apache.rocketmq.connect.runtime.stats.MetricsRegistry;
 import org.apache.rocketmq.connect.runtime.utils.ConnectUtil;
-import org.apache.rocketmq.remoting.exception.RemotingException;
+import org.apache.rocketmq.connect.runtime.utils.ServiceThread;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.PrintStream;
-import java.util.Map;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 
 
 /**
- * Write the original consumed record into a dead letter queue
+ * Write the original consumed record into a dead letter queue.
+ *
+ * <p>Records reported wait in a bounded buffer, a sender thread writes them to the dead letter queue in batches. Once
+ * the buffer is full, a record reported is dropped or blocks the task, as configured.
  */
 public class DeadLetterQueueReporter implements ErrorReporter {
 
@@ -61,6 +72,21 @@ public class DeadLetterQueueReporter implements ErrorReporter {
     public static final String ERROR_HEADER_EXCEPTION_STACK_TRACE = HEADER_PREFIX + "exception.stacktrace";
 
 
+    /**
+     * How long the sender waits for records before it checks whether it was stopped.
+     */
+    private static final long POLL_INTERVAL_MS = 100;
+
+    /**
+     * Records are sent in batches smaller than half the maximum size of a message, leaving room for their headers.
+     */
+    private static final int MAX_BATCH_BODY_BYTES = RuntimeConfigDefine.MAX_MESSAGE_SIZE / 2;
+
+    /**
+     * A dropped record is logged once per this many records dropped.
+     */
+    private static final long DROP_LOG_INTERVAL = 1000;
+
     /**
      * The configs of current source task.
      */
@@ -83,6 +109,29 @@ public class DeadLetterQueueReporter implements ErrorReporter {
 
     private String connectorName;
 
+    /**
+     * Records reported and not sent yet, the task thread puts them and the sender takes them.
+     */
+    private final BlockingQueue<Message> buffer;
+
+    private final DeadLetterQueueOverflowPolicy overflowPolicy;
+
+    private final int batchSize;
+
+    private final Sender sender;
+
+    private volatile boolean closed = false;
+
+    private final LongAdder reportedNums;
+
+    private final LongAdder sentNums;
+
+    private final LongAdder sendFailNums;
+
+    private final LongAdder droppedNums;
+
+    private final AtomicLong bufferedNums;
+
 
     public void workerId(String workerId) {
         this.workerId = workerId;
@@ -95,11 +144,13 @@ public class DeadLetterQueueReporter implements ErrorReporter {
      * @param connectorName
      * @param sinkConfig
      * @param workerConfig
+     * @param metricsRegistry where the records reported are counted, by connector
      * @return
      */
     public static DeadLetterQueueReporter build(String connectorName,
                                                 ConnectKeyValue sinkConfig,
-                                                ConnectConfig workerConfig) {
+                                                ConnectConfig workerConfig,
+                                                MetricsRegistry metricsRegistry) {
 
         DeadLetterQueueConfig deadLetterQueueConfig = new DeadLetterQueueConfig(sinkConfig);
         String dlqTopic = deadLetterQueueConfig.dlqTopicName();
@@ -113,19 +164,26 @@ public class DeadLetterQueueReporter implements ErrorReporter {
             ConnectUtil.createTopic(workerConfig, topicConfig);
         }
         DefaultMQProducer dlqProducer = ConnectUtil.initDefaultMQProducer(workerConfig);
-        return new DeadLetterQueueReporter(dlqProducer, sinkConfig, connectorName);
+        try {
+            dlqProducer.start();
+        } catch (MQClientException e) {
+            throw new ConnectException("Start dead letter queue producer failed", e);
+        }
+        return new DeadLetterQueueReporter(dlqProducer, sinkConfig, connectorName, metricsRegistry);
     }
 
     /**
-     * Initialize the dead letter queue reporter with a producer
+     * Initialize the dead letter queue reporter with a producer, and start sending the records reported.
      *
-     * @param producer
+     * @param producer a started producer
      * @param connConfig
      * @param connectorName
+     * @param metricsRegistry where the records reported are counted, or null
      */
     DeadLetterQueueReporter(DefaultMQProducer producer,
                             ConnectKeyValue connConfig,
-                            String connectorName) {
+                            String connectorName,
+                            MetricsRegistry metricsRegistry) {
         Objects.requireNonNull(producer);
         Objects.requireNonNull(connConfig);
         Objects.requireNonNull(connectorName);
@@ -133,10 +191,23 @@ public class DeadLetterQueueReporter implements ErrorReporter {
         this.config = connConfig;
         this.connectorName = connectorName;
         this.deadLetterQueueConfig = new DeadLetterQueueConfig(connConfig);
+        this.buffer = new ArrayBlockingQueue<>(Math.max(1, deadLetterQueueConfig.dlqBufferSize()));
+        this.overflowPolicy = deadLetterQueueConfig.dlqOverflowPolicy();
+        this.batchSize = Math.max(1, deadLetterQueueConfig.dlqBatchSize());
+
+        MetricsRegistry registry = metricsRegistry == null ? new MetricsRegistry() : metricsRegistry;
+        this.reportedNums = registry.counter(ConnectStatsManager.DLQ_RECORD_REPORT_NUMS, connectorName);
+        this.sentNums = registry.counter(ConnectStatsManager.DLQ_RECORD_SEND_NUMS, connectorName);
+        this.sendFailNums = registry.counter(ConnectStatsManager.DLQ_RECORD_SEND_FAIL_NUMS, connectorName);
+        this.droppedNums = registry.counter(ConnectStatsManager.DLQ_RECORD_DROP_NUMS, connectorName);
+        this.bufferedNums = registry.gauge(ConnectStatsManager.DLQ_RECORD_BUFFERED_NUMS, connectorName);
+
+        this.sender = new Sender();
+        this.sender.start();
     }
 
     /**
-     * Write the raw records into a topic
+     * Put the raw record into the buffer, it is written to the dead letter queue by the sender.
      */
     @Override
     public void report(ProcessingContext context) {
@@ -153,31 +224,88 @@ public class DeadLetterQueueReporter implements ErrorReporter {
         producerRecord.setBody(originalMessage.getBody());
 
         if (deadLetterQueueConfig.isDlqContextHeadersEnabled()) {
-            populateContextHeaders(originalMessage, context);
+            populateContextHeaders(producerRecord, context);
         }
 
-        try {
-            producer.send(originalMessage, new SendCallback() {
-                @Override
-                public void onSuccess(SendResult result) {
-                    log.info("Successful send error message to RocketMQ:{}, Topic {}", result.getMsgId(), result.getMessageQueue().getTopic());
-                }
+        reportedNums.increment();
+        if (closed) {
+            drop(producerRecord);
+            return;
+        }
+        if (overflowPolicy == DeadLetterQueueOverflowPolicy.BLOCK) {
+            try {
+                buffer.put(producerRecord);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new ConnectException(e);
+            }
+        } else if (!buffer.offer(producerRecord)) {
+            drop(producerRecord);
+            return;
+        }
+        bufferedNums.incrementAndGet();
+    }
 
-                @Override
-                public void onException(Throwable throwable) {
-                    log.error("Source task send record failed ,error msg {}. message {}", throwable.getMessage(), JSON.toJSONString(originalMessage), throwable);
-                }
-            });
-        } catch (MQClientException e) {
-            log.error("Send message MQClientException. message: {}, error info: {}.", producerRecord, e);
-        } catch (RemotingException e) {
-            log.error("Send message RemotingException. message: {}, error info: {}.", producerRecord, e);
+    private void drop(Message producerRecord) {
+        droppedNums.increment();
+        if (droppedNums.sum() % DROP_LOG_INTERVAL == 1) {
+            log.warn("Dead letter queue buffer of connector {} is full, dropped {} records so far, dropping message {}",
+                connectorName, droppedNums.sum(), producerRecord);
+        }
+    }
+
+    /**
+     * Send a batch of records taken from the buffer with one request.
+     */
+    private void send(List<Message> batch) {
+        try {
+            if (batch.size() == 1) {
+                producer.send(batch.get(0));
+            } else {
+                producer.send(batch);
+            }
+            sentNums.add(batch.size());
         } catch (InterruptedException e) {
-            log.error("Send message InterruptedException. message: {}, error info: {}.", producerRecord, e);
-            throw new ConnectException(e);
+            Thread.currentThread().interrupt();
+            sendFailNums.add(batch.size());
+            log.error("Send {} messages to dead letter queue interrupted.", batch.size(), e);
+        } catch (Exception e) {
+            sendFailNums.add(batch.size());
+            log.error("Send {} messages to dead letter queue {} failed, error info: {}.", batch.size(),
+                deadLetterQueueConfig.dlqTopicName(), e.getMessage(), e);
         }
     }
 
+    /**
+     * Take the next batch from the buffer, waiting at most the given time for its first record.
+     *
+     * @return the batch, empty if no record came in time
+     */
+    private List<Message> nextBatch(long timeoutMs) throws InterruptedException {
+        List<Message> batch = new ArrayList<>(batchSize);
+        Message first = buffer.poll(timeoutMs, TimeUnit.MILLISECONDS);
+        if (first == null) {
+            return batch;
+        }
+        batch.add(first);
+        int bodyBytes = bodySize(first);
+        while (batch.size() < batchSize) {
+            Message next = buffer.peek();
+            if (next == null || bodyBytes + bodySize(next) > MAX_BATCH_BODY_BYTES) {
+                break;
+            }
+            // only this thread takes from the buffer, the record peeked is the one polled
+            buffer.poll();
+            batch.add(next);
+            bodyBytes += bodySize(next);
+        }
+        bufferedNums.addAndGet(-batch.size());
+        return batch;
+    }
+
+    private static int bodySize(Message message) {
+        return message.getBody() == null ? 0 : message.getBody().length;
+    }
 
     /**
      * pop context property
@@ -186,7 +314,6 @@ public class DeadLetterQueueReporter implements ErrorReporter {
      * @param context
      */
     void populateContextHeaders(Message producerRecord, ProcessingContext context) {
-        Map<String, String> headers = producerRecord.getProperties();
         if (context.consumerRecord() != null) {
             producerRecord.putUserProperty(ERROR_HEADER_ORIG_TOPIC, context.consumerRecord().getTopic());
             producerRecord.putUserProperty(ERROR_HEADER_ORIG_PARTITION, String.valueOf(context.consumerRecord().getQueueId()));
@@ -200,11 +327,13 @@ public class DeadLetterQueueReporter implements ErrorReporter {
         producerRecord.putUserProperty(ERROR_HEADER_CONNECTOR_NAME, connectorName);
         if (context.error() != null) {
             Throwable error = context.error();
-            headers.put(ERROR_HEADER_EXCEPTION, error.getClass().getName());
-            headers.put(ERROR_HEADER_EXCEPTION_MESSAGE, error.getMessage());
+            producerRecord.putUserProperty(ERROR_HEADER_EXCEPTION, error.getClass().getName());
+            if (StringUtils.isNotBlank(error.getMessage())) {
+                producerRecord.putUserProperty(ERROR_HEADER_EXCEPTION_MESSAGE, error.getMessage());
+            }
             byte[] trace;
             if ((trace = stacktrace(context.error())) != null) {
-                headers.put(ERROR_HEADER_EXCEPTION_STACK_TRACE, new String(trace));
+                producerRecord.putUserProperty(ERROR_HEADER_EXCEPTION_STACK_TRACE, new String(trace, StandardCharsets.UTF_8));
             }
         }
     }
@@ -225,10 +354,46 @@ public class DeadLetterQueueReporter implements ErrorReporter {
         return null;
     }
 
+    /**
+     * Send the records left in the buffer, then stop.
+     */
     @Override
     public void close() {
+        closed = true;
+        sender.shutdown();
         if (producer != null) {
             producer.shutdown();
         }
     }
+
+    /**
+     * Sends the records of the buffer in batches, until the reporter is closed and the buffer is empty.
+     */
+    private class Sender extends ServiceThread {
+
+        @Override
+        public void run() {
+            log.info(this.getServiceName() + " service started");
+            try {
+                while (!this.isStopped()) {
+                    List<Message> batch = nextBatch(POLL_INTERVAL_MS);
+                    if (!batch.isEmpty()) {
+                        send(batch);
+                    }
+                }
+                List<Message> batch;
+                while (!(batch = nextBatch(0)).isEmpty()) {
+                    send(batch);
+                }
+            } catch (InterruptedException e) {
+                log.warn("{} interrupted, {} records not sent", getServiceName(), buffer.size());
+            }
+            log.info(this.getServiceName() + " service end");
+        }
+
+        @Override
+        public String getServiceName() {
+            return DeadLetterQueueReporter.class.getSimpleName();
+        }
+    }
 }
@@ -24,7 +24,7 @@ package org.apache.rocketmq.connect.runtime.errors;
 public interface ErrorReporter extends AutoCloseable {
 
     /**
-     * report message
+     * report message, may be called from several convert threads of a task at once
      *
      * @param context
      */
@@ -18,66 +18,58 @@
 package org.apache.rocketmq.connect.runtime.errors;
 
 import io.openmessaging.connector.api.data.ConnectRecord;
-import io.openmessaging.connector.api.errors.ConnectException;
 import org.apache.rocketmq.common.message.MessageExt;
 
-import java.util.Collection;
-import java.util.Collections;
-import java.util.Objects;
-
 /**
- * contains all info current time
+ * The context of an error on one record, immutable, so records may be processed and reported by several threads.
  */
-class ProcessingContext implements AutoCloseable {
-
-    /**
-     * reporters
-     */
-    private Collection<ErrorReporter> reporters = Collections.emptyList();
+class ProcessingContext {
 
     /**
      * send message
      */
-    private MessageExt consumedMessage;
+    private final MessageExt consumedMessage;
 
     /**
      * original source record
      */
-    private ConnectRecord sourceRecord;
+    private final ConnectRecord sourceRecord;
 
     /**
      * stage
      */
-    private ErrorReporter.Stage stage;
-    private Class<?> klass;
+    private final ErrorReporter.Stage stage;
+    private final Class<?> klass;
 
     /**
      * attempt
      */
-    private int attempt;
+    private final int attempt;
     /**
      * error message
      */
-    private Throwable error;
-
-    /**
-     * reset info
-     */
-    private void reset() {
-        attempt = 0;
-        stage = null;
-        klass = null;
-        error = null;
-    }
+    private final Throwable error;
 
     /**
-     * Set the record consumed from Kafka in a sink connector.
-     *
-     * @param consumedMessage the record
+     * @param consumedMessage the record consumed in a sink, or null
+     * @param sourceRecord    the record being processed in the connect pipeline, or null
+     * @param stage           the stage which failed
+     * @param klass           the class which failed
+     * @param attempt         the number of attempts made to execute the operation
+     * @param error           the error of the last attempt
      */
-    public void consumerRecord(MessageExt consumedMessage) {
+    ProcessingContext(MessageExt consumedMessage,
+                      ConnectRecord sourceRecord,
+                      ErrorReporter.Stage stage,
+                      Class<?> klass,
+                      int attempt,
+                      Throwable error) {
         this.consumedMessage = consumedMessage;
-        reset();
+        this.sourceRecord = sourceRecord;
+        this.stage = stage;
+        this.klass = klass;
+        this.attempt = attempt;
+        this.error = error;
     }
 
     /**
@@ -94,25 +86,6 @@ class ProcessingContext implements AutoCloseable {
         return sourceRecord;
     }
 
-    /**
-     * Set the source record being processed in the connect pipeline.
-     *
-     * @param record the source record
-     */
-    public void sourceRecord(ConnectRecord record) {
-        this.sourceRecord = record;
-        reset();
-    }
-
-    /**
-     * Set the stage in the connector pipeline which is currently executing.
-     *
-     * @param stage the stage
-     */
-    public void stage(ErrorReporter.Stage stage) {
-        this.stage = stage;
-    }
-
     /**
      * @return the stage in the connector pipeline which is currently executing.
      */
@@ -127,62 +100,14 @@ class ProcessingContext implements AutoCloseable {
         return klass;
     }
 
-    /**
-     * @param klass set the class which is currently executing.
-     */
-    public void executingClass(Class<?> klass) {
-        this.klass = klass;
-    }
-
-    /**
-     * A helper method to set both the stage and the class.
-     *
-     * @param stage the stage
-     * @param klass the class which will execute the operation in this stage.
-     */
-    public void currentContext(ErrorReporter.Stage stage, Class<?> klass) {
-        stage(stage);
-        executingClass(klass);
-    }
-
-
-    /**
-     * report errors
-     */
-    public void report() {
-        if (reporters.size() == 1) {
-            reporters.iterator().next().report(this);
-        }
-        reporters.stream().forEach(r -> r.report(this));
-    }
-
-
-    /**
-     * @param attempt the number of attempts made to execute the current operation.
-     */
-    public void attempt(int attempt) {
-        this.attempt = attempt;
-    }
-
     public int attempt() {
         return attempt;
     }
 
-
     public Throwable error() {
         return error;
     }
 
-    /**
-     * set error
-     *
-     * @param error
-     */
-    public void error(Throwable error) {
-        this.error = error;
-    }
-
-
     /**
      * @return
      */
@@ -190,33 +115,6 @@ class ProcessingContext implements AutoCloseable {
         return error() != null;
     }
 
-
-    /**
-     * set reporters
-     *
-     * @param reporters
-     */
-    public void reporters(Collection<ErrorReporter> reporters) {
-        Objects.requireNonNull(reporters);
-        this.reporters = reporters;
-    }
-
-    @Override
-    public void close() {
-        ConnectException e = null;
-        for (ErrorReporter reporter : reporters) {
-            try {
-                reporter.close();
-            } catch (Throwable t) {
-                e = e != null ? e : new ConnectException("Failed to close all reporters");
-                e.addSuppressed(t);
-            }
-        }
-        if (e != null) {
-            throw e;
-        }
-    }
-
     public String toString(boolean includeMessage) {
         StringBuilder builder = new StringBuilder();
         builder.append("Executing stage '");
@@ -20,6 +20,7 @@ package org.apache.rocketmq.connect.runtime.errors;
 import io.openmessaging.connector.api.data.RecordConverter;
 import org.apache.rocketmq.connect.runtime.common.ConnectKeyValue;
 import org.apache.rocketmq.connect.runtime.config.ConnectConfig;
+import org.apache.rocketmq.connect.runtime.stats.MetricsRegistry;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -69,18 +70,20 @@ public class ReporterManagerUtil {
      * @param connectName
      * @param connConfig
      * @param workerConfig
+     * @param metricsRegistry where the records sent to the dead letter queue are counted
      * @return
      */
     public static List<ErrorReporter> sinkTaskReporters(String connectName,
                                                         ConnectKeyValue connConfig,
-                                                        ConnectConfig workerConfig) {
+                                                        ConnectConfig workerConfig,
+                                                        MetricsRegistry metricsRegistry) {
         // ensure reporter order
         ArrayList<ErrorReporter> reporters = new ArrayList<>();
         LogReporter logReporter = new LogReporter(connectName, connConfig);
         reporters.add(logReporter);
 
         // dead letter queue reporter
-        DeadLetterQueueReporter reporter = DeadLetterQueueReporter.build(connectName, connConfig, workerConfig);
+        DeadLetterQueueReporter reporter = DeadLetterQueueReporter.build(connectName, connConfig, workerConfig, metricsRegistry);
         if (reporter != null) {
             reporters.add(reporter);
         }
@@ -24,13 +24,19 @@ import org.apache.rocketmq.connect.runtime.utils.Utils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * retry operator
+ *
+ * <p>The operator keeps no state of the record being processed, the context of a record is passed to each operation
+ * and reported immutable, so records may be processed by several threads at once.
  */
 public class RetryWithToleranceOperator implements AutoCloseable {
 
@@ -49,8 +55,12 @@ public class RetryWithToleranceOperator implements AutoCloseable {
     private final long maxDelayInMillis;
     private final ToleranceType toleranceType;
 
-    private long totalFailures = 0;
-    protected ProcessingContext context = new ProcessingContext();
+    private final AtomicLong totalFailures = new AtomicLong(0);
+
+    /**
+     * reporters
+     */
+    private volatile List<ErrorReporter> reporters = Collections.emptyList();
 
     public RetryWithToleranceOperator(long errorRetryTimeout,
                                       long maxDelayInMillis,
@@ -66,100 +76,121 @@ public class RetryWithToleranceOperator implements AutoCloseable {
                               Throwable error) {
 
         markAsFailed();
-        context.consumerRecord(consumerRecord);
-        context.currentContext(stage, executingClass);
-        context.error(error);
-        context.report();
+        report(new ProcessingContext(consumerRecord, null, stage, executingClass, 0, error));
         if (!withinToleranceLimits()) {
             throw new ConnectException("Tolerance exceeded in error handler", error);
         }
     }
 
     /**
-     * Execute the recoverable operation. If the operation is already in a failed state, then simply return
-     * with the existing failure.
+     * Execute the recoverable operation on a record consumed in a sink.
+     *
+     * @return the result of the operation, or null if it failed and the failure was tolerated
      */
-    public <V> V execute(Operation<V> operation, ErrorReporter.Stage stage, Class<?> executingClass) {
-        context.currentContext(stage, executingClass);
-        if (context.failed()) {
-            log.debug("ProcessingContext is already in failed state. Ignoring requested operation.");
-            return null;
-        }
+    public <V> V execute(Operation<V> operation, ErrorReporter.Stage stage, Class<?> executingClass,
+                         MessageExt consumerRecord) {
+        return execute(operation, stage, executingClass, consumerRecord, null);
+    }
 
-        try {
-            Class<? extends Exception> ex = TOLERABLE_EXCEPTIONS.getOrDefault(context.stage(), RetriableException.class);
-            return execAndHandleError(operation, ex);
-        } finally {
-            if (context.failed()) {
-                context.report();
-            }
-        }
+    /**
+     * Execute the recoverable operation on a record of the connect pipeline.
+     *
+     * @return the result of the operation, or null if it failed and the failure was tolerated
+     */
+    public <V> V execute(Operation<V> operation, ErrorReporter.Stage stage, Class<?> executingClass,
+                         ConnectRecord sourceRecord) {
+        return execute(operation, stage, executingClass, null, sourceRecord);
+    }
+
+    /**
+     * Execute the recoverable operation, the records are only reported with a failure.
+     *
+     * @param consumerRecord the record consumed in a sink, or null
+     * @param sourceRecord   the record of the connect pipeline, or null
+     * @return the result of the operation, or null if it failed and the failure was tolerated
+     */
+    public <V> V execute(Operation<V> operation, ErrorReporter.Stage stage, Class<?> executingClass,
+                         MessageExt consumerRecord, ConnectRecord sourceRecord) {
+        return execute(operation, null, stage, executingClass, consumerRecord, sourceRecord);
     }
 
     /**
-     * Attempt to execute an operation.
+     * Handle the failure of an operation the caller already attempted once. The failure is reported and tolerated
+     * like a failure of the first attempt of {@link #execute}, the operation is only called again to retry a
+     * retriable failure.
+     *
+     * @param operation      the operation that failed
+     * @param failure        the failure of the first attempt
+     * @param consumerRecord the record consumed in a sink, or null
+     * @param sourceRecord   the record of the connect pipeline, or null
+     * @return the result of a retry, or null if the failure was tolerated
      */
-    protected <V> V execAndRetry(Operation<V> operation) throws Exception {
+    public <V> V executeFailed(Operation<V> operation, Exception failure, ErrorReporter.Stage stage,
+                               Class<?> executingClass, MessageExt consumerRecord, ConnectRecord sourceRecord) {
+        return execute(operation, Objects.requireNonNull(failure), stage, executingClass, consumerRecord, sourceRecord);
+    }
+
+    private <V> V execute(Operation<V> operation, Exception firstFailure, ErrorReporter.Stage stage,
+                          Class<?> executingClass, MessageExt consumerRecord, ConnectRecord sourceRecord) {
+        Class<? extends Exception> tolerated = TOLERABLE_EXCEPTIONS.getOrDefault(stage, RetriableException.class);
         int attempt = 0;
         long startTime = System.currentTimeMillis();
         long deadline = startTime + retryTimeout;
         do {
             try {
                 attempt++;
+                if (null != firstFailure) {
+                    Exception failure = firstFailure;
+                    firstFailure = null;
+                    throw failure;
+                }
                 return operation.call();
             } catch (RetriableException e) {
-                log.trace("Caught a retriable exception while executing {} operation with {}", context.stage(), context.executingClass());
+                log.trace("Caught a retriable exception while executing {} operation with {}", stage, executingClass);
                 if (checkRetry(startTime)) {
                     backoff(attempt, deadline);
                     if (Thread.currentThread().isInterrupted()) {
                         log.trace("Thread was interrupted. Marking operation as failed.");
-                        context.error(e);
+                        markAsFailed();
+                        report(new ProcessingContext(consumerRecord, sourceRecord, stage, executingClass, attempt, e));
                         return null;
                     }
                 } else {
                     log.trace("Can't retry. start={}, attempt={}, deadline={}", startTime, attempt, deadline);
-                    context.error(e);
+                    markAsFailed();
+                    report(new ProcessingContext(consumerRecord, sourceRecord, stage, executingClass, attempt, e));
                     return null;
                 }
-            } finally {
-                context.attempt(attempt);
-            }
-        } while (true);
-    }
-
-    /**
-     * Execute a given operation multiple times (if needed), and tolerate certain exceptions.
-     */
-    protected <V> V execAndHandleError(Operation<V> operation, Class<? extends Exception> tolerated) {
-        try {
-            V result = execAndRetry(operation);
-            if (context.failed()) {
+            } catch (Exception e) {
                 markAsFailed();
-            }
-            return result;
-        } catch (Exception e) {
-            markAsFailed();
-            context.error(e);
+                report(new ProcessingContext(consumerRecord, sourceRecord, stage, executingClass, attempt, e));
 
-            if (!tolerated.isAssignableFrom(e.getClass())) {
-                throw new ConnectException("Unhandled exception in error handler", e);
-            }
+                if (!tolerated.isAssignableFrom(e.getClass())) {
+                    throw new ConnectException("Unhandled exception in error handler", e);
+                }
 
-            if (!withinToleranceLimits()) {
-                throw new ConnectException("Tolerance exceeded in error handler", e);
+                if (!withinToleranceLimits()) {
+                    throw new ConnectException("Tolerance exceeded in error handler", e);
+                }
+                return null;
             }
-            return null;
+        } while (true);
+    }
+
+    private void report(ProcessingContext context) {
+        for (ErrorReporter reporter : reporters) {
+            reporter.report(context);
         }
     }
 
     private void markAsFailed() {
-        totalFailures++;
+        totalFailures.incrementAndGet();
     }
 
     public boolean withinToleranceLimits() {
         switch (toleranceType) {
             case NONE:
-                if (totalFailures > 0) {
+                if (totalFailures.get() > 0) {
                     return false;
                 }
             case ALL:
@@ -192,50 +223,24 @@ public class RetryWithToleranceOperator implements AutoCloseable {
      * @param reporters the error reporters (should not be null).
      */
     public void reporters(List<ErrorReporter> reporters) {
-        this.context.reporters(reporters);
-    }
-
-    /**
-     * Set the source record being processed in the connect pipeline.
-     *
-     * @param preTransformRecord the source record
-     */
-    public void sourceRecord(ConnectRecord preTransformRecord) {
-        this.context.sourceRecord(preTransformRecord);
-    }
-
-
-    /**
-     * Set the record consumed rocketmq in a sink
-     *
-     * @param messageExt
-     */
-    public void consumerRecord(MessageExt messageExt) {
-        this.context.consumerRecord(messageExt);
+        Objects.requireNonNull(reporters);
+        this.reporters = reporters;
     }
 
-    /**
-     * failed
-     *
-     * @return
-     */
-    public boolean failed() {
-        return this.context.failed();
-    }
-
-    /**
-     * error
-     *
-     * @return
-     */
-    public Throwable error() {
-        return this.context.error();
-    }
-
-
     @Override
     public void close() {
-        this.context.close();
+        ConnectException e = null;
+        for (ErrorReporter reporter : reporters) {
+            try {
+                reporter.close();
+            } catch (Throwable t) {
+                e = e != null ? e : new ConnectException("Failed to close all reporters");
+                e.addSuppressed(t);
+            }
+        }
+        if (e != null) {
+            throw e;
+        }
     }
 
 
@@ -246,7 +251,6 @@ public class RetryWithToleranceOperator implements AutoCloseable {
                 ", errorMaxDelayInMillis=" + maxDelayInMillis +
                 ", errorToleranceType=" + toleranceType +
                 ", totalFailures=" + totalFailures +
-                ", context=" + context +
                 '}';
     }
 
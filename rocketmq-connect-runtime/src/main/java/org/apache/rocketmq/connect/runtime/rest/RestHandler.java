@@ -20,17 +20,29 @@ package org.apache.rocketmq.connect.runtime.rest;
 import com.alibaba.fastjson.JSON;
 import io.javalin.Context;
 import io.javalin.Javalin;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.rocketmq.connect.runtime.controller.AbstractConnectController;
 import org.apache.rocketmq.connect.runtime.common.ConnectKeyValue;
 import org.apache.rocketmq.connect.runtime.common.LoggerName;
+import org.apache.rocketmq.connect.runtime.connectorwrapper.Worker;
 import org.apache.rocketmq.connect.runtime.connectorwrapper.WorkerConnector;
 import org.apache.rocketmq.connect.runtime.connectorwrapper.WorkerTask;
+import org.apache.rocketmq.connect.runtime.stats.LatencyHistogram;
+import org.apache.rocketmq.connect.runtime.stats.MetricsRegistry;
+import org.apache.rocketmq.connect.runtime.stats.PrometheusMetricsWriter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -70,6 +82,8 @@ public class RestHandler {
         app.get("/getConfigInfo", this::getConfigInfo);
         app.get("/getAllocatedConnectors", this::getAllocatedConnectors);
         app.get("/getAllocatedTasks", this::getAllocatedTasks);
+        app.get("/getStats", this::getStats);
+        app.get("/metrics", this::getMetrics);
         app.get("/plugin/reload", this::reloadPlugins);
     }
 
@@ -106,6 +120,78 @@ public class RestHandler {
         context.result(JSON.toJSONString(formatter));
     }
 
+    /**
+     * The counters, the latency percentiles and the lags of this worker and its tasks. The query param 'key' keeps
+     * only the metrics whose key starts with it, such as a task id.
+     */
+    private void getStats(Context context) {
+        String keyPrefix = context.req.getParameter("key");
+        MetricsRegistry metricsRegistry = connectController.getConnectStatsManager().getMetricsRegistry();
+
+        Map<String, Map<String, Object>> histograms = new TreeMap<>();
+        for (Map.Entry<String, Map<String, LatencyHistogram.Snapshot>> entry : metricsRegistry.getHistograms().entrySet()) {
+            Map<String, Object> values = new TreeMap<>();
+            for (Map.Entry<String, LatencyHistogram.Snapshot> histogram : entry.getValue().entrySet()) {
+                if (null == keyPrefix || histogram.getKey().startsWith(keyPrefix)) {
+                    values.put(histogram.getKey(), convertSnapshotToMap(histogram.getValue()));
+                }
+            }
+            histograms.put(entry.getKey(), values);
+        }
+
+        Map<String, Object> formatter = new HashMap<>();
+        formatter.put("counters", filterByKeyPrefix(metricsRegistry.getCounters(), keyPrefix));
+        formatter.put("histograms", histograms);
+        formatter.put("lags", filterByKeyPrefix(metricsRegistry.getGauges(), keyPrefix));
+        context.result(JSON.toJSONString(formatter));
+    }
+
+    /**
+     * All metrics of this worker in the Prometheus text format, written to the response as they are read.
+     */
+    private void getMetrics(Context context) throws IOException {
+        context.contentType(PrometheusMetricsWriter.CONTENT_TYPE);
+        Writer writer = new BufferedWriter(new OutputStreamWriter(context.res.getOutputStream(), StandardCharsets.UTF_8));
+        PrometheusMetricsWriter metricsWriter = new PrometheusMetricsWriter(writer, connectController.getConnectConfig().getWorkerId());
+        connectController.getConnectStatsManager().getMetricsRegistry().accept(metricsWriter);
+
+        for (Map.Entry<String, AtomicLong> entry : connectController.getConnectStatsService().getSourceTaskTimesTotal().entrySet()) {
+            metricsWriter.writeGauge("source_task_records", "task", entry.getKey(), entry.getValue().get());
+        }
+        for (Map.Entry<String, AtomicLong> entry : connectController.getConnectStatsService().getSinkTaskTimesTotal().entrySet()) {
+            metricsWriter.writeGauge("sink_task_records", "task", entry.getKey(), entry.getValue().get());
+        }
+        Worker worker = connectController.getWorker();
+        metricsWriter.writeGauge("connectors", null, null, worker.getWorkingConnectors().size());
+        metricsWriter.writeGauge("tasks", "state", "pending", worker.getPendingTasks().size());
+        metricsWriter.writeGauge("tasks", "state", "running", worker.getWorkingTasks().size());
+        metricsWriter.writeGauge("tasks", "state", "stopping", worker.getStoppingTasks().size());
+        metricsWriter.writeGauge("tasks", "state", "stopped", worker.getStoppedTasks().size());
+        metricsWriter.writeGauge("tasks", "state", "error", worker.getErrorTasks().size());
+        metricsWriter.flush();
+    }
+
+    private Map<String, Map<String, Long>> filterByKeyPrefix(Map<String, Map<String, Long>> metrics, String keyPrefix) {
+        if (null == keyPrefix) {
+            return metrics;
+        }
+        for (Map<String, Long> values : metrics.values()) {
+            values.keySet().removeIf(key -> !key.startsWith(keyPrefix));
+        }
+        return metrics;
+    }
+
+    private Map<String, Object> convertSnapshotToMap(LatencyHistogram.Snapshot snapshot) {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("count", snapshot.getCount());
+        result.put("mean", snapshot.getMean());
+        result.put("p50", snapshot.getValueAtPercentile(50));
+        result.put("p99", snapshot.getValueAtPercentile(99));
+        result.put("p999", snapshot.getValueAtPercentile(99.9));
+        result.put("max", snapshot.getMax());
+        return result;
+    }
+
     private void getConfigInfo(Context context) {
 
         Map<String, ConnectKeyValue> connectorConfigs = connectController.getConfigManagementService().getConnectorConfigs();
@@ -20,8 +20,11 @@ package org.apache.rocketmq.connect.runtime.service;
 import io.openmessaging.KeyValue;
 import io.openmessaging.connector.api.component.connector.Connector;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -46,6 +49,15 @@ import org.apache.rocketmq.connect.runtime.utils.datasync.DataSynchronizerCallba
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+/**
+ * Keeps the connector and task configs of the cluster in sync between workers.
+ *
+ * <p>A change of a connector config is sent to the other workers as a delta of that connector and its task configs,
+ * and a worker coming online only receives the configs it misses or has older versions of. The messages are written
+ * as JSON, which workers of earlier versions read, until {@link ConnectConfig#isBinarySyncFormatEnable()} switches
+ * them to the binary {@link org.apache.rocketmq.connect.runtime.utils.datasync.LogMessageCodec} once all workers
+ * of the cluster are upgraded.
+ */
 public class ConfigManagementServiceImpl implements ConfigManagementService {
     private static final Logger log = LoggerFactory.getLogger(LoggerName.ROCKETMQ_RUNTIME);
 
@@ -73,6 +85,11 @@ public class ConfigManagementServiceImpl implements ConfigManagementService {
 
     private final String configManagePrefix = "ConfigManage";
 
+    /**
+     * How long a deleted connector is kept, so that all workers learn it was deleted.
+     */
+    private long configTombstoneRetention;
+
     public ConfigManagementServiceImpl() {
     }
 
@@ -94,6 +111,7 @@ public class ConfigManagementServiceImpl implements ConfigManagementService {
             new JsonConverter(),
             new ListConverter(ConnectKeyValue.class));
         this.plugin = plugin;
+        this.configTombstoneRetention = connectConfig.getConfigTombstoneRetention();
         this.prepare(connectConfig);
     }
 
@@ -123,7 +141,6 @@ public class ConfigManagementServiceImpl implements ConfigManagementService {
     @Override
     public void stop() {
 
-        sendSynchronizeConfig();
         connectorKeyValueStore.persist();
         taskKeyValueStore.persist();
         dataSynchronizer.stop();
@@ -225,7 +242,7 @@ public class ConfigManagementServiceImpl implements ConfigManagementService {
             converterdConfigs.add(newKeyValue);
         }
         putTaskConfigs(connectorName, converterdConfigs);
-        sendSynchronizeConfig();
+        sendSynchronizeConfig(Collections.singleton(connectorName));
         triggerListener();
     }
 
@@ -242,7 +259,7 @@ public class ConfigManagementServiceImpl implements ConfigManagementService {
         connectorKeyValueStore.put(connectorName, config);
         putTaskConfigs(connectorName, taskConfigList);
         log.info("[ISSUE #2027] After removal The configs are:\n" + getConnectorConfigs().toString());
-        sendSynchronizeConfig();
+        sendSynchronizeConfig(Collections.singleton(connectorName));
         triggerListener();
     }
 
@@ -272,6 +289,7 @@ public class ConfigManagementServiceImpl implements ConfigManagementService {
     @Override
     public void persist() {
 
+        compactTombstones();
         this.connectorKeyValueStore.persist();
         this.taskKeyValueStore.persist();
     }
@@ -299,6 +317,7 @@ public class ConfigManagementServiceImpl implements ConfigManagementService {
             new JsonConverter(),
             new ListConverter(ConnectKeyValue.class));
         this.plugin = plugin;
+        this.configTombstoneRetention = connectConfig.getConfigTombstoneRetention();
     }
 
     private void triggerListener() {
@@ -319,11 +338,28 @@ public class ConfigManagementServiceImpl implements ConfigManagementService {
         dataSynchronizer.send(ConfigChangeEnum.ONLINE_KEY.name(), configs);
     }
 
-    private void sendSynchronizeConfig() {
+    /**
+     * Send the configs of some connectors, deleted ones included so that other workers delete them too.
+     *
+     * @param connectorNames
+     */
+    private void sendSynchronizeConfig(Collection<String> connectorNames) {
 
+        if (connectorNames.isEmpty()) {
+            return;
+        }
         ConnAndTaskConfigs configs = new ConnAndTaskConfigs();
-        configs.setConnectorConfigs(connectorKeyValueStore.getKVMap());
-        configs.setTaskConfigs(taskKeyValueStore.getKVMap());
+        for (String connectorName : connectorNames) {
+            ConnectKeyValue connectorConfig = connectorKeyValueStore.get(connectorName);
+            if (null == connectorConfig) {
+                continue;
+            }
+            configs.getConnectorConfigs().put(connectorName, connectorConfig);
+            List<ConnectKeyValue> taskConfigs = taskKeyValueStore.get(connectorName);
+            if (null != taskConfigs) {
+                configs.getTaskConfigs().put(connectorName, taskConfigs);
+            }
+        }
         dataSynchronizer.send(ConfigChangeEnum.CONFIG_CHANG_KEY.name(), configs);
     }
 
@@ -335,9 +371,8 @@ public class ConfigManagementServiceImpl implements ConfigManagementService {
             boolean changed = false;
             switch (ConfigChangeEnum.valueOf(key)) {
                 case ONLINE_KEY:
-                    mergeConfig(result);
-                    changed = true;
-                    sendSynchronizeConfig();
+                    changed = mergeConfig(result);
+                    sendSynchronizeConfig(getNewerConnectors(result));
                     break;
                 case CONFIG_CHANG_KEY:
                     changed = mergeConfig(result);
@@ -352,34 +387,72 @@ public class ConfigManagementServiceImpl implements ConfigManagementService {
     }
 
     /**
-     * Merge new received configs with the configs in memory.
+     * Merge new received configs with the configs in memory, a connector config replaces the existing one if it was
+     * updated later.
      *
      * @param newConnAndTaskConfig
      * @return
      */
     private boolean mergeConfig(ConnAndTaskConfigs newConnAndTaskConfig) {
         boolean changed = false;
-        for (String connectorName : newConnAndTaskConfig.getConnectorConfigs().keySet()) {
-            ConnectKeyValue newConfig = newConnAndTaskConfig.getConnectorConfigs().get(connectorName);
-            ConnectKeyValue oldConfig = getConnectorConfigsIncludeDeleted().get(connectorName);
-            if (null == oldConfig) {
+        for (Map.Entry<String, ConnectKeyValue> entry : newConnAndTaskConfig.getConnectorConfigs().entrySet()) {
+            String connectorName = entry.getKey();
+            ConnectKeyValue newConfig = entry.getValue();
+            ConnectKeyValue oldConfig = connectorKeyValueStore.get(connectorName);
+            if (null == oldConfig || getUpdateTimestamp(newConfig) > getUpdateTimestamp(oldConfig)) {
                 changed = true;
                 connectorKeyValueStore.put(connectorName, newConfig);
-                taskKeyValueStore.put(connectorName, newConnAndTaskConfig.getTaskConfigs().get(connectorName));
-            } else {
-
-                Long oldUpdateTime = oldConfig.getLong(RuntimeConfigDefine.UPDATE_TIMESTAMP);
-                Long newUpdateTime = newConfig.getLong(RuntimeConfigDefine.UPDATE_TIMESTAMP);
-                if (newUpdateTime > oldUpdateTime) {
-                    changed = true;
-                    connectorKeyValueStore.put(connectorName, newConfig);
-                    taskKeyValueStore.put(connectorName, newConnAndTaskConfig.getTaskConfigs().get(connectorName));
+                List<ConnectKeyValue> newTaskConfigs = newConnAndTaskConfig.getTaskConfigs().get(connectorName);
+                if (null != newTaskConfigs) {
+                    taskKeyValueStore.put(connectorName, newTaskConfigs);
+                } else {
+                    taskKeyValueStore.remove(connectorName);
                 }
             }
         }
         return changed;
     }
 
+    /**
+     * The connectors whose configs in memory are newer than those an online worker sent, or unknown to that worker.
+     *
+     * @param onlineConnAndTaskConfig
+     * @return
+     */
+    private Collection<String> getNewerConnectors(ConnAndTaskConfigs onlineConnAndTaskConfig) {
+        List<String> newerConnectors = new ArrayList<>();
+        Map<String, ConnectKeyValue> onlineConfigs = onlineConnAndTaskConfig.getConnectorConfigs();
+        for (Map.Entry<String, ConnectKeyValue> entry : connectorKeyValueStore.getKVMap().entrySet()) {
+            ConnectKeyValue onlineConfig = onlineConfigs.get(entry.getKey());
+            if (null == onlineConfig || getUpdateTimestamp(entry.getValue()) > getUpdateTimestamp(onlineConfig)) {
+                newerConnectors.add(entry.getKey());
+            }
+        }
+        return newerConnectors;
+    }
+
+    private static long getUpdateTimestamp(ConnectKeyValue config) {
+        Long updateTimestamp = config.getLong(RuntimeConfigDefine.UPDATE_TIMESTAMP);
+        return null == updateTimestamp ? 0 : updateTimestamp;
+    }
+
+    /**
+     * Forget connectors deleted longer ago than the tombstone retention.
+     */
+    private void compactTombstones() {
+        long expireTimestamp = System.currentTimeMillis() - configTombstoneRetention;
+        Iterator<Map.Entry<String, ConnectKeyValue>> iterator = connectorKeyValueStore.getKVMap().entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<String, ConnectKeyValue> entry = iterator.next();
+            ConnectKeyValue config = entry.getValue();
+            if (0 != config.getInt(RuntimeConfigDefine.CONFIG_DELETED) && getUpdateTimestamp(config) < expireTimestamp) {
+                iterator.remove();
+                taskKeyValueStore.remove(entry.getKey());
+                log.info("Compact tombstone of deleted connector {}", entry.getKey());
+            }
+        }
+    }
+
     private enum ConfigChangeEnum {
 
         /**
@@ -22,6 +22,7 @@ import io.openmessaging.connector.api.data.RecordOffset;
 import java.util.List;
 import java.util.Map;
 import org.apache.rocketmq.connect.runtime.config.ConnectConfig;
+import org.apache.rocketmq.connect.runtime.stats.MetricsRegistry;
 import org.apache.rocketmq.connect.runtime.store.ExtendRecordPartition;
 
 /**
@@ -48,6 +49,16 @@ public interface PositionManagementService {
 
     }
 
+    /**
+     * Record the metrics of the manager in the given registry, so that they are exported with the worker's metrics.
+     *
+     * @param metricsRegistry the metrics of the worker
+     * @param worker the id of the worker, the key of the metrics
+     */
+    default void registerMetrics(MetricsRegistry metricsRegistry, String worker) {
+
+    }
+
     /**
      * Persist position info in a persist store.
      */
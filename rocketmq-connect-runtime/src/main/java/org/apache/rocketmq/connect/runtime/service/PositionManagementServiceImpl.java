@@ -20,13 +20,20 @@ package org.apache.rocketmq.connect.runtime.service;
 import io.netty.util.internal.ConcurrentSet;
 import io.openmessaging.connector.api.data.RecordOffset;
 
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
-import java.util.stream.Collectors;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.rocketmq.common.TopicConfig;
+import org.apache.rocketmq.common.utils.ThreadUtils;
 import org.apache.rocketmq.connect.runtime.common.LoggerName;
 import org.apache.rocketmq.connect.runtime.config.ConnectConfig;
 import org.apache.rocketmq.connect.runtime.converter.JsonConverter;
@@ -34,8 +41,8 @@ import org.apache.rocketmq.connect.runtime.converter.RecordOffsetConverter;
 import org.apache.rocketmq.connect.runtime.converter.RecordPartitionConverter;
 import org.apache.rocketmq.connect.runtime.converter.RecordPositionMapConverter;
 import org.apache.rocketmq.connect.runtime.store.ExtendRecordPartition;
-import org.apache.rocketmq.connect.runtime.store.FileBaseKeyValueStore;
 import org.apache.rocketmq.connect.runtime.store.KeyValueStore;
+import org.apache.rocketmq.connect.runtime.store.LogFileBaseKeyValueStore;
 import org.apache.rocketmq.connect.runtime.utils.ConnectUtil;
 import org.apache.rocketmq.connect.runtime.utils.FilePathConfigUtil;
 import org.apache.rocketmq.connect.runtime.utils.datasync.BrokerBasedLog;
@@ -44,9 +51,26 @@ import org.apache.rocketmq.connect.runtime.utils.datasync.DataSynchronizerCallba
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+/**
+ * Synchronize positions between workers through the position topic.
+ *
+ * <p>Every worker only sends the positions it updated since its last synchronization, as a delta tagged with its
+ * worker id and a sequence number that grows with every message it sends. A receiver remembers for every partition
+ * which delta it applied last, and skips a delta of the same worker with a lower sequence number, so deltas that are
+ * redelivered or consumed out of order cannot roll a position back. A worker coming online asks for a snapshot of all
+ * positions; every other worker schedules an answer after a short delay of its own, and drops it once it sees another
+ * worker answered, so the new worker usually receives one snapshot rather than one full table from every worker.
+ */
 public class PositionManagementServiceImpl implements PositionManagementService {
     private static final Logger log = LoggerFactory.getLogger(LoggerName.ROCKETMQ_RUNTIME);
 
+    private static final String KEY_SEPARATOR = ":";
+
+    /**
+     * Upper bound of the delay before answering a snapshot request.
+     */
+    private static final int MAX_SNAPSHOT_DELAY_MILLS = 1000;
+
     /**
      * Current position info in store.
      */
@@ -69,6 +93,26 @@ public class PositionManagementServiceImpl implements PositionManagementService
 
     private final String positionManagePrefix = "PositionManage";
 
+    private String workerId;
+
+    /**
+     * Sequence number of the last message sent. It starts from the clock, so that a restarted worker continues above
+     * the sequence numbers it sent before.
+     */
+    private final AtomicLong sequence = new AtomicLong(System.currentTimeMillis());
+
+    /**
+     * The last delta applied to each partition, or the last local write of a position.
+     */
+    private final Map<ExtendRecordPartition, PositionChangeKey> positionVersions = new ConcurrentHashMap<>();
+
+    /**
+     * Snapshot requests of other workers this worker is going to answer, unless another worker answers first.
+     */
+    private final Set<String> pendingSnapshotRequests = ConcurrentHashMap.newKeySet();
+
+    private ScheduledExecutorService snapshotExecutor;
+
     public PositionManagementServiceImpl() {
     }
 
@@ -99,6 +143,7 @@ public class PositionManagementServiceImpl implements PositionManagementService
 
         sendNeedSynchronizePosition();
         positionStore.persist();
+        snapshotExecutor.shutdownNow();
         dataSynchronizer.stop();
     }
 
@@ -134,17 +179,32 @@ public class PositionManagementServiceImpl implements PositionManagementService
     @Override
     public void putPosition(Map<ExtendRecordPartition, RecordOffset> positions) {
 
-        positionStore.putAll(positions);
+        for (Map.Entry<ExtendRecordPartition, RecordOffset> entry : positions.entrySet()) {
+            putLocalPosition(entry.getKey(), entry.getValue());
+        }
         needSyncPartition.addAll(positions.keySet());
     }
 
     @Override
     public void putPosition(ExtendRecordPartition partition, RecordOffset position) {
 
-        positionStore.put(partition, position);
+        putLocalPosition(partition, position);
         needSyncPartition.add(partition);
     }
 
+    /**
+     * Store a position written by a task of this worker, versioned like a delta of this worker, so that a snapshot
+     * received later does not roll it back.
+     */
+    private void putLocalPosition(ExtendRecordPartition partition, RecordOffset position) {
+
+        PositionChangeKey localVersion = new PositionChangeKey(PositionChangeEnum.POSITION_CHANG_KEY, workerId, sequence.incrementAndGet());
+        positionVersions.compute(partition, (key, version) -> {
+            positionStore.put(key, position);
+            return localVersion;
+        });
+    }
+
     @Override
     public void removePosition(List<ExtendRecordPartition> partitions) {
 
@@ -155,6 +215,7 @@ public class PositionManagementServiceImpl implements PositionManagementService
         for (ExtendRecordPartition partition : partitions) {
             needSyncPartition.remove(partition);
             positionStore.remove(partition);
+            positionVersions.remove(partition);
         }
     }
 
@@ -165,7 +226,8 @@ public class PositionManagementServiceImpl implements PositionManagementService
     }
 
     @Override public void initialize(ConnectConfig connectConfig) {
-        this.positionStore = new FileBaseKeyValueStore<>(FilePathConfigUtil.getPositionPath(connectConfig.getStorePathRootDir()),
+        this.positionStore = new LogFileBaseKeyValueStore<>(FilePathConfigUtil.getPositionLogPath(connectConfig.getStorePathRootDir()),
+            FilePathConfigUtil.getPositionPath(connectConfig.getStorePathRootDir()),
             new RecordPartitionConverter(),
             new RecordOffsetConverter());
         this.dataSynchronizer = new BrokerBasedLog(connectConfig,
@@ -173,9 +235,11 @@ public class PositionManagementServiceImpl implements PositionManagementService
             ConnectUtil.createGroupName(positionManagePrefix, connectConfig.getWorkerId()),
             new PositionChangeCallback(),
             new JsonConverter(),
-            new RecordPositionMapConverter());
+            new RecordPositionMapConverter(connectConfig.isBinarySyncFormatEnable()));
         this.positionUpdateListener = new HashSet<>();
         this.needSyncPartition = new ConcurrentSet<>();
+        this.workerId = connectConfig.getWorkerId();
+        this.snapshotExecutor = ThreadUtils.newSingleThreadScheduledExecutor("PositionSnapshotThread", true);
         this.prepare(connectConfig);
     }
 
@@ -185,7 +249,7 @@ public class PositionManagementServiceImpl implements PositionManagementService
 
     private void sendOnlinePositionInfo() {
 
-        dataSynchronizer.send(PositionChangeEnum.ONLINE_KEY.name(), positionStore.getKVMap());
+        dataSynchronizer.send(newKey(PositionChangeEnum.ONLINE_KEY, workerId), new HashMap<>());
     }
 
 
@@ -193,16 +257,41 @@ public class PositionManagementServiceImpl implements PositionManagementService
 
         Set<ExtendRecordPartition> needSyncPartitionTmp = needSyncPartition;
         needSyncPartition = new ConcurrentSet<>();
-        Map<ExtendRecordPartition, RecordOffset> needSyncPosition = positionStore.getKVMap().entrySet().stream()
-                .filter(entry -> needSyncPartitionTmp.contains(entry.getKey()))
-                .collect(Collectors.toMap(entry -> entry.getKey(), entry -> entry.getValue()));
+        Map<ExtendRecordPartition, RecordOffset> needSyncPosition = new HashMap<>();
+        for (ExtendRecordPartition partition : needSyncPartitionTmp) {
+            RecordOffset position = positionStore.get(partition);
+            if (null != position) {
+                needSyncPosition.put(partition, position);
+            }
+        }
+        if (needSyncPosition.isEmpty()) {
+            return;
+        }
 
-        dataSynchronizer.send(PositionChangeEnum.POSITION_CHANG_KEY.name(), needSyncPosition);
+        dataSynchronizer.send(newKey(PositionChangeEnum.POSITION_CHANG_KEY, workerId), needSyncPosition);
     }
 
-    private void sendSynchronizePosition() {
+    /**
+     * Answer a snapshot request after a delay that differs between workers, unless another worker answers first.
+     */
+    private void scheduleSnapshot(PositionChangeKey request) {
 
-        dataSynchronizer.send(PositionChangeEnum.POSITION_CHANG_KEY.name(), positionStore.getKVMap());
+        String requestId = request.getRequestId();
+        if (!pendingSnapshotRequests.add(requestId)) {
+            return;
+        }
+        long delay = 1 + Math.floorMod(Objects.hash(workerId, requestId), MAX_SNAPSHOT_DELAY_MILLS);
+        snapshotExecutor.schedule(() -> {
+            if (pendingSnapshotRequests.remove(requestId)) {
+                dataSynchronizer.send(PositionChangeEnum.POSITION_SNAPSHOT_KEY.name() + KEY_SEPARATOR + requestId,
+                    new HashMap<>(positionStore.getKVMap()));
+            }
+        }, delay, TimeUnit.MILLISECONDS);
+    }
+
+    private String newKey(PositionChangeEnum type, String workerId) {
+
+        return type.name() + KEY_SEPARATOR + workerId + KEY_SEPARATOR + sequence.incrementAndGet();
     }
 
     private class PositionChangeCallback implements DataSynchronizerCallback<String, Map<ExtendRecordPartition, RecordOffset>> {
@@ -210,14 +299,28 @@ public class PositionManagementServiceImpl implements PositionManagementService
         @Override
         public void onCompletion(Throwable error, String key, Map<ExtendRecordPartition, RecordOffset> result) {
 
+            PositionChangeKey changeKey = PositionChangeKey.parse(key);
+            if (null == changeKey) {
+                log.warn("Ignore position message with unknown key {}", key);
+                return;
+            }
             boolean changed = false;
-            switch (PositionChangeEnum.valueOf(key)) {
+            switch (changeKey.getType()) {
                 case ONLINE_KEY:
-                    changed = true;
-                    sendSynchronizePosition();
+                    if (!workerId.equals(changeKey.getWorkerId())) {
+                        scheduleSnapshot(changeKey);
+                    }
                     break;
                 case POSITION_CHANG_KEY:
-                    changed = mergePositionInfo(result);
+                    if (!workerId.equals(changeKey.getWorkerId())) {
+                        changed = mergePositionInfo(changeKey, result);
+                    }
+                    break;
+                case POSITION_SNAPSHOT_KEY:
+                    pendingSnapshotRequests.remove(changeKey.getRequestId());
+                    if (workerId.equals(changeKey.getWorkerId())) {
+                        changed = mergeSnapshot(result);
+                    }
                     break;
                 default:
                     break;
@@ -236,35 +339,57 @@ public class PositionManagementServiceImpl implements PositionManagementService
     }
 
     /**
-     * Merge new received position info with local store.
+     * Merge a received delta with local store, skipping partitions a later delta of the same worker was applied to.
      *
+     * @param changeKey
      * @param result
      * @return
      */
-    private boolean mergePositionInfo(Map<ExtendRecordPartition, RecordOffset> result) {
+    private boolean mergePositionInfo(PositionChangeKey changeKey, Map<ExtendRecordPartition, RecordOffset> result) {
 
-        boolean changed = false;
         if (null == result || 0 == result.size()) {
-            return changed;
+            return false;
         }
 
+        AtomicBoolean changed = new AtomicBoolean(false);
         for (Map.Entry<ExtendRecordPartition, RecordOffset> newEntry : result.entrySet()) {
-            boolean find = false;
-            for (Map.Entry<ExtendRecordPartition, RecordOffset> existedEntry : positionStore.getKVMap().entrySet()) {
-                if (newEntry.getKey().equals(existedEntry.getKey())) {
-                    find = true;
-                    if (!newEntry.getValue().equals(existedEntry.getValue())) {
-                        changed = true;
-                        existedEntry.setValue(newEntry.getValue());
-                    }
-                    break;
+            positionVersions.compute(newEntry.getKey(), (partition, version) -> {
+                if (null != version && version.getWorkerId().equals(changeKey.getWorkerId())
+                    && version.getSequence() >= changeKey.getSequence()) {
+                    return version;
                 }
-            }
-            if (!find) {
-                positionStore.put(newEntry.getKey(), newEntry.getValue());
-            }
+                if (!newEntry.getValue().equals(positionStore.put(partition, newEntry.getValue()))) {
+                    changed.set(true);
+                }
+                return changeKey;
+            });
         }
-        return changed;
+        return changed.get();
+    }
+
+    /**
+     * Merge a received snapshot with local store. Partitions a delta was applied to or a task of this worker wrote to
+     * since startup are newer than the snapshot may be, they are kept.
+     *
+     * @param result
+     * @return
+     */
+    private boolean mergeSnapshot(Map<ExtendRecordPartition, RecordOffset> result) {
+
+        if (null == result || 0 == result.size()) {
+            return false;
+        }
+
+        AtomicBoolean changed = new AtomicBoolean(false);
+        for (Map.Entry<ExtendRecordPartition, RecordOffset> newEntry : result.entrySet()) {
+            positionVersions.compute(newEntry.getKey(), (partition, version) -> {
+                if (null == version && !newEntry.getValue().equals(positionStore.put(partition, newEntry.getValue()))) {
+                    changed.set(true);
+                }
+                return version;
+            });
+        }
+        return changed.get();
     }
 
     private enum PositionChangeEnum {
@@ -275,9 +400,67 @@ public class PositionManagementServiceImpl implements PositionManagementService
         POSITION_CHANG_KEY,
 
         /**
-         * A worker online.
+         * A worker online, requesting a snapshot.
+         */
+        ONLINE_KEY,
+
+        /**
+         * All position info, answering a snapshot request.
+         */
+        POSITION_SNAPSHOT_KEY
+    }
+
+    /**
+     * Key of a position message, {@code type:workerId:sequence}. The worker is the sender, except for a snapshot,
+     * where it and the sequence number name the request answered.
+     */
+    private static class PositionChangeKey {
+
+        private final PositionChangeEnum type;
+
+        private final String workerId;
+
+        private final long sequence;
+
+        private PositionChangeKey(PositionChangeEnum type, String workerId, long sequence) {
+            this.type = type;
+            this.workerId = workerId;
+            this.sequence = sequence;
+        }
+
+        /**
+         * @return the parsed key, or null if the key is malformed.
          */
-        ONLINE_KEY
+        private static PositionChangeKey parse(String key) {
+            int typeEnd = key.indexOf(KEY_SEPARATOR);
+            int workerEnd = key.lastIndexOf(KEY_SEPARATOR);
+            if (typeEnd < 0 || workerEnd <= typeEnd) {
+                return null;
+            }
+            try {
+                return new PositionChangeKey(PositionChangeEnum.valueOf(key.substring(0, typeEnd)),
+                    key.substring(typeEnd + 1, workerEnd),
+                    Long.parseLong(key.substring(workerEnd + 1)));
+            } catch (IllegalArgumentException e) {
+                return null;
+            }
+        }
+
+        private PositionChangeEnum getType() {
+            return type;
+        }
+
+        private String getWorkerId() {
+            return workerId;
+        }
+
+        private long getSequence() {
+            return sequence;
+        }
+
+        private String getRequestId() {
+            return workerId + KEY_SEPARATOR + sequence;
+        }
     }
 }
 
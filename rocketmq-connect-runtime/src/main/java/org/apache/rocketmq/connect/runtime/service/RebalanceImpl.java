@@ -17,6 +17,8 @@
 
 package org.apache.rocketmq.connect.runtime.service;
 
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -62,6 +64,16 @@ public class RebalanceImpl {
 
     private final AbstractConnectController connectController;
 
+    /**
+     * The alive workers of the last rebalance.
+     */
+    private List<String> lastAliveWorkers;
+
+    /**
+     * Workers that left the cluster less than the rebalance delay ago, and when they were found gone.
+     */
+    private final Map<String, Long/*timestamp*/> leftWorkers = new HashMap<>();
+
     public RebalanceImpl(Worker worker,
                          ConfigManagementService configManagementService,
                          ClusterManagementService clusterManagementService,
@@ -103,12 +115,63 @@ public class RebalanceImpl {
         log.info("Current ConnectorConfigs : " + curConnectorConfigs);
         Map<String, List<ConnectKeyValue>> curTaskConfigs = configManagementService.getTaskConfigs();
         log.info("Current TaskConfigs : " + curTaskConfigs);
-        ConnAndTaskConfigs allocateResult = allocateConnAndTaskStrategy.allocate(curAliveWorkers, clusterManagementService.getCurrentWorker(), curConnectorConfigs, curTaskConfigs);
+        ConnAndTaskConfigs allocateResult = allocateConnAndTaskStrategy.allocate(getAllocateWorkers(curAliveWorkers), clusterManagementService.getCurrentWorker(), curConnectorConfigs, curTaskConfigs);
         log.info("Allocated connector:{}", allocateResult.getConnectorConfigs());
         log.info("Allocated task:{}", allocateResult.getTaskConfigs());
         updateProcessConfigsInRebalance(allocateResult);
     }
 
+    /**
+     * The workers to allocate to: the alive workers and the workers that left less than the rebalance delay ago. The
+     * connectors and tasks of a worker that left stay unassigned until the delay passes, and do not move at all if the
+     * worker comes back in time.
+     *
+     * @param curAliveWorkers
+     * @return
+     */
+    private synchronized List<String> getAllocateWorkers(List<String> curAliveWorkers) {
+        int rebalanceDelay = connectController.getConnectConfig().getRebalanceDelay();
+        if (rebalanceDelay <= 0 || null == curAliveWorkers) {
+            leftWorkers.clear();
+            lastAliveWorkers = curAliveWorkers;
+            return curAliveWorkers;
+        }
+        long currentTimeMillis = System.currentTimeMillis();
+        if (null != lastAliveWorkers) {
+            for (String worker : lastAliveWorkers) {
+                if (!curAliveWorkers.contains(worker)) {
+                    leftWorkers.putIfAbsent(worker, currentTimeMillis);
+                }
+            }
+        }
+        leftWorkers.keySet().removeAll(curAliveWorkers);
+        leftWorkers.values().removeIf(leftTimestamp -> currentTimeMillis - leftTimestamp >= rebalanceDelay);
+        lastAliveWorkers = curAliveWorkers;
+        if (leftWorkers.isEmpty()) {
+            return curAliveWorkers;
+        }
+        log.info("Delay rebalance of left workers : " + leftWorkers.keySet());
+        List<String> allocateWorkers = new ArrayList<>(curAliveWorkers);
+        allocateWorkers.addAll(leftWorkers.keySet());
+        return allocateWorkers;
+    }
+
+    /**
+     * How long until the connectors and tasks of a worker that left are due to move to other workers.
+     *
+     * @return the remaining delay in milliseconds, or -1 if no worker left.
+     */
+    public synchronized long getRemainingRebalanceDelay() {
+        long remainingDelay = -1;
+        long currentTimeMillis = System.currentTimeMillis();
+        int rebalanceDelay = connectController.getConnectConfig().getRebalanceDelay();
+        for (Long leftTimestamp : leftWorkers.values()) {
+            long delay = Math.max(0, leftTimestamp + rebalanceDelay - currentTimeMillis);
+            remainingDelay = remainingDelay < 0 ? delay : Math.min(remainingDelay, delay);
+        }
+        return remainingDelay;
+    }
+
     /**
      * Start all the connectors and tasks allocated to current process.
      *
@@ -60,7 +60,8 @@ public class RebalanceService extends ServiceThread {
 
         while (!this.isStopped()) {
             try {
-                this.waitForRunning(waitInterval);
+                long remainingDelay = this.rebalanceImpl.getRemainingRebalanceDelay();
+                this.waitForRunning(remainingDelay >= 0 ? Math.min(waitInterval, remainingDelay + 1) : waitInterval);
                 this.rebalanceImpl.doRebalance();
             } catch (Exception e) {
                 log.error("reblacne exception", e);
@@ -17,29 +17,26 @@
 package org.apache.rocketmq.connect.runtime.service.memory;
 
 import io.openmessaging.connector.api.data.RecordOffset;
-import io.openmessaging.connector.api.errors.ConnectException;
-import org.apache.rocketmq.common.utils.ThreadUtils;
 import org.apache.rocketmq.connect.runtime.common.LoggerName;
 import org.apache.rocketmq.connect.runtime.config.ConnectConfig;
 import org.apache.rocketmq.connect.runtime.converter.RecordOffsetConverter;
 import org.apache.rocketmq.connect.runtime.converter.RecordPartitionConverter;
 import org.apache.rocketmq.connect.runtime.service.PositionManagementService;
 import org.apache.rocketmq.connect.runtime.service.StagingMode;
+import org.apache.rocketmq.connect.runtime.stats.ConnectStatsManager;
+import org.apache.rocketmq.connect.runtime.stats.MetricsRegistry;
 import org.apache.rocketmq.connect.runtime.store.ExtendRecordPartition;
-import org.apache.rocketmq.connect.runtime.store.FileBaseKeyValueStore;
 import org.apache.rocketmq.connect.runtime.store.KeyValueStore;
+import org.apache.rocketmq.connect.runtime.store.LogFileBaseKeyValueStore;
 import org.apache.rocketmq.connect.runtime.utils.FilePathConfigUtil;
-import org.apache.rocketmq.connect.runtime.utils.datasync.DataSynchronizerCallback;
+import org.apache.rocketmq.connect.runtime.utils.ServiceThread;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.Callable;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.Future;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * standalone
@@ -47,7 +44,6 @@ import java.util.concurrent.TimeUnit;
 public class FilePositionManagementServiceImpl implements PositionManagementService {
     private static final Logger log = LoggerFactory.getLogger(LoggerName.ROCKETMQ_RUNTIME);
 
-    protected ExecutorService executor;
     /**
      * Current position info in store.
      */
@@ -57,49 +53,74 @@ public class FilePositionManagementServiceImpl implements PositionManagementServ
      */
     private PositionUpdateListener positionUpdateListener;
 
+    /**
+     * Persists position updates in the background, merging all updates since the last flush into one persist.
+     */
+    private PositionFlushService positionFlushService;
+
+    private int positionFlushInterval;
+
+    private int positionFlushDirtyThreshold;
+
+    /**
+     * Position updates not yet flushed.
+     */
+    private final AtomicInteger dirtyCount = new AtomicInteger(0);
+
+    /**
+     * When the oldest position update not yet flushed was made, 0 if all are flushed.
+     */
+    private final AtomicLong firstDirtyTimestamp = new AtomicLong(0);
+
+    /**
+     * Gauges of the last flush, in the worker's metrics once registered.
+     */
+    private volatile AtomicLong lastFlushLag = new AtomicLong(0);
+
+    private volatile AtomicLong lastFlushSize = new AtomicLong(0);
+
     public FilePositionManagementServiceImpl() {
 
     }
 
     @Override public void initialize(ConnectConfig connectConfig) {
-        this.positionStore = new FileBaseKeyValueStore<>(FilePathConfigUtil.getPositionPath(connectConfig.getStorePathRootDir()),
+        this.positionStore = new LogFileBaseKeyValueStore<>(FilePathConfigUtil.getPositionLogPath(connectConfig.getStorePathRootDir()),
+            FilePathConfigUtil.getPositionPath(connectConfig.getStorePathRootDir()),
             new RecordPartitionConverter(),
             new RecordOffsetConverter());
+        this.positionFlushInterval = connectConfig.getPositionFlushInterval();
+        this.positionFlushDirtyThreshold = connectConfig.getPositionFlushDirtyThreshold();
     }
 
     @Override public StagingMode getStagingMode() {
         return StagingMode.STANDALONE;
     }
 
+    @Override
+    public void registerMetrics(MetricsRegistry metricsRegistry, String worker) {
+        this.lastFlushLag = metricsRegistry.gauge(ConnectStatsManager.POSITION_FLUSH_LAG, worker);
+        this.lastFlushSize = metricsRegistry.gauge(ConnectStatsManager.POSITION_FLUSH_SIZE, worker);
+    }
+
     @Override
     public void start() {
-        executor = Executors.newFixedThreadPool(1, ThreadUtils.newThreadFactory(
-            this.getClass().getSimpleName() + "-%d", false));
         positionStore.load();
+        positionFlushService = new PositionFlushService();
+        positionFlushService.start();
     }
 
     @Override
     public void stop() {
-        positionStore.persist();
-        if (executor != null) {
-            executor.shutdown();
-            // Best effort wait for any get() and set() tasks (and caller's callbacks) to complete.
-            try {
-                executor.awaitTermination(30, TimeUnit.SECONDS);
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-            }
-            if (!executor.shutdownNow().isEmpty()) {
-                throw new ConnectException("Failed to stop MemoryOffsetManagementServiceImpl. Exiting without cleanly " +
-                    "shutting down pending tasks and/or callbacks.");
-            }
-            executor = null;
+        if (positionFlushService != null) {
+            positionFlushService.shutdown();
+            positionFlushService = null;
         }
+        flush();
     }
 
     @Override
     public void persist() {
-        positionStore.persist();
+        flush();
     }
 
     @Override
@@ -124,31 +145,13 @@ public class FilePositionManagementServiceImpl implements PositionManagementServ
     @Override
     public void putPosition(Map<ExtendRecordPartition, RecordOffset> positions) {
         positionStore.putAll(positions);
-        this.triggerListener(new DataSynchronizerCallback<Void, Void>() {
-            @Override
-            public void onCompletion(Throwable error, Void key, Void result) {
-                if (error != null) {
-                    log.error("Failed to persist positions to storage: {}", error);
-                } else {
-                    log.trace("Successed to persist positions to storage: {} ", positions);
-                }
-            }
-        });
+        this.triggerListener(positions.size());
     }
 
     @Override
     public void putPosition(ExtendRecordPartition partition, RecordOffset position) {
         positionStore.put(partition, position);
-        this.triggerListener(new DataSynchronizerCallback<Void, Void>() {
-            @Override
-            public void onCompletion(Throwable error, Void key, Void result) {
-                if (error != null) {
-                    log.error("Failed to persist positions to storage: {}", error);
-                } else {
-                    log.trace("Successed to persist positions to storage: {} , {} ", partition, position);
-                }
-            }
-        });
+        this.triggerListener(1);
     }
 
     @Override
@@ -159,16 +162,7 @@ public class FilePositionManagementServiceImpl implements PositionManagementServ
         for (ExtendRecordPartition partition : partitions) {
             positionStore.remove(partition);
         }
-        this.triggerListener(new DataSynchronizerCallback<Void, Void>() {
-            @Override
-            public void onCompletion(Throwable error, Void key, Void result) {
-                if (error != null) {
-                    log.error("Failed to persist positions to storage: {}", error);
-                } else {
-                    log.trace("Successed to persist positions to storage: {}", partitions);
-                }
-            }
-        });
+        this.triggerListener(partitions.size());
     }
 
     @Override
@@ -176,32 +170,68 @@ public class FilePositionManagementServiceImpl implements PositionManagementServ
         this.positionUpdateListener = listener;
     }
 
-    private Future<Void> triggerListener(DataSynchronizerCallback<Void, Void> callback) {
+    /**
+     * How long the updates of the last flush waited to be persisted, in milliseconds.
+     */
+    public long getLastFlushLag() {
+        return lastFlushLag.get();
+    }
+
+    /**
+     * How many position updates the last flush persisted.
+     */
+    public int getLastFlushSize() {
+        return (int) lastFlushSize.get();
+    }
+
+    /**
+     * Mark positions dirty, the flush service persists them within the flush interval, or at once when too many are
+     * dirty.
+     */
+    private void triggerListener(int updates) {
         if (this.positionUpdateListener != null) {
             positionUpdateListener.onPositionUpdate();
         }
+        firstDirtyTimestamp.compareAndSet(0, System.currentTimeMillis());
+        if (dirtyCount.addAndGet(updates) >= positionFlushDirtyThreshold && positionFlushService != null) {
+            positionFlushService.wakeup();
+        }
+    }
 
-        return executor.submit(new Callable<Void>() {
-            /**
-             * Computes a result, or throws an exception if unable to do so.
-             *
-             * @return computed result
-             * @throws Exception if unable to compute a result
-             */
-            @Override
-            public Void call() {
-                try {
-                    positionStore.persist();
-                    if (callback != null) {
-                        callback.onCompletion(null, null, null);
-                    }
-                } catch (Exception error) {
-                    callback.onCompletion(error, null, null);
-                }
-                return null;
-            }
-        });
+    private synchronized void flush() {
+        long dirtyTimestamp = firstDirtyTimestamp.getAndSet(0);
+        int flushSize = dirtyCount.getAndSet(0);
+        if (0 == flushSize) {
+            return;
+        }
+        try {
+            positionStore.persist();
+            long flushLag = System.currentTimeMillis() - dirtyTimestamp;
+            lastFlushSize.set(flushSize);
+            lastFlushLag.set(flushLag);
+            log.trace("Succeeded to persist {} position updates, lag {} ms", flushSize, flushLag);
+        } catch (Exception e) {
+            log.error("Failed to persist positions to storage", e);
+        }
     }
 
-}
+    class PositionFlushService extends ServiceThread {
+
+        @Override
+        public void run() {
+            log.info(this.getServiceName() + " service started");
+
+            while (!this.isStopped()) {
+                this.waitForRunning(positionFlushInterval);
+                flush();
+            }
+
+            log.info(this.getServiceName() + " service end");
+        }
 
+        @Override
+        public String getServiceName() {
+            return PositionFlushService.class.getSimpleName();
+        }
+    }
+}
@@ -0,0 +1,40 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.apache.rocketmq.connect.runtime.service.strategy;
+
+import org.apache.rocketmq.connect.runtime.common.ConnectKeyValue;
+import org.apache.rocketmq.connect.runtime.config.RuntimeConfigDefine;
+
+/**
+ * Allocate strategy that balances the load of the workers instead of their number of tasks.
+ *
+ * <p>The load of a task is the {@link RuntimeConfigDefine#TASK_LOAD_WEIGHT} of its connector, 1 by default, so a hot
+ * connector can be given a weight matching its throughput as reported by the task stats. The weight is part of the
+ * shared connector config, so all workers compute the same allocation. Tasks keep their identities and placement as
+ * in {@link AllocateConnAndTaskStrategyByRendezvousHash}, heavy tasks are spread first.
+ */
+public class AllocateConnAndTaskStrategyByLoad extends AllocateConnAndTaskStrategyByRendezvousHash {
+
+    @Override
+    protected int getTaskWeight(String connectorName, ConnectKeyValue connectorConfig) {
+        if (null == connectorConfig) {
+            return 1;
+        }
+        return connectorConfig.getInt(RuntimeConfigDefine.TASK_LOAD_WEIGHT, 1);
+    }
+}
@@ -0,0 +1,163 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.apache.rocketmq.connect.runtime.service.strategy;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import org.apache.rocketmq.connect.runtime.common.ConnAndTaskConfigs;
+import org.apache.rocketmq.connect.runtime.common.ConnectKeyValue;
+import org.apache.rocketmq.connect.runtime.common.LoggerName;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Allocate strategy that leaves connectors and tasks where they are when workers or configs change.
+ *
+ * <p>A connector is identified by its name and a task by its connector name and its index in the task configs, so
+ * updating a config does not move it. Each goes to the worker ranking highest for it by rendezvous hashing, unless
+ * that worker already holds its fair share, then to the next ranking one. When a worker joins or leaves, about the
+ * share of that worker moves and the rest keeps running, while the default strategy may move nearly everything.
+ */
+public class AllocateConnAndTaskStrategyByRendezvousHash implements AllocateConnAndTaskStrategy {
+    private static final Logger log = LoggerFactory.getLogger(LoggerName.ROCKETMQ_RUNTIME);
+
+    private static final String CONNECTOR_KEY_PREFIX = "connector:";
+
+    private static final String TASK_KEY_PREFIX = "task:";
+
+    @Override
+    public ConnAndTaskConfigs allocate(List<String> allWorker, String curWorker,
+        Map<String, ConnectKeyValue> connectorConfigs,
+        Map<String, List<ConnectKeyValue>> taskConfigs) {
+        ConnAndTaskConfigs allocateResult = new ConnAndTaskConfigs();
+        if (null == allWorker || 0 == allWorker.size()) {
+            return allocateResult;
+        }
+
+        Map<String, Integer> keyWeights = new HashMap<>();
+        for (String connectorName : connectorConfigs.keySet()) {
+            keyWeights.put(connectorKey(connectorName), 1);
+        }
+        for (Map.Entry<String, List<ConnectKeyValue>> entry : taskConfigs.entrySet()) {
+            int weight = Math.max(1, getTaskWeight(entry.getKey(), connectorConfigs.get(entry.getKey())));
+            for (int i = 0; i < entry.getValue().size(); i++) {
+                keyWeights.put(taskKey(entry.getKey(), i), weight);
+            }
+        }
+        Set<String> allocatedKeys = allocateKeys(new ArrayList<>(new TreeSet<>(allWorker)), curWorker, keyWeights);
+
+        for (Map.Entry<String, ConnectKeyValue> entry : connectorConfigs.entrySet()) {
+            if (allocatedKeys.contains(connectorKey(entry.getKey()))) {
+                allocateResult.getConnectorConfigs().put(entry.getKey(), entry.getValue());
+            }
+        }
+        for (Map.Entry<String, List<ConnectKeyValue>> entry : taskConfigs.entrySet()) {
+            for (int i = 0; i < entry.getValue().size(); i++) {
+                if (allocatedKeys.contains(taskKey(entry.getKey(), i))) {
+                    allocateResult.getTaskConfigs().computeIfAbsent(entry.getKey(), k -> new ArrayList<>()).add(entry.getValue().get(i));
+                }
+            }
+        }
+        log.debug("allocate result: {}", allocateResult);
+        return allocateResult;
+    }
+
+    /**
+     * The relative load of one task of a connector. Every task weighs the same as a connector here.
+     *
+     * @param connectorName the connector of the task.
+     * @param connectorConfig the config of the connector, null if it was removed.
+     * @return the weight of the task, at least 1.
+     */
+    protected int getTaskWeight(String connectorName, ConnectKeyValue connectorConfig) {
+        return 1;
+    }
+
+    /**
+     * Give every key to the highest ranking worker that has room for its weight. Heavy keys go first, so that light
+     * keys fill up what is left; a key that fits nowhere goes to the least loaded worker.
+     *
+     * @return the keys allocated to the current worker.
+     */
+    private Set<String> allocateKeys(List<String> sortedWorkers, String curWorker, Map<String, Integer> keyWeights) {
+        List<String> sortedKeys = new ArrayList<>(keyWeights.keySet());
+        sortedKeys.sort(Comparator.comparing((String key) -> -keyWeights.get(key)).thenComparing(key -> key));
+        long totalWeight = 0;
+        for (int weight : keyWeights.values()) {
+            totalWeight += weight;
+        }
+        long capacity = (totalWeight + sortedWorkers.size() - 1) / sortedWorkers.size();
+        Map<String, Long> loads = new HashMap<>();
+        Set<String> allocatedKeys = new HashSet<>();
+        for (String key : sortedKeys) {
+            int weight = keyWeights.get(key);
+            String allocatedWorker = null;
+            long maxScore = 0;
+            String leastLoadedWorker = null;
+            for (String worker : sortedWorkers) {
+                long load = loads.getOrDefault(worker, 0L);
+                if (null == leastLoadedWorker || load < loads.getOrDefault(leastLoadedWorker, 0L)) {
+                    leastLoadedWorker = worker;
+                }
+                if (load > 0 && load + weight > capacity) {
+                    continue;
+                }
+                long score = score(worker, key);
+                if (null == allocatedWorker || score > maxScore) {
+                    allocatedWorker = worker;
+                    maxScore = score;
+                }
+            }
+            if (null == allocatedWorker) {
+                allocatedWorker = leastLoadedWorker;
+            }
+            loads.merge(allocatedWorker, (long) weight, Long::sum);
+            if (curWorker.equals(allocatedWorker)) {
+                allocatedKeys.add(key);
+            }
+        }
+        return allocatedKeys;
+    }
+
+    private static String connectorKey(String connectorName) {
+        return CONNECTOR_KEY_PREFIX + connectorName;
+    }
+
+    private static String taskKey(String connectorName, int index) {
+        return TASK_KEY_PREFIX + connectorName + "#" + index;
+    }
+
+    /**
+     * Rank a worker for a key. String hash codes are specified by the JLS, so all workers compute the same rank.
+     */
+    private static long score(String worker, String key) {
+        long hash = worker.hashCode() * 0x9E3779B97F4A7C15L + key.hashCode();
+        hash ^= hash >>> 33;
+        hash *= 0xFF51AFD7ED558CCDL;
+        hash ^= hash >>> 33;
+        hash *= 0xC4CEB9FE1A85EC53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
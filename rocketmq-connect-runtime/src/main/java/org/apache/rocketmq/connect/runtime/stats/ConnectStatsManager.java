@@ -17,14 +17,14 @@
  */
 package org.apache.rocketmq.connect.runtime.stats;
 
-import java.util.HashMap;
+import java.util.Map;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.rocketmq.common.constant.LoggerName;
-import org.apache.rocketmq.common.stats.StatsItem;
-import org.apache.rocketmq.common.stats.StatsItemSet;
 import org.apache.rocketmq.common.utils.ThreadUtils;
 import org.apache.rocketmq.connect.runtime.config.ConnectConfig;
+import org.apache.rocketmq.connect.runtime.connectorwrapper.Worker;
 import org.apache.rocketmq.logging.InternalLogger;
 import org.apache.rocketmq.logging.InternalLoggerFactory;
 
@@ -38,6 +38,9 @@ public class ConnectStatsManager {
     public static final String SOURCE_RECORD_WRITE_FAIL_NUMS = "SOURCE_RECORD_WRITE_FAIL_NUMS";
     public static final String SOURCE_RECORD_WRITE_TOTAL_FAIL_NUMS = "SOURCE_RECORD_WRITE_TOTAL_FAIL_NUMS";
 
+    public static final String SOURCE_RECORD_WRITE_BLOCK_RT = "SOURCE_RECORD_WRITE_BLOCK_RT";
+    public static final String SOURCE_RECORD_WRITE_TOTAL_BLOCK_RT = "SOURCE_RECORD_WRITE_TOTAL_BLOCK_RT";
+
     public static final String SOURCE_RECORD_POLL_NUMS = "SOURCE_RECORD_POLL_NUMS";
     public static final String SOURCE_RECORD_POLL_TOTAL_NUMS = "SOURCE_RECORD_POLL_TOTAL_NUMS";
 
@@ -47,6 +50,8 @@ public class ConnectStatsManager {
     public static final String SINK_RECORD_READ_NUMS = "SINK_RECORD_READ_NUMS";
     public static final String SINK_RECORD_READ_TOTAL_NUMS = "SINK_RECORD_READ_TOTAL_NUMS";
 
+    public static final String SINK_RECORD_PULL_STATUS_NUMS = "SINK_RECORD_PULL_STATUS_NUMS";
+
     public static final String SINK_RECORD_READ_RT = "SINK_RECORD_READ_RT";
     public static final String SINK_RECORD_READ_TOTAL_RT = "SINK_RECORD_READ_TOTAL_RT";
 
@@ -71,6 +76,58 @@ public class ConnectStatsManager {
     public static final String SOURCE_RECORD_POLL_TOTAL_TIMES = "SOURCE_RECORD_POLL_TOTAL_TIMES";
     public static final String SINK_RECORD_READ_TOTAL_TIMES = "SINK_RECORD_READ_TOTAL_TIMES";
 
+    /**
+     * Time to convert, or to transform, the records of one pull or poll, in microseconds.
+     */
+    public static final String SINK_RECORD_CONVERT_RT = "SINK_RECORD_CONVERT_RT";
+    public static final String SINK_RECORD_TRANSFORM_RT = "SINK_RECORD_TRANSFORM_RT";
+    public static final String SOURCE_RECORD_CONVERT_RT = "SOURCE_RECORD_CONVERT_RT";
+    public static final String SOURCE_RECORD_TRANSFORM_RT = "SOURCE_RECORD_TRANSFORM_RT";
+
+    /**
+     * How many schema lookups of the json converter of a task found the schema cached, or had to convert it, keyed by
+     * task.
+     */
+    public static final String SCHEMA_CACHE_HIT_NUMS = "SCHEMA_CACHE_HIT_NUMS";
+    public static final String SCHEMA_CACHE_MISS_NUMS = "SCHEMA_CACHE_MISS_NUMS";
+
+    /**
+     * Time from sending a batch of source records until the broker acknowledged it.
+     */
+    public static final String SOURCE_RECORD_SEND_ACK_RT = "SOURCE_RECORD_SEND_ACK_RT";
+
+    /**
+     * Time from storing the last message put of a queue until its put completed, keyed by task and queue.
+     */
+    public static final String SINK_QUEUE_LAG = "SINK_QUEUE_LAG";
+
+    /**
+     * Time from the timestamp of the last record acknowledged of a partition until its acknowledgement, keyed by task
+     * and partition.
+     */
+    public static final String SOURCE_PARTITION_LAG = "SOURCE_PARTITION_LAG";
+
+    /**
+     * Errant records reported to, sent to, failed to send to, or dropped before the dead letter queue, keyed by
+     * connector.
+     */
+    public static final String DLQ_RECORD_REPORT_NUMS = "DLQ_RECORD_REPORT_NUMS";
+    public static final String DLQ_RECORD_SEND_NUMS = "DLQ_RECORD_SEND_NUMS";
+    public static final String DLQ_RECORD_SEND_FAIL_NUMS = "DLQ_RECORD_SEND_FAIL_NUMS";
+    public static final String DLQ_RECORD_DROP_NUMS = "DLQ_RECORD_DROP_NUMS";
+
+    /**
+     * Errant records waiting to be sent to the dead letter queue, keyed by connector.
+     */
+    public static final String DLQ_RECORD_BUFFERED_NUMS = "DLQ_RECORD_BUFFERED_NUMS";
+
+    /**
+     * How long the position updates of the last flush waited to be persisted, and how many there were, keyed by
+     * worker.
+     */
+    public static final String POSITION_FLUSH_LAG = "POSITION_FLUSH_LAG";
+    public static final String POSITION_FLUSH_SIZE = "POSITION_FLUSH_SIZE";
+
     /**
      * read disk follow stats
      */
@@ -86,7 +143,10 @@ public class ConnectStatsManager {
     private final ScheduledExecutorService accountExecutor =
         ThreadUtils.newSingleThreadScheduledExecutor("AccountStatsThread", true);
 
-    private final HashMap<String, StatsItemSet> statsTable = new HashMap<String, StatsItemSet>();
+    /**
+     * Counters and histograms of all tasks and of the worker, recorded without locks.
+     */
+    private final MetricsRegistry metricsRegistry = new MetricsRegistry();
     private final String worker;
     private ConnectConfig connectConfig;
 
@@ -97,34 +157,16 @@ public class ConnectStatsManager {
     }
 
     public void init() {
-        this.statsTable.put(SOURCE_RECORD_WRITE_NUMS, new StatsItemSet(SOURCE_RECORD_WRITE_NUMS, this.scheduledExecutorService, log));
-        this.statsTable.put(SOURCE_RECORD_WRITE_TOTAL_NUMS, new StatsItemSet(SOURCE_RECORD_WRITE_TOTAL_NUMS, this.scheduledExecutorService, log));
-        this.statsTable.put(SOURCE_RECORD_WRITE_FAIL_NUMS, new StatsItemSet(SOURCE_RECORD_WRITE_FAIL_NUMS, this.scheduledExecutorService, log));
-        this.statsTable.put(SOURCE_RECORD_WRITE_TOTAL_FAIL_NUMS, new StatsItemSet(SOURCE_RECORD_WRITE_TOTAL_FAIL_NUMS, this.scheduledExecutorService, log));
-        this.statsTable.put(SOURCE_RECORD_POLL_NUMS, new StatsItemSet(SOURCE_RECORD_POLL_NUMS, this.scheduledExecutorService, log));
-        this.statsTable.put(SOURCE_RECORD_POLL_TOTAL_NUMS, new StatsItemSet(SOURCE_RECORD_POLL_TOTAL_NUMS, this.scheduledExecutorService, log));
-        this.statsTable.put(SOURCE_RECORD_POLL_FAIL_NUMS, new StatsItemSet(SOURCE_RECORD_POLL_FAIL_NUMS, this.scheduledExecutorService, log));
-        this.statsTable.put(SOURCE_RECORD_POLL_FAIL_TOTAL_NUMS, new StatsItemSet(SOURCE_RECORD_POLL_FAIL_TOTAL_NUMS, this.scheduledExecutorService, log));
-        this.statsTable.put(SINK_RECORD_READ_NUMS, new StatsItemSet(SINK_RECORD_READ_NUMS, this.scheduledExecutorService, log));
-        this.statsTable.put(SINK_RECORD_READ_TOTAL_NUMS, new StatsItemSet(SINK_RECORD_READ_TOTAL_NUMS, this.scheduledExecutorService, log));
-        this.statsTable.put(SINK_RECORD_READ_FAIL_NUMS, new StatsItemSet(SINK_RECORD_READ_FAIL_NUMS, this.scheduledExecutorService, log));
-        this.statsTable.put(SINK_RECORD_READ_TOTAL_FAIL_NUMS, new StatsItemSet(SINK_RECORD_READ_TOTAL_FAIL_NUMS, this.scheduledExecutorService, log));
-        this.statsTable.put(SINK_RECORD_PUT_NUMS, new StatsItemSet(SINK_RECORD_PUT_NUMS, this.scheduledExecutorService, log));
-        this.statsTable.put(SINK_RECORD_PUT_TOTAL_NUMS, new StatsItemSet(SINK_RECORD_PUT_TOTAL_NUMS, this.scheduledExecutorService, log));
-        this.statsTable.put(SINK_RECORD_PUT_FAIL_NUMS, new StatsItemSet(SINK_RECORD_PUT_FAIL_NUMS, this.scheduledExecutorService, log));
-        this.statsTable.put(SINK_RECORD_PUT_TOTAL_FAIL_NUMS, new StatsItemSet(SINK_RECORD_PUT_TOTAL_FAIL_NUMS, this.scheduledExecutorService, log));
-
-        this.statsTable.put(SINK_RECORD_READ_RT, new StatsItemSet(SINK_RECORD_READ_RT, this.scheduledExecutorService, log));
-        this.statsTable.put(SINK_RECORD_READ_TOTAL_RT, new StatsItemSet(SINK_RECORD_READ_TOTAL_RT, this.scheduledExecutorService, log));
-        this.statsTable.put(SINK_RECORD_READ_FAIL_RT, new StatsItemSet(SINK_RECORD_READ_FAIL_RT, this.scheduledExecutorService, log));
-        this.statsTable.put(SINK_RECORD_READ_TOTAL_FAIL_RT, new StatsItemSet(SINK_RECORD_READ_TOTAL_FAIL_RT, this.scheduledExecutorService, log));
-        this.statsTable.put(SINK_RECORD_PUT_RT, new StatsItemSet(SINK_RECORD_PUT_RT, this.scheduledExecutorService, log));
-        this.statsTable.put(SINK_RECORD_PUT_TOTAL_RT, new StatsItemSet(SINK_RECORD_PUT_TOTAL_RT, this.scheduledExecutorService, log));
-        this.statsTable.put(SINK_RECORD_PUT_FAIL_RT, new StatsItemSet(SINK_RECORD_PUT_FAIL_RT, this.scheduledExecutorService, log));
-        this.statsTable.put(SINK_RECORD_PUT_TOTAL_FAIL_RT, new StatsItemSet(SINK_RECORD_PUT_TOTAL_FAIL_RT, this.scheduledExecutorService, log));
-
-        this.statsTable.put(SOURCE_RECORD_POLL_TOTAL_TIMES, new StatsItemSet(SOURCE_RECORD_POLL_TOTAL_TIMES, this.scheduledExecutorService, log));
-        this.statsTable.put(SINK_RECORD_READ_TOTAL_TIMES, new StatsItemSet(SINK_RECORD_READ_TOTAL_TIMES, this.scheduledExecutorService, log));
+        this.scheduledExecutorService.scheduleAtFixedRate(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    printStats();
+                } catch (Throwable e) {
+                    log.error("Print connect stats error", e);
+                }
+            }
+        }, 60 * 1000, 60 * 1000, TimeUnit.MILLISECONDS);
     }
 
     public void start() {
@@ -135,164 +177,223 @@ public class ConnectStatsManager {
         this.commercialExecutor.shutdown();
     }
 
-    public StatsItem getStatsItem(final String statsName, final String statsKey) {
-        try {
-            return this.statsTable.get(statsName).getStatsItem(statsKey);
-        } catch (Exception e) {
-        }
+    /**
+     * Look the metrics of a task up once, for the task to record them on its hot path.
+     *
+     * @param taskId the id of the task.
+     * @param taskType the type of the task, only its metrics are registered.
+     */
+    public TaskMetrics newTaskMetrics(String taskId, Worker.TaskType taskType) {
+        return new TaskMetrics(metricsRegistry, worker, taskId, taskType);
+    }
 
-        return null;
+    public MetricsRegistry getMetricsRegistry() {
+        return metricsRegistry;
     }
 
-    public void incSourceRecordPollTotalNums(int incValue) {
-        this.statsTable.get(SOURCE_RECORD_POLL_TOTAL_NUMS).addValue(worker, incValue, 1);
+    private void printStats() {
+        for (Map.Entry<String, Map<String, Long>> entry : metricsRegistry.getCounters().entrySet()) {
+            for (Map.Entry<String, Long> counter : entry.getValue().entrySet()) {
+                log.info("[{}] [{}] Stats Every Minute, Total: {}", entry.getKey(), counter.getKey(), counter.getValue());
+            }
+        }
+        for (Map.Entry<String, Map<String, LatencyHistogram.Snapshot>> entry : metricsRegistry.getHistograms().entrySet()) {
+            for (Map.Entry<String, LatencyHistogram.Snapshot> histogram : entry.getValue().entrySet()) {
+                LatencyHistogram.Snapshot snapshot = histogram.getValue();
+                log.info("[{}] [{}] Stats Every Minute, Count: {} Avg: {} P99: {} Max: {}", entry.getKey(), histogram.getKey(),
+                    snapshot.getCount(), String.format("%.2f", snapshot.getMean()), snapshot.getValueAtPercentile(99),
+                    snapshot.getMax());
+            }
+        }
+    }
 
+    public void incSourceRecordPollTotalNums(int incValue) {
+        this.metricsRegistry.counter(SOURCE_RECORD_POLL_TOTAL_NUMS, worker).add(incValue);
     }
 
     public void incSourceRecordPollNums(String taskId, int incValue) {
         if (StringUtils.isBlank(taskId)) {
             return;
         }
-        this.statsTable.get(SOURCE_RECORD_POLL_NUMS).addValue(taskId, incValue, 1);
+        this.metricsRegistry.counter(SOURCE_RECORD_POLL_NUMS, taskId).add(incValue);
     }
 
     public void incSourceRecordPollTotalFailNums() {
-        this.statsTable.get(SOURCE_RECORD_POLL_FAIL_TOTAL_NUMS).addValue(worker, 1, 1);
-
+        this.metricsRegistry.counter(SOURCE_RECORD_POLL_FAIL_TOTAL_NUMS, worker).increment();
     }
 
     public void incSourceRecordPollFailNums(String taskId) {
         if (StringUtils.isBlank(taskId)) {
             return;
         }
-        this.statsTable.get(SOURCE_RECORD_POLL_FAIL_NUMS).addValue(taskId, 1, 1);
+        this.metricsRegistry.counter(SOURCE_RECORD_POLL_FAIL_NUMS, taskId).increment();
     }
 
     public void incSourceRecordWriteTotalNums() {
-        this.statsTable.get(SOURCE_RECORD_WRITE_TOTAL_NUMS).addValue(worker, 1, 1);
+        this.metricsRegistry.counter(SOURCE_RECORD_WRITE_TOTAL_NUMS, worker).increment();
+    }
+
+    public void incSourceRecordWriteTotalNums(int incValue) {
+        this.metricsRegistry.counter(SOURCE_RECORD_WRITE_TOTAL_NUMS, worker).add(incValue);
     }
 
     public void incSourceRecordWriteNums(String taskId) {
         if (StringUtils.isBlank(taskId)) {
             return;
         }
-        this.statsTable.get(SOURCE_RECORD_WRITE_NUMS).addValue(taskId, 1, 1);
+        this.metricsRegistry.counter(SOURCE_RECORD_WRITE_NUMS, taskId).increment();
+    }
+
+    public void incSourceRecordWriteNums(String taskId, int incValue) {
+        if (StringUtils.isBlank(taskId)) {
+            return;
+        }
+        this.metricsRegistry.counter(SOURCE_RECORD_WRITE_NUMS, taskId).add(incValue);
     }
 
     public void incSourceRecordWriteTotalFailNums() {
-        this.statsTable.get(SOURCE_RECORD_WRITE_TOTAL_FAIL_NUMS).addValue(worker, 1, 1);
+        this.metricsRegistry.counter(SOURCE_RECORD_WRITE_TOTAL_FAIL_NUMS, worker).increment();
+    }
+
+    public void incSourceRecordWriteTotalFailNums(int incValue) {
+        this.metricsRegistry.counter(SOURCE_RECORD_WRITE_TOTAL_FAIL_NUMS, worker).add(incValue);
     }
 
     public void incSourceRecordWriteFailNums(String taskId) {
         if (StringUtils.isBlank(taskId)) {
             return;
         }
-        this.statsTable.get(SOURCE_RECORD_WRITE_FAIL_NUMS).addValue(taskId, 1, 1);
+        this.metricsRegistry.counter(SOURCE_RECORD_WRITE_FAIL_NUMS, taskId).increment();
+    }
+
+    public void incSourceRecordWriteFailNums(String taskId, int incValue) {
+        if (StringUtils.isBlank(taskId)) {
+            return;
+        }
+        this.metricsRegistry.counter(SOURCE_RECORD_WRITE_FAIL_NUMS, taskId).add(incValue);
+    }
+
+    /**
+     * Count a pull result of a sink task by its status, keyed by task id and status.
+     */
+    public void incSinkRecordPullStatusNums(String taskId, String pullStatus) {
+        if (StringUtils.isBlank(taskId)) {
+            return;
+        }
+        this.metricsRegistry.counter(SINK_RECORD_PULL_STATUS_NUMS, taskId + "@" + pullStatus).increment();
+    }
+
+    public void incSourceRecordWriteTotalBlockRT(final long rt) {
+        this.metricsRegistry.histogram(SOURCE_RECORD_WRITE_TOTAL_BLOCK_RT, worker).record(rt);
+    }
+
+    public void incSourceRecordWriteBlockRT(String taskId, final long rt) {
+        if (StringUtils.isBlank(taskId)) {
+            return;
+        }
+        this.metricsRegistry.histogram(SOURCE_RECORD_WRITE_BLOCK_RT, taskId).record(rt);
     }
 
     public void incSinkRecordPutTotalFailNums() {
-        this.statsTable.get(SINK_RECORD_PUT_TOTAL_FAIL_NUMS).addValue(worker, 1, 1);
+        this.metricsRegistry.counter(SINK_RECORD_PUT_TOTAL_FAIL_NUMS, worker).increment();
     }
 
     public void incSinkRecordPutFailNums(String taskId) {
         if (StringUtils.isBlank(taskId)) {
             return;
         }
-        this.statsTable.get(SINK_RECORD_PUT_FAIL_NUMS).addValue(taskId, 1, 1);
+        this.metricsRegistry.counter(SINK_RECORD_PUT_FAIL_NUMS, taskId).increment();
     }
 
     public void incSinkRecordReadTotalFailNums() {
-        this.statsTable.get(SINK_RECORD_READ_TOTAL_FAIL_NUMS).addValue(worker, 1, 1);
+        this.metricsRegistry.counter(SINK_RECORD_READ_TOTAL_FAIL_NUMS, worker).increment();
     }
 
     public void incSinkRecordReadFailNums(String taskId) {
         if (StringUtils.isBlank(taskId)) {
             return;
         }
-        this.statsTable.get(SINK_RECORD_READ_FAIL_NUMS).addValue(taskId, 1, 1);
+        this.metricsRegistry.counter(SINK_RECORD_READ_FAIL_NUMS, taskId).increment();
     }
 
     public void incSinkRecordReadTotalNums(int incValue) {
-        this.statsTable.get(SINK_RECORD_READ_TOTAL_NUMS).addValue(worker, incValue, 1);
+        this.metricsRegistry.counter(SINK_RECORD_READ_TOTAL_NUMS, worker).add(incValue);
     }
 
     public void incSinkRecordReadNums(String taskId) {
         if (StringUtils.isBlank(taskId)) {
             return;
         }
-        this.statsTable.get(SINK_RECORD_READ_NUMS).addValue(taskId, 1, 1);
+        this.metricsRegistry.counter(SINK_RECORD_READ_NUMS, taskId).increment();
     }
 
     public void incSinkRecordReadNums(String taskId, int incValue) {
         if (StringUtils.isBlank(taskId)) {
             return;
         }
-        this.statsTable.get(SINK_RECORD_READ_NUMS).addValue(taskId, incValue, 1);
+        this.metricsRegistry.counter(SINK_RECORD_READ_NUMS, taskId).add(incValue);
     }
 
     public void incSinkRecordPutTotalNums() {
-        this.statsTable.get(SINK_RECORD_PUT_TOTAL_NUMS).addValue(worker, 1, 1);
+        this.metricsRegistry.counter(SINK_RECORD_PUT_TOTAL_NUMS, worker).increment();
     }
 
     public void incSinkRecordPutNums(String taskId) {
         if (StringUtils.isBlank(taskId)) {
             return;
         }
-        this.statsTable.get(SINK_RECORD_PUT_NUMS).addValue(taskId, 1, 1);
+        this.metricsRegistry.counter(SINK_RECORD_PUT_NUMS, taskId).increment();
     }
 
-
-
-
     public void incSinkRecordPutTotalFailRT(final long rt) {
-        this.statsTable.get(SINK_RECORD_PUT_TOTAL_FAIL_RT).addValue(worker, (int) rt, 1);
+        this.metricsRegistry.histogram(SINK_RECORD_PUT_TOTAL_FAIL_RT, worker).record(rt);
     }
 
     public void incSinkRecordPutFailRT(String taskId, final long rt) {
         if (StringUtils.isBlank(taskId)) {
             return;
         }
-        this.statsTable.get(SINK_RECORD_PUT_FAIL_RT).addValue(taskId, (int) rt, 1);
+        this.metricsRegistry.histogram(SINK_RECORD_PUT_FAIL_RT, taskId).record(rt);
     }
 
     public void incSinkRecordReadTotalFailRT(final long rt) {
-        this.statsTable.get(SINK_RECORD_READ_TOTAL_FAIL_RT).addValue(worker, (int) rt, 1);
+        this.metricsRegistry.histogram(SINK_RECORD_READ_TOTAL_FAIL_RT, worker).record(rt);
     }
 
     public void incSinkRecordReadFailRT(String taskId, final long rt) {
         if (StringUtils.isBlank(taskId)) {
             return;
         }
-        this.statsTable.get(SINK_RECORD_READ_FAIL_RT).addValue(taskId, (int) rt, 1);
+        this.metricsRegistry.histogram(SINK_RECORD_READ_FAIL_RT, taskId).record(rt);
     }
 
     public void incSinkRecordReadTotalRT(final long rt) {
-        this.statsTable.get(SINK_RECORD_READ_TOTAL_RT).addValue(worker, (int) rt, 1);
+        this.metricsRegistry.histogram(SINK_RECORD_READ_TOTAL_RT, worker).record(rt);
     }
 
     public void incSinkRecordReadRT(String taskId, final long rt) {
         if (StringUtils.isBlank(taskId)) {
             return;
         }
-        this.statsTable.get(SINK_RECORD_READ_RT).addValue(taskId, (int) rt, 1);
+        this.metricsRegistry.histogram(SINK_RECORD_READ_RT, taskId).record(rt);
     }
 
     public void incSinkRecordPutTotalRT(final long rt) {
-        this.statsTable.get(SINK_RECORD_PUT_TOTAL_RT).addValue(worker, (int) rt, 1);
+        this.metricsRegistry.histogram(SINK_RECORD_PUT_TOTAL_RT, worker).record(rt);
     }
 
     public void incSinkRecordPutRT(String taskId, final long rt) {
         if (StringUtils.isBlank(taskId)) {
             return;
         }
-        this.statsTable.get(SINK_RECORD_PUT_RT).addValue(taskId, (int) rt, 1);
+        this.metricsRegistry.histogram(SINK_RECORD_PUT_RT, taskId).record(rt);
     }
 
     public void incSourceRecordPollTotalTimes() {
-        this.statsTable.get(SOURCE_RECORD_POLL_TOTAL_TIMES).addValue(worker, 1, 1);
+        this.metricsRegistry.counter(SOURCE_RECORD_POLL_TOTAL_TIMES, worker).increment();
     }
 
     public void incSinkRecordReadTotalTimes() {
-        this.statsTable.get(SINK_RECORD_READ_TOTAL_TIMES).addValue(worker, 1, 1);
+        this.metricsRegistry.counter(SINK_RECORD_READ_TOTAL_TIMES, worker).increment();
     }
 }
@@ -0,0 +1,152 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package org.apache.rocketmq.connect.runtime.stats;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Histogram of non-negative values such as latencies in milliseconds, recorded without locks or allocation.
+ *
+ * <p>Values below 16 get a bucket each, larger values fall into 8 buckets per power of two, so a percentile is
+ * reported at most 12.5% above the recorded value. Values of 2^41 and more share the last bucket.
+ */
+public class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 3;
+
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+
+    private static final int LINEAR_BUCKET_COUNT = 2 * SUB_BUCKET_COUNT;
+
+    private static final int LINEAR_BUCKET_BITS = 4;
+
+    private static final int MAX_EXPONENT = 40;
+
+    private static final int BUCKET_COUNT = LINEAR_BUCKET_COUNT + (MAX_EXPONENT - LINEAR_BUCKET_BITS + 1) * SUB_BUCKET_COUNT;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_COUNT);
+
+    private final LongAdder sum = new LongAdder();
+
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+    public void record(long value) {
+        if (value < 0) {
+            value = 0;
+        }
+        buckets.incrementAndGet(bucketIndex(value));
+        sum.add(value);
+        max.accumulate(value);
+    }
+
+    /**
+     * Copy the current state. Writers are not blocked, so a snapshot taken while values are recorded may miss some.
+     */
+    public Snapshot snapshot() {
+        return snapshot(new Snapshot());
+    }
+
+    /**
+     * Copy the current state into a snapshot taken before, to read many histograms without allocating.
+     *
+     * @return the given snapshot.
+     */
+    public Snapshot snapshot(Snapshot reuse) {
+        long count = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            reuse.counts[i] = buckets.get(i);
+            count += reuse.counts[i];
+        }
+        reuse.count = count;
+        reuse.sum = sum.sum();
+        reuse.max = max.get();
+        return reuse;
+    }
+
+    static int bucketIndex(long value) {
+        if (value < LINEAR_BUCKET_COUNT) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        if (exponent > MAX_EXPONENT) {
+            return BUCKET_COUNT - 1;
+        }
+        int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKET_COUNT - 1);
+        return LINEAR_BUCKET_COUNT + (exponent - LINEAR_BUCKET_BITS) * SUB_BUCKET_COUNT + subBucket;
+    }
+
+    /**
+     * The largest value that falls into a bucket.
+     */
+    static long bucketUpperBound(int index) {
+        if (index < LINEAR_BUCKET_COUNT) {
+            return index;
+        }
+        int exponent = (index - LINEAR_BUCKET_COUNT) / SUB_BUCKET_COUNT + LINEAR_BUCKET_BITS;
+        int subBucket = (index - LINEAR_BUCKET_COUNT) % SUB_BUCKET_COUNT;
+        return ((long) (SUB_BUCKET_COUNT + subBucket + 1) << (exponent - SUB_BUCKET_BITS)) - 1;
+    }
+
+    public static class Snapshot {
+
+        private final long[] counts = new long[BUCKET_COUNT];
+
+        private long count;
+
+        private long sum;
+
+        private long max;
+
+        public long getCount() {
+            return count;
+        }
+
+        public long getSum() {
+            return sum;
+        }
+
+        public long getMax() {
+            return max;
+        }
+
+        public double getMean() {
+            return 0 == count ? 0 : (double) sum / count;
+        }
+
+        /**
+         * @param percentile between 0 and 100.
+         * @return the value that the given percentage of recorded values does not exceed, 0 if none was recorded.
+         */
+        public long getValueAtPercentile(double percentile) {
+            if (0 == count) {
+                return 0;
+            }
+            long rank = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= rank) {
+                    return Math.min(bucketUpperBound(i), max);
+                }
+            }
+            return max;
+        }
+    }
+}
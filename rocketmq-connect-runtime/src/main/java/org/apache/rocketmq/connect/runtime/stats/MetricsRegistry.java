@@ -0,0 +1,172 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package org.apache.rocketmq.connect.runtime.stats;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Counters, histograms and gauges by metric name and key, such as a task id or a worker id.
+ *
+ * <p>Looking a metric up is lock-free once it exists, yet hot paths should look their metrics up once and keep them,
+ * see {@link TaskMetrics}. Reading the registry sums the striped counters and copies the histograms without blocking
+ * writers.
+ */
+public class MetricsRegistry {
+
+    private final ConcurrentMap<String, ConcurrentMap<String, LongAdder>> counters = new ConcurrentHashMap<>();
+
+    private final ConcurrentMap<String, ConcurrentMap<String, LatencyHistogram>> histograms = new ConcurrentHashMap<>();
+
+    private final ConcurrentMap<String, ConcurrentMap<String, AtomicLong>> gauges = new ConcurrentHashMap<>();
+
+    public LongAdder counter(String name, String key) {
+        return lookup(counters, name, key, LongAdder::new);
+    }
+
+    public LatencyHistogram histogram(String name, String key) {
+        return lookup(histograms, name, key, LatencyHistogram::new);
+    }
+
+    /**
+     * A gauge holds the latest value set, such as the lag of a queue.
+     */
+    public AtomicLong gauge(String name, String key) {
+        return lookup(gauges, name, key, AtomicLong::new);
+    }
+
+    /**
+     * Remove a counter whose subject went away, such as a task that stopped.
+     */
+    public void removeCounter(String name, String key) {
+        remove(counters, name, key);
+    }
+
+    public void removeHistogram(String name, String key) {
+        remove(histograms, name, key);
+    }
+
+    /**
+     * Remove a gauge whose subject went away, such as a queue no longer assigned.
+     */
+    public void removeGauge(String name, String key) {
+        remove(gauges, name, key);
+    }
+
+    /**
+     * @return the current value of every counter, by name and key.
+     */
+    public Map<String, Map<String, Long>> getCounters() {
+        Map<String, Map<String, Long>> result = new TreeMap<>();
+        for (Map.Entry<String, ConcurrentMap<String, LongAdder>> entry : counters.entrySet()) {
+            Map<String, Long> values = new TreeMap<>();
+            for (Map.Entry<String, LongAdder> counter : entry.getValue().entrySet()) {
+                values.put(counter.getKey(), counter.getValue().sum());
+            }
+            result.put(entry.getKey(), values);
+        }
+        return result;
+    }
+
+    /**
+     * @return a snapshot of every histogram, by name and key.
+     */
+    public Map<String, Map<String, LatencyHistogram.Snapshot>> getHistograms() {
+        Map<String, Map<String, LatencyHistogram.Snapshot>> result = new TreeMap<>();
+        for (Map.Entry<String, ConcurrentMap<String, LatencyHistogram>> entry : histograms.entrySet()) {
+            Map<String, LatencyHistogram.Snapshot> values = new TreeMap<>();
+            for (Map.Entry<String, LatencyHistogram> histogram : entry.getValue().entrySet()) {
+                values.put(histogram.getKey(), histogram.getValue().snapshot());
+            }
+            result.put(entry.getKey(), values);
+        }
+        return result;
+    }
+
+    /**
+     * @return the current value of every gauge, by name and key.
+     */
+    public Map<String, Map<String, Long>> getGauges() {
+        Map<String, Map<String, Long>> result = new TreeMap<>();
+        for (Map.Entry<String, ConcurrentMap<String, AtomicLong>> entry : gauges.entrySet()) {
+            Map<String, Long> values = new TreeMap<>();
+            for (Map.Entry<String, AtomicLong> gauge : entry.getValue().entrySet()) {
+                values.put(gauge.getKey(), gauge.getValue().get());
+            }
+            result.put(entry.getKey(), values);
+        }
+        return result;
+    }
+
+    /**
+     * Visit every metric, grouped by name, without copying the registry. Histograms are passed as a snapshot that is
+     * reused for the next histogram.
+     */
+    public void accept(Visitor visitor) {
+        for (Map.Entry<String, ConcurrentMap<String, LongAdder>> entry : counters.entrySet()) {
+            for (Map.Entry<String, LongAdder> counter : entry.getValue().entrySet()) {
+                visitor.visitCounter(entry.getKey(), counter.getKey(), counter.getValue().sum());
+            }
+        }
+        LatencyHistogram.Snapshot snapshot = new LatencyHistogram.Snapshot();
+        for (Map.Entry<String, ConcurrentMap<String, LatencyHistogram>> entry : histograms.entrySet()) {
+            for (Map.Entry<String, LatencyHistogram> histogram : entry.getValue().entrySet()) {
+                visitor.visitHistogram(entry.getKey(), histogram.getKey(), histogram.getValue().snapshot(snapshot));
+            }
+        }
+        for (Map.Entry<String, ConcurrentMap<String, AtomicLong>> entry : gauges.entrySet()) {
+            for (Map.Entry<String, AtomicLong> gauge : entry.getValue().entrySet()) {
+                visitor.visitGauge(entry.getKey(), gauge.getKey(), gauge.getValue().get());
+            }
+        }
+    }
+
+    private static <T> T lookup(ConcurrentMap<String, ConcurrentMap<String, T>> metrics, String name, String key,
+        Supplier<T> factory) {
+        ConcurrentMap<String, T> keyedMetrics = metrics.get(name);
+        if (null == keyedMetrics) {
+            keyedMetrics = metrics.computeIfAbsent(name, n -> new ConcurrentHashMap<>());
+        }
+        T metric = keyedMetrics.get(key);
+        if (null == metric) {
+            metric = keyedMetrics.computeIfAbsent(key, k -> factory.get());
+        }
+        return metric;
+    }
+
+    private static <T> void remove(ConcurrentMap<String, ConcurrentMap<String, T>> metrics, String name, String key) {
+        ConcurrentMap<String, T> keyedMetrics = metrics.get(name);
+        if (null != keyedMetrics) {
+            keyedMetrics.remove(key);
+        }
+    }
+
+    public interface Visitor {
+
+        void visitCounter(String name, String key, long value);
+
+        void visitHistogram(String name, String key, LatencyHistogram.Snapshot snapshot);
+
+        void visitGauge(String name, String key, long value);
+    }
+}
@@ -0,0 +1,165 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package org.apache.rocketmq.connect.runtime.stats;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.util.Locale;
+
+/**
+ * Writes metrics in the Prometheus text exposition format, line by line to the given writer.
+ *
+ * <p>Every metric is labeled with the worker and with the key it is recorded by, such as a task id. Histograms are
+ * written as summaries with their 0.5, 0.99 and 0.999 quantiles.
+ */
+public class PrometheusMetricsWriter implements MetricsRegistry.Visitor {
+
+    public static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    private static final String PREFIX = "rocketmq_connect_";
+
+    private static final double[] QUANTILES = {0.5, 0.99, 0.999};
+
+    private final Writer writer;
+
+    private final String worker;
+
+    /**
+     * The family of the metric written last, the type of a family is written before its first metric.
+     */
+    private String lastFamily;
+
+    public PrometheusMetricsWriter(Writer writer, String worker) {
+        this.writer = writer;
+        this.worker = worker;
+    }
+
+    @Override
+    public void visitCounter(String name, String key, long value) {
+        writeSample(family(name, "counter"), null, key, null, value);
+    }
+
+    @Override
+    public void visitHistogram(String name, String key, LatencyHistogram.Snapshot snapshot) {
+        String family = family(name, "summary");
+        for (double quantile : QUANTILES) {
+            writeSample(family, null, key, quantile, snapshot.getValueAtPercentile(quantile * 100));
+        }
+        writeSample(family, "_sum", key, null, snapshot.getSum());
+        writeSample(family, "_count", key, null, snapshot.getCount());
+    }
+
+    @Override
+    public void visitGauge(String name, String key, long value) {
+        writeSample(family(name, "gauge"), null, key, null, value);
+    }
+
+    /**
+     * Write a gauge not kept in a {@link MetricsRegistry}.
+     *
+     * @param labelName the label of the value, or null for a gauge with the worker label only.
+     */
+    public void writeGauge(String name, String labelName, String labelValue, long value) {
+        String family = family(name, "gauge");
+        try {
+            writer.write(family);
+            writer.write("{worker=\"");
+            writeEscaped(worker);
+            if (null != labelName) {
+                writer.write("\",");
+                writer.write(labelName);
+                writer.write("=\"");
+                writeEscaped(labelValue);
+            }
+            writer.write("\"} ");
+            writer.write(Long.toString(value));
+            writer.write('\n');
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public void flush() throws IOException {
+        writer.flush();
+    }
+
+    private String family(String name, String type) {
+        String family = PREFIX + name.toLowerCase(Locale.ROOT);
+        if (!family.equals(lastFamily)) {
+            try {
+                writer.write("# TYPE ");
+                writer.write(family);
+                writer.write(' ');
+                writer.write(type);
+                writer.write('\n');
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            lastFamily = family;
+        }
+        return family;
+    }
+
+    private void writeSample(String family, String suffix, String key, Double quantile, long value) {
+        try {
+            writer.write(family);
+            if (null != suffix) {
+                writer.write(suffix);
+            }
+            writer.write("{worker=\"");
+            writeEscaped(worker);
+            writer.write("\",key=\"");
+            writeEscaped(key);
+            if (null != quantile) {
+                writer.write("\",quantile=\"");
+                writer.write(quantile.toString());
+            }
+            writer.write("\"} ");
+            writer.write(Long.toString(value));
+            writer.write('\n');
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Escape a label value, backslashes, double quotes and line feeds must be escaped.
+     */
+    private void writeEscaped(String value) throws IOException {
+        if (null == value) {
+            return;
+        }
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '\\':
+                    writer.write("\\\\");
+                    break;
+                case '"':
+                    writer.write("\\\"");
+                    break;
+                case '\n':
+                    writer.write("\\n");
+                    break;
+                default:
+                    writer.write(c);
+            }
+        }
+    }
+}
@@ -0,0 +1,350 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package org.apache.rocketmq.connect.runtime.stats;
+
+import io.openmessaging.connector.api.data.RecordConverter;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.rocketmq.common.message.MessageQueue;
+import org.apache.rocketmq.connect.runtime.connectorwrapper.Worker;
+import org.apache.rocketmq.connect.runtime.converter.record.json.JsonConverter;
+
+import static org.apache.rocketmq.connect.runtime.stats.ConnectStatsManager.SCHEMA_CACHE_HIT_NUMS;
+import static org.apache.rocketmq.connect.runtime.stats.ConnectStatsManager.SCHEMA_CACHE_MISS_NUMS;
+import static org.apache.rocketmq.connect.runtime.stats.ConnectStatsManager.SINK_QUEUE_LAG;
+import static org.apache.rocketmq.connect.runtime.stats.ConnectStatsManager.SINK_RECORD_CONVERT_RT;
+import static org.apache.rocketmq.connect.runtime.stats.ConnectStatsManager.SINK_RECORD_PULL_STATUS_NUMS;
+import static org.apache.rocketmq.connect.runtime.stats.ConnectStatsManager.SINK_RECORD_PUT_FAIL_NUMS;
+import static org.apache.rocketmq.connect.runtime.stats.ConnectStatsManager.SINK_RECORD_PUT_RT;
+import static org.apache.rocketmq.connect.runtime.stats.ConnectStatsManager.SINK_RECORD_PUT_TOTAL_FAIL_NUMS;
+import static org.apache.rocketmq.connect.runtime.stats.ConnectStatsManager.SINK_RECORD_PUT_TOTAL_RT;
+import static org.apache.rocketmq.connect.runtime.stats.ConnectStatsManager.SINK_RECORD_READ_FAIL_NUMS;
+import static org.apache.rocketmq.connect.runtime.stats.ConnectStatsManager.SINK_RECORD_READ_FAIL_RT;
+import static org.apache.rocketmq.connect.runtime.stats.ConnectStatsManager.SINK_RECORD_READ_NUMS;
+import static org.apache.rocketmq.connect.runtime.stats.ConnectStatsManager.SINK_RECORD_READ_RT;
+import static org.apache.rocketmq.connect.runtime.stats.ConnectStatsManager.SINK_RECORD_READ_TOTAL_FAIL_NUMS;
+import static org.apache.rocketmq.connect.runtime.stats.ConnectStatsManager.SINK_RECORD_READ_TOTAL_FAIL_RT;
+import static org.apache.rocketmq.connect.runtime.stats.ConnectStatsManager.SINK_RECORD_READ_TOTAL_NUMS;
+import static org.apache.rocketmq.connect.runtime.stats.ConnectStatsManager.SINK_RECORD_READ_TOTAL_RT;
+import static org.apache.rocketmq.connect.runtime.stats.ConnectStatsManager.SINK_RECORD_READ_TOTAL_TIMES;
+import static org.apache.rocketmq.connect.runtime.stats.ConnectStatsManager.SINK_RECORD_TRANSFORM_RT;
+import static org.apache.rocketmq.connect.runtime.stats.ConnectStatsManager.SOURCE_PARTITION_LAG;
+import static org.apache.rocketmq.connect.runtime.stats.ConnectStatsManager.SOURCE_RECORD_CONVERT_RT;
+import static org.apache.rocketmq.connect.runtime.stats.ConnectStatsManager.SOURCE_RECORD_POLL_FAIL_NUMS;
+import static org.apache.rocketmq.connect.runtime.stats.ConnectStatsManager.SOURCE_RECORD_POLL_FAIL_TOTAL_NUMS;
+import static org.apache.rocketmq.connect.runtime.stats.ConnectStatsManager.SOURCE_RECORD_POLL_NUMS;
+import static org.apache.rocketmq.connect.runtime.stats.ConnectStatsManager.SOURCE_RECORD_POLL_TOTAL_NUMS;
+import static org.apache.rocketmq.connect.runtime.stats.ConnectStatsManager.SOURCE_RECORD_POLL_TOTAL_TIMES;
+import static org.apache.rocketmq.connect.runtime.stats.ConnectStatsManager.SOURCE_RECORD_SEND_ACK_RT;
+import static org.apache.rocketmq.connect.runtime.stats.ConnectStatsManager.SOURCE_RECORD_TRANSFORM_RT;
+import static org.apache.rocketmq.connect.runtime.stats.ConnectStatsManager.SOURCE_RECORD_WRITE_BLOCK_RT;
+import static org.apache.rocketmq.connect.runtime.stats.ConnectStatsManager.SOURCE_RECORD_WRITE_FAIL_NUMS;
+import static org.apache.rocketmq.connect.runtime.stats.ConnectStatsManager.SOURCE_RECORD_WRITE_NUMS;
+import static org.apache.rocketmq.connect.runtime.stats.ConnectStatsManager.SOURCE_RECORD_WRITE_TOTAL_BLOCK_RT;
+import static org.apache.rocketmq.connect.runtime.stats.ConnectStatsManager.SOURCE_RECORD_WRITE_TOTAL_FAIL_NUMS;
+import static org.apache.rocketmq.connect.runtime.stats.ConnectStatsManager.SOURCE_RECORD_WRITE_TOTAL_NUMS;
+
+/**
+ * The metrics of one task, looked up once when the task starts so that recording them is a plain add.
+ *
+ * <p>Each method records both the metric of the task and the total of the worker. Only the metrics of the task's
+ * type are registered, a source task has no sink metrics and a sink task no source metrics, and all metrics of the
+ * task are removed when the task is closed.
+ */
+public class TaskMetrics {
+
+    private static final String[] SOURCE_TASK_COUNTERS = {SOURCE_RECORD_POLL_NUMS, SOURCE_RECORD_POLL_FAIL_NUMS,
+        SOURCE_RECORD_WRITE_NUMS, SOURCE_RECORD_WRITE_FAIL_NUMS};
+
+    private static final String[] SOURCE_TASK_HISTOGRAMS = {SOURCE_RECORD_WRITE_BLOCK_RT, SOURCE_RECORD_CONVERT_RT,
+        SOURCE_RECORD_TRANSFORM_RT, SOURCE_RECORD_SEND_ACK_RT};
+
+    private static final String[] SINK_TASK_COUNTERS = {SINK_RECORD_READ_NUMS, SINK_RECORD_READ_FAIL_NUMS,
+        SINK_RECORD_PUT_FAIL_NUMS};
+
+    private static final String[] SINK_TASK_HISTOGRAMS = {SINK_RECORD_READ_RT, SINK_RECORD_READ_FAIL_RT,
+        SINK_RECORD_PUT_RT, SINK_RECORD_CONVERT_RT, SINK_RECORD_TRANSFORM_RT};
+
+    private final MetricsRegistry metricsRegistry;
+
+    /**
+     * Where the sink metrics are recorded, not registered for a source task.
+     */
+    private final MetricsRegistry sinkRegistry;
+
+    private final String taskId;
+
+    private final LongAdder sourceRecordPollNums;
+    private final LongAdder sourceRecordPollTotalNums;
+    private final LongAdder sourceRecordPollFailNums;
+    private final LongAdder sourceRecordPollTotalFailNums;
+    private final LongAdder sourceRecordPollTotalTimes;
+    private final LongAdder sourceRecordWriteNums;
+    private final LongAdder sourceRecordWriteTotalNums;
+    private final LongAdder sourceRecordWriteFailNums;
+    private final LongAdder sourceRecordWriteTotalFailNums;
+    private final LatencyHistogram sourceRecordWriteBlockRT;
+    private final LatencyHistogram sourceRecordWriteTotalBlockRT;
+
+    private final LongAdder sinkRecordReadNums;
+    private final LongAdder sinkRecordReadTotalNums;
+    private final LatencyHistogram sinkRecordReadRT;
+    private final LatencyHistogram sinkRecordReadTotalRT;
+    private final LongAdder sinkRecordReadFailNums;
+    private final LongAdder sinkRecordReadTotalFailNums;
+    private final LatencyHistogram sinkRecordReadFailRT;
+    private final LatencyHistogram sinkRecordReadTotalFailRT;
+    private final LongAdder sinkRecordReadTotalTimes;
+    private final LatencyHistogram sinkRecordPutRT;
+    private final LatencyHistogram sinkRecordPutTotalRT;
+    private final LongAdder sinkRecordPutFailNums;
+    private final LongAdder sinkRecordPutTotalFailNums;
+
+    private final LatencyHistogram sinkRecordConvertRT;
+    private final LatencyHistogram sinkRecordTransformRT;
+    private final LatencyHistogram sourceRecordConvertRT;
+    private final LatencyHistogram sourceRecordTransformRT;
+    private final LatencyHistogram sourceRecordSendAckRT;
+
+    /**
+     * Pull status counters by status, there are only a few statuses.
+     */
+    private final ConcurrentMap<String, LongAdder> sinkRecordPullStatusNums = new ConcurrentHashMap<>();
+
+    /**
+     * Lag gauges by queue of a sink task, or by partition of a source task, removed when the task is closed.
+     */
+    private final ConcurrentMap<MessageQueue, AtomicLong> sinkQueueLags = new ConcurrentHashMap<>();
+
+    private final ConcurrentMap<Map<String, ?>, AtomicLong> sourcePartitionLags = new ConcurrentHashMap<>();
+
+    /**
+     * Schema cache gauges, registered once the task converted records with a json converter.
+     */
+    private volatile AtomicLong schemaCacheHitNums;
+    private volatile AtomicLong schemaCacheMissNums;
+
+    /**
+     * Metrics of a task without id are not registered, like the old stats, but recorded all the same. So are the
+     * metrics of the other task type.
+     */
+    TaskMetrics(MetricsRegistry metricsRegistry, String worker, String taskId, Worker.TaskType taskType) {
+        this.metricsRegistry = StringUtils.isBlank(taskId) ? new MetricsRegistry() : metricsRegistry;
+        this.taskId = StringUtils.defaultString(taskId);
+        MetricsRegistry unregistered = new MetricsRegistry();
+        boolean source = Worker.TaskType.SINK != taskType;
+        boolean sink = Worker.TaskType.SOURCE != taskType;
+        MetricsRegistry sourceTaskRegistry = source ? this.metricsRegistry : unregistered;
+        MetricsRegistry sourceWorkerRegistry = source ? metricsRegistry : unregistered;
+        MetricsRegistry sinkWorkerRegistry = sink ? metricsRegistry : unregistered;
+        this.sinkRegistry = sink ? this.metricsRegistry : unregistered;
+
+        this.sourceRecordPollNums = sourceTaskRegistry.counter(SOURCE_RECORD_POLL_NUMS, this.taskId);
+        this.sourceRecordPollTotalNums = sourceWorkerRegistry.counter(SOURCE_RECORD_POLL_TOTAL_NUMS, worker);
+        this.sourceRecordPollFailNums = sourceTaskRegistry.counter(SOURCE_RECORD_POLL_FAIL_NUMS, this.taskId);
+        this.sourceRecordPollTotalFailNums = sourceWorkerRegistry.counter(SOURCE_RECORD_POLL_FAIL_TOTAL_NUMS, worker);
+        this.sourceRecordPollTotalTimes = sourceWorkerRegistry.counter(SOURCE_RECORD_POLL_TOTAL_TIMES, worker);
+        this.sourceRecordWriteNums = sourceTaskRegistry.counter(SOURCE_RECORD_WRITE_NUMS, this.taskId);
+        this.sourceRecordWriteTotalNums = sourceWorkerRegistry.counter(SOURCE_RECORD_WRITE_TOTAL_NUMS, worker);
+        this.sourceRecordWriteFailNums = sourceTaskRegistry.counter(SOURCE_RECORD_WRITE_FAIL_NUMS, this.taskId);
+        this.sourceRecordWriteTotalFailNums = sourceWorkerRegistry.counter(SOURCE_RECORD_WRITE_TOTAL_FAIL_NUMS, worker);
+        this.sourceRecordWriteBlockRT = sourceTaskRegistry.histogram(SOURCE_RECORD_WRITE_BLOCK_RT, this.taskId);
+        this.sourceRecordWriteTotalBlockRT = sourceWorkerRegistry.histogram(SOURCE_RECORD_WRITE_TOTAL_BLOCK_RT, worker);
+
+        this.sinkRecordReadNums = sinkRegistry.counter(SINK_RECORD_READ_NUMS, this.taskId);
+        this.sinkRecordReadTotalNums = sinkWorkerRegistry.counter(SINK_RECORD_READ_TOTAL_NUMS, worker);
+        this.sinkRecordReadRT = sinkRegistry.histogram(SINK_RECORD_READ_RT, this.taskId);
+        this.sinkRecordReadTotalRT = sinkWorkerRegistry.histogram(SINK_RECORD_READ_TOTAL_RT, worker);
+        this.sinkRecordReadFailNums = sinkRegistry.counter(SINK_RECORD_READ_FAIL_NUMS, this.taskId);
+        this.sinkRecordReadTotalFailNums = sinkWorkerRegistry.counter(SINK_RECORD_READ_TOTAL_FAIL_NUMS, worker);
+        this.sinkRecordReadFailRT = sinkRegistry.histogram(SINK_RECORD_READ_FAIL_RT, this.taskId);
+        this.sinkRecordReadTotalFailRT = sinkWorkerRegistry.histogram(SINK_RECORD_READ_TOTAL_FAIL_RT, worker);
+        this.sinkRecordReadTotalTimes = sinkWorkerRegistry.counter(SINK_RECORD_READ_TOTAL_TIMES, worker);
+        this.sinkRecordPutRT = sinkRegistry.histogram(SINK_RECORD_PUT_RT, this.taskId);
+        this.sinkRecordPutTotalRT = sinkWorkerRegistry.histogram(SINK_RECORD_PUT_TOTAL_RT, worker);
+        this.sinkRecordPutFailNums = sinkRegistry.counter(SINK_RECORD_PUT_FAIL_NUMS, this.taskId);
+        this.sinkRecordPutTotalFailNums = sinkWorkerRegistry.counter(SINK_RECORD_PUT_TOTAL_FAIL_NUMS, worker);
+
+        this.sinkRecordConvertRT = sinkRegistry.histogram(SINK_RECORD_CONVERT_RT, this.taskId);
+        this.sinkRecordTransformRT = sinkRegistry.histogram(SINK_RECORD_TRANSFORM_RT, this.taskId);
+        this.sourceRecordConvertRT = sourceTaskRegistry.histogram(SOURCE_RECORD_CONVERT_RT, this.taskId);
+        this.sourceRecordTransformRT = sourceTaskRegistry.histogram(SOURCE_RECORD_TRANSFORM_RT, this.taskId);
+        this.sourceRecordSendAckRT = sourceTaskRegistry.histogram(SOURCE_RECORD_SEND_ACK_RT, this.taskId);
+    }
+
+    public void incSourceRecordPollNums(int incValue) {
+        sourceRecordPollNums.add(incValue);
+        sourceRecordPollTotalNums.add(incValue);
+    }
+
+    public void incSourceRecordPollFailNums() {
+        sourceRecordPollFailNums.increment();
+        sourceRecordPollTotalFailNums.increment();
+    }
+
+    public void incSourceRecordPollTimes() {
+        sourceRecordPollTotalTimes.increment();
+    }
+
+    public void incSourceRecordWriteNums(int incValue) {
+        sourceRecordWriteNums.add(incValue);
+        sourceRecordWriteTotalNums.add(incValue);
+    }
+
+    public void incSourceRecordWriteFailNums(int incValue) {
+        sourceRecordWriteFailNums.add(incValue);
+        sourceRecordWriteTotalFailNums.add(incValue);
+    }
+
+    public void incSourceRecordWriteBlockRT(long rt) {
+        sourceRecordWriteBlockRT.record(rt);
+        sourceRecordWriteTotalBlockRT.record(rt);
+    }
+
+    public void incSinkRecordReadNums(int incValue, long rt) {
+        sinkRecordReadNums.add(incValue);
+        sinkRecordReadTotalNums.add(incValue);
+        sinkRecordReadRT.record(rt);
+        sinkRecordReadTotalRT.record(rt);
+    }
+
+    public void incSinkRecordReadFailNums(long rt) {
+        sinkRecordReadFailNums.increment();
+        sinkRecordReadTotalFailNums.increment();
+        sinkRecordReadFailRT.record(rt);
+        sinkRecordReadTotalFailRT.record(rt);
+    }
+
+    public void incSinkRecordReadTimes() {
+        sinkRecordReadTotalTimes.increment();
+    }
+
+    public void incSinkRecordPullStatusNums(String pullStatus) {
+        LongAdder counter = sinkRecordPullStatusNums.get(pullStatus);
+        if (null == counter) {
+            counter = sinkRecordPullStatusNums.computeIfAbsent(pullStatus,
+                status -> sinkRegistry.counter(SINK_RECORD_PULL_STATUS_NUMS, taskId + "@" + status));
+        }
+        counter.increment();
+    }
+
+    public void incSinkRecordPutRT(long rt) {
+        sinkRecordPutRT.record(rt);
+        sinkRecordPutTotalRT.record(rt);
+    }
+
+    public void incSinkRecordPutFailNums() {
+        sinkRecordPutFailNums.increment();
+        sinkRecordPutTotalFailNums.increment();
+    }
+
+    public void incSinkRecordConvertRT(long rtMicros) {
+        sinkRecordConvertRT.record(rtMicros);
+    }
+
+    public void incSinkRecordTransformRT(long rtMicros) {
+        sinkRecordTransformRT.record(rtMicros);
+    }
+
+    public void incSourceRecordConvertRT(long rtMicros) {
+        sourceRecordConvertRT.record(rtMicros);
+    }
+
+    public void incSourceRecordTransformRT(long rtMicros) {
+        sourceRecordTransformRT.record(rtMicros);
+    }
+
+    public void incSourceRecordSendAckRT(long rt) {
+        sourceRecordSendAckRT.record(rt);
+    }
+
+    public void updateSinkQueueLag(MessageQueue messageQueue, long lag) {
+        AtomicLong gauge = sinkQueueLags.get(messageQueue);
+        if (null == gauge) {
+            gauge = sinkQueueLags.computeIfAbsent(messageQueue,
+                queue -> sinkRegistry.gauge(SINK_QUEUE_LAG, queueKey(queue)));
+        }
+        gauge.set(lag);
+    }
+
+    public void updateSourcePartitionLag(Map<String, ?> partition, long lag) {
+        AtomicLong gauge = sourcePartitionLags.get(partition);
+        if (null == gauge) {
+            gauge = sourcePartitionLags.computeIfAbsent(partition,
+                p -> metricsRegistry.gauge(SOURCE_PARTITION_LAG, taskId + "@" + p));
+        }
+        gauge.set(lag);
+    }
+
+    /**
+     * Copy the schema cache counts of the converter of the task, if it is a json converter.
+     */
+    public void updateSchemaCacheNums(RecordConverter recordConverter) {
+        if (!(recordConverter instanceof JsonConverter)) {
+            return;
+        }
+        JsonConverter jsonConverter = (JsonConverter) recordConverter;
+        if (null == schemaCacheHitNums) {
+            schemaCacheHitNums = metricsRegistry.gauge(SCHEMA_CACHE_HIT_NUMS, taskId);
+            schemaCacheMissNums = metricsRegistry.gauge(SCHEMA_CACHE_MISS_NUMS, taskId);
+        }
+        schemaCacheHitNums.set(jsonConverter.getSchemaCacheHitCount());
+        schemaCacheMissNums.set(jsonConverter.getSchemaCacheMissCount());
+    }
+
+    /**
+     * Remove the metrics of the task, the worker totals are kept. The queues and partitions of the lag gauges may be
+     * processed by other tasks from now on.
+     */
+    public void close() {
+        for (String name : SOURCE_TASK_COUNTERS) {
+            metricsRegistry.removeCounter(name, taskId);
+        }
+        for (String name : SINK_TASK_COUNTERS) {
+            metricsRegistry.removeCounter(name, taskId);
+        }
+        for (String name : SOURCE_TASK_HISTOGRAMS) {
+            metricsRegistry.removeHistogram(name, taskId);
+        }
+        for (String name : SINK_TASK_HISTOGRAMS) {
+            metricsRegistry.removeHistogram(name, taskId);
+        }
+        for (String status : sinkRecordPullStatusNums.keySet()) {
+            metricsRegistry.removeCounter(SINK_RECORD_PULL_STATUS_NUMS, taskId + "@" + status);
+        }
+        sinkRecordPullStatusNums.clear();
+        for (MessageQueue messageQueue : sinkQueueLags.keySet()) {
+            metricsRegistry.removeGauge(SINK_QUEUE_LAG, queueKey(messageQueue));
+        }
+        sinkQueueLags.clear();
+        for (Map<String, ?> partition : sourcePartitionLags.keySet()) {
+            metricsRegistry.removeGauge(SOURCE_PARTITION_LAG, taskId + "@" + partition);
+        }
+        sourcePartitionLags.clear();
+        metricsRegistry.removeGauge(SCHEMA_CACHE_HIT_NUMS, taskId);
+        metricsRegistry.removeGauge(SCHEMA_CACHE_MISS_NUMS, taskId);
+    }
+
+    private String queueKey(MessageQueue messageQueue) {
+        return taskId + "@" + messageQueue.getTopic() + ":" + messageQueue.getBrokerName() + ":" + messageQueue.getQueueId();
+    }
+}
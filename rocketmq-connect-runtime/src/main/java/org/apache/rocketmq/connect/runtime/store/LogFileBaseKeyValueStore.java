@@ -0,0 +1,344 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.apache.rocketmq.connect.runtime.store;
+
+import io.openmessaging.connector.api.data.Converter;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.CRC32;
+import org.apache.rocketmq.connect.runtime.common.LoggerName;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Key value store persisted to an append-only, memory-mapped log.
+ *
+ * <p>Every persist appends one record per key changed since the last persist, so its cost grows with the changed keys
+ * rather than with all keys. A record is laid out as
+ * <pre>
+ * | body size (int) | crc32 of body (int) | key size (int) | key | value size (int, -1 if removed) | value |
+ * </pre>
+ * Loading replays the log up to the first record that is incomplete or fails its checksum, which is where a crash
+ * interrupted a persist, and drops everything after it. Once the log grows well beyond the live data it is compacted
+ * by writing the live data to a new file and renaming that over the log.
+ *
+ * <p>Only changes made through {@link #put}, {@link #putAll} and {@link #remove} are tracked, changes made to the map
+ * returned by {@link #getKVMap()} are not persisted until the next compaction.
+ *
+ * @param <K>
+ * @param <V>
+ */
+public class LogFileBaseKeyValueStore<K, V> extends MemoryBasedKeyValueStore<K, V> {
+
+    private static final Logger log = LoggerFactory.getLogger(LoggerName.ROCKETMQ_RUNTIME);
+
+    private static final int MIN_FILE_SIZE = 1024 * 1024;
+
+    /**
+     * Compact once the log is this many times larger than it was after the last compaction.
+     */
+    private static final int COMPACT_RATIO = 4;
+
+    private static final int RECORD_HEADER_SIZE = 8;
+
+    private static final int REMOVED_VALUE_SIZE = -1;
+
+    private final String logFilePath;
+
+    /**
+     * The JSON file of a {@link FileBaseKeyValueStore}, loaded when there is no log yet.
+     */
+    private final String legacyFilePath;
+
+    private final Converter keyConverter;
+
+    private final Converter valueConverter;
+
+    private final Set<K> dirtyKeys = ConcurrentHashMap.newKeySet();
+
+    private FileChannel fileChannel;
+
+    private MappedByteBuffer mappedByteBuffer;
+
+    private int writePosition;
+
+    private int compactedSize;
+
+    public LogFileBaseKeyValueStore(String logFilePath,
+        String legacyFilePath,
+        Converter keyConverter,
+        Converter valueConverter) {
+
+        super();
+        this.logFilePath = logFilePath;
+        this.legacyFilePath = legacyFilePath;
+        this.keyConverter = keyConverter;
+        this.valueConverter = valueConverter;
+    }
+
+    @Override
+    public V put(K key, V value) {
+        V oldValue = this.data.put(key, value);
+        dirtyKeys.add(key);
+        return oldValue;
+    }
+
+    @Override
+    public void putAll(Map<K, V> map) {
+        this.data.putAll(map);
+        dirtyKeys.addAll(map.keySet());
+    }
+
+    @Override
+    public V remove(K key) {
+        V oldValue = this.data.remove(key);
+        dirtyKeys.add(key);
+        return oldValue;
+    }
+
+    @Override
+    public synchronized boolean load() {
+        try {
+            Map<K, V> recovered = new ConcurrentHashMap<>();
+            open(recovered);
+            dirtyKeys.clear();
+            this.data = recovered;
+            if (0 == writePosition && null != legacyFilePath && new File(legacyFilePath).exists()) {
+                FileBaseKeyValueStore<K, V> legacyStore = new FileBaseKeyValueStore<>(legacyFilePath, keyConverter, valueConverter);
+                if (legacyStore.load()) {
+                    this.data.putAll(legacyStore.getKVMap());
+                    compact();
+                    log.info("load legacy store " + legacyFilePath + " into " + logFilePath + " OK");
+                }
+            }
+            log.info("load " + logFilePath + " OK, " + this.data.size() + " keys, " + writePosition + " bytes");
+            return true;
+        } catch (Exception e) {
+            log.error("load " + logFilePath + " failed", e);
+            return false;
+        }
+    }
+
+    @Override
+    public synchronized void persist() {
+        try {
+            if (null == fileChannel) {
+                open(null);
+            }
+            if (dirtyKeys.isEmpty()) {
+                return;
+            }
+            for (K key : dirtyKeys) {
+                // Remove before reading the value, a concurrent put marks the key dirty again.
+                dirtyKeys.remove(key);
+                append(key, this.data.get(key));
+            }
+            mappedByteBuffer.force();
+            if (writePosition > Math.max(MIN_FILE_SIZE, (long) compactedSize * COMPACT_RATIO)) {
+                compact();
+            }
+        } catch (IOException e) {
+            log.error("persist file " + logFilePath + " exception", e);
+        }
+    }
+
+    /**
+     * Open the log and find the end of its valid records.
+     *
+     * @param recovered the map to replay the records into, or null to only find the end.
+     */
+    private void open(Map<K, V> recovered) throws IOException {
+        close();
+        File file = new File(logFilePath);
+        File fileParent = file.getParentFile();
+        if (fileParent != null) {
+            fileParent.mkdirs();
+        }
+        fileChannel = new RandomAccessFile(file, "rw").getChannel();
+        mappedByteBuffer = fileChannel.map(FileChannel.MapMode.READ_WRITE, 0, Math.max(MIN_FILE_SIZE, fileChannel.size()));
+
+        int position = 0;
+        while (position + RECORD_HEADER_SIZE <= mappedByteBuffer.capacity()) {
+            int bodySize = mappedByteBuffer.getInt(position);
+            if (bodySize <= 0 || position + RECORD_HEADER_SIZE + bodySize > mappedByteBuffer.capacity()) {
+                break;
+            }
+            byte[] body = new byte[bodySize];
+            ByteBuffer slice = duplicate(mappedByteBuffer);
+            slice.position(position + RECORD_HEADER_SIZE);
+            slice.get(body);
+            if (mappedByteBuffer.getInt(position + 4) != crc(body)) {
+                log.warn("found broken record at " + position + " of " + logFilePath + ", truncate the log there");
+                break;
+            }
+            if (null != recovered) {
+                replay(ByteBuffer.wrap(body), recovered);
+            }
+            position += RECORD_HEADER_SIZE + bodySize;
+        }
+        // Clear what a crashed persist left behind, so that new records are not followed by stale ones.
+        ByteBuffer remaining = duplicate(mappedByteBuffer);
+        remaining.position(position);
+        byte[] zeros = new byte[4096];
+        while (remaining.hasRemaining()) {
+            remaining.put(zeros, 0, Math.min(zeros.length, remaining.remaining()));
+        }
+        writePosition = position;
+        compactedSize = position;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void replay(ByteBuffer body, Map<K, V> recovered) {
+        byte[] keyBytes = new byte[body.getInt()];
+        body.get(keyBytes);
+        K key = (K) keyConverter.byteToObject(keyBytes);
+        int valueSize = body.getInt();
+        if (REMOVED_VALUE_SIZE == valueSize) {
+            recovered.remove(key);
+            return;
+        }
+        byte[] valueBytes = new byte[valueSize];
+        body.get(valueBytes);
+        recovered.put(key, (V) valueConverter.byteToObject(valueBytes));
+    }
+
+    @SuppressWarnings("unchecked")
+    private byte[] encode(K key, V value) {
+        byte[] keyBytes = keyConverter.objectToByte(key);
+        byte[] valueBytes = null == value ? null : valueConverter.objectToByte(value);
+        int bodySize = 4 + keyBytes.length + 4 + (null == valueBytes ? 0 : valueBytes.length);
+        ByteBuffer body = ByteBuffer.allocate(bodySize);
+        body.putInt(keyBytes.length);
+        body.put(keyBytes);
+        if (null == valueBytes) {
+            body.putInt(REMOVED_VALUE_SIZE);
+        } else {
+            body.putInt(valueBytes.length);
+            body.put(valueBytes);
+        }
+        return body.array();
+    }
+
+    private void append(K key, V value) throws IOException {
+        byte[] body = encode(key, value);
+        int recordSize = RECORD_HEADER_SIZE + body.length;
+        if (writePosition + recordSize > mappedByteBuffer.capacity()) {
+            MappedByteBuffer oldBuffer = mappedByteBuffer;
+            oldBuffer.force();
+            long newSize = Math.max((long) oldBuffer.capacity() * 2, (long) writePosition + recordSize);
+            mappedByteBuffer = fileChannel.map(FileChannel.MapMode.READ_WRITE, 0, newSize);
+            unmap(oldBuffer);
+        }
+        // Write the body first, so that a record is never complete before its body is.
+        ByteBuffer buffer = duplicate(mappedByteBuffer);
+        buffer.position(writePosition + RECORD_HEADER_SIZE);
+        buffer.put(body);
+        mappedByteBuffer.putInt(writePosition + 4, crc(body));
+        mappedByteBuffer.putInt(writePosition, body.length);
+        writePosition += recordSize;
+    }
+
+    /**
+     * Write the live data to a new log and replace the current log with it.
+     */
+    private void compact() throws IOException {
+        dirtyKeys.clear();
+        File compactFile = new File(logFilePath + ".compact");
+        try (FileChannel compactChannel = new RandomAccessFile(compactFile, "rw").getChannel()) {
+            compactChannel.truncate(0);
+            for (Map.Entry<K, V> entry : this.data.entrySet()) {
+                byte[] body = encode(entry.getKey(), entry.getValue());
+                ByteBuffer record = ByteBuffer.allocate(RECORD_HEADER_SIZE + body.length);
+                record.putInt(body.length);
+                record.putInt(crc(body));
+                record.put(body);
+                record.flip();
+                while (record.hasRemaining()) {
+                    compactChannel.write(record);
+                }
+            }
+            compactChannel.force(true);
+        }
+        close();
+        Files.move(compactFile.toPath(), new File(logFilePath).toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        open(null);
+        log.info("compact " + logFilePath + " OK, " + this.data.size() + " keys, " + writePosition + " bytes");
+    }
+
+    private void close() throws IOException {
+        if (null != fileChannel) {
+            MappedByteBuffer oldBuffer = mappedByteBuffer;
+            mappedByteBuffer = null;
+            oldBuffer.force();
+            unmap(oldBuffer);
+            fileChannel.close();
+            fileChannel = null;
+        }
+    }
+
+    /**
+     * Cast before duplicating, MappedByteBuffer only overrides duplicate() since Java 9 and a call compiled against
+     * that override fails on Java 8.
+     */
+    private static ByteBuffer duplicate(MappedByteBuffer buffer) {
+        return ((ByteBuffer) buffer).duplicate();
+    }
+
+    /**
+     * Release the mapping of a buffer no longer used right away instead of once it is garbage collected, so that the
+     * file can be replaced and the old mapping does not hold on to it. The buffer must not be accessed afterwards.
+     */
+    private void unmap(MappedByteBuffer buffer) {
+        try {
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            Method invokeCleaner;
+            try {
+                invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+            } catch (NoSuchMethodException e) {
+                // Java 8
+                Method cleanerMethod = buffer.getClass().getMethod("cleaner");
+                cleanerMethod.setAccessible(true);
+                Object cleaner = cleanerMethod.invoke(buffer);
+                cleaner.getClass().getMethod("clean").invoke(cleaner);
+                return;
+            }
+            Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+            theUnsafe.setAccessible(true);
+            invokeCleaner.invoke(theUnsafe.get(null), buffer);
+        } catch (Exception e) {
+            log.warn("unmap " + logFilePath + " failed, it is unmapped once garbage collected", e);
+        }
+    }
+
+    private static int crc(byte[] body) {
+        CRC32 crc32 = new CRC32();
+        crc32.update(body);
+        return (int) crc32.getValue();
+    }
+}
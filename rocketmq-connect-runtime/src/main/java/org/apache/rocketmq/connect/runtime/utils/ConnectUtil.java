@@ -28,6 +28,7 @@ import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.rocketmq.acl.common.AclClientRPCHook;
 import org.apache.rocketmq.acl.common.SessionCredentials;
@@ -100,11 +101,23 @@ public class ConnectUtil {
     }
 
     public static DefaultMQProducer initDefaultMQProducer(ConnectConfig connectConfig) {
+        return initDefaultMQProducer(connectConfig, DefaultMQProducer::new);
+    }
+
+    /**
+     * Create and configure a producer of the given type, such as a producer shared by several tasks.
+     *
+     * @param connectConfig the config of the worker.
+     * @param producerFactory creates the producer with the rpc hook of the worker, null without acl.
+     * @return the configured producer, not started.
+     */
+    public static <T extends DefaultMQProducer> T initDefaultMQProducer(ConnectConfig connectConfig,
+        Function<RPCHook, T> producerFactory) {
         RPCHook rpcHook = null;
         if (connectConfig.getAclEnable()) {
             rpcHook = new AclClientRPCHook(new SessionCredentials(connectConfig.getAccessKey(), connectConfig.getSecretKey()));
         }
-        DefaultMQProducer producer = new DefaultMQProducer(rpcHook);
+        T producer = producerFactory.apply(rpcHook);
         producer.setNamesrvAddr(connectConfig.getNamesrvAddr());
         producer.setInstanceName(createUniqInstance(connectConfig.getNamesrvAddr()));
         producer.setProducerGroup(connectConfig.getRmqProducerGroup());
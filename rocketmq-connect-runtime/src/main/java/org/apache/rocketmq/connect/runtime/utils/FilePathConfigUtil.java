@@ -33,7 +33,15 @@ public class FilePathConfigUtil {
         return rootDir + File.separator + "config" + File.separator + "position.json";
     }
 
+    public static String getPositionLogPath(final String rootDir) {
+        return rootDir + File.separator + "config" + File.separator + "position.log";
+    }
+
     public static String getOffsetPath(final String rootDir) {
         return rootDir + File.separator + "config" + File.separator + "offset.json";
     }
+
+    public static String getPluginIndexPath(final String rootDir) {
+        return rootDir + File.separator + "config" + File.separator + "pluginIndex.json";
+    }
 }
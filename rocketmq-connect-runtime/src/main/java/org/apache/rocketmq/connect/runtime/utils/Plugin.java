@@ -16,6 +16,7 @@
  */
 package org.apache.rocketmq.connect.runtime.utils;
 
+import io.netty.util.concurrent.DefaultThreadFactory;
 import io.openmessaging.connector.api.component.Transform;
 import io.openmessaging.connector.api.component.connector.Connector;
 import io.openmessaging.connector.api.component.task.Task;
@@ -29,11 +30,15 @@ import java.security.AccessController;
 import java.security.PrivilegedAction;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import org.reflections.Configuration;
 import org.reflections.Reflections;
 import org.reflections.ReflectionsException;
@@ -47,67 +52,170 @@ public class Plugin extends URLClassLoader {
 
     private final List<String> pluginPaths;
 
-    private Map<String, PluginWrapper> classLoaderMap = new HashMap<>();
+    private final PluginIndex pluginIndex;
+
+    /**
+     * The plugins of each location, kept across reloads so that unchanged locations keep their class loaders.
+     */
+    private Map<String, LoadedPlugin> loadedPlugins = new HashMap<>();
+
+    private volatile Map<String, ClassLoader> classLoaderMap = Collections.emptyMap();
 
     public Plugin(List<String> pluginPaths) {
         this(pluginPaths, Plugin.class.getClassLoader());
     }
 
     public Plugin(List<String> pluginPaths, ClassLoader parent) {
+        this(pluginPaths, parent, null);
+    }
+
+    /**
+     * @param indexPath the file the plugin index is persisted to, or null to scan all plugins at every start
+     */
+    public Plugin(List<String> pluginPaths, String indexPath) {
+        this(pluginPaths, Plugin.class.getClassLoader(), indexPath);
+    }
+
+    public Plugin(List<String> pluginPaths, ClassLoader parent, String indexPath) {
         super(new URL[0], parent);
         this.pluginPaths = pluginPaths;
+        this.pluginIndex = new PluginIndex(indexPath);
     }
 
-    public void initPlugin() {
+    /**
+     * Load the plugins of the plugin paths, called again to reload them. The locations are loaded in parallel, only
+     * the locations not indexed yet or changed since are scanned, the others keep the class loaders they have.
+     */
+    public synchronized void initPlugin() {
+        long beginTimestamp = System.currentTimeMillis();
+        List<Path> locations = new ArrayList<>();
         for (String configPath : pluginPaths) {
-            loadPlugin(configPath);
+            collectLocations(configPath, locations);
+        }
+        Map<String, LoadedPlugin> loaded = new LinkedHashMap<>();
+        if (!locations.isEmpty()) {
+            ExecutorService executor = Executors.newFixedThreadPool(
+                Math.min(locations.size(), Runtime.getRuntime().availableProcessors()),
+                new DefaultThreadFactory("plugin-loader-"));
+            try {
+                List<Future<LoadedPlugin>> futures = new ArrayList<>(locations.size());
+                for (Path location : locations) {
+                    LoadedPlugin previous = loadedPlugins.get(location.toString());
+                    futures.add(executor.submit(() -> loadPlugin(location, previous)));
+                }
+                for (int i = 0; i < locations.size(); i++) {
+                    String location = locations.get(i).toString();
+                    try {
+                        loaded.put(location, futures.get(i).get());
+                    } catch (ExecutionException e) {
+                        log.error("register plugin error, path: {}", location, e.getCause());
+                        // a location failing to reload keeps its plugins
+                        LoadedPlugin previous = loadedPlugins.get(location);
+                        if (null != previous) {
+                            loaded.put(location, previous);
+                        }
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                log.error("Loading plugins interrupted, plugins unchanged");
+                return;
+            } finally {
+                executor.shutdownNow();
+            }
+        }
+
+        // later locations win, as they did when the locations were loaded one after another
+        Map<String, ClassLoader> classLoaders = new HashMap<>();
+        int scanned = 0;
+        for (LoadedPlugin plugin : loaded.values()) {
+            for (String pluginName : plugin.plugins) {
+                classLoaders.put(pluginName, plugin.loader);
+            }
+            if (plugin.scanned) {
+                scanned++;
+            }
         }
+        loadedPlugins = loaded;
+        classLoaderMap = classLoaders;
+        pluginIndex.retain(loaded.keySet());
+        pluginIndex.persist();
+        log.info("Loaded {} plugins from {} locations, {} locations scanned, cost {} ms",
+            classLoaders.size(), loaded.size(), scanned, System.currentTimeMillis() - beginTimestamp);
     }
 
-    private void loadPlugin(String path) {
+    private void collectLocations(String path, List<Path> locations) {
         Path pluginPath = Paths.get(path).toAbsolutePath();
         path = pluginPath.toString();
         try {
             if (Files.isDirectory(pluginPath)) {
-                for (Path pluginLocation : PluginUtils.pluginLocations(pluginPath)) {
-                    registerPlugin(pluginLocation);
-                }
+                locations.addAll(PluginUtils.pluginLocations(pluginPath));
             } else if (PluginUtils.isArchive(pluginPath)) {
-                registerPlugin(pluginPath);
+                locations.add(pluginPath);
             }
         } catch (IOException e) {
             log.error("register plugin error, path: {}, e: {}", path, e);
         }
     }
 
-    private void doLoad(
+    private LoadedPlugin loadPlugin(Path pluginLocation, LoadedPlugin previous) throws IOException {
+        String location = pluginLocation.toString();
+        List<Path> paths = PluginUtils.pluginUrls(pluginLocation);
+        List<String> plugins = pluginIndex.lookup(location, paths);
+        if (null != plugins && null != previous && paths.equals(previous.paths)) {
+            return previous.unchanged();
+        }
+        log.info("Loading plugin from: {}", pluginLocation);
+        List<URL> pluginUrls = new ArrayList<>();
+        for (Path path : paths) {
+            pluginUrls.add(path.toUri().toURL());
+        }
+        URL[] urls = pluginUrls.toArray(new URL[0]);
+        if (log.isDebugEnabled()) {
+            log.debug("Loading plugin urls: {}", Arrays.toString(urls));
+        }
+        PluginClassLoader loader = newPluginClassLoader(
+            pluginLocation.toUri().toURL(),
+            urls,
+            this
+        );
+        if (null != plugins) {
+            // indexed, the classes are loaded when they are used
+            return new LoadedPlugin(paths, loader, plugins, false);
+        }
+        plugins = scan(loader, urls);
+        pluginIndex.put(location, paths, plugins);
+        return new LoadedPlugin(paths, loader, plugins, true);
+    }
+
+    /**
+     * @return the names of the plugin classes in the urls
+     */
+    private List<String> scan(
         ClassLoader loader,
         URL[] urls
     ) {
+        // locations are scanned in parallel already, each one is scanned by a single thread
         ConfigurationBuilder builder = new ConfigurationBuilder();
         builder.setClassLoaders(new ClassLoader[] {loader});
         builder.addUrls(urls);
         builder.setScanners(new SubTypesScanner());
-        builder.useParallelExecutor();
         Reflections reflections = new PluginReflections(builder);
-        getPlugin(reflections, Connector.class, loader);
-        getPlugin(reflections, Task.class, loader);
-        getPlugin(reflections, Transform.class, loader);
+        List<String> plugins = new ArrayList<>();
+        addPlugins(reflections, Connector.class, plugins);
+        addPlugins(reflections, Task.class, plugins);
+        addPlugins(reflections, Transform.class, plugins);
+        return plugins;
     }
 
-    private <T> Collection<Class<? extends T>> getPlugin(
+    private <T> void addPlugins(
         Reflections reflections,
         Class<T> klass,
-        ClassLoader loader
+        List<String> plugins
     ) {
-        Set<Class<? extends T>> plugins = reflections.getSubTypesOf(klass);
-        Collection<Class<? extends T>> result = new ArrayList<>();
-        for (Class<? extends T> plugin : plugins) {
-            classLoaderMap.put(plugin.getName(), new PluginWrapper(plugin, loader));
-            result.add(plugin);
-
+        for (Class<? extends T> plugin : reflections.getSubTypesOf(klass)) {
+            plugins.add(plugin.getName());
         }
-        return result;
     }
 
     private static class PluginReflections extends Reflections {
@@ -129,6 +237,28 @@ public class Plugin extends URLClassLoader {
         }
     }
 
+    private static class LoadedPlugin {
+
+        private final List<Path> paths;
+
+        private final ClassLoader loader;
+
+        private final List<String> plugins;
+
+        private final boolean scanned;
+
+        private LoadedPlugin(List<Path> paths, ClassLoader loader, List<String> plugins, boolean scanned) {
+            this.paths = paths;
+            this.loader = loader;
+            this.plugins = plugins;
+            this.scanned = scanned;
+        }
+
+        private LoadedPlugin unchanged() {
+            return scanned ? new LoadedPlugin(paths, loader, plugins, false) : this;
+        }
+    }
+
     private static PluginClassLoader newPluginClassLoader(
         final URL pluginLocation,
         final URL[] urls,
@@ -139,31 +269,8 @@ public class Plugin extends URLClassLoader {
         );
     }
 
-    private void registerPlugin(Path pluginLocation)
-        throws IOException {
-        log.info("Loading plugin from: {}", pluginLocation);
-        List<URL> pluginUrls = new ArrayList<>();
-        for (Path path : PluginUtils.pluginUrls(pluginLocation)) {
-            pluginUrls.add(path.toUri().toURL());
-        }
-        URL[] urls = pluginUrls.toArray(new URL[0]);
-        if (log.isDebugEnabled()) {
-            log.debug("Loading plugin urls: {}", Arrays.toString(urls));
-        }
-        PluginClassLoader loader = newPluginClassLoader(
-            pluginLocation.toUri().toURL(),
-            urls,
-            this
-        );
-        doLoad(loader, urls);
-    }
-
     public ClassLoader getPluginClassLoader(String pluginName) {
-        PluginWrapper pluginWrapper = classLoaderMap.get(pluginName);
-        if (null != pluginWrapper) {
-            return pluginWrapper.getClassLoader();
-        }
-        return null;
+        return classLoaderMap.get(pluginName);
     }
 
     public ClassLoader currentThreadLoader() {
@@ -0,0 +1,261 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.apache.rocketmq.connect.runtime.utils;
+
+import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.TypeReference;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.CRC32;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The plugin classes found in each plugin location, persisted so that the jars of a location are not scanned again
+ * until they change.
+ *
+ * <p>A location is looked up by the size and the modification time of its jars. A jar modified since it was indexed
+ * is checksummed, the location is scanned again only if the content of one of its jars changed. Locations holding
+ * class files rather than jars are not indexed.
+ */
+public class PluginIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(PluginIndex.class);
+
+    private static final int CHECKSUM_BUFFER_SIZE = 64 * 1024;
+
+    private final String indexPath;
+
+    private final ConcurrentHashMap<String, Entry> entries = new ConcurrentHashMap<>();
+
+    private volatile boolean dirty;
+
+    /**
+     * @param indexPath the file the index is persisted to, or null to keep it in memory only
+     */
+    public PluginIndex(String indexPath) {
+        this.indexPath = indexPath;
+        load();
+    }
+
+    /**
+     * @param location the plugin location
+     * @param jars     the jars of the location, in the order they are scanned
+     * @return the names of the plugin classes of the location, or null if the location must be scanned
+     */
+    public List<String> lookup(String location, List<Path> jars) throws IOException {
+        Entry entry = entries.get(location);
+        if (null == entry || !isIndexable(jars) || entry.getJars().size() != jars.size()) {
+            return null;
+        }
+        List<JarStamp> stamps = new ArrayList<>(jars.size());
+        boolean touched = false;
+        for (int i = 0; i < jars.size(); i++) {
+            Path jar = jars.get(i);
+            JarStamp indexed = entry.getJars().get(i);
+            long size = Files.size(jar);
+            if (!jar.toString().equals(indexed.getPath()) || size != indexed.getSize()) {
+                return null;
+            }
+            long lastModified = Files.getLastModifiedTime(jar).toMillis();
+            if (lastModified != indexed.getLastModified()) {
+                // copied again or touched, the content decides
+                if (checksum(jar) != indexed.getChecksum()) {
+                    return null;
+                }
+                touched = true;
+            }
+            stamps.add(new JarStamp(jar.toString(), size, lastModified, indexed.getChecksum()));
+        }
+        if (touched) {
+            entries.put(location, new Entry(stamps, entry.getPlugins()));
+            dirty = true;
+        }
+        return entry.getPlugins();
+    }
+
+    /**
+     * Index the plugin classes found by scanning a location.
+     */
+    public void put(String location, List<Path> jars, List<String> plugins) throws IOException {
+        if (!isIndexable(jars)) {
+            return;
+        }
+        List<JarStamp> stamps = new ArrayList<>(jars.size());
+        for (Path jar : jars) {
+            stamps.add(new JarStamp(jar.toString(), Files.size(jar), Files.getLastModifiedTime(jar).toMillis(), checksum(jar)));
+        }
+        entries.put(location, new Entry(stamps, plugins));
+        dirty = true;
+    }
+
+    /**
+     * Forget the locations no longer configured.
+     */
+    public void retain(Collection<String> locations) {
+        if (entries.keySet().retainAll(locations)) {
+            dirty = true;
+        }
+    }
+
+    /**
+     * Write the index if it changed, a failure is logged only since the index is rebuilt by scanning.
+     */
+    public synchronized void persist() {
+        if (null == indexPath || !dirty) {
+            return;
+        }
+        dirty = false;
+        try {
+            FileAndPropertyUtil.string2File(JSON.toJSONString(new TreeMap<>(entries)), indexPath);
+        } catch (IOException e) {
+            log.warn("Persist plugin index failed, path: {}", indexPath, e);
+        }
+    }
+
+    private void load() {
+        if (null == indexPath) {
+            return;
+        }
+        try {
+            String json = FileAndPropertyUtil.file2String(indexPath);
+            if (null == json) {
+                return;
+            }
+            Map<String, Entry> loaded = JSON.parseObject(json, new TypeReference<Map<String, Entry>>() {
+            });
+            if (null != loaded) {
+                entries.putAll(loaded);
+            }
+        } catch (Exception e) {
+            log.warn("Load plugin index failed, all plugins will be scanned, path: {}", indexPath, e);
+        }
+    }
+
+    private static boolean isIndexable(List<Path> jars) {
+        for (Path jar : jars) {
+            if (!PluginUtils.isArchive(jar) || !Files.isRegularFile(jar)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    static long checksum(Path jar) throws IOException {
+        CRC32 crc = new CRC32();
+        byte[] buffer = new byte[CHECKSUM_BUFFER_SIZE];
+        try (InputStream in = Files.newInputStream(jar)) {
+            int read;
+            while ((read = in.read(buffer)) > 0) {
+                crc.update(buffer, 0, read);
+            }
+        }
+        return crc.getValue();
+    }
+
+    public static class Entry {
+
+        private List<JarStamp> jars;
+
+        private List<String> plugins;
+
+        public Entry() {
+        }
+
+        public Entry(List<JarStamp> jars, List<String> plugins) {
+            this.jars = jars;
+            this.plugins = plugins;
+        }
+
+        public List<JarStamp> getJars() {
+            return jars;
+        }
+
+        public void setJars(List<JarStamp> jars) {
+            this.jars = jars;
+        }
+
+        public List<String> getPlugins() {
+            return plugins;
+        }
+
+        public void setPlugins(List<String> plugins) {
+            this.plugins = plugins;
+        }
+    }
+
+    public static class JarStamp {
+
+        private String path;
+
+        private long size;
+
+        private long lastModified;
+
+        private long checksum;
+
+        public JarStamp() {
+        }
+
+        public JarStamp(String path, long size, long lastModified, long checksum) {
+            this.path = path;
+            this.size = size;
+            this.lastModified = lastModified;
+            this.checksum = checksum;
+        }
+
+        public String getPath() {
+            return path;
+        }
+
+        public void setPath(String path) {
+            this.path = path;
+        }
+
+        public long getSize() {
+            return size;
+        }
+
+        public void setSize(long size) {
+            this.size = size;
+        }
+
+        public long getLastModified() {
+            return lastModified;
+        }
+
+        public void setLastModified(long lastModified) {
+            this.lastModified = lastModified;
+        }
+
+        public long getChecksum() {
+            return checksum;
+        }
+
+        public void setChecksum(long checksum) {
+            this.checksum = checksum;
+        }
+    }
+}
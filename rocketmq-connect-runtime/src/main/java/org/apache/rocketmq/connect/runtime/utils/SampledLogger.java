@@ -0,0 +1,111 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.apache.rocketmq.connect.runtime.utils;
+
+import java.util.concurrent.atomic.AtomicLong;
+import org.slf4j.Logger;
+
+/**
+ * Logs at most one line per interval, for log lines on the record hot paths.
+ *
+ * <p>Lines in between are dropped and counted, the count is appended to the next line logged. Callers building
+ * expensive arguments check {@link #isInfoEnabled()} or the like first, which only holds while the level is enabled
+ * and a line is due.
+ */
+public class SampledLogger {
+
+    public static final long DEFAULT_INTERVAL_MS = 1000 * 10;
+
+    private static final String SKIPPED_SUFFIX = " [{} similar logs skipped]";
+
+    private final Logger log;
+
+    private final long intervalMs;
+
+    private final AtomicLong nextLogTimestamp = new AtomicLong(0);
+
+    private final AtomicLong skipped = new AtomicLong(0);
+
+    public SampledLogger(Logger log) {
+        this(log, DEFAULT_INTERVAL_MS);
+    }
+
+    public SampledLogger(Logger log, long intervalMs) {
+        this.log = log;
+        this.intervalMs = intervalMs;
+    }
+
+    public boolean isInfoEnabled() {
+        return log.isInfoEnabled() && isDue();
+    }
+
+    public boolean isWarnEnabled() {
+        return log.isWarnEnabled() && isDue();
+    }
+
+    public boolean isErrorEnabled() {
+        return log.isErrorEnabled() && isDue();
+    }
+
+    public void info(String format, Object... arguments) {
+        if (log.isInfoEnabled() && acquire()) {
+            log.info(format + SKIPPED_SUFFIX, withSkipped(arguments));
+        }
+    }
+
+    public void warn(String format, Object... arguments) {
+        if (log.isWarnEnabled() && acquire()) {
+            log.warn(format + SKIPPED_SUFFIX, withSkipped(arguments));
+        }
+    }
+
+    public void error(String format, Object... arguments) {
+        if (log.isErrorEnabled() && acquire()) {
+            log.error(format + SKIPPED_SUFFIX, withSkipped(arguments));
+        }
+    }
+
+    private boolean isDue() {
+        return System.currentTimeMillis() >= nextLogTimestamp.get();
+    }
+
+    private boolean acquire() {
+        long now = System.currentTimeMillis();
+        long next = nextLogTimestamp.get();
+        if (now >= next && nextLogTimestamp.compareAndSet(next, now + intervalMs)) {
+            return true;
+        }
+        skipped.incrementAndGet();
+        return false;
+    }
+
+    /**
+     * Insert the skipped count as the last placeholder argument, in front of a trailing throwable.
+     */
+    private Object[] withSkipped(Object[] arguments) {
+        Object[] result = new Object[arguments.length + 1];
+        int placeholders = arguments.length;
+        if (placeholders > 0 && arguments[placeholders - 1] instanceof Throwable) {
+            placeholders--;
+            result[arguments.length] = arguments[placeholders];
+        }
+        System.arraycopy(arguments, 0, result, 0, placeholders);
+        result[placeholders] = skipped.getAndSet(0);
+        return result;
+    }
+}
@@ -20,9 +20,11 @@ package org.apache.rocketmq.connect.runtime.utils.datasync;
 import com.alibaba.fastjson.JSON;
 import io.openmessaging.connector.api.data.Converter;
 import java.util.Base64;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Map.Entry;
 import org.apache.rocketmq.client.consumer.DefaultMQPushConsumer;
 import org.apache.rocketmq.client.consumer.listener.ConsumeConcurrentlyContext;
 import org.apache.rocketmq.client.consumer.listener.ConsumeConcurrentlyStatus;
@@ -80,6 +82,16 @@ public class BrokerBasedLog<K, V> implements DataSynchronizer<K, V> {
      */
     private Converter valueConverter;
 
+    /**
+     * Used to encode key and value into messages, and to reassemble messages into key and value.
+     */
+    private final LogMessageCodec codec = new LogMessageCodec(MAX_MESSAGE_SIZE);
+
+    /**
+     * Whether messages are written with the codec, or in the JSON format workers of earlier versions read.
+     */
+    private final boolean binaryFormatEnable;
+
     public BrokerBasedLog(ConnectConfig connectConfig,
         String topicName,
         String workId,
@@ -95,6 +107,7 @@ public class BrokerBasedLog<K, V> implements DataSynchronizer<K, V> {
         this.consumer.setConsumerGroup(workId);
         this.keyConverter = keyConverter;
         this.valueConverter = valueConverter;
+        this.binaryFormatEnable = connectConfig.isBinarySyncFormatEnable();
         this.prepare(connectConfig);
     }
 
@@ -131,40 +144,57 @@ public class BrokerBasedLog<K, V> implements DataSynchronizer<K, V> {
     public void send(K key, V value) {
 
         try {
-            byte[] messageBody = encodeKeyValue(key, value);
-            if (messageBody.length > MAX_MESSAGE_SIZE) {
-                log.error("Message size is greater than {} bytes, key: {}, value {}", MAX_MESSAGE_SIZE, key, value);
-                return;
+            List<byte[]> messageBodies = encodeKeyValue(key, value);
+            if (messageBodies.size() > 1) {
+                log.info("Split message into {} chunks, topic: {}", messageBodies.size(), topicName);
             }
-            producer.send(new Message(topicName, messageBody), new SendCallback() {
-                @Override public void onSuccess(org.apache.rocketmq.client.producer.SendResult result) {
-                    log.info("Send async message OK, msgId: {},topic:{}", result.getMsgId(), topicName);
-                }
+            for (byte[] messageBody : messageBodies) {
+                producer.send(new Message(topicName, messageBody), new SendCallback() {
+                    @Override public void onSuccess(org.apache.rocketmq.client.producer.SendResult result) {
+                        log.info("Send async message OK, msgId: {},topic:{}", result.getMsgId(), topicName);
+                    }
 
-                @Override public void onException(Throwable throwable) {
-                    if (null != throwable) {
-                        log.error("Send async message Failed, error: {}", throwable);
+                    @Override public void onException(Throwable throwable) {
+                        if (null != throwable) {
+                            log.error("Send async message Failed, error: {}", throwable);
+                        }
                     }
-                }
-            });
+                });
+            }
         } catch (Exception e) {
             log.error("BrokerBaseLog send async message Failed.", e);
         }
     }
 
-    private byte[] encodeKeyValue(K key, V value) throws Exception {
+    private List<byte[]> encodeKeyValue(K key, V value) throws Exception {
 
         byte[] keyByte = keyConverter.objectToByte(key);
         byte[] valueByte = valueConverter.objectToByte(value);
+        if (binaryFormatEnable) {
+            return codec.encode(keyByte, valueByte);
+        }
         Map<String, String> map = new HashMap<>();
         map.put(Base64.getEncoder().encodeToString(keyByte), Base64.getEncoder().encodeToString(valueByte));
-
-        return JSON.toJSONString(map).getBytes("UTF-8");
+        return Collections.singletonList(JSON.toJSONString(map).getBytes("UTF-8"));
     }
 
+    /**
+     * Decode a message, in the binary format or the JSON format of earlier versions.
+     *
+     * @return the key and value of the message, empty if it is a chunk and the others of its payload are missing.
+     */
     private Map<K, V> decodeKeyValue(byte[] bytes) throws Exception {
 
         Map<K, V> resultMap = new HashMap<>();
+        if (LogMessageCodec.isEncoded(bytes)) {
+            Entry<byte[], byte[]> entry = codec.decode(bytes);
+            if (null != entry) {
+                K decodeKey = (K) keyConverter.byteToObject(entry.getKey());
+                V decodeValue = (V) valueConverter.byteToObject(entry.getValue());
+                resultMap.put(decodeKey, decodeValue);
+            }
+            return resultMap;
+        }
         String rawString = new String(bytes, "UTF-8");
         Map<String, String> map = JSON.parseObject(rawString, Map.class);
         for (String key : map.keySet()) {
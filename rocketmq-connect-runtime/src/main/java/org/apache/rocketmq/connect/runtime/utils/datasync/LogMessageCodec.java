@@ -0,0 +1,267 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.apache.rocketmq.connect.runtime.utils.datasync;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Binary format of the messages a {@link BrokerBasedLog} sends.
+ *
+ * <p>A key and a value are written as {@code | key size (int) | key | value size (int) | value |}. Payloads larger
+ * than {@link #COMPRESS_THRESHOLD} are deflated, and a payload still too large for one message is split into chunks
+ * sent as separate messages. Every message is laid out as
+ * <pre>
+ * | magic (byte) | version (byte) | flags (byte) | payload id (long) | chunk index (int) | chunk count (int) | chunk |
+ * </pre>
+ * The magic byte tells these messages apart from the JSON messages of earlier versions, which start with '{'.
+ */
+public class LogMessageCodec {
+
+    public static final byte MAGIC = (byte) 0xCE;
+
+    public static final byte VERSION = 1;
+
+    private static final int FLAG_COMPRESSED = 1;
+
+    private static final int HEADER_SIZE = 1 + 1 + 1 + 8 + 4 + 4;
+
+    /**
+     * Payloads smaller than this are not worth deflating.
+     */
+    private static final int COMPRESS_THRESHOLD = 1024;
+
+    /**
+     * Chunks of a payload not completed within this time are dropped.
+     */
+    private static final long INCOMPLETE_EXPIRE_MILLS = 60 * 1000;
+
+    private final int maxMessageSize;
+
+    /**
+     * Chunks received by payload id, until all chunks of the payload are received.
+     */
+    private final Map<Long, ChunkedPayload> chunkedPayloads = new HashMap<>();
+
+    public LogMessageCodec(int maxMessageSize) {
+        if (maxMessageSize <= HEADER_SIZE) {
+            throw new IllegalArgumentException("maxMessageSize must be greater than " + HEADER_SIZE);
+        }
+        this.maxMessageSize = maxMessageSize;
+    }
+
+    /**
+     * Encode a key and a value into one or more message bodies, each at most maxMessageSize bytes.
+     */
+    public List<byte[]> encode(byte[] key, byte[] value) {
+        ByteBuffer raw = ByteBuffer.allocate(4 + key.length + 4 + value.length);
+        raw.putInt(key.length);
+        raw.put(key);
+        raw.putInt(value.length);
+        raw.put(value);
+        byte[] payload = raw.array();
+
+        byte flags = 0;
+        if (payload.length > COMPRESS_THRESHOLD) {
+            byte[] compressed = compress(payload);
+            if (compressed.length < payload.length) {
+                payload = compressed;
+                flags |= FLAG_COMPRESSED;
+            }
+        }
+
+        int chunkSize = maxMessageSize - HEADER_SIZE;
+        int chunkCount = Math.max(1, (payload.length + chunkSize - 1) / chunkSize);
+        long payloadId = ThreadLocalRandom.current().nextLong();
+        List<byte[]> messages = new ArrayList<>(chunkCount);
+        for (int i = 0; i < chunkCount; i++) {
+            int offset = i * chunkSize;
+            int length = Math.min(chunkSize, payload.length - offset);
+            ByteBuffer message = ByteBuffer.allocate(HEADER_SIZE + length);
+            message.put(MAGIC);
+            message.put(VERSION);
+            message.put(flags);
+            message.putLong(payloadId);
+            message.putInt(i);
+            message.putInt(chunkCount);
+            message.put(payload, offset, length);
+            messages.add(message.array());
+        }
+        return messages;
+    }
+
+    /**
+     * Whether a message body was written by this codec.
+     */
+    public static boolean isEncoded(byte[] message) {
+        return null != message && message.length >= HEADER_SIZE && MAGIC == message[0];
+    }
+
+    /**
+     * Decode a message body.
+     *
+     * @return the key and the value, or null if the message is a chunk and other chunks of its payload are missing.
+     * @throws IllegalArgumentException if the message is malformed or of an unknown version.
+     */
+    public synchronized Map.Entry<byte[], byte[]> decode(byte[] message) {
+        if (!isEncoded(message)) {
+            throw new IllegalArgumentException("Not a log message");
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(message);
+        buffer.get();
+        byte version = buffer.get();
+        if (VERSION != version) {
+            throw new IllegalArgumentException("Unknown log message version " + version);
+        }
+        byte flags = buffer.get();
+        long payloadId = buffer.getLong();
+        int chunkIndex = buffer.getInt();
+        int chunkCount = buffer.getInt();
+        if (chunkCount <= 0 || chunkIndex < 0 || chunkIndex >= chunkCount) {
+            throw new IllegalArgumentException("Invalid chunk " + chunkIndex + " of " + chunkCount);
+        }
+        byte[] chunk = new byte[buffer.remaining()];
+        buffer.get(chunk);
+
+        byte[] payload;
+        if (1 == chunkCount) {
+            payload = chunk;
+        } else {
+            expireChunkedPayloads();
+            ChunkedPayload chunkedPayload = chunkedPayloads.computeIfAbsent(payloadId, id -> new ChunkedPayload(chunkCount));
+            if (chunkedPayload.chunks.length != chunkCount) {
+                throw new IllegalArgumentException("Chunk count " + chunkCount + " differs from " + chunkedPayload.chunks.length);
+            }
+            payload = chunkedPayload.add(chunkIndex, chunk);
+            if (null == payload) {
+                return null;
+            }
+            chunkedPayloads.remove(payloadId);
+        }
+        if (0 != (flags & FLAG_COMPRESSED)) {
+            payload = decompress(payload);
+        }
+
+        ByteBuffer raw = ByteBuffer.wrap(payload);
+        byte[] key = new byte[raw.getInt()];
+        raw.get(key);
+        byte[] value = new byte[raw.getInt()];
+        raw.get(value);
+        return new AbstractMap.SimpleEntry<>(key, value);
+    }
+
+    private void expireChunkedPayloads() {
+        long now = System.currentTimeMillis();
+        Iterator<ChunkedPayload> iterator = chunkedPayloads.values().iterator();
+        while (iterator.hasNext()) {
+            if (now - iterator.next().createTimestamp > INCOMPLETE_EXPIRE_MILLS) {
+                iterator.remove();
+            }
+        }
+    }
+
+    private static byte[] compress(byte[] data) {
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try {
+            deflater.setInput(data);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(data.length / 2 + 4);
+            out.write(data.length >>> 24);
+            out.write(data.length >>> 16);
+            out.write(data.length >>> 8);
+            out.write(data.length);
+            byte[] buffer = new byte[8192];
+            while (!deflater.finished()) {
+                out.write(buffer, 0, deflater.deflate(buffer));
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static byte[] decompress(byte[] data) {
+        ByteBuffer buffer = ByteBuffer.wrap(data);
+        int rawSize = buffer.getInt();
+        if (rawSize < 0) {
+            throw new IllegalArgumentException("Invalid uncompressed size " + rawSize);
+        }
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(data, 4, data.length - 4);
+            byte[] raw = new byte[rawSize];
+            int size = 0;
+            while (size < rawSize && !inflater.finished()) {
+                int inflated = inflater.inflate(raw, size, rawSize - size);
+                if (0 == inflated && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                size += inflated;
+            }
+            if (size != rawSize) {
+                throw new IllegalArgumentException("Truncated compressed payload");
+            }
+            return raw;
+        } catch (DataFormatException e) {
+            throw new IllegalArgumentException("Invalid compressed payload", e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    private static class ChunkedPayload {
+
+        private final long createTimestamp = System.currentTimeMillis();
+
+        private final byte[][] chunks;
+
+        private int received;
+
+        private ChunkedPayload(int chunkCount) {
+            this.chunks = new byte[chunkCount][];
+        }
+
+        /**
+         * @return the whole payload once all chunks are received, null before.
+         */
+        private byte[] add(int chunkIndex, byte[] chunk) {
+            if (null == chunks[chunkIndex]) {
+                chunks[chunkIndex] = chunk;
+                received++;
+            }
+            if (received < chunks.length) {
+                return null;
+            }
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            for (byte[] c : chunks) {
+                out.write(c, 0, c.length);
+            }
+            return out.toByteArray();
+        }
+    }
+}
@@ -0,0 +1,47 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.apache.rocketmq.connect.runtime.common.cache;
+
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ConcurrentLRUCacheTest {
+
+    @Test
+    public void testHitAndMiss() {
+        ConcurrentLRUCache<String, String> cache = new ConcurrentLRUCache<>(10);
+        cache.put("key", "value");
+        assertThat(cache.get("key")).isEqualTo("value");
+        assertThat(cache.get("other")).isNull();
+        assertThat(cache.getHitCount()).isEqualTo(1);
+        assertThat(cache.getMissCount()).isEqualTo(1);
+        assertThat(cache.remove("key")).isTrue();
+        assertThat(cache.size()).isEqualTo(0);
+    }
+
+    @Test
+    public void testBoundedSize() {
+        ConcurrentLRUCache<Integer, Integer> cache = new ConcurrentLRUCache<>(16);
+        for (int i = 0; i < 100; i++) {
+            cache.put(i, i);
+        }
+        assertThat(cache.size()).isLessThanOrEqualTo(16);
+        assertThat(cache.get(99)).isEqualTo(99);
+    }
+}
@@ -0,0 +1,70 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.apache.rocketmq.connect.runtime.connectorwrapper;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class RecordConvertExecutorTest {
+
+    @Test
+    public void testConvertedInOrder() throws Exception {
+        Set<String> threads = ConcurrentHashMap.newKeySet();
+        try (RecordConvertExecutor executor = new RecordConvertExecutor("testConvertThread", 4)) {
+            List<Integer> converted = executor.convert(1000, i -> {
+                threads.add(Thread.currentThread().getName());
+                return i % 10 == 0 ? null : i * 2;
+            });
+
+            assertThat(converted).hasSize(1000);
+            for (int i = 0; i < 1000; i++) {
+                assertThat(converted.get(i)).isEqualTo(i % 10 == 0 ? null : i * 2);
+            }
+            for (String thread : threads) {
+                assertThat(thread).startsWith("testConvertThread-");
+            }
+        }
+    }
+
+    @Test
+    public void testSmallBatchConvertedOnCallingThread() throws Exception {
+        String caller = Thread.currentThread().getName();
+        try (RecordConvertExecutor executor = new RecordConvertExecutor("testConvertThread", 4)) {
+            List<String> converted = executor.convert(3, i -> Thread.currentThread().getName());
+
+            assertThat(converted).containsOnly(caller);
+        }
+    }
+
+    @Test
+    public void testFailurePropagated() {
+        try (RecordConvertExecutor executor = new RecordConvertExecutor("testConvertThread", 2)) {
+            assertThatThrownBy(() -> executor.convert(100, i -> {
+                if (i == 50) {
+                    throw new IllegalArgumentException("bad record " + i);
+                }
+                return i;
+            })).isInstanceOf(IllegalArgumentException.class).hasMessage("bad record 50");
+        }
+    }
+}
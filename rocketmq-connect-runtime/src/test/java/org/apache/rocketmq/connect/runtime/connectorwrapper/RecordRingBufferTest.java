@@ -0,0 +1,77 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.apache.rocketmq.connect.runtime.connectorwrapper;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class RecordRingBufferTest {
+
+    @Test
+    public void testCapacityRoundedUp() {
+        assertThat(new RecordRingBuffer<Integer>(1000).capacity()).isEqualTo(1024);
+        assertThat(new RecordRingBuffer<Integer>(1).capacity()).isEqualTo(1);
+    }
+
+    @Test
+    public void testOfferTimesOutWhenFull() throws Exception {
+        RecordRingBuffer<Integer> ringBuffer = new RecordRingBuffer<>(2);
+        assertThat(ringBuffer.offer(1, 10, TimeUnit.MILLISECONDS)).isTrue();
+        assertThat(ringBuffer.offer(2, 10, TimeUnit.MILLISECONDS)).isTrue();
+        assertThat(ringBuffer.offer(3, 10, TimeUnit.MILLISECONDS)).isFalse();
+
+        List<Integer> drained = new ArrayList<>();
+        assertThat(ringBuffer.drainTo(drained, 10, 10, TimeUnit.MILLISECONDS)).isEqualTo(2);
+        assertThat(drained).containsExactly(1, 2);
+        assertThat(ringBuffer.drainTo(drained, 10, 10, TimeUnit.MILLISECONDS)).isEqualTo(0);
+        assertThat(ringBuffer.size()).isEqualTo(0);
+    }
+
+    @Test
+    public void testHandOverInOrder() throws Exception {
+        RecordRingBuffer<Integer> ringBuffer = new RecordRingBuffer<>(16);
+        int count = 100000;
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        Thread producer = new Thread(() -> {
+            try {
+                for (int i = 0; i < count; i++) {
+                    while (!ringBuffer.offer(i, 1, TimeUnit.SECONDS)) {
+                    }
+                }
+            } catch (Throwable t) {
+                failure.set(t);
+            }
+        });
+        producer.start();
+
+        List<Integer> drained = new ArrayList<>(count);
+        while (drained.size() < count) {
+            ringBuffer.drainTo(drained, 7, 1, TimeUnit.SECONDS);
+        }
+        producer.join();
+
+        assertThat(failure.get()).isNull();
+        for (int i = 0; i < count; i++) {
+            assertThat(drained.get(i)).isEqualTo(i);
+        }
+    }
+}
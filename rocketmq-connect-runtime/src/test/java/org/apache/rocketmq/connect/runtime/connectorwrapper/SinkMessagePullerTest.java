@@ -0,0 +1,214 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.apache.rocketmq.connect.runtime.connectorwrapper;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.rocketmq.client.consumer.DefaultMQPullConsumer;
+import org.apache.rocketmq.client.consumer.PullCallback;
+import org.apache.rocketmq.client.consumer.PullResult;
+import org.apache.rocketmq.client.consumer.PullStatus;
+import org.apache.rocketmq.common.message.MessageExt;
+import org.apache.rocketmq.common.message.MessageQueue;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@RunWith(MockitoJUnitRunner.class)
+public class SinkMessagePullerTest {
+
+    private static final int PULL_BATCH_SIZE = 32;
+
+    @Mock
+    private DefaultMQPullConsumer consumer;
+
+    private SinkMessagePuller messagePuller;
+
+    private MessageQueue messageQueue;
+
+    @Before
+    public void init() {
+        messageQueue = new MessageQueue("testTopic", "testBroker", 0);
+        messagePuller = new SinkMessagePuller(consumer, PULL_BATCH_SIZE, PULL_BATCH_SIZE * 2);
+    }
+
+    @Test
+    public void testPullUntilPrefetchBufferFull() throws Exception {
+        mockFoundPull();
+        messagePuller.addQueue(messageQueue, 0);
+        messagePuller.pull(messageQueue);
+
+        verify(consumer, times(2)).pullBlockIfNotFound(any(MessageQueue.class), anyString(), anyLong(), anyInt(), any(PullCallback.class));
+        List<SinkMessagePuller.QueuePullResult> results = messagePuller.poll(0);
+        assertThat(results.size()).isEqualTo(2);
+        assertThat(results.get(0).getPullOffset()).isEqualTo(0);
+        assertThat(results.get(1).getPullOffset()).isEqualTo(PULL_BATCH_SIZE);
+
+        messagePuller.pull(messageQueue);
+        verify(consumer).pullBlockIfNotFound(eq(messageQueue), anyString(), eq(2L * PULL_BATCH_SIZE), anyInt(), any(PullCallback.class));
+    }
+
+    @Test
+    public void testResetOffsetDiscardsPulledMessages() throws Exception {
+        mockFoundPull();
+        messagePuller.addQueue(messageQueue, 0);
+        messagePuller.pull(messageQueue);
+        messagePuller.resetOffset(messageQueue, 1000);
+
+        assertThat(messagePuller.poll(0)).isEmpty();
+
+        messagePuller.pull(messageQueue);
+        verify(consumer).pullBlockIfNotFound(eq(messageQueue), anyString(), eq(1000L), anyInt(), any(PullCallback.class));
+    }
+
+    @Test
+    public void testRemoveQueue() throws Exception {
+        mockFoundPull();
+        messagePuller.addQueue(messageQueue, 0);
+        messagePuller.pull(messageQueue);
+        messagePuller.removeQueue(messageQueue);
+
+        assertThat(messagePuller.poll(0)).isEmpty();
+    }
+
+    @Test
+    public void testPausedQueueIsNotPulledAndResultsAreHeld() throws Exception {
+        mockFoundPull();
+        messagePuller.addQueue(messageQueue, 0);
+        messagePuller.pause(messageQueue);
+        messagePuller.pull(messageQueue);
+        verify(consumer, times(0)).pullBlockIfNotFound(any(MessageQueue.class), anyString(), anyLong(), anyInt(), any(PullCallback.class));
+
+        messagePuller.resume(messageQueue);
+        messagePuller.pull(messageQueue);
+        verify(consumer, times(2)).pullBlockIfNotFound(any(MessageQueue.class), anyString(), anyLong(), anyInt(), any(PullCallback.class));
+
+        messagePuller.pause(messageQueue);
+        assertThat(messagePuller.poll(0)).isEmpty();
+
+        messagePuller.resume(messageQueue);
+        List<SinkMessagePuller.QueuePullResult> results = messagePuller.poll(0);
+        assertThat(results.size()).isEqualTo(2);
+        assertThat(results.get(0).getPullOffset()).isEqualTo(0);
+        assertThat(results.get(1).getPullOffset()).isEqualTo(PULL_BATCH_SIZE);
+    }
+
+    @Test
+    public void testHoldStopsPrefetchUntilResumed() throws Exception {
+        messagePuller = new SinkMessagePuller(consumer, PULL_BATCH_SIZE, PULL_BATCH_SIZE * 8);
+        messagePuller.addQueue(messageQueue, 0);
+        doAnswer(invocation -> {
+            long offset = invocation.getArgument(2);
+            PullCallback pullCallback = invocation.getArgument(4);
+            List<MessageExt> messages = new ArrayList<>();
+            messages.add(new MessageExt());
+            // the task pauses the queue while the first pull is in flight
+            messagePuller.pause(messageQueue);
+            pullCallback.onSuccess(new PullResult(PullStatus.FOUND, offset + 1, 0, Long.MAX_VALUE, messages));
+            return null;
+        }).when(consumer).pullBlockIfNotFound(any(MessageQueue.class), anyString(), anyLong(), anyInt(), any(PullCallback.class));
+        messagePuller.pull(messageQueue);
+
+        verify(consumer, times(1)).pullBlockIfNotFound(any(MessageQueue.class), anyString(), anyLong(), anyInt(), any(PullCallback.class));
+        assertThat(messagePuller.poll(0)).isEmpty();
+
+        messagePuller.resume(messageQueue);
+        List<SinkMessagePuller.QueuePullResult> results = messagePuller.poll(0);
+        assertThat(results.size()).isEqualTo(1);
+
+        messagePuller.hold(results.get(0));
+        assertThat(messagePuller.poll(0)).isEmpty();
+        messagePuller.resume(messageQueue);
+        assertThat(messagePuller.poll(0)).containsExactly(results.get(0));
+    }
+
+    @Test
+    public void testLongPollingPullsAgainAfterSuspendedEmptyPull() throws Exception {
+        final AtomicInteger pullTimes = new AtomicInteger();
+        doAnswer(invocation -> {
+            long offset = invocation.getArgument(2);
+            PullCallback pullCallback = invocation.getArgument(4);
+            if (pullTimes.incrementAndGet() == 1) {
+                Thread.sleep(200);
+                pullCallback.onSuccess(new PullResult(PullStatus.NO_NEW_MSG, offset, 0, offset, null));
+            }
+            return null;
+        }).when(consumer).pullBlockIfNotFound(any(MessageQueue.class), anyString(), anyLong(), anyInt(), any(PullCallback.class));
+
+        messagePuller.addQueue(messageQueue, 0);
+        assertThat(messagePuller.pull(messageQueue)).isEqualTo(0);
+
+        verify(consumer, times(2)).pullBlockIfNotFound(eq(messageQueue), anyString(), eq(0L), anyInt(), any(PullCallback.class));
+        assertThat(messagePuller.poll(0)).isEmpty();
+    }
+
+    @Test
+    public void testBackoffAfterPullException() throws Exception {
+        MessageQueue otherMessageQueue = new MessageQueue("testTopic", "testBroker", 1);
+        doAnswer(invocation -> {
+            MessageQueue mq = invocation.getArgument(0);
+            PullCallback pullCallback = invocation.getArgument(4);
+            if (mq.equals(messageQueue)) {
+                pullCallback.onException(new RuntimeException("pull failed"));
+            }
+            return null;
+        }).when(consumer).pullBlockIfNotFound(any(MessageQueue.class), anyString(), anyLong(), anyInt(), any(PullCallback.class));
+
+        messagePuller.addQueue(messageQueue, 0);
+        messagePuller.addQueue(otherMessageQueue, 0);
+        assertThat(messagePuller.pull(messageQueue)).isEqualTo(0);
+        assertThat(messagePuller.pull(otherMessageQueue)).isEqualTo(0);
+
+        List<SinkMessagePuller.QueuePullResult> results = messagePuller.poll(0);
+        assertThat(results.size()).isEqualTo(1);
+        assertThat(results.get(0).getThrowable()).isNotNull();
+
+        assertThat(messagePuller.pull(messageQueue)).isGreaterThan(0);
+        verify(consumer, times(1)).pullBlockIfNotFound(eq(messageQueue), anyString(), anyLong(), anyInt(), any(PullCallback.class));
+
+        messagePuller.resetOffset(messageQueue, 0);
+        assertThat(messagePuller.pull(messageQueue)).isEqualTo(0);
+        verify(consumer, times(2)).pullBlockIfNotFound(eq(messageQueue), anyString(), anyLong(), anyInt(), any(PullCallback.class));
+    }
+
+    private void mockFoundPull() throws Exception {
+        doAnswer(invocation -> {
+            long offset = invocation.getArgument(2);
+            PullCallback pullCallback = invocation.getArgument(4);
+            List<MessageExt> messages = new ArrayList<>();
+            for (int i = 0; i < PULL_BATCH_SIZE; i++) {
+                messages.add(new MessageExt());
+            }
+            pullCallback.onSuccess(new PullResult(PullStatus.FOUND, offset + PULL_BATCH_SIZE, 0, Long.MAX_VALUE, messages));
+            return null;
+        }).when(consumer).pullBlockIfNotFound(any(MessageQueue.class), anyString(), anyLong(), anyInt(), any(PullCallback.class));
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.apache.rocketmq.connect.runtime.connectorwrapper;
+
+import io.openmessaging.connector.api.data.ConnectRecord;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import org.apache.rocketmq.common.message.MessageQueue;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class SinkRecordAccumulatorTest {
+
+    private final MessageQueue messageQueue = new MessageQueue("testTopic", "testBroker", 0);
+
+    @Test
+    public void testReadyWhenBatchSizeReached() {
+        SinkRecordAccumulator accumulator = new SinkRecordAccumulator(1, 10, 60 * 1000, false, 1000);
+        assertThat(accumulator.isReady()).isFalse();
+
+        accumulator.append(messageQueue, records(5), 5);
+        assertThat(accumulator.isReady()).isFalse();
+
+        accumulator.append(messageQueue, records(5), 10);
+        assertThat(accumulator.isReady()).isTrue();
+        assertThat(accumulator.getRecords().size()).isEqualTo(10);
+        assertThat(accumulator.getNextOffsets().get(messageQueue)).isEqualTo(10L);
+
+        accumulator.clear();
+        assertThat(accumulator.isEmpty()).isTrue();
+    }
+
+    @Test
+    public void testReadyWithoutLinger() {
+        SinkRecordAccumulator accumulator = new SinkRecordAccumulator(1, 10, 0, false, 1000);
+        accumulator.append(messageQueue, Collections.<ConnectRecord>emptyList(), 3);
+        assertThat(accumulator.isReady()).isTrue();
+    }
+
+    @Test
+    public void testRemoveRevokedQueue() {
+        SinkRecordAccumulator accumulator = new SinkRecordAccumulator(1, 10, 60 * 1000, false, 1000);
+        MessageQueue revokedQueue = new MessageQueue("testTopic", "testBroker", 1);
+        accumulator.append(messageQueue, records(5), 5);
+        accumulator.append(revokedQueue, records(5), 5);
+        assertThat(accumulator.isReady()).isTrue();
+
+        accumulator.remove(revokedQueue);
+        assertThat(accumulator.isReady()).isFalse();
+        assertThat(accumulator.getRecords().size()).isEqualTo(5);
+        assertThat(accumulator.getNextOffsets()).containsOnlyKeys(messageQueue);
+    }
+
+    @Test
+    public void testAdaptiveBatchSize() {
+        SinkRecordAccumulator accumulator = new SinkRecordAccumulator(100, 1000, 0, true, 1000);
+        assertThat(accumulator.getBatchSize()).isEqualTo(100);
+
+        accumulator.onPutCompleted(100, 10);
+        assertThat(accumulator.getBatchSize()).isEqualTo(125);
+
+        accumulator.onPutCompleted(50, 10);
+        assertThat(accumulator.getBatchSize()).isEqualTo(125);
+
+        accumulator.onPutCompleted(125, 2000);
+        assertThat(accumulator.getBatchSize()).isEqualTo(100);
+    }
+
+    private List<ConnectRecord> records(int num) {
+        List<ConnectRecord> records = new ArrayList<>();
+        for (int i = 0; i < num; i++) {
+            records.add(new ConnectRecord(null, null, System.currentTimeMillis()));
+        }
+        return records;
+    }
+}
@@ -0,0 +1,72 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.apache.rocketmq.connect.runtime.connectorwrapper;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class SourceInFlightWindowTest {
+
+    @Test
+    public void testAcquireBlocksUntilRelease() throws Exception {
+        SourceInFlightWindow inFlightWindow = new SourceInFlightWindow(10, 1024);
+        inFlightWindow.acquire(8, 100);
+        assertThat(inFlightWindow.isFull()).isFalse();
+
+        CountDownLatch acquired = new CountDownLatch(1);
+        Thread sender = new Thread(() -> {
+            try {
+                inFlightWindow.acquire(5, 100);
+                acquired.countDown();
+            } catch (InterruptedException ignored) {
+            }
+        });
+        sender.start();
+        assertThat(acquired.await(200, TimeUnit.MILLISECONDS)).isFalse();
+
+        inFlightWindow.release(8, 100);
+        assertThat(acquired.await(3, TimeUnit.SECONDS)).isTrue();
+        assertThat(inFlightWindow.getInFlightRecords()).isEqualTo(5);
+        assertThat(inFlightWindow.getInFlightBytes()).isEqualTo(100);
+    }
+
+    @Test
+    public void testAdmitLargeBatchWhenEmpty() throws Exception {
+        SourceInFlightWindow inFlightWindow = new SourceInFlightWindow(10, 1024);
+        assertThat(inFlightWindow.acquire(1, 4096)).isGreaterThanOrEqualTo(0);
+        assertThat(inFlightWindow.isFull()).isTrue();
+
+        inFlightWindow.release(1, 4096);
+        assertThat(inFlightWindow.isFull()).isFalse();
+    }
+
+    @Test
+    public void testAwaitEmpty() throws Exception {
+        SourceInFlightWindow inFlightWindow = new SourceInFlightWindow(10, 1024);
+        assertThat(inFlightWindow.awaitEmpty(0, TimeUnit.MILLISECONDS)).isTrue();
+
+        inFlightWindow.acquire(2, 100);
+        assertThat(inFlightWindow.awaitEmpty(100, TimeUnit.MILLISECONDS)).isFalse();
+
+        new Thread(() -> inFlightWindow.release(2, 100)).start();
+        assertThat(inFlightWindow.awaitEmpty(3, TimeUnit.SECONDS)).isTrue();
+    }
+}
@@ -0,0 +1,132 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.apache.rocketmq.connect.runtime.connectorwrapper;
+
+import io.openmessaging.connector.api.data.ConnectRecord;
+import io.openmessaging.connector.api.data.RecordOffset;
+import io.openmessaging.connector.api.data.RecordPartition;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.apache.rocketmq.common.message.Message;
+import org.apache.rocketmq.common.message.MessageBatch;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class SourceMessageAccumulatorTest {
+
+    @Test
+    public void testBatchFullByMessages() {
+        SourceMessageAccumulator accumulator = new SourceMessageAccumulator(2, 1024 * 1024, 60 * 1000);
+        accumulator.append(message("topicA", 10), record("p1", 1));
+        assertThat(accumulator.drainFull()).isEmpty();
+
+        accumulator.append(message("topicB", 10), record("p2", 1));
+        accumulator.append(message("topicA", 10), record("p1", 2));
+        List<SourceMessageAccumulator.SourceMessageBatch> batches = accumulator.drainFull();
+        assertThat(batches.size()).isEqualTo(1);
+        assertThat(batches.get(0).getTopic()).isEqualTo("topicA");
+        assertThat(batches.get(0).getMessages().size()).isEqualTo(2);
+
+        assertThat(accumulator.drainReady(false)).isEmpty();
+        batches = accumulator.drainReady(true);
+        assertThat(batches.size()).isEqualTo(1);
+        assertThat(batches.get(0).getTopic()).isEqualTo("topicB");
+    }
+
+    @Test
+    public void testBatchFullByBytes() {
+        // every message takes its body, the overhead and the unique id the producer sets, 164 bytes
+        SourceMessageAccumulator accumulator = new SourceMessageAccumulator(100, 400, 60 * 1000);
+        accumulator.append(message("topicA", 100), record("p1", 1));
+        accumulator.append(message("topicA", 100), record("p1", 2));
+        assertThat(accumulator.drainFull()).isEmpty();
+
+        accumulator.append(message("topicA", 100), record("p1", 3));
+        List<SourceMessageAccumulator.SourceMessageBatch> batches = accumulator.drainFull();
+        assertThat(batches.size()).isEqualTo(1);
+        assertThat(batches.get(0).getMessages().size()).isEqualTo(2);
+        assertThat(accumulator.drainReady(true).get(0).getSequence()).isGreaterThan(batches.get(0).getSequence());
+    }
+
+    @Test
+    public void testRemainingLingerMs() {
+        SourceMessageAccumulator accumulator = new SourceMessageAccumulator(100, 1024 * 1024, 60 * 1000);
+        assertThat(accumulator.remainingLingerMs()).isEqualTo(60 * 1000L);
+
+        accumulator.append(message("topicA", 10), record("p1", 1));
+        assertThat(accumulator.remainingLingerMs()).isBetween(1L, 60 * 1000L);
+        assertThat(new SourceMessageAccumulator(100, 1024 * 1024, 0).remainingLingerMs()).isEqualTo(0L);
+    }
+
+    @Test
+    public void testLastRecordOfPartition() {
+        SourceMessageAccumulator accumulator = new SourceMessageAccumulator(100, 1024 * 1024, 0);
+        accumulator.append(message("topicA", 10), record("p1", 1));
+        accumulator.append(message("topicA", 10), record("p2", 1));
+        accumulator.append(message("topicA", 10), record("p1", 2));
+
+        List<SourceMessageAccumulator.SourceMessageBatch> batches = accumulator.drainReady(false);
+        assertThat(batches.size()).isEqualTo(1);
+        Map<Map<String, ?>, ConnectRecord> lastRecords = batches.get(0).getLastRecords();
+        assertThat(lastRecords.size()).isEqualTo(2);
+        assertThat(lastRecords.get(partition("p1")).getPosition().getOffset().getOffset().get("offset")).isEqualTo(2L);
+    }
+
+    @Test
+    public void testUnbatchableMessageSentAlone() {
+        SourceMessageAccumulator accumulator = new SourceMessageAccumulator(100, 1024 * 1024, 60 * 1000);
+        accumulator.append(message("topicA", 10), record("p1", 1));
+        accumulator.append(message("topicA", 10), record("p1", 2));
+        Message delayed = message("topicA", 10);
+        delayed.setDelayTimeLevel(3);
+        accumulator.append(delayed, record("p1", 3));
+        accumulator.append(message("%RETRY%group", 10), record("p2", 1));
+        accumulator.append(message("topicA", 10), record("p1", 4));
+
+        List<SourceMessageAccumulator.SourceMessageBatch> batches = accumulator.drainReady(true);
+        assertThat(batches.size()).isEqualTo(4);
+        assertThat(batches.get(0).getMessages().size()).isEqualTo(2);
+        assertThat(batches.get(1).getMessages()).containsExactly(delayed);
+        assertThat(batches.get(2).getTopic()).isEqualTo("%RETRY%group");
+        assertThat(batches.get(2).getMessages().size()).isEqualTo(1);
+        assertThat(batches.get(3).getMessages().size()).isEqualTo(1);
+        assertThat(MessageBatch.generateFromList(batches.get(0).getMessages())).isNotNull();
+        for (int i = 1; i < batches.size(); i++) {
+            assertThat(batches.get(i).getSequence()).isGreaterThan(batches.get(i - 1).getSequence());
+        }
+        assertThat(batches.get(1).getLastRecords().values().iterator().next().getPosition().getOffset().getOffset().get("offset")).isEqualTo(3L);
+    }
+
+    private Message message(String topic, int bodySize) {
+        return new Message(topic, new byte[bodySize]);
+    }
+
+    private ConnectRecord record(String partition, long offset) {
+        Map<String, Long> offsetMap = new HashMap<>();
+        offsetMap.put("offset", offset);
+        return new ConnectRecord(new RecordPartition(partition(partition)), new RecordOffset(offsetMap), System.currentTimeMillis());
+    }
+
+    private Map<String, String> partition(String partition) {
+        Map<String, String> partitionMap = new HashMap<>();
+        partitionMap.put("partition", partition);
+        return partitionMap;
+    }
+}
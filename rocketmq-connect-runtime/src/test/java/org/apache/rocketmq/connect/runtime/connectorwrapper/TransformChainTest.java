@@ -0,0 +1,246 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.apache.rocketmq.connect.runtime.connectorwrapper;
+
+import io.openmessaging.KeyValue;
+import io.openmessaging.connector.api.component.Transform;
+import io.openmessaging.connector.api.data.ConnectRecord;
+import io.openmessaging.connector.api.errors.ConnectException;
+import io.openmessaging.internal.DefaultKeyValue;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import org.apache.rocketmq.connect.runtime.config.RuntimeConfigDefine;
+import org.apache.rocketmq.connect.runtime.errors.RetryWithToleranceOperator;
+import org.apache.rocketmq.connect.runtime.errors.ToleranceType;
+import org.apache.rocketmq.connect.runtime.utils.Plugin;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class TransformChainTest {
+
+    @Test
+    public void testRecordAndBatchTransforms() throws Exception {
+        TransformChain<ConnectRecord> transformChain = transformChain(AppendTransform.class, DropTransform.class, AppendTransform.class);
+        List<ConnectRecord> transformed = transformChain.doTransforms(records("a", "drop", "b"));
+        assertThat(data(transformed)).containsExactly("a-append-append", "b-append-append");
+        transformChain.close();
+    }
+
+    @Test
+    public void testNoTransforms() {
+        TransformChain<ConnectRecord> transformChain = new TransformChain<>(new DefaultKeyValue(), new Plugin(new ArrayList<>()));
+        List<ConnectRecord> records = records("a", "b");
+        assertThat(transformChain.doTransforms(records)).isSameAs(records);
+    }
+
+    @Test
+    public void testFailedRecordToleratedWithAll() {
+        TransformChain<ConnectRecord> transformChain = transformChain(FailTransform.class, AppendTransform.class);
+        transformChain.retryWithToleranceOperator(new RetryWithToleranceOperator(0, 0, ToleranceType.ALL));
+        List<ConnectRecord> transformed = transformChain.doTransforms(records("a", "fail", "b", "fail", "c"));
+        assertThat(data(transformed)).containsExactly("a-append", "b-append", "c-append");
+    }
+
+    @Test
+    public void testFailedRecordTransformedOnce() {
+        TransformChain<ConnectRecord> transformChain = transformChain(CountingFailTransform.class);
+        transformChain.retryWithToleranceOperator(new RetryWithToleranceOperator(0, 0, ToleranceType.ALL));
+        CountingFailTransform.CALLS.set(0);
+        assertThat(transformChain.doTransforms(records("a", "fail"))).hasSize(1);
+        assertThat(CountingFailTransform.CALLS.get()).isEqualTo(2);
+    }
+
+    @Test
+    public void testFailedRecordNotToleratedWithNone() {
+        TransformChain<ConnectRecord> transformChain = transformChain(FailTransform.class);
+        transformChain.retryWithToleranceOperator(new RetryWithToleranceOperator(0, 0, ToleranceType.NONE));
+        assertThatThrownBy(() -> transformChain.doTransforms(records("a", "fail")))
+            .isInstanceOf(ConnectException.class);
+    }
+
+    @Test
+    public void testFailedBatchHandedToOperator() {
+        TransformChain<ConnectRecord> transformChain = transformChain(FailBatchTransform.class, AppendTransform.class);
+        transformChain.retryWithToleranceOperator(new RetryWithToleranceOperator(0, 0, ToleranceType.ALL));
+        FailBatchTransform.CALLS.set(0);
+        assertThat(transformChain.doTransforms(records("a", "fail", "b"))).isEmpty();
+        assertThat(FailBatchTransform.CALLS.get()).isEqualTo(1);
+        assertThat(data(transformChain.doTransforms(records("a", "b")))).containsExactly("a-append", "b-append");
+    }
+
+    @Test
+    public void testFailedBatchNotToleratedWithNone() {
+        TransformChain<ConnectRecord> transformChain = transformChain(FailBatchTransform.class);
+        transformChain.retryWithToleranceOperator(new RetryWithToleranceOperator(0, 0, ToleranceType.NONE));
+        assertThatThrownBy(() -> transformChain.doTransforms(records("a", "fail")))
+            .isInstanceOf(ConnectException.class)
+            .hasCauseInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    public void testBatchTransformIntoSeveralRecords() {
+        TransformChain<ConnectRecord> transformChain = transformChain(SplitTransform.class, AppendTransform.class);
+        List<ConnectRecord> transformed = transformChain.doTransforms(records("a,b", "c"));
+        assertThat(data(transformed)).containsExactly("a-append", "b-append", "c-append");
+    }
+
+    private static TransformChain<ConnectRecord> transformChain(Class<?>... transformClasses) {
+        KeyValue config = new DefaultKeyValue();
+        List<String> names = new ArrayList<>();
+        for (int i = 0; i < transformClasses.length; i++) {
+            String name = "transform" + i;
+            names.add(name);
+            config.put(RuntimeConfigDefine.TRANSFORMS + "-" + name + "-class", transformClasses[i].getName());
+        }
+        config.put(RuntimeConfigDefine.TRANSFORMS, String.join(",", names));
+        return new TransformChain<>(config, new Plugin(new ArrayList<>()));
+    }
+
+    private static List<ConnectRecord> records(String... data) {
+        List<ConnectRecord> records = new ArrayList<>(data.length);
+        for (String value : data) {
+            ConnectRecord record = new ConnectRecord(null, null, System.currentTimeMillis());
+            record.setData(value);
+            records.add(record);
+        }
+        return records;
+    }
+
+    private static List<Object> data(List<ConnectRecord> records) {
+        return records.stream().map(ConnectRecord::getData).collect(Collectors.toList());
+    }
+
+    public static class AppendTransform implements Transform<ConnectRecord> {
+
+        @Override
+        public ConnectRecord doTransform(ConnectRecord record) {
+            record.setData(record.getData() + "-append");
+            return record;
+        }
+
+        @Override
+        public void start(KeyValue config) {
+        }
+
+        @Override
+        public void stop() {
+        }
+    }
+
+    public static class DropTransform implements Transform<ConnectRecord>, BatchTransform<ConnectRecord> {
+
+        @Override
+        public List<ConnectRecord> doTransforms(List<ConnectRecord> records) {
+            return records.stream()
+                .filter(record -> !String.valueOf(record.getData()).startsWith("drop"))
+                .collect(Collectors.toList());
+        }
+
+        @Override
+        public ConnectRecord doTransform(ConnectRecord record) {
+            List<ConnectRecord> transformed = doTransforms(Arrays.asList(record));
+            return transformed.isEmpty() ? null : transformed.get(0);
+        }
+
+        @Override
+        public void start(KeyValue config) {
+        }
+
+        @Override
+        public void stop() {
+        }
+    }
+
+    public static class FailTransform implements Transform<ConnectRecord> {
+
+        @Override
+        public ConnectRecord doTransform(ConnectRecord record) {
+            if ("fail".equals(record.getData())) {
+                throw new IllegalArgumentException("failed to transform");
+            }
+            return record;
+        }
+
+        @Override
+        public void start(KeyValue config) {
+        }
+
+        @Override
+        public void stop() {
+        }
+    }
+
+    public static class CountingFailTransform extends FailTransform {
+
+        private static final AtomicInteger CALLS = new AtomicInteger();
+
+        @Override
+        public ConnectRecord doTransform(ConnectRecord record) {
+            CALLS.incrementAndGet();
+            return super.doTransform(record);
+        }
+    }
+
+    public static class FailBatchTransform extends FailTransform implements BatchTransform<ConnectRecord> {
+
+        private static final AtomicInteger CALLS = new AtomicInteger();
+
+        @Override
+        public List<ConnectRecord> doTransforms(List<ConnectRecord> records) {
+            CALLS.incrementAndGet();
+            for (ConnectRecord record : records) {
+                doTransform(record);
+            }
+            return records;
+        }
+    }
+
+    public static class SplitTransform implements Transform<ConnectRecord>, BatchTransform<ConnectRecord> {
+
+        @Override
+        public List<ConnectRecord> doTransforms(List<ConnectRecord> records) {
+            List<ConnectRecord> transformed = new ArrayList<>();
+            for (ConnectRecord record : records) {
+                for (String data : String.valueOf(record.getData()).split(",")) {
+                    ConnectRecord split = new ConnectRecord(record.getPosition().getPartition(), record.getPosition().getOffset(), record.getTimestamp());
+                    split.setData(data);
+                    transformed.add(split);
+                }
+            }
+            return transformed;
+        }
+
+        @Override
+        public ConnectRecord doTransform(ConnectRecord record) {
+            throw new UnsupportedOperationException("split transforms a batch only");
+        }
+
+        @Override
+        public void start(KeyValue config) {
+        }
+
+        @Override
+        public void stop() {
+        }
+    }
+}
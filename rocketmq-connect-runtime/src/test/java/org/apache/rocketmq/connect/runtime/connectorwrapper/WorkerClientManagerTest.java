@@ -0,0 +1,91 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.apache.rocketmq.connect.runtime.connectorwrapper;
+
+import org.apache.rocketmq.client.consumer.DefaultMQPullConsumer;
+import org.apache.rocketmq.client.producer.DefaultMQProducer;
+import org.apache.rocketmq.connect.runtime.common.ConnectKeyValue;
+import org.apache.rocketmq.connect.runtime.config.ConnectConfig;
+import org.apache.rocketmq.connect.runtime.utils.ConnectUtil;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class WorkerClientManagerTest {
+
+    private ConnectConfig connectConfig;
+
+    private WorkerClientManager clientManager;
+
+    @Before
+    public void init() {
+        connectConfig = new ConnectConfig();
+        connectConfig.setWorkerId("testWorker");
+        connectConfig.setNamesrvAddr("127.0.0.1:9876");
+        connectConfig.setSharedClientEnable(true);
+        clientManager = new WorkerClientManager(connectConfig);
+    }
+
+    @Test
+    public void testSharedProducerReleasedByLastTask() {
+        DefaultMQProducer producer1 = clientManager.createProducer();
+        DefaultMQProducer producer2 = clientManager.createProducer();
+        assertThat(producer2).isSameAs(producer1);
+
+        producer1.shutdown();
+        assertThat(clientManager.createProducer()).isSameAs(producer1);
+        producer1.shutdown();
+        producer2.shutdown();
+        assertThat(clientManager.createProducer()).isNotSameAs(producer1);
+    }
+
+    @Test
+    public void testSharedProducerConfiguredLikeUnsharedOne() {
+        connectConfig.setOperationTimeout(1234);
+        DefaultMQProducer sharedProducer = clientManager.createProducer();
+        DefaultMQProducer producer = ConnectUtil.initDefaultMQProducer(connectConfig);
+        assertThat(sharedProducer.getInstanceName()).isEqualTo("testWorker-shared-0");
+        assertThat(sharedProducer.getProducerGroup()).isEqualTo(producer.getProducerGroup());
+        assertThat(sharedProducer.getNamesrvAddr()).isEqualTo(producer.getNamesrvAddr());
+        assertThat(sharedProducer.getSendMsgTimeout()).isEqualTo(1234);
+        assertThat(sharedProducer.getMaxMessageSize()).isEqualTo(producer.getMaxMessageSize());
+    }
+
+    @Test
+    public void testConsumersOfOneGroupOnSeparateInstances() {
+        DefaultMQPullConsumer consumerA1 = clientManager.createConsumer("connectorA", new ConnectKeyValue(), 1);
+        DefaultMQPullConsumer consumerA2 = clientManager.createConsumer("connectorA", new ConnectKeyValue(), 2);
+        DefaultMQPullConsumer consumerB1 = clientManager.createConsumer("connectorB", new ConnectKeyValue(), 3);
+        assertThat(consumerA2.getInstanceName()).isNotEqualTo(consumerA1.getInstanceName());
+        assertThat(consumerB1.getInstanceName()).isEqualTo(consumerA1.getInstanceName());
+
+        clientManager.releaseConsumer(consumerA1);
+        DefaultMQPullConsumer consumerA3 = clientManager.createConsumer("connectorA", new ConnectKeyValue(), 4);
+        assertThat(consumerA3.getInstanceName()).isEqualTo(consumerA1.getInstanceName());
+    }
+
+    @Test
+    public void testUnsharedClients() {
+        connectConfig.setSharedClientEnable(false);
+        assertThat(clientManager.createProducer()).isNotSameAs(clientManager.createProducer());
+        DefaultMQPullConsumer consumer1 = clientManager.createConsumer("connectorA", new ConnectKeyValue(), 1);
+        DefaultMQPullConsumer consumer2 = clientManager.createConsumer("connectorB", new ConnectKeyValue(), 2);
+        assertThat(consumer2.getInstanceName()).isNotEqualTo(consumer1.getInstanceName());
+    }
+}
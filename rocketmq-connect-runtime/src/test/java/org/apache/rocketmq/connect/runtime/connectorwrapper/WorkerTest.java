@@ -21,6 +21,8 @@ import io.openmessaging.connector.api.component.connector.ConnectorContext;
 import io.openmessaging.connector.api.data.ConnectRecord;
 import io.openmessaging.internal.DefaultKeyValue;
 import java.io.File;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -28,6 +30,10 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
 import org.apache.rocketmq.client.producer.DefaultMQProducer;
 import org.apache.rocketmq.connect.runtime.controller.distributed.DistributedConnectController;
@@ -193,5 +199,80 @@ public class WorkerTest {
             assertThat(connectorName).isIn("TEST-CONN-0", "TEST-CONN-1", "TEST-CONN-2", "TEST-CONN-3");
         }
     }
-}
 
+    @Test
+    public void testWakeupOnStartTasks() throws Exception {
+        AtomicInteger wakeups = new AtomicInteger();
+        replaceStateMachineService(wakeups::incrementAndGet);
+
+        worker.startTasks(new HashMap<>());
+
+        assertThat(wakeups.get()).isEqualTo(1);
+    }
+
+    @Test
+    public void testWakeupOnceTaskFutureIsDone() throws Exception {
+        Map<Runnable, Future> taskToFutureMap = getField("taskToFutureMap");
+        Runnable task = () -> { };
+        List<Boolean> futureDoneOnWakeup = new CopyOnWriteArrayList<>();
+        replaceStateMachineService(() -> futureDoneOnWakeup.add(taskToFutureMap.get(task).isDone()));
+
+        Method submitTask = Worker.class.getDeclaredMethod("submitTask", Runnable.class);
+        submitTask.setAccessible(true);
+        submitTask.invoke(worker, task);
+
+        taskToFutureMap.get(task).get(5, TimeUnit.SECONDS);
+        long deadline = System.currentTimeMillis() + 5000;
+        while (futureDoneOnWakeup.isEmpty() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(futureDoneOnWakeup).containsExactly(true);
+        assertThat(this.<Map<Runnable, Long>>getField("pendingTasks")).containsKey(task);
+    }
+
+    @Test
+    public void testNextMaintainInterval() throws Exception {
+        replaceStateMachineService(() -> { });
+        Method nextMaintainInterval = Worker.class.getDeclaredMethod("nextMaintainInterval");
+        nextMaintainInterval.setAccessible(true);
+        Map<Runnable, Long> pendingTasks = getField("pendingTasks");
+        Map<Runnable, Long> stoppingTasks = getField("stoppingTasks");
+
+        assertThat((long) nextMaintainInterval.invoke(worker)).isEqualTo(10 * 1000L);
+
+        Runnable stoppingTask = () -> { };
+        stoppingTasks.put(stoppingTask, System.currentTimeMillis() - 20000 + 2000);
+        assertThat((long) nextMaintainInterval.invoke(worker)).isBetween(100L, 2000L);
+
+        stoppingTasks.put(stoppingTask, System.currentTimeMillis() - 30000);
+        assertThat((long) nextMaintainInterval.invoke(worker)).isEqualTo(100L);
+
+        stoppingTasks.clear();
+        pendingTasks.put(() -> { }, System.currentTimeMillis());
+        assertThat((long) nextMaintainInterval.invoke(worker)).isEqualTo(100L);
+        pendingTasks.clear();
+    }
+
+    /**
+     * Stop the state machine of the worker and put one in its place that is not running and calls the given callback
+     * when woken up.
+     */
+    private void replaceStateMachineService(Runnable onWakeup) throws Exception {
+        Field field = Worker.class.getDeclaredField("stateMachineService");
+        field.setAccessible(true);
+        ((Worker.StateMachineService) field.get(worker)).shutdown();
+        field.set(worker, worker.new StateMachineService() {
+            @Override
+            public void wakeup() {
+                onWakeup.run();
+            }
+        });
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> T getField(String name) throws Exception {
+        Field field = Worker.class.getDeclaredField(name);
+        field.setAccessible(true);
+        return (T) field.get(worker);
+    }
+}
@@ -0,0 +1,78 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.apache.rocketmq.connect.runtime.converter;
+
+import com.alibaba.fastjson.JSON;
+import io.openmessaging.connector.api.data.RecordOffset;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import org.apache.rocketmq.connect.runtime.store.ExtendRecordPartition;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class RecordPositionMapConverterTest {
+
+    private final RecordPositionMapConverter converter = new RecordPositionMapConverter();
+
+    @Test
+    public void testRecordPositionMapConverter() {
+        Map<ExtendRecordPartition, RecordOffset> positions = newPositions();
+        Map<ExtendRecordPartition, RecordOffset> result = converter.byteToObject(converter.objectToByte(positions));
+        assertThat(result).containsOnlyKeys(partition());
+        assertThat(result.get(partition()).getOffset().get("next_position")).isEqualTo("100");
+        assertThat(JSON.isValid(new String(converter.objectToByte(positions), StandardCharsets.UTF_8))).isTrue();
+    }
+
+    @Test
+    public void testBinaryFormat() {
+        RecordPositionMapConverter binaryConverter = new RecordPositionMapConverter(true);
+        byte[] bytes = binaryConverter.objectToByte(newPositions());
+        assertThat(JSON.isValid(new String(bytes, StandardCharsets.UTF_8))).isFalse();
+
+        Map<ExtendRecordPartition, RecordOffset> result = converter.byteToObject(bytes);
+        assertThat(result).containsOnlyKeys(partition());
+        assertThat(result.get(partition()).getOffset().get("next_position")).isEqualTo("100");
+    }
+
+    @Test
+    public void testLegacyFormat() {
+        Map<String, String> legacy = new HashMap<>();
+        for (Map.Entry<ExtendRecordPartition, RecordOffset> entry : newPositions().entrySet()) {
+            legacy.put(JSON.toJSONString(entry.getKey()), JSON.toJSONString(entry.getValue()));
+        }
+        Map<ExtendRecordPartition, RecordOffset> result = converter.byteToObject(JSON.toJSONString(legacy).getBytes(StandardCharsets.UTF_8));
+        assertThat(result).containsOnlyKeys(partition());
+        assertThat(result.get(partition()).getOffset().get("next_position")).isEqualTo("100");
+    }
+
+    private static ExtendRecordPartition partition() {
+        Map<String, String> partition = new HashMap<>();
+        partition.put("ip_port", "127.0.0.1:3306");
+        return new ExtendRecordPartition("namespace", partition);
+    }
+
+    private static Map<ExtendRecordPartition, RecordOffset> newPositions() {
+        Map<String, String> offset = new HashMap<>();
+        offset.put("next_position", "100");
+        Map<ExtendRecordPartition, RecordOffset> positions = new HashMap<>();
+        positions.put(partition(), new RecordOffset(offset));
+        return positions;
+    }
+}
@@ -849,6 +849,34 @@ public class JsonConverterTest {
         }
     }
 
+    @Test
+    public void testSchemaCachedByFingerprint() {
+        SchemaAndValue first = converter.toConnectData(TOPIC, "{ \"schema\": { \"type\": \"int32\", \"optional\": false }, \"payload\": 1 }".getBytes());
+        long misses = converter.getSchemaCacheMissCount();
+        SchemaAndValue second = converter.toConnectData(TOPIC, "{ \"schema\": { \"optional\": false, \"type\": \"int32\" }, \"payload\": 2 }".getBytes());
+        assertEquals(first.schema(), second.schema());
+        assertEquals(misses, converter.getSchemaCacheMissCount());
+        assertEquals(1, converter.getSchemaCacheHitCount());
+    }
+
+    @Test
+    public void testEnvelopeSchemaSkippedWhenCached() {
+        Schema schema = SchemaBuilder.struct().field("field", SchemaBuilder.int32().build()).build();
+        byte[] first = converter.fromConnectData(TOPIC, schema, new Struct(schema).put("field", 1));
+        byte[] second = converter.fromConnectData(TOPIC, schema, new Struct(schema).put("field", 2));
+        JSONObject converted = parse(new String(second, StandardCharsets.UTF_8));
+        assertEquals(parse(new String(first, StandardCharsets.UTF_8)).get(JsonSchema.ENVELOPE_SCHEMA_FIELD_NAME),
+            converted.get(JsonSchema.ENVELOPE_SCHEMA_FIELD_NAME));
+        assertEquals(2, converted.getJSONObject(JsonSchema.ENVELOPE_PAYLOAD_FIELD_NAME).get("field"));
+
+        assertEquals(new Struct(schema).put("field", 1).toString(), converter.toConnectData(TOPIC, first).value().toString());
+        long misses = converter.getSchemaCacheMissCount();
+        long hits = converter.getSchemaCacheHitCount();
+        assertEquals(new Struct(schema).put("field", 2).toString(), converter.toConnectData(TOPIC, second).value().toString());
+        assertEquals(misses, converter.getSchemaCacheMissCount());
+        assertEquals(hits + 1, converter.getSchemaCacheHitCount());
+    }
+
     private Object parseObject(byte[] json) {
         try {
             String objStr=new String(json, StandardCharsets.UTF_8);
@@ -0,0 +1,58 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.rocketmq.connect.runtime.converter.record.json;
+
+import java.nio.charset.StandardCharsets;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class JsonEnvelopeTest {
+
+    @Test
+    public void testScan() {
+        String json = " { \"payload\" : {\"a\": \"}\\\"]\", \"b\": [1, {\"c\": null}]}, \"schema\":{\"type\":\"struct\"} } ";
+        byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+        JsonEnvelope envelope = JsonEnvelope.scan(bytes);
+        assertEquals("{\"type\":\"struct\"}", section(bytes, envelope.getSchemaOffset(), envelope.getSchemaLength()));
+        assertEquals("{\"a\": \"}\\\"]\", \"b\": [1, {\"c\": null}]}",
+            section(bytes, envelope.getPayloadOffset(), envelope.getPayloadLength()));
+    }
+
+    @Test
+    public void testScanLiterals() {
+        byte[] bytes = "{\"schema\":null,\"payload\":12.5}".getBytes(StandardCharsets.UTF_8);
+        JsonEnvelope envelope = JsonEnvelope.scan(bytes);
+        assertEquals("null", section(bytes, envelope.getSchemaOffset(), envelope.getSchemaLength()));
+        assertEquals("12.5", section(bytes, envelope.getPayloadOffset(), envelope.getPayloadLength()));
+    }
+
+    @Test
+    public void testNotAnEnvelope() {
+        assertNull(JsonEnvelope.scan("true".getBytes(StandardCharsets.UTF_8)));
+        assertNull(JsonEnvelope.scan("{}".getBytes(StandardCharsets.UTF_8)));
+        assertNull(JsonEnvelope.scan("{\"payload\":1}".getBytes(StandardCharsets.UTF_8)));
+        assertNull(JsonEnvelope.scan("{\"schema\":{\"type\":\"int32\"},\"payload\":1".getBytes(StandardCharsets.UTF_8)));
+        assertNull(JsonEnvelope.scan("{\"schema\":{\"type\":\"int32\"},\"payload\":\"1}".getBytes(StandardCharsets.UTF_8)));
+        assertNull(JsonEnvelope.scan("{\"schema\":{},\"payload\":1} x".getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private static String section(byte[] bytes, int offset, int length) {
+        return new String(bytes, offset, length, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,60 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.rocketmq.connect.runtime.converter.record.json;
+
+import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.JSONObject;
+import java.nio.charset.StandardCharsets;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+public class SchemaCacheKeyTest {
+
+    @Test
+    public void testEqualSchemas() {
+        JSONObject schema = JSON.parseObject("{\"type\":\"struct\",\"fields\":[{\"type\":\"int32\",\"field\":\"a\"}]}");
+        JSONObject reordered = JSON.parseObject("{\"fields\":[{\"field\":\"a\",\"type\":\"int32\"}],\"type\":\"struct\"}");
+        assertEquals(SchemaCacheKey.of(schema), SchemaCacheKey.of(reordered));
+        assertEquals(SchemaCacheKey.of(schema).hashCode(), SchemaCacheKey.of(reordered).hashCode());
+        assertNotEquals(SchemaCacheKey.of(schema), SchemaCacheKey.of(JSON.parseObject("{\"type\":\"int32\"}")));
+    }
+
+    @Test
+    public void testCollidingFingerprints() {
+        // schemas whose fingerprints collide are told apart by the schemas themselves
+        assertNotEquals(new SchemaCacheKey(1L, JSON.parseObject("{\"type\":\"int32\"}")),
+            new SchemaCacheKey(1L, JSON.parseObject("{\"type\":\"int64\"}")));
+    }
+
+    @Test
+    public void testSerializedSchemas() {
+        byte[] message = "{\"schema\":{\"type\":\"int32\"},\"payload\":1}".getBytes(StandardCharsets.UTF_8);
+        byte[] schema = "{\"type\":\"int32\"}".getBytes(StandardCharsets.UTF_8);
+        SchemaCacheKey key = SchemaCacheKey.of(message, 10, schema.length);
+        assertEquals(SchemaCacheKey.of(schema, 0, schema.length), key);
+        assertEquals(key, key.copy());
+        assertEquals(key.hashCode(), key.copy().hashCode());
+        assertNotEquals(SchemaCacheKey.of(JSON.parseObject("{\"type\":\"int32\"}")), key);
+
+        // the cached copy does not change with the message it was read from
+        SchemaCacheKey cached = key.copy();
+        message[20] = 'x';
+        assertNotEquals(cached, key);
+    }
+}
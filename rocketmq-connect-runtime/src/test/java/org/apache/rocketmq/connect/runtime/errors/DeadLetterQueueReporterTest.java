@@ -0,0 +1,118 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.rocketmq.connect.runtime.errors;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.apache.rocketmq.client.producer.DefaultMQProducer;
+import org.apache.rocketmq.common.message.Message;
+import org.apache.rocketmq.common.message.MessageExt;
+import org.apache.rocketmq.connect.runtime.common.ConnectKeyValue;
+import org.apache.rocketmq.connect.runtime.stats.ConnectStatsManager;
+import org.apache.rocketmq.connect.runtime.stats.MetricsRegistry;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+
+@RunWith(MockitoJUnitRunner.class)
+public class DeadLetterQueueReporterTest {
+
+    private static final String CONNECTOR_NAME = "testConnector";
+
+    private static final String DLQ_TOPIC = "testDlqTopic";
+
+    @Mock
+    private DefaultMQProducer producer;
+
+    private final MetricsRegistry metricsRegistry = new MetricsRegistry();
+
+    @Test
+    public void testReportedRecordsSent() {
+        DeadLetterQueueReporter reporter = new DeadLetterQueueReporter(producer, config(100, 32, "drop"), CONNECTOR_NAME, metricsRegistry);
+        for (int i = 0; i < 5; i++) {
+            reporter.report(context(i));
+        }
+        reporter.close();
+
+        assertThat(count(ConnectStatsManager.DLQ_RECORD_REPORT_NUMS)).isEqualTo(5);
+        assertThat(count(ConnectStatsManager.DLQ_RECORD_SEND_NUMS)).isEqualTo(5);
+        assertThat(count(ConnectStatsManager.DLQ_RECORD_DROP_NUMS)).isEqualTo(0);
+        assertThat(metricsRegistry.getGauges().get(ConnectStatsManager.DLQ_RECORD_BUFFERED_NUMS).get(CONNECTOR_NAME)).isEqualTo(0);
+    }
+
+    @Test
+    public void testRecordsDroppedWhenBufferFull() throws Exception {
+        CountDownLatch sendLatch = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            sendLatch.await(10, TimeUnit.SECONDS);
+            return null;
+        }).when(producer).send(any(Message.class));
+        DeadLetterQueueReporter reporter = new DeadLetterQueueReporter(producer, config(2, 1, "drop"), CONNECTOR_NAME, metricsRegistry);
+        for (int i = 0; i < 5; i++) {
+            reporter.report(context(i));
+        }
+        // at most one record is being sent and two are buffered
+        assertThat(count(ConnectStatsManager.DLQ_RECORD_DROP_NUMS)).isGreaterThanOrEqualTo(2);
+
+        sendLatch.countDown();
+        reporter.close();
+        assertThat(count(ConnectStatsManager.DLQ_RECORD_SEND_NUMS) + count(ConnectStatsManager.DLQ_RECORD_DROP_NUMS)).isEqualTo(5);
+    }
+
+    @Test
+    public void testContextHeaders() {
+        DeadLetterQueueReporter reporter = new DeadLetterQueueReporter(producer, config(100, 32, "block"), CONNECTOR_NAME, metricsRegistry);
+        Message producerRecord = new Message(DLQ_TOPIC, new byte[0]);
+        reporter.populateContextHeaders(producerRecord, context(7));
+        reporter.close();
+
+        assertThat(producerRecord.getUserProperty(DeadLetterQueueReporter.ERROR_HEADER_ORIG_TOPIC)).isEqualTo("testTopic");
+        assertThat(producerRecord.getUserProperty(DeadLetterQueueReporter.ERROR_HEADER_ORIG_OFFSET)).isEqualTo("7");
+        assertThat(producerRecord.getUserProperty(DeadLetterQueueReporter.ERROR_HEADER_STAGE)).isEqualTo(ErrorReporter.Stage.CONVERTER.name());
+        assertThat(producerRecord.getUserProperty(DeadLetterQueueReporter.ERROR_HEADER_EXCEPTION)).isEqualTo(IllegalStateException.class.getName());
+        assertThat(producerRecord.getUserProperty(DeadLetterQueueReporter.ERROR_HEADER_EXCEPTION_MESSAGE)).isEqualTo("bad record");
+        assertThat(producerRecord.getUserProperty(DeadLetterQueueReporter.ERROR_HEADER_EXCEPTION_STACK_TRACE)).isNotEmpty();
+    }
+
+    private static ConnectKeyValue config(int bufferSize, int batchSize, String overflowPolicy) {
+        ConnectKeyValue config = new ConnectKeyValue();
+        config.put(DeadLetterQueueConfig.DLQ_TOPIC_NAME_CONFIG, DLQ_TOPIC);
+        config.put(DeadLetterQueueConfig.DLQ_BUFFER_SIZE_CONFIG, bufferSize);
+        config.put(DeadLetterQueueConfig.DLQ_BATCH_SIZE_CONFIG, batchSize);
+        config.put(DeadLetterQueueConfig.DLQ_OVERFLOW_POLICY_CONFIG, overflowPolicy);
+        return config;
+    }
+
+    private static ProcessingContext context(long offset) {
+        MessageExt message = new MessageExt();
+        message.setTopic("testTopic");
+        message.setQueueOffset(offset);
+        message.setBody(("record" + offset).getBytes());
+        return new ProcessingContext(message, null, ErrorReporter.Stage.CONVERTER, DeadLetterQueueReporterTest.class,
+            1, new IllegalStateException("bad record"));
+    }
+
+    private long count(String name) {
+        return metricsRegistry.getCounters().get(name).get(CONNECTOR_NAME);
+    }
+}
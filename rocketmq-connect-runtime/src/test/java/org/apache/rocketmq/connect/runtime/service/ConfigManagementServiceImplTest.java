@@ -20,6 +20,7 @@ package org.apache.rocketmq.connect.runtime.service;
 import java.io.File;
 import java.lang.reflect.Field;
 import java.lang.reflect.Method;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -47,6 +48,7 @@ import org.mockito.invocation.InvocationOnMock;
 import org.mockito.junit.MockitoJUnitRunner;
 import org.mockito.stubbing.Answer;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
 import static org.mockito.ArgumentMatchers.any;
@@ -221,5 +223,61 @@ public class ConfigManagementServiceImplTest {
         assertNotNull(connectKeyValues);
     }
 
-}
+    @Test
+    public void testCompactTombstones() throws Exception {
+        ConnectKeyValue tombstone = new ConnectKeyValue();
+        tombstone.put(RuntimeConfigDefine.CONFIG_DELETED, 1);
+        tombstone.put(RuntimeConfigDefine.UPDATE_TIMESTAMP, System.currentTimeMillis());
+        connectorKeyValueStore.put(connectorName, tombstone);
+        taskKeyValueStore.put(connectorName, Collections.singletonList(tombstone));
+
+        final Method compactTombstones = ConfigManagementServiceImpl.class.getDeclaredMethod("compactTombstones");
+        compactTombstones.setAccessible(true);
+        compactTombstones.invoke(configManagementService);
 
+        assertNotNull(connectorKeyValueStore.get(connectorName));
+        assertNotNull(taskKeyValueStore.get(connectorName));
+
+        tombstone.put(RuntimeConfigDefine.UPDATE_TIMESTAMP, System.currentTimeMillis() - connectConfig.getConfigTombstoneRetention() - 1);
+        compactTombstones.invoke(configManagementService);
+
+        assertNull(connectorKeyValueStore.get(connectorName));
+        assertNull(taskKeyValueStore.get(connectorName));
+    }
+
+    @Test
+    public void testMergeSkipsOlderConfig() throws Exception {
+        long timestamp = System.currentTimeMillis();
+        ConnectKeyValue current = new ConnectKeyValue();
+        current.put(RuntimeConfigDefine.CONNECTOR_CLASS, "current");
+        current.put(RuntimeConfigDefine.UPDATE_TIMESTAMP, timestamp);
+        List<ConnectKeyValue> currentTaskConfigs = Collections.singletonList(current);
+        connectorKeyValueStore.put(connectorName, current);
+        taskKeyValueStore.put(connectorName, currentTaskConfigs);
+
+        ConnectKeyValue older = new ConnectKeyValue();
+        older.put(RuntimeConfigDefine.CONNECTOR_CLASS, "older");
+        older.put(RuntimeConfigDefine.UPDATE_TIMESTAMP, timestamp - 1);
+        ConnAndTaskConfigs olderConfigs = new ConnAndTaskConfigs();
+        olderConfigs.getConnectorConfigs().put(connectorName, older);
+
+        final Method mergeConfig = ConfigManagementServiceImpl.class.getDeclaredMethod("mergeConfig", ConnAndTaskConfigs.class);
+        mergeConfig.setAccessible(true);
+
+        assertEquals(false, mergeConfig.invoke(configManagementService, olderConfigs));
+        assertEquals(current, connectorKeyValueStore.get(connectorName));
+        assertEquals(currentTaskConfigs, taskKeyValueStore.get(connectorName));
+
+        ConnectKeyValue newer = new ConnectKeyValue();
+        newer.put(RuntimeConfigDefine.CONNECTOR_CLASS, "newer");
+        newer.put(RuntimeConfigDefine.UPDATE_TIMESTAMP, timestamp + 1);
+        ConnAndTaskConfigs newerConfigs = new ConnAndTaskConfigs();
+        newerConfigs.getConnectorConfigs().put(connectorName, newer);
+        newerConfigs.getTaskConfigs().put(connectorName, Collections.singletonList(newer));
+
+        assertEquals(true, mergeConfig.invoke(configManagementService, newerConfigs));
+        assertEquals(newer, connectorKeyValueStore.get(connectorName));
+        assertEquals(Collections.singletonList(newer), taskKeyValueStore.get(connectorName));
+    }
+
+}
@@ -51,6 +51,7 @@ import org.mockito.invocation.InvocationOnMock;
 import org.mockito.junit.MockitoJUnitRunner;
 import org.mockito.stubbing.Answer;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
@@ -267,4 +268,54 @@ public class PositionManagementServiceImplTest {
         assertTrue(needSyncPartition.size() == 0);
     }
 
-}
\ No newline at end of file
+    @Test
+    public void testMergeDeltaSkipsStaleSequence() throws Exception {
+        receive("POSITION_CHANG_KEY:otherWorker:5", newPositions("200"));
+        receive("POSITION_CHANG_KEY:otherWorker:4", newPositions("100"));
+
+        assertEquals("200", positionStore.get(sourcePartition).getOffset().get("next_position"));
+
+        receive("POSITION_CHANG_KEY:otherWorker:6", newPositions("300"));
+
+        assertEquals("300", positionStore.get(sourcePartition).getOffset().get("next_position"));
+    }
+
+    @Test
+    public void testMergeSnapshotKeepsNewerDelta() throws Exception {
+        receive("POSITION_SNAPSHOT_KEY:otherWorker:1", newPositions("100"));
+
+        assertNull(positionStore.get(sourcePartition));
+
+        receive("POSITION_CHANG_KEY:otherWorker:5", newPositions("200"));
+        receive("POSITION_SNAPSHOT_KEY:" + connectConfig.getWorkerId() + ":1", newPositions("100"));
+
+        assertEquals("200", positionStore.get(sourcePartition).getOffset().get("next_position"));
+    }
+
+    @Test
+    public void testMergeSnapshotKeepsLocalPosition() throws Exception {
+        positionManagementService.putPosition(newPositions("200"));
+        receive("POSITION_SNAPSHOT_KEY:" + connectConfig.getWorkerId() + ":1", newPositions("100"));
+
+        assertEquals("200", positionStore.get(sourcePartition).getOffset().get("next_position"));
+    }
+
+    private Map<ExtendRecordPartition, RecordOffset> newPositions(String nextPosition) {
+        Map<String, String> offset = Maps.newHashMap("binlog_file", "binlogFilename");
+        offset.put("next_position", nextPosition);
+        Map<ExtendRecordPartition, RecordOffset> result = new HashMap<>();
+        result.put(sourcePartition, new RecordOffset(offset));
+        return result;
+    }
+
+    private void receive(String key, Map<ExtendRecordPartition, RecordOffset> result) throws Exception {
+        final Field dataSynchronizerField = PositionManagementServiceImpl.class.getDeclaredField("dataSynchronizer");
+        dataSynchronizerField.setAccessible(true);
+        final Field dataSynchronizerCallbackField = BrokerBasedLog.class.getDeclaredField("dataSynchronizerCallback");
+        dataSynchronizerCallbackField.setAccessible(true);
+        DataSynchronizerCallback<String, Map<ExtendRecordPartition, RecordOffset>> dataSynchronizerCallback =
+            (DataSynchronizerCallback<String, Map<ExtendRecordPartition, RecordOffset>>) dataSynchronizerCallbackField.get(dataSynchronizerField.get(positionManagementService));
+        dataSynchronizerCallback.onCompletion(null, key, result);
+    }
+
+}
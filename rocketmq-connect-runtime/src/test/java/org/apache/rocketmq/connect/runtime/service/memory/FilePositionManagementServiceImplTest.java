@@ -0,0 +1,113 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.apache.rocketmq.connect.runtime.service.memory;
+
+import io.openmessaging.connector.api.data.RecordOffset;
+import java.io.File;
+import java.util.HashMap;
+import java.util.Map;
+import org.apache.rocketmq.connect.runtime.config.ConnectConfig;
+import org.apache.rocketmq.connect.runtime.stats.ConnectStatsManager;
+import org.apache.rocketmq.connect.runtime.stats.MetricsRegistry;
+import org.apache.rocketmq.connect.runtime.store.ExtendRecordPartition;
+import org.apache.rocketmq.connect.runtime.utils.TestUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class FilePositionManagementServiceImplTest {
+
+    private static final String STORE_DIR = "target/unit_test_store/testFilePositionManagementService";
+
+    private ConnectConfig connectConfig;
+
+    private FilePositionManagementServiceImpl positionManagementService;
+
+    @Before
+    public void init() {
+        connectConfig = new ConnectConfig();
+        connectConfig.setStorePathRootDir(STORE_DIR);
+        connectConfig.setPositionFlushInterval(60 * 1000);
+        connectConfig.setPositionFlushDirtyThreshold(2);
+        positionManagementService = new FilePositionManagementServiceImpl();
+        positionManagementService.initialize(connectConfig);
+        positionManagementService.start();
+    }
+
+    @After
+    public void destroy() {
+        positionManagementService.stop();
+        TestUtils.deleteFile(new File(STORE_DIR));
+    }
+
+    @Test
+    public void testFlushWhenDirtyThresholdReached() throws Exception {
+        positionManagementService.putPosition(partition("p1"), offset(1));
+        Thread.sleep(200);
+        assertThat(positionManagementService.getLastFlushSize()).isEqualTo(0);
+
+        positionManagementService.putPosition(partition("p1"), offset(2));
+        long deadline = System.currentTimeMillis() + 3000;
+        while (0 == positionManagementService.getLastFlushSize() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(positionManagementService.getLastFlushSize()).isEqualTo(2);
+        assertThat(positionManagementService.getLastFlushLag()).isGreaterThanOrEqualTo(0);
+    }
+
+    @Test
+    public void testFlushMetricsRegistered() throws Exception {
+        MetricsRegistry metricsRegistry = new MetricsRegistry();
+        positionManagementService.registerMetrics(metricsRegistry, "testWorker");
+
+        positionManagementService.putPosition(partition("p1"), offset(1));
+        positionManagementService.putPosition(partition("p2"), offset(1));
+        long deadline = System.currentTimeMillis() + 3000;
+        while (0 == positionManagementService.getLastFlushSize() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(metricsRegistry.gauge(ConnectStatsManager.POSITION_FLUSH_SIZE, "testWorker").get()).isEqualTo(2);
+        assertThat(metricsRegistry.gauge(ConnectStatsManager.POSITION_FLUSH_LAG, "testWorker").get()).isGreaterThanOrEqualTo(0);
+    }
+
+    @Test
+    public void testFlushOnStop() {
+        positionManagementService.putPosition(partition("p1"), offset(1));
+        positionManagementService.stop();
+
+        positionManagementService = new FilePositionManagementServiceImpl();
+        positionManagementService.initialize(connectConfig);
+        positionManagementService.start();
+        RecordOffset position = positionManagementService.getPosition(partition("p1"));
+        assertThat(((Number) position.getOffset().get("offset")).longValue()).isEqualTo(1L);
+    }
+
+    private ExtendRecordPartition partition(String partition) {
+        Map<String, String> partitionMap = new HashMap<>();
+        partitionMap.put("partition", partition);
+        return new ExtendRecordPartition("namespace", partitionMap);
+    }
+
+    private RecordOffset offset(long offset) {
+        Map<String, Long> offsetMap = new HashMap<>();
+        offsetMap.put("offset", offset);
+        return new RecordOffset(offsetMap);
+    }
+}
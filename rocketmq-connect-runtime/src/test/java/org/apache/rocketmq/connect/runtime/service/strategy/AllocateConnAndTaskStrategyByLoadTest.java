@@ -0,0 +1,66 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.apache.rocketmq.connect.runtime.service.strategy;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.apache.rocketmq.connect.runtime.common.ConnAndTaskConfigs;
+import org.apache.rocketmq.connect.runtime.common.ConnectKeyValue;
+import org.apache.rocketmq.connect.runtime.config.RuntimeConfigDefine;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class AllocateConnAndTaskStrategyByLoadTest {
+
+    @Test
+    public void testSpreadHotTasks() {
+        AllocateConnAndTaskStrategyByLoad strategy = new AllocateConnAndTaskStrategyByLoad();
+        List<String> allWorker = Arrays.asList("192.168.0.1@1", "192.168.0.2@1", "192.168.0.3@1");
+
+        Map<String, ConnectKeyValue> connectorConfigs = new HashMap<>();
+        Map<String, List<ConnectKeyValue>> taskConfigs = new HashMap<>();
+        for (int i = 0; i < 5; i++) {
+            String connectorName = "connector" + i;
+            ConnectKeyValue connectorConfig = new ConnectKeyValue();
+            if (0 == i) {
+                connectorConfig.put(RuntimeConfigDefine.TASK_LOAD_WEIGHT, 10);
+            }
+            connectorConfigs.put(connectorName, connectorConfig);
+            List<ConnectKeyValue> connectKVs = new ArrayList<>();
+            for (int j = 0; j < 3; j++) {
+                ConnectKeyValue kv = new ConnectKeyValue();
+                kv.put("index", connectorName + "-" + j);
+                connectKVs.add(kv);
+            }
+            taskConfigs.put(connectorName, connectKVs);
+        }
+
+        int totalHotTasks = 0;
+        for (String worker : allWorker) {
+            ConnAndTaskConfigs allocate = strategy.allocate(allWorker, worker, connectorConfigs, taskConfigs);
+            List<ConnectKeyValue> hotTasks = allocate.getTaskConfigs().get("connector0");
+            assertEquals(1, null == hotTasks ? 0 : hotTasks.size());
+            totalHotTasks += hotTasks.size();
+        }
+        assertEquals(3, totalHotTasks);
+    }
+}
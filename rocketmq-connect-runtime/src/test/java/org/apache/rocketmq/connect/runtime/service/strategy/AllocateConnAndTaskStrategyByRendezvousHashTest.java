@@ -0,0 +1,115 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.apache.rocketmq.connect.runtime.service.strategy;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.apache.rocketmq.connect.runtime.common.ConnAndTaskConfigs;
+import org.apache.rocketmq.connect.runtime.common.ConnectKeyValue;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class AllocateConnAndTaskStrategyByRendezvousHashTest {
+
+    private AllocateConnAndTaskStrategyByRendezvousHash strategy;
+
+    private Map<String, ConnectKeyValue> connectorConfigs;
+
+    private Map<String, List<ConnectKeyValue>> taskConfigs;
+
+    @Before
+    public void init() {
+        strategy = new AllocateConnAndTaskStrategyByRendezvousHash();
+        connectorConfigs = new HashMap<>();
+        taskConfigs = new HashMap<>();
+        for (int i = 0; i < 10; i++) {
+            String connectorName = "connector" + i;
+            connectorConfigs.put(connectorName, new ConnectKeyValue());
+            List<ConnectKeyValue> connectKVs = new ArrayList<>();
+            for (int j = 0; j < 8; j++) {
+                ConnectKeyValue kv = new ConnectKeyValue();
+                kv.put("index", connectorName + "-" + j);
+                connectKVs.add(kv);
+            }
+            taskConfigs.put(connectorName, connectKVs);
+        }
+    }
+
+    @Test
+    public void testAllocateAllOnceAndBalanced() {
+        List<String> allWorker = Arrays.asList("192.168.0.1@1", "192.168.0.2@1", "192.168.0.3@1");
+        Map<ConnectKeyValue, String> allocation = allocateTasks(allWorker);
+        assertEquals(80, allocation.size());
+
+        int connectorCnt = 0;
+        for (String worker : allWorker) {
+            ConnAndTaskConfigs allocate = strategy.allocate(allWorker, worker, connectorConfigs, taskConfigs);
+            int taskCnt = allocate.getTaskConfigs().values().stream().mapToInt(List::size).sum();
+            connectorCnt += allocate.getConnectorConfigs().size();
+            assertTrue(allocate.getConnectorConfigs().size() + taskCnt <= 30);
+        }
+        assertEquals(10, connectorCnt);
+    }
+
+    @Test
+    public void testWorkerLeaveOnlyMovesItsTasks() {
+        Map<ConnectKeyValue, String> before = allocateTasks(Arrays.asList("192.168.0.1@1", "192.168.0.2@1", "192.168.0.3@1"));
+        Map<ConnectKeyValue, String> after = allocateTasks(Arrays.asList("192.168.0.1@1", "192.168.0.2@1"));
+
+        int moved = 0;
+        for (Map.Entry<ConnectKeyValue, String> entry : before.entrySet()) {
+            if (!"192.168.0.3@1".equals(entry.getValue()) && !entry.getValue().equals(after.get(entry.getKey()))) {
+                moved++;
+            }
+        }
+        assertTrue(moved <= 4);
+    }
+
+    @Test
+    public void testConfigUpdateKeepsAllocation() {
+        List<String> allWorker = Arrays.asList("192.168.0.1@1", "192.168.0.2@1", "192.168.0.3@1");
+        Map<ConnectKeyValue, String> before = allocateTasks(allWorker);
+
+        ConnectKeyValue updated = new ConnectKeyValue();
+        updated.put("index", "connector0-0");
+        updated.put("updated", "true");
+        String worker = before.get(taskConfigs.get("connector0").get(0));
+        taskConfigs.get("connector0").set(0, updated);
+        Map<ConnectKeyValue, String> after = allocateTasks(allWorker);
+
+        assertEquals(worker, after.get(updated));
+    }
+
+    private Map<ConnectKeyValue, String> allocateTasks(List<String> allWorker) {
+        Map<ConnectKeyValue, String> allocation = new HashMap<>();
+        for (String worker : allWorker) {
+            ConnAndTaskConfigs allocate = strategy.allocate(allWorker, worker, connectorConfigs, taskConfigs);
+            allocate.getTaskConfigs().values().forEach(kvs -> kvs.forEach(kv -> {
+                assertNull(allocation.put(kv, worker));
+            }));
+        }
+        return allocation;
+    }
+}
@@ -0,0 +1,51 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package org.apache.rocketmq.connect.runtime.stats;
+
+import java.io.StringWriter;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class PrometheusMetricsWriterTest {
+
+    @Test
+    public void testWriteMetrics() throws Exception {
+        MetricsRegistry registry = new MetricsRegistry();
+        registry.counter(ConnectStatsManager.SINK_RECORD_READ_NUMS, "task-1").add(3);
+        registry.counter(ConnectStatsManager.SINK_RECORD_READ_NUMS, "task-2").add(4);
+        registry.histogram(ConnectStatsManager.SINK_RECORD_PUT_RT, "task-1").record(10);
+        registry.gauge(ConnectStatsManager.SOURCE_PARTITION_LAG, "task-1@{table=\"t1\"}").set(5);
+
+        StringWriter out = new StringWriter();
+        PrometheusMetricsWriter writer = new PrometheusMetricsWriter(out, "worker-1");
+        registry.accept(writer);
+        writer.writeGauge("connectors", null, null, 2);
+        writer.flush();
+
+        String text = out.toString();
+        assertThat(text).containsOnlyOnce("# TYPE rocketmq_connect_sink_record_read_nums counter\n");
+        assertThat(text).contains("rocketmq_connect_sink_record_read_nums{worker=\"worker-1\",key=\"task-1\"} 3\n");
+        assertThat(text).contains("rocketmq_connect_sink_record_read_nums{worker=\"worker-1\",key=\"task-2\"} 4\n");
+        assertThat(text).contains("# TYPE rocketmq_connect_sink_record_put_rt summary\n");
+        assertThat(text).contains("rocketmq_connect_sink_record_put_rt{worker=\"worker-1\",key=\"task-1\",quantile=\"0.99\"} 10\n");
+        assertThat(text).contains("rocketmq_connect_sink_record_put_rt_count{worker=\"worker-1\",key=\"task-1\"} 1\n");
+        assertThat(text).contains("rocketmq_connect_source_partition_lag{worker=\"worker-1\",key=\"task-1@{table=\\\"t1\\\"}\"} 5\n");
+        assertThat(text).contains("rocketmq_connect_connectors{worker=\"worker-1\"} 2\n");
+    }
+}
@@ -0,0 +1,139 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package org.apache.rocketmq.connect.runtime.stats;
+
+import io.openmessaging.connector.api.data.Schema;
+import io.openmessaging.connector.api.data.SchemaBuilder;
+import java.util.Collections;
+import java.util.Map;
+import org.apache.rocketmq.common.message.MessageQueue;
+import org.apache.rocketmq.connect.runtime.connectorwrapper.Worker;
+import org.apache.rocketmq.connect.runtime.converter.record.json.JsonConverter;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.entry;
+
+public class TaskMetricsTest {
+
+    @Test
+    public void testRecordTaskAndWorkerTotal() {
+        MetricsRegistry registry = new MetricsRegistry();
+        TaskMetrics task1 = new TaskMetrics(registry, "worker", "task-1", Worker.TaskType.DIRECT);
+        TaskMetrics task2 = new TaskMetrics(registry, "worker", "task-2", Worker.TaskType.SOURCE);
+        task1.incSourceRecordWriteNums(3);
+        task2.incSourceRecordWriteNums(4);
+        task1.incSinkRecordPutRT(10);
+        task1.incSinkRecordPullStatusNums("FOUND");
+        task1.incSinkRecordPullStatusNums("FOUND");
+
+        assertThat(registry.getCounters().get(ConnectStatsManager.SOURCE_RECORD_WRITE_NUMS))
+            .containsEntry("task-1", 3L).containsEntry("task-2", 4L);
+        assertThat(registry.getCounters().get(ConnectStatsManager.SOURCE_RECORD_WRITE_TOTAL_NUMS))
+            .containsEntry("worker", 7L);
+        assertThat(registry.getCounters().get(ConnectStatsManager.SINK_RECORD_PULL_STATUS_NUMS))
+            .containsEntry("task-1@FOUND", 2L);
+        assertThat(registry.getHistograms().get(ConnectStatsManager.SINK_RECORD_PUT_TOTAL_RT).get("worker").getMax())
+            .isEqualTo(10);
+    }
+
+    @Test
+    public void testTaskWithoutIdOnlyRecordsWorkerTotal() {
+        MetricsRegistry registry = new MetricsRegistry();
+        TaskMetrics taskMetrics = new TaskMetrics(registry, "worker", "", Worker.TaskType.SOURCE);
+        taskMetrics.incSourceRecordPollNums(5);
+
+        assertThat(registry.getCounters()).doesNotContainKey(ConnectStatsManager.SOURCE_RECORD_POLL_NUMS);
+        assertThat(registry.getCounters().get(ConnectStatsManager.SOURCE_RECORD_POLL_TOTAL_NUMS))
+            .containsEntry("worker", 5L);
+    }
+
+    @Test
+    public void testLagGaugesRemovedOnClose() {
+        MetricsRegistry registry = new MetricsRegistry();
+        TaskMetrics taskMetrics = new TaskMetrics(registry, "worker", "task-1", Worker.TaskType.DIRECT);
+        Map<String, String> partition = Collections.singletonMap("table", "t1");
+        taskMetrics.updateSinkQueueLag(new MessageQueue("topic", "broker", 1), 100);
+        taskMetrics.updateSinkQueueLag(new MessageQueue("topic", "broker", 1), 30);
+        taskMetrics.updateSourcePartitionLag(partition, 50);
+
+        assertThat(registry.getGauges().get(ConnectStatsManager.SINK_QUEUE_LAG))
+            .containsOnly(entry("task-1@topic:broker:1", 30L));
+        assertThat(registry.getGauges().get(ConnectStatsManager.SOURCE_PARTITION_LAG))
+            .containsOnly(entry("task-1@" + partition, 50L));
+
+        taskMetrics.close();
+        assertThat(registry.getGauges().get(ConnectStatsManager.SINK_QUEUE_LAG)).isEmpty();
+        assertThat(registry.getGauges().get(ConnectStatsManager.SOURCE_PARTITION_LAG)).isEmpty();
+    }
+
+    @Test
+    public void testOnlyMetricsOfTaskTypeRegistered() {
+        MetricsRegistry registry = new MetricsRegistry();
+        TaskMetrics taskMetrics = new TaskMetrics(registry, "worker", "task-1", Worker.TaskType.SINK);
+        taskMetrics.incSourceRecordPollNums(5);
+        taskMetrics.incSinkRecordReadNums(3, 10);
+
+        assertThat(registry.getCounters()).doesNotContainKeys(ConnectStatsManager.SOURCE_RECORD_POLL_NUMS,
+            ConnectStatsManager.SOURCE_RECORD_POLL_TOTAL_NUMS);
+        assertThat(registry.getHistograms()).doesNotContainKey(ConnectStatsManager.SOURCE_RECORD_SEND_ACK_RT);
+        assertThat(registry.getCounters().get(ConnectStatsManager.SINK_RECORD_READ_NUMS)).containsEntry("task-1", 3L);
+    }
+
+    @Test
+    public void testTaskMetricsRemovedOnClose() {
+        MetricsRegistry registry = new MetricsRegistry();
+        TaskMetrics taskMetrics = new TaskMetrics(registry, "worker", "task-1", Worker.TaskType.DIRECT);
+        taskMetrics.incSourceRecordWriteNums(3);
+        taskMetrics.incSourceRecordSendAckRT(10);
+        taskMetrics.incSinkRecordPutRT(10);
+        taskMetrics.incSinkRecordPullStatusNums("FOUND");
+
+        taskMetrics.close();
+        for (Map<String, Long> counters : registry.getCounters().values()) {
+            assertThat(counters).doesNotContainKeys("task-1", "task-1@FOUND");
+        }
+        for (Map<String, LatencyHistogram.Snapshot> histograms : registry.getHistograms().values()) {
+            assertThat(histograms).doesNotContainKey("task-1");
+        }
+        assertThat(registry.getCounters().get(ConnectStatsManager.SOURCE_RECORD_WRITE_TOTAL_NUMS))
+            .containsEntry("worker", 3L);
+    }
+
+    @Test
+    public void testSchemaCacheGauges() {
+        MetricsRegistry registry = new MetricsRegistry();
+        TaskMetrics taskMetrics = new TaskMetrics(registry, "worker", "task-1", Worker.TaskType.SINK);
+        JsonConverter converter = new JsonConverter();
+        converter.configure(Collections.<String, Object>emptyMap());
+        Schema schema = SchemaBuilder.string().build();
+        converter.fromConnectData("topic", schema, "value");
+        converter.fromConnectData("topic", schema, "value");
+        taskMetrics.updateSchemaCacheNums(converter);
+
+        assertThat(registry.getGauges().get(ConnectStatsManager.SCHEMA_CACHE_HIT_NUMS))
+            .containsOnly(entry("task-1", converter.getSchemaCacheHitCount()));
+        assertThat(registry.getGauges().get(ConnectStatsManager.SCHEMA_CACHE_MISS_NUMS))
+            .containsOnly(entry("task-1", converter.getSchemaCacheMissCount()));
+        assertThat(converter.getSchemaCacheHitCount()).isGreaterThan(0);
+
+        taskMetrics.close();
+        assertThat(registry.getGauges().get(ConnectStatsManager.SCHEMA_CACHE_HIT_NUMS)).isEmpty();
+        assertThat(registry.getGauges().get(ConnectStatsManager.SCHEMA_CACHE_MISS_NUMS)).isEmpty();
+    }
+}
@@ -0,0 +1,132 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.apache.rocketmq.connect.runtime.store;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+import org.apache.rocketmq.connect.runtime.converter.JsonConverter;
+import org.apache.rocketmq.connect.runtime.utils.TestUtils;
+import org.junit.After;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class LogFileBaseKeyValueStoreTest {
+
+    private static final String STORE_DIR = "target/unit_test_store/testLogFileBaseKeyValueStore";
+
+    private static final String LOG_FILE = STORE_DIR + "/position.log";
+
+    private static final String LEGACY_FILE = STORE_DIR + "/position.json";
+
+    @After
+    public void destroy() {
+        TestUtils.deleteFile(new File(STORE_DIR));
+    }
+
+    @Test
+    public void testPersistAndLoad() {
+        LogFileBaseKeyValueStore<String, String> store = newStore();
+        assertThat(store.load()).isTrue();
+        store.put("key1", "value1");
+        store.put("key2", "value2");
+        store.persist();
+        store.put("key1", "value3");
+        store.remove("key2");
+        store.persist();
+
+        LogFileBaseKeyValueStore<String, String> reloaded = newStore();
+        assertThat(reloaded.load()).isTrue();
+        assertThat(reloaded.size()).isEqualTo(1);
+        assertThat(reloaded.get("key1")).isEqualTo("value3");
+    }
+
+    @Test
+    public void testGrowAndCompact() {
+        LogFileBaseKeyValueStore<String, String> store = newStore();
+        store.load();
+        char[] chars = new char[64 * 1024];
+        Arrays.fill(chars, 'v');
+        String value = new String(chars);
+        for (int i = 0; i < 40; i++) {
+            store.put("key" + (i % 2), value + i);
+            store.persist();
+        }
+        assertThat(new File(LOG_FILE).length()).isLessThan(40L * value.length());
+
+        LogFileBaseKeyValueStore<String, String> reloaded = newStore();
+        assertThat(reloaded.load()).isTrue();
+        assertThat(reloaded.getKVMap()).containsOnlyKeys("key0", "key1");
+        assertThat(reloaded.get("key0")).isEqualTo(value + 38);
+        assertThat(reloaded.get("key1")).isEqualTo(value + 39);
+    }
+
+    @Test
+    public void testRecoverFromBrokenRecord() throws Exception {
+        LogFileBaseKeyValueStore<String, String> store = newStore();
+        store.load();
+        store.put("key1", "value1");
+        store.persist();
+        store.put("key2", "value2");
+        store.persist();
+        corruptLastByte();
+
+        LogFileBaseKeyValueStore<String, String> recovered = newStore();
+        assertThat(recovered.load()).isTrue();
+        assertThat(recovered.getKVMap()).containsOnlyKeys("key1");
+        recovered.put("key3", "value3");
+        recovered.persist();
+
+        LogFileBaseKeyValueStore<String, String> reloaded = newStore();
+        reloaded.load();
+        assertThat(reloaded.getKVMap()).containsOnlyKeys("key1", "key3");
+    }
+
+    @Test
+    public void testLoadLegacyStore() {
+        FileBaseKeyValueStore<String, String> legacyStore = new FileBaseKeyValueStore<>(LEGACY_FILE,
+            new JsonConverter(String.class), new JsonConverter(String.class));
+        legacyStore.put("key1", "value1");
+        legacyStore.persist();
+
+        LogFileBaseKeyValueStore<String, String> store = newStore();
+        assertThat(store.load()).isTrue();
+        assertThat(store.get("key1")).isEqualTo("value1");
+
+        LogFileBaseKeyValueStore<String, String> reloaded = newStore();
+        reloaded.load();
+        assertThat(reloaded.get("key1")).isEqualTo("value1");
+    }
+
+    private LogFileBaseKeyValueStore<String, String> newStore() {
+        return new LogFileBaseKeyValueStore<>(LOG_FILE, LEGACY_FILE, new JsonConverter(String.class), new JsonConverter(String.class));
+    }
+
+    private void corruptLastByte() throws Exception {
+        try (RandomAccessFile file = new RandomAccessFile(LOG_FILE, "rw")) {
+            long position = file.length() - 1;
+            file.seek(position);
+            while (0 == file.read()) {
+                file.seek(--position);
+            }
+            file.seek(position);
+            file.write('x');
+        }
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.apache.rocketmq.connect.runtime.utils;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class PluginIndexTest {
+
+    private final String fileDir = System.getProperty("user.home") + File.separator + "pluginIndexTest";
+
+    private final String indexPath = fileDir + File.separator + "pluginIndex.json";
+
+    private final List<String> plugins = Arrays.asList("org.test.TestConnector", "org.test.TestTask");
+
+    private Path jar;
+
+    @Before
+    public void before() throws Exception {
+        jar = new File(fileDir, "test-connector.jar").toPath();
+        Files.createDirectories(jar.getParent());
+        Files.write(jar, "jar content".getBytes());
+    }
+
+    @After
+    public void destroy() {
+        TestUtils.deleteFile(new File(fileDir));
+    }
+
+    @Test
+    public void testLookupIndexed() throws Exception {
+        PluginIndex index = new PluginIndex(indexPath);
+        assertThat(index.lookup(fileDir, Collections.singletonList(jar))).isNull();
+
+        index.put(fileDir, Collections.singletonList(jar), plugins);
+        assertThat(index.lookup(fileDir, Collections.singletonList(jar))).isEqualTo(plugins);
+    }
+
+    @Test
+    public void testTouchedJarStillIndexed() throws Exception {
+        PluginIndex index = new PluginIndex(indexPath);
+        index.put(fileDir, Collections.singletonList(jar), plugins);
+        Files.setLastModifiedTime(jar, FileTime.fromMillis(Files.getLastModifiedTime(jar).toMillis() + 60000));
+
+        assertThat(index.lookup(fileDir, Collections.singletonList(jar))).isEqualTo(plugins);
+    }
+
+    @Test
+    public void testChangedJarScannedAgain() throws Exception {
+        PluginIndex index = new PluginIndex(indexPath);
+        index.put(fileDir, Collections.singletonList(jar), plugins);
+        long lastModified = Files.getLastModifiedTime(jar).toMillis();
+        Files.write(jar, "new content".getBytes());
+        Files.setLastModifiedTime(jar, FileTime.fromMillis(lastModified + 60000));
+
+        assertThat(index.lookup(fileDir, Collections.singletonList(jar))).isNull();
+    }
+
+    @Test
+    public void testPersisted() throws Exception {
+        PluginIndex index = new PluginIndex(indexPath);
+        index.put(fileDir, Collections.singletonList(jar), plugins);
+        index.persist();
+
+        PluginIndex loaded = new PluginIndex(indexPath);
+        assertThat(loaded.lookup(fileDir, Collections.singletonList(jar))).isEqualTo(plugins);
+
+        loaded.retain(Collections.emptyList());
+        loaded.persist();
+        assertThat(new PluginIndex(indexPath).lookup(fileDir, Collections.singletonList(jar))).isNull();
+    }
+}
@@ -0,0 +1,71 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.apache.rocketmq.connect.runtime.utils;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.slf4j.Logger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class SampledLoggerTest {
+
+    @Mock
+    private Logger log;
+
+    @Test
+    public void testLogOncePerInterval() throws Exception {
+        when(log.isWarnEnabled()).thenReturn(true);
+        SampledLogger sampledLogger = new SampledLogger(log, 100);
+
+        sampledLogger.warn("message {}", 1);
+        assertThat(sampledLogger.isWarnEnabled()).isFalse();
+        sampledLogger.warn("message {}", 2);
+        sampledLogger.warn("message {}", 3);
+        // matchers of varargs are passed in an array, or else they select the overload with two arguments
+        verify(log, times(1)).warn(eq("message {} [{} similar logs skipped]"), new Object[] {eq(1), eq(0L)});
+        verify(log, never()).warn(eq("message {} [{} similar logs skipped]"), new Object[] {eq(2), anyLong()});
+        verify(log, never()).warn(eq("message {} [{} similar logs skipped]"), new Object[] {eq(3), anyLong()});
+
+        Thread.sleep(150);
+        assertThat(sampledLogger.isWarnEnabled()).isTrue();
+        Exception exception = new RuntimeException("test");
+        sampledLogger.warn("message {}", 4, exception);
+        verify(log).warn(eq("message {} [{} similar logs skipped]"), eq(4), eq(2L), eq(exception));
+    }
+
+    @Test
+    public void testDisabledLevel() {
+        when(log.isInfoEnabled()).thenReturn(false);
+        SampledLogger sampledLogger = new SampledLogger(log, 100);
+
+        assertThat(sampledLogger.isInfoEnabled()).isFalse();
+        sampledLogger.info("message {}", 1);
+        verify(log, never()).info(anyString(), new Object[] {eq(1), anyLong()});
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.apache.rocketmq.connect.runtime.utils.datasync;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class LogMessageCodecTest {
+
+    @Test
+    public void testEncodeAndDecode() {
+        LogMessageCodec codec = new LogMessageCodec(1024);
+        List<byte[]> messages = codec.encode(bytes("key"), bytes("value"));
+        assertThat(messages).hasSize(1);
+        assertThat(LogMessageCodec.isEncoded(messages.get(0))).isTrue();
+
+        Map.Entry<byte[], byte[]> entry = codec.decode(messages.get(0));
+        assertThat(entry.getKey()).isEqualTo(bytes("key"));
+        assertThat(entry.getValue()).isEqualTo(bytes("value"));
+    }
+
+    @Test
+    public void testCompress() {
+        LogMessageCodec codec = new LogMessageCodec(64 * 1024);
+        StringBuilder value = new StringBuilder();
+        for (int i = 0; i < 1000; i++) {
+            value.append("{\"next_position\":\"").append(i).append("\"}");
+        }
+        List<byte[]> messages = codec.encode(bytes("key"), bytes(value.toString()));
+        assertThat(messages).hasSize(1);
+        assertThat(messages.get(0).length).isLessThan(value.length() / 4);
+
+        assertThat(codec.decode(messages.get(0)).getValue()).isEqualTo(bytes(value.toString()));
+    }
+
+    @Test
+    public void testChunk() {
+        LogMessageCodec codec = new LogMessageCodec(1024);
+        byte[] value = new byte[10 * 1024];
+        new Random(0).nextBytes(value);
+        List<byte[]> messages = codec.encode(bytes("key"), value);
+        assertThat(messages.size()).isGreaterThan(1);
+        for (byte[] message : messages) {
+            assertThat(message.length).isLessThanOrEqualTo(1024);
+        }
+
+        for (int i = messages.size() - 1; i > 0; i--) {
+            assertThat(codec.decode(messages.get(i))).isNull();
+        }
+        Map.Entry<byte[], byte[]> entry = codec.decode(messages.get(0));
+        assertThat(entry.getKey()).isEqualTo(bytes("key"));
+        assertThat(entry.getValue()).isEqualTo(value);
+    }
+
+    @Test
+    public void testLegacyMessageNotEncoded() {
+        assertThat(LogMessageCodec.isEncoded(bytes("{\"a2V5\":\"dmFsdWU=\"}"))).isFalse();
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+}